@@ -1,6 +1,7 @@
 package com.gaia3d.basic.exception;
 
 import com.gaia3d.util.DecimalUtils;
+import com.gaia3d.util.ImageCache;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -129,6 +130,12 @@ public class Reporter {
         stringBuilder.append("Fatal Count : ").append(fatalCount).append("\n");
         stringBuilder.append("Total Report Count : ").append(reportList.size()).append("\n");
         addLine(stringBuilder);
+        ImageCache imageCache = ImageCache.getInstance();
+        stringBuilder.append("[Image Cache]\n");
+        stringBuilder.append("Hit Count : ").append(imageCache.getHitCount()).append("\n");
+        stringBuilder.append("Miss Count : ").append(imageCache.getMissCount()).append("\n");
+        stringBuilder.append("Eviction Count : ").append(imageCache.getEvictionCount()).append("\n");
+        addLine(stringBuilder);
         if (!reportList.isEmpty()) {
             stringBuilder.append("[Detail Report]\n");
         } else {
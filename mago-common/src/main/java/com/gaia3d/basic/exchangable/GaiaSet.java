@@ -59,8 +59,8 @@ public class GaiaSet implements Serializable {
     public static GaiaSet readFile(Path path) throws FileNotFoundException {
         File input = path.toFile();
         Path imagesPath = path.getParent().resolve("images");
-        try (ObjectInputStream inputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(input)))) {
-            GaiaSet gaiaSet = (GaiaSet) inputStream.readObject();
+        try {
+            GaiaSet gaiaSet = new GaiaSetReader().read(input);
             for (GaiaMaterial material : gaiaSet.getMaterials()) {
                 material.getTextures().forEach((textureType, textures) -> {
                     for (GaiaTexture texture : textures) {
@@ -82,8 +82,8 @@ public class GaiaSet implements Serializable {
     public static GaiaSet readFileForPR(Path path) throws FileNotFoundException {
         File input = path.toFile();
         Path imagesPath = path.getParent().resolve("images");
-        try (ObjectInputStream inputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(input)))) {
-            GaiaSet gaiaSet = (GaiaSet) inputStream.readObject();
+        try {
+            GaiaSet gaiaSet = new GaiaSetReader().read(input);
 //            for (GaiaMaterial material : gaiaSet.getMaterials()) {
 //                material.getTextures().forEach((textureType, textures) -> {
 //                    for (GaiaTexture texture : textures) {
@@ -114,10 +114,8 @@ public class GaiaSet implements Serializable {
         String tempFileName = this.attribute.getIdentifier().toString() + "." + FormatType.TEMP.getExtension();
         Path tempDir = path.resolve(this.projectName);
         File tempFile = path.resolve(tempFileName).toFile();
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
-            outputStream.writeObject(this);
-            outputStream.flush();
-            outputStream.close();
+        try {
+            new GaiaSetWriter().write(this, tempFile);
 
             // Copy images to the temp directory
             if (copyTexturesToNewPath) {
@@ -136,10 +134,8 @@ public class GaiaSet implements Serializable {
     public Path writeFileInThePath(Path path) {
         Path folder = path.getParent();
         File file = path.toFile();
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
-            outputStream.writeObject(this);
-            outputStream.flush();
-            outputStream.close();
+        try {
+            new GaiaSetWriter().write(this, file);
 
             // Copy images to the temp directory
             for (GaiaMaterial material : materials) {
@@ -153,6 +149,10 @@ public class GaiaSet implements Serializable {
     }
 
     public Path writeFile(Path path, int serial, GaiaAttribute gaiaAttribute) {
+        return writeFile(path, serial, new GaiaSetWriter());
+    }
+
+    public Path writeFile(Path path, int serial, GaiaSetWriter writer) {
         int dividedNumber = serial / 10000;
 
         String tempFileName = this.attribute.getIdentifier().toString() + "." + FormatType.TEMP.getExtension();
@@ -162,8 +162,8 @@ public class GaiaSet implements Serializable {
             log.debug("Directory created: {}", tempDir);
         }
         File tempFile = tempDir.resolve(tempFileName).toFile();
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
-            outputStream.writeObject(this);
+        try {
+            writer.write(this, tempFile);
 
             // Copy images to the temp directory
             for (GaiaMaterial material : materials) {
@@ -186,8 +186,8 @@ public class GaiaSet implements Serializable {
             log.debug("Directory created: {}", tempDir);
         }
         File tempFile = tempDir.resolve(tempFileName).toFile();
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
-            outputStream.writeObject(this);
+        try {
+            new GaiaSetWriter().write(this, tempFile);
 
             // Copy images to the temp directory
             for (GaiaMaterial material : materials) {
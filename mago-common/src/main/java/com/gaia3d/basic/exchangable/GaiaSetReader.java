@@ -0,0 +1,335 @@
+package com.gaia3d.basic.exchangable;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.basic.model.GaiaAttribute;
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.AccessorType;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.basic.types.TextureType;
+import org.joml.Matrix4d;
+import org.joml.Vector4d;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a GaiaSet written by {@link GaiaSetWriter}.
+ * Files without the binary header are read as legacy java serialized GaiaSet.
+ */
+public class GaiaSetReader {
+    private static final AttributeType[] ATTRIBUTE_TYPES = AttributeType.values();
+    private static final AccessorType[] ACCESSOR_TYPES = AccessorType.values();
+    private static final TextureType[] TEXTURE_TYPES = TextureType.values();
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(GaiaSetWriter.BUFFER_SIZE);
+
+    public GaiaSet read(File file) throws IOException {
+        try (InputStream fileStream = new BufferedInputStream(new FileInputStream(file), GaiaSetWriter.BUFFER_SIZE)) {
+            fileStream.mark(Integer.BYTES);
+            DataInputStream headerStream = new DataInputStream(fileStream);
+            int magic = headerStream.readInt();
+            if (magic != GaiaSetWriter.MAGIC) {
+                fileStream.reset();
+                return readLegacy(fileStream);
+            }
+            short version = headerStream.readShort();
+            if (version > GaiaSetWriter.VERSION) {
+                throw new IOException("Unsupported GaiaSet temp version : " + version);
+            }
+            byte flags = headerStream.readByte();
+            if ((flags & GaiaSetWriter.FLAG_COMPRESSED) != 0) {
+                Inflater inflater = new Inflater();
+                try {
+                    InflaterInputStream inflaterStream = new InflaterInputStream(fileStream, inflater, GaiaSetWriter.BUFFER_SIZE);
+                    DataInputStream bodyStream = new DataInputStream(new BufferedInputStream(inflaterStream, GaiaSetWriter.BUFFER_SIZE));
+                    return readSet(bodyStream);
+                } finally {
+                    inflater.end();
+                }
+            }
+            return readSet(headerStream);
+        }
+    }
+
+    private GaiaSet readLegacy(InputStream stream) throws IOException {
+        try (ObjectInputStream inputStream = new ObjectInputStream(stream)) {
+            return (GaiaSet) inputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Invalid legacy GaiaSet temp file", e);
+        }
+    }
+
+    private GaiaSet readSet(DataInputStream stream) throws IOException {
+        GaiaSet gaiaSet = new GaiaSet();
+        gaiaSet.setProjectName(readString(stream));
+        gaiaSet.setFilePath(readString(stream));
+        gaiaSet.setFolderPath(readString(stream));
+        gaiaSet.setProjectFolderPath(readString(stream));
+        gaiaSet.setOutputDir(readString(stream));
+        gaiaSet.setAttribute(readAttribute(stream));
+
+        int materialCount = stream.readInt();
+        if (materialCount >= 0) {
+            List<GaiaMaterial> materials = new ArrayList<>(materialCount);
+            for (int i = 0; i < materialCount; i++) {
+                materials.add(readMaterial(stream));
+            }
+            gaiaSet.setMaterials(materials);
+        }
+
+        int bufferDataCount = stream.readInt();
+        if (bufferDataCount >= 0) {
+            List<GaiaBufferDataSet> bufferDataList = new ArrayList<>(bufferDataCount);
+            for (int i = 0; i < bufferDataCount; i++) {
+                bufferDataList.add(readBufferDataSet(stream));
+            }
+            gaiaSet.setBufferDataList(bufferDataList);
+        }
+        return gaiaSet;
+    }
+
+    private GaiaAttribute readAttribute(DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        GaiaAttribute attribute = new GaiaAttribute();
+        if (stream.readBoolean()) {
+            long mostSignificantBits = stream.readLong();
+            long leastSignificantBits = stream.readLong();
+            attribute.setIdentifier(new UUID(mostSignificantBits, leastSignificantBits));
+        } else {
+            attribute.setIdentifier(null);
+        }
+        attribute.setFileName(readString(stream));
+        attribute.setNodeName(readString(stream));
+        int attributeCount = stream.readInt();
+        if (attributeCount >= 0) {
+            Map<String, String> attributes = new HashMap<>();
+            for (int i = 0; i < attributeCount; i++) {
+                String key = readString(stream);
+                String value = readString(stream);
+                attributes.put(key, value);
+            }
+            attribute.setAttributes(attributes);
+        } else {
+            attribute.setAttributes(null);
+        }
+        return attribute;
+    }
+
+    private GaiaMaterial readMaterial(DataInputStream stream) throws IOException {
+        GaiaMaterial material = new GaiaMaterial();
+        material.setId(stream.readInt());
+        material.setName(readString(stream));
+        material.setDiffuseColor(readVector4d(stream));
+        material.setAmbientColor(readVector4d(stream));
+        material.setSpecularColor(readVector4d(stream));
+        material.setShininess(stream.readFloat());
+        material.setRepeat(stream.readBoolean());
+        material.setBlend(stream.readBoolean());
+        material.setOpaque(stream.readBoolean());
+
+        int textureTypeCount = stream.readInt();
+        if (textureTypeCount < 0) {
+            material.setTextures(null);
+            return material;
+        }
+        Map<TextureType, List<GaiaTexture>> textures = new HashMap<>();
+        for (int i = 0; i < textureTypeCount; i++) {
+            TextureType textureType = readEnum(stream, TEXTURE_TYPES);
+            int textureCount = stream.readInt();
+            if (textureCount < 0) {
+                textures.put(textureType, null);
+                continue;
+            }
+            List<GaiaTexture> textureList = new ArrayList<>(textureCount);
+            for (int j = 0; j < textureCount; j++) {
+                textureList.add(readTexture(stream));
+            }
+            textures.put(textureType, textureList);
+        }
+        material.setTextures(textures);
+        return material;
+    }
+
+    private GaiaTexture readTexture(DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        GaiaTexture texture = new GaiaTexture();
+        texture.setParentPath(readString(stream));
+        texture.setName(readString(stream));
+        texture.setPath(readString(stream));
+        texture.setType(readEnum(stream, TEXTURE_TYPES));
+        texture.setWidth(stream.readInt());
+        texture.setHeight(stream.readInt());
+        texture.setFormat(stream.readInt());
+        texture.setByteLength(stream.readInt());
+        texture.setTextureId(stream.readInt());
+        return texture;
+    }
+
+    private GaiaBufferDataSet readBufferDataSet(DataInputStream stream) throws IOException {
+        GaiaBufferDataSet bufferDataSet = new GaiaBufferDataSet();
+        bufferDataSet.setMaterialId(stream.readInt());
+        bufferDataSet.setId(stream.readInt());
+        bufferDataSet.setGuid(readString(stream));
+
+        if (stream.readBoolean()) {
+            GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+            boundingBox.setMinX(stream.readDouble());
+            boundingBox.setMinY(stream.readDouble());
+            boundingBox.setMinZ(stream.readDouble());
+            boundingBox.setMaxX(stream.readDouble());
+            boundingBox.setMaxY(stream.readDouble());
+            boundingBox.setMaxZ(stream.readDouble());
+            boundingBox.setInit(stream.readBoolean());
+            bufferDataSet.setBoundingBox(boundingBox);
+        }
+
+        if (stream.readBoolean()) {
+            GaiaRectangle rectangle = new GaiaRectangle();
+            rectangle.setMinX(stream.readDouble());
+            rectangle.setMinY(stream.readDouble());
+            rectangle.setMaxX(stream.readDouble());
+            rectangle.setMaxY(stream.readDouble());
+            bufferDataSet.setTexcoordBoundingRectangle(rectangle);
+        }
+
+        bufferDataSet.setTransformMatrix(readMatrix4d(stream));
+        bufferDataSet.setPreMultipliedTransformMatrix(readMatrix4d(stream));
+
+        int bufferCount = stream.readInt();
+        if (bufferCount < 0) {
+            bufferDataSet.setBuffers(null);
+            return bufferDataSet;
+        }
+        Map<AttributeType, GaiaBuffer> buffers = bufferDataSet.getBuffers();
+        for (int i = 0; i < bufferCount; i++) {
+            AttributeType attributeType = readEnum(stream, ATTRIBUTE_TYPES);
+            buffers.put(attributeType, readBuffer(stream));
+        }
+        return bufferDataSet;
+    }
+
+    private GaiaBuffer readBuffer(DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        GaiaBuffer buffer = new GaiaBuffer();
+        buffer.setAttributeType(readEnum(stream, ATTRIBUTE_TYPES));
+        buffer.setAccessorType(readEnum(stream, ACCESSOR_TYPES));
+        buffer.setElementsCount(stream.readInt());
+        buffer.setGlDimension(stream.readByte());
+        buffer.setGlType(stream.readInt());
+        buffer.setGlTarget(stream.readInt());
+        buffer.setFloats(readFloats(stream));
+        buffer.setInts(readInts(stream));
+        buffer.setShorts(readShorts(stream));
+        buffer.setBytes(readBytes(stream));
+        return buffer;
+    }
+
+    private float[] readFloats(DataInputStream stream) throws IOException {
+        int count = stream.readInt();
+        if (count < 0) {
+            return null;
+        }
+        float[] values = new float[count];
+        int chunk = GaiaSetWriter.BUFFER_SIZE / Float.BYTES;
+        for (int offset = 0; offset < count; offset += chunk) {
+            int length = Math.min(chunk, count - offset);
+            stream.readFully(scratch.array(), 0, length * Float.BYTES);
+            scratch.clear();
+            scratch.asFloatBuffer().get(values, offset, length);
+        }
+        return values;
+    }
+
+    private int[] readInts(DataInputStream stream) throws IOException {
+        int count = stream.readInt();
+        if (count < 0) {
+            return null;
+        }
+        int[] values = new int[count];
+        int chunk = GaiaSetWriter.BUFFER_SIZE / Integer.BYTES;
+        for (int offset = 0; offset < count; offset += chunk) {
+            int length = Math.min(chunk, count - offset);
+            stream.readFully(scratch.array(), 0, length * Integer.BYTES);
+            scratch.clear();
+            scratch.asIntBuffer().get(values, offset, length);
+        }
+        return values;
+    }
+
+    private short[] readShorts(DataInputStream stream) throws IOException {
+        int count = stream.readInt();
+        if (count < 0) {
+            return null;
+        }
+        short[] values = new short[count];
+        int chunk = GaiaSetWriter.BUFFER_SIZE / Short.BYTES;
+        for (int offset = 0; offset < count; offset += chunk) {
+            int length = Math.min(chunk, count - offset);
+            stream.readFully(scratch.array(), 0, length * Short.BYTES);
+            scratch.clear();
+            scratch.asShortBuffer().get(values, offset, length);
+        }
+        return values;
+    }
+
+    private byte[] readBytes(DataInputStream stream) throws IOException {
+        int count = stream.readInt();
+        if (count < 0) {
+            return null;
+        }
+        byte[] values = new byte[count];
+        stream.readFully(values);
+        return values;
+    }
+
+    private Vector4d readVector4d(DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        return new Vector4d(stream.readDouble(), stream.readDouble(), stream.readDouble(), stream.readDouble());
+    }
+
+    private Matrix4d readMatrix4d(DataInputStream stream) throws IOException {
+        if (!stream.readBoolean()) {
+            return null;
+        }
+        double[] values = new double[16];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = stream.readDouble();
+        }
+        return new Matrix4d().set(values);
+    }
+
+    private <T extends Enum<T>> T readEnum(DataInputStream stream, T[] values) throws IOException {
+        byte ordinal = stream.readByte();
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= values.length) {
+            throw new IOException("Invalid enum ordinal in GaiaSet temp file : " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private String readString(DataInputStream stream) throws IOException {
+        int length = stream.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        stream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
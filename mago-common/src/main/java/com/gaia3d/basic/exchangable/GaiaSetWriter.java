@@ -0,0 +1,320 @@
+package com.gaia3d.basic.exchangable;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.basic.model.GaiaAttribute;
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.basic.types.TextureType;
+import lombok.Getter;
+import org.joml.Matrix4d;
+import org.joml.Vector4d;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a GaiaSet as a versioned, schema-fixed binary temp file.
+ * Layout : [magic(int)][version(short)][flags(byte)][body]
+ * The body holds every field of the set in a fixed order, and primitive arrays are written as length-prefixed blocks.
+ * If the compressed flag is set, the body is deflate-compressed.
+ */
+public class GaiaSetWriter {
+    public static final int MAGIC = 0x4D475354; // "MGST"
+    public static final short VERSION = 1;
+    public static final byte FLAG_COMPRESSED = 0x01;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    @Getter
+    private final boolean compressed;
+    private final ByteBuffer scratch = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public GaiaSetWriter() {
+        this(false);
+    }
+
+    public GaiaSetWriter(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public void write(GaiaSet gaiaSet, File file) throws IOException {
+        try (OutputStream fileStream = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+            DataOutputStream headerStream = new DataOutputStream(fileStream);
+            headerStream.writeInt(MAGIC);
+            headerStream.writeShort(VERSION);
+            headerStream.writeByte(compressed ? FLAG_COMPRESSED : 0);
+            headerStream.flush();
+
+            if (compressed) {
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    DeflaterOutputStream deflaterStream = new DeflaterOutputStream(fileStream, deflater, BUFFER_SIZE);
+                    DataOutputStream bodyStream = new DataOutputStream(new BufferedOutputStream(deflaterStream, BUFFER_SIZE));
+                    writeSet(bodyStream, gaiaSet);
+                    bodyStream.flush();
+                    deflaterStream.finish();
+                } finally {
+                    deflater.end();
+                }
+            } else {
+                DataOutputStream bodyStream = new DataOutputStream(fileStream);
+                writeSet(bodyStream, gaiaSet);
+                bodyStream.flush();
+            }
+        }
+    }
+
+    private void writeSet(DataOutputStream stream, GaiaSet gaiaSet) throws IOException {
+        writeString(stream, gaiaSet.getProjectName());
+        writeString(stream, gaiaSet.getFilePath());
+        writeString(stream, gaiaSet.getFolderPath());
+        writeString(stream, gaiaSet.getProjectFolderPath());
+        writeString(stream, gaiaSet.getOutputDir());
+        writeAttribute(stream, gaiaSet.getAttribute());
+
+        List<GaiaMaterial> materials = gaiaSet.getMaterials();
+        if (materials == null) {
+            stream.writeInt(-1);
+        } else {
+            stream.writeInt(materials.size());
+            for (GaiaMaterial material : materials) {
+                writeMaterial(stream, material);
+            }
+        }
+
+        List<GaiaBufferDataSet> bufferDataList = gaiaSet.getBufferDataList();
+        if (bufferDataList == null) {
+            stream.writeInt(-1);
+        } else {
+            stream.writeInt(bufferDataList.size());
+            for (GaiaBufferDataSet bufferDataSet : bufferDataList) {
+                writeBufferDataSet(stream, bufferDataSet);
+            }
+        }
+    }
+
+    private void writeAttribute(DataOutputStream stream, GaiaAttribute attribute) throws IOException {
+        stream.writeBoolean(attribute != null);
+        if (attribute == null) {
+            return;
+        }
+        UUID identifier = attribute.getIdentifier();
+        stream.writeBoolean(identifier != null);
+        if (identifier != null) {
+            stream.writeLong(identifier.getMostSignificantBits());
+            stream.writeLong(identifier.getLeastSignificantBits());
+        }
+        writeString(stream, attribute.getFileName());
+        writeString(stream, attribute.getNodeName());
+        Map<String, String> attributes = attribute.getAttributes();
+        if (attributes == null) {
+            stream.writeInt(-1);
+        } else {
+            stream.writeInt(attributes.size());
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                writeString(stream, entry.getKey());
+                writeString(stream, entry.getValue());
+            }
+        }
+    }
+
+    private void writeMaterial(DataOutputStream stream, GaiaMaterial material) throws IOException {
+        stream.writeInt(material.getId());
+        writeString(stream, material.getName());
+        writeVector4d(stream, material.getDiffuseColor());
+        writeVector4d(stream, material.getAmbientColor());
+        writeVector4d(stream, material.getSpecularColor());
+        stream.writeFloat(material.getShininess());
+        stream.writeBoolean(material.isRepeat());
+        stream.writeBoolean(material.isBlend());
+        stream.writeBoolean(material.isOpaque());
+
+        Map<TextureType, List<GaiaTexture>> textures = material.getTextures();
+        if (textures == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(textures.size());
+        for (Map.Entry<TextureType, List<GaiaTexture>> entry : textures.entrySet()) {
+            writeEnum(stream, entry.getKey());
+            List<GaiaTexture> textureList = entry.getValue();
+            if (textureList == null) {
+                stream.writeInt(-1);
+                continue;
+            }
+            stream.writeInt(textureList.size());
+            for (GaiaTexture texture : textureList) {
+                writeTexture(stream, texture);
+            }
+        }
+    }
+
+    private void writeTexture(DataOutputStream stream, GaiaTexture texture) throws IOException {
+        stream.writeBoolean(texture != null);
+        if (texture == null) {
+            return;
+        }
+        writeString(stream, texture.getParentPath());
+        writeString(stream, texture.getName());
+        writeString(stream, texture.getPath());
+        writeEnum(stream, texture.getType());
+        stream.writeInt(texture.getWidth());
+        stream.writeInt(texture.getHeight());
+        stream.writeInt(texture.getFormat());
+        stream.writeInt(texture.getByteLength());
+        stream.writeInt(texture.getTextureId());
+    }
+
+    private void writeBufferDataSet(DataOutputStream stream, GaiaBufferDataSet bufferDataSet) throws IOException {
+        stream.writeInt(bufferDataSet.getMaterialId());
+        stream.writeInt(bufferDataSet.getId());
+        writeString(stream, bufferDataSet.getGuid());
+
+        GaiaBoundingBox boundingBox = bufferDataSet.getBoundingBox();
+        stream.writeBoolean(boundingBox != null);
+        if (boundingBox != null) {
+            stream.writeDouble(boundingBox.getMinX());
+            stream.writeDouble(boundingBox.getMinY());
+            stream.writeDouble(boundingBox.getMinZ());
+            stream.writeDouble(boundingBox.getMaxX());
+            stream.writeDouble(boundingBox.getMaxY());
+            stream.writeDouble(boundingBox.getMaxZ());
+            stream.writeBoolean(boundingBox.isInit());
+        }
+
+        GaiaRectangle rectangle = bufferDataSet.getTexcoordBoundingRectangle();
+        stream.writeBoolean(rectangle != null);
+        if (rectangle != null) {
+            stream.writeDouble(rectangle.getMinX());
+            stream.writeDouble(rectangle.getMinY());
+            stream.writeDouble(rectangle.getMaxX());
+            stream.writeDouble(rectangle.getMaxY());
+        }
+
+        writeMatrix4d(stream, bufferDataSet.getTransformMatrix());
+        writeMatrix4d(stream, bufferDataSet.getPreMultipliedTransformMatrix());
+
+        Map<AttributeType, GaiaBuffer> buffers = bufferDataSet.getBuffers();
+        if (buffers == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(buffers.size());
+        for (Map.Entry<AttributeType, GaiaBuffer> entry : buffers.entrySet()) {
+            writeEnum(stream, entry.getKey());
+            writeBuffer(stream, entry.getValue());
+        }
+    }
+
+    private void writeBuffer(DataOutputStream stream, GaiaBuffer buffer) throws IOException {
+        stream.writeBoolean(buffer != null);
+        if (buffer == null) {
+            return;
+        }
+        writeEnum(stream, buffer.getAttributeType());
+        writeEnum(stream, buffer.getAccessorType());
+        stream.writeInt(buffer.getElementsCount());
+        stream.writeByte(buffer.getGlDimension());
+        stream.writeInt(buffer.getGlType());
+        stream.writeInt(buffer.getGlTarget());
+        writeFloats(stream, buffer.getFloats());
+        writeInts(stream, buffer.getInts());
+        writeShorts(stream, buffer.getShorts());
+        writeBytes(stream, buffer.getBytes());
+    }
+
+    private void writeFloats(DataOutputStream stream, float[] values) throws IOException {
+        if (values == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(values.length);
+        int chunk = BUFFER_SIZE / Float.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int length = Math.min(chunk, values.length - offset);
+            scratch.clear();
+            scratch.asFloatBuffer().put(values, offset, length);
+            stream.write(scratch.array(), 0, length * Float.BYTES);
+        }
+    }
+
+    private void writeInts(DataOutputStream stream, int[] values) throws IOException {
+        if (values == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(values.length);
+        int chunk = BUFFER_SIZE / Integer.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int length = Math.min(chunk, values.length - offset);
+            scratch.clear();
+            scratch.asIntBuffer().put(values, offset, length);
+            stream.write(scratch.array(), 0, length * Integer.BYTES);
+        }
+    }
+
+    private void writeShorts(DataOutputStream stream, short[] values) throws IOException {
+        if (values == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(values.length);
+        int chunk = BUFFER_SIZE / Short.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int length = Math.min(chunk, values.length - offset);
+            scratch.clear();
+            scratch.asShortBuffer().put(values, offset, length);
+            stream.write(scratch.array(), 0, length * Short.BYTES);
+        }
+    }
+
+    private void writeBytes(DataOutputStream stream, byte[] values) throws IOException {
+        if (values == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        stream.writeInt(values.length);
+        stream.write(values);
+    }
+
+    private void writeVector4d(DataOutputStream stream, Vector4d vector) throws IOException {
+        stream.writeBoolean(vector != null);
+        if (vector != null) {
+            stream.writeDouble(vector.x);
+            stream.writeDouble(vector.y);
+            stream.writeDouble(vector.z);
+            stream.writeDouble(vector.w);
+        }
+    }
+
+    private void writeMatrix4d(DataOutputStream stream, Matrix4d matrix) throws IOException {
+        stream.writeBoolean(matrix != null);
+        if (matrix != null) {
+            double[] values = matrix.get(new double[16]);
+            for (double value : values) {
+                stream.writeDouble(value);
+            }
+        }
+    }
+
+    private void writeEnum(DataOutputStream stream, Enum<?> value) throws IOException {
+        stream.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    private void writeString(DataOutputStream stream, String value) throws IOException {
+        if (value == null) {
+            stream.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stream.writeInt(bytes.length);
+        stream.write(bytes);
+    }
+}
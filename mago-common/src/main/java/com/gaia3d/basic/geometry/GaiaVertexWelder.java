@@ -0,0 +1,178 @@
+package com.gaia3d.basic.geometry;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaVertex;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Welds coincident vertices with a spatial hash of the vertex positions.
+ * The positions are quantized in cells of the weld distance, a vertex is compared only with the master vertices
+ * of its cell and of the 26 neighbor cells, so the welding runs in near-linear time.
+ * The first vertex of a group is the master, a following vertex is welded to the first master it is weldable with.
+ */
+public class GaiaVertexWelder {
+    private static final long HASH_X = 0x9E3779B97F4A7C15L;
+    private static final long HASH_Y = 0xC2B2AE3D27D4EB4FL;
+    private static final long HASH_Z = 0x165667B19E3779F9L;
+
+    /**
+     * @return for each vertex the index of its master vertex, a master vertex is its own master
+     */
+    public static int[] weld(List<GaiaVertex> vertices, double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
+        return weld(vertices, GaiaVertex::getPosition, error, (master, vertex) -> master.isWeldable(vertex, error, checkTexCoord, checkNormal, checkColor, checkBatchId));
+    }
+
+    /**
+     * @param positionGetter the position of a vertex
+     * @param error          the maximum distance of the welded positions
+     * @param weldable       the full weld predicate of a master and a vertex, including the position distance
+     * @return for each vertex the index of its master vertex, a master vertex is its own master
+     */
+    public static <V> int[] weld(List<V> vertices, Function<V, Vector3d> positionGetter, double error, BiPredicate<V, V> weldable) {
+        int vertexCount = vertices.size();
+        int[] masters = new int[vertexCount];
+        int[] nextInCell = new int[vertexCount];
+        CellTable cellTable = new CellTable(vertexCount);
+        double cellSize = error > 0 ? error : 1.0d;
+
+        for (int i = 0; i < vertexCount; i++) {
+            V vertex = vertices.get(i);
+            Vector3d position = positionGetter.apply(vertex);
+            long cellX = (long) Math.floor(position.x / cellSize);
+            long cellY = (long) Math.floor(position.y / cellSize);
+            long cellZ = (long) Math.floor(position.z / cellSize);
+
+            int master = findMaster(vertices, vertex, cellTable, nextInCell, cellX, cellY, cellZ, weldable);
+            if (master >= 0) {
+                masters[i] = master;
+            } else {
+                masters[i] = i;
+                nextInCell[i] = cellTable.put(hash(cellX, cellY, cellZ), i);
+            }
+        }
+        return masters;
+    }
+
+    /**
+     * @return for each vertex the index of its master in the list of the master vertices
+     */
+    public static int[] compact(int[] masters) {
+        int[] newIndices = new int[masters.length];
+        int masterCount = 0;
+        for (int i = 0; i < masters.length; i++) {
+            if (masters[i] == i) {
+                newIndices[i] = masterCount++;
+            } else {
+                newIndices[i] = newIndices[masters[i]];
+            }
+        }
+        return newIndices;
+    }
+
+    /**
+     * Replaces the vertex indices of the faces, and removes the faces collapsed by the welding.
+     * @return the faces that are not collapsed
+     */
+    public static List<GaiaFace> remapFaces(List<GaiaFace> faces, int[] newIndices) {
+        List<GaiaFace> remainingFaces = new ArrayList<>(faces.size());
+        for (GaiaFace face : faces) {
+            int[] indices = face.getIndices();
+            for (int k = 0; k < indices.length; k++) {
+                indices[k] = newIndices[indices[k]];
+            }
+            if (!hasRepeatedIndex(indices)) {
+                remainingFaces.add(face);
+            }
+        }
+        return remainingFaces;
+    }
+
+    private static boolean hasRepeatedIndex(int[] indices) {
+        for (int k = 0; k < indices.length; k++) {
+            for (int m = k + 1; m < indices.length; m++) {
+                if (indices[k] == indices[m]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static <V> int findMaster(List<V> vertices, V vertex, CellTable cellTable, int[] nextInCell, long cellX, long cellY, long cellZ, BiPredicate<V, V> weldable) {
+        int found = -1;
+        for (long x = cellX - 1; x <= cellX + 1; x++) {
+            for (long y = cellY - 1; y <= cellY + 1; y++) {
+                for (long z = cellZ - 1; z <= cellZ + 1; z++) {
+                    for (int master = cellTable.get(hash(x, y, z)); master >= 0; master = nextInCell[master]) {
+                        // the first master in vertex order, as the sequential scan
+                        if ((found < 0 || master < found) && weldable.test(vertices.get(master), vertex)) {
+                            found = master;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static long hash(long cellX, long cellY, long cellZ) {
+        return cellX * HASH_X ^ cellY * HASH_Y ^ cellZ * HASH_Z;
+    }
+
+    /**
+     * Open addressing map of the cell hashes to the last master vertex inserted in the cell.
+     * Two cells with the same hash share their list of masters, which only adds candidates to the weld predicate.
+     */
+    private static class CellTable {
+        private final long[] keys;
+        private final int[] heads;
+        private final int mask;
+
+        private CellTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+            keys = new long[capacity];
+            heads = new int[capacity];
+            Arrays.fill(heads, -1);
+            mask = capacity - 1;
+        }
+
+        private int get(long key) {
+            int slot = slot(key);
+            while (heads[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return heads[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * @return the previous head of the cell, or -1
+         */
+        private int put(long key, int value) {
+            int slot = slot(key);
+            while (heads[slot] >= 0) {
+                if (keys[slot] == key) {
+                    int previous = heads[slot];
+                    heads[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            heads[slot] = value;
+            return -1;
+        }
+
+        private int slot(long key) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+    }
+}
@@ -1,68 +1,170 @@
 package com.gaia3d.basic.geometry.voxel;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Vector3d;
 
+import java.util.Arrays;
+
 @Getter
 @Setter
 @Slf4j
 /**
  * Class representing a 3D grid of voxels.
- * Each voxel can hold a color value.
+ * Each voxel holds a color value packed in an int as RGBA, with the alpha in the lowest byte.
+ * The voxels are stored in bricks of 8x8x8 voxels, a brick is allocated on the first non-empty color written in it,
+ * so the empty space of the grid costs one null reference per brick.
  */
 public class VoxelGrid3D {
+    private static final int BRICK_SHIFT = 3;
+    private static final int BRICK_SIZE = 1 << BRICK_SHIFT;
+    private static final int BRICK_MASK = BRICK_SIZE - 1;
+
     private int gridsCountX;
     private int gridsCountY;
     private int gridsCountZ;
-    private Voxel[][][] voxels;
     private GaiaBoundingBox boundingBox;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int bricksCountX;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int bricksCountY;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int bricksCountZ;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[][] bricks;
+
     public VoxelGrid3D(int gridsCountX, int gridsCountY, int gridsCountZ, GaiaBoundingBox boundingBox) {
+        this.boundingBox = boundingBox;
+        allocate(gridsCountX, gridsCountY, gridsCountZ);
+    }
+
+    private void allocate(int gridsCountX, int gridsCountY, int gridsCountZ) {
         this.gridsCountX = gridsCountX;
         this.gridsCountY = gridsCountY;
         this.gridsCountZ = gridsCountZ;
-        this.voxels = new Voxel[gridsCountX][gridsCountY][gridsCountZ];
-        this.boundingBox = boundingBox;
+        this.bricksCountX = (gridsCountX + BRICK_MASK) >> BRICK_SHIFT;
+        this.bricksCountY = (gridsCountY + BRICK_MASK) >> BRICK_SHIFT;
+        this.bricksCountZ = (gridsCountZ + BRICK_MASK) >> BRICK_SHIFT;
+        this.bricks = new int[bricksCountX * bricksCountY * bricksCountZ][];
+    }
 
-        for (int x = 0; x < gridsCountX; x++) {
-            for (int y = 0; y < gridsCountY; y++) {
-                for (int z = 0; z < gridsCountZ; z++) {
-                    voxels[x][y][z] = new Voxel();
-                }
+    public static int packRgba(byte r, byte g, byte b, byte a) {
+        return (r & 0xFF) << 24 | (g & 0xFF) << 16 | (b & 0xFF) << 8 | (a & 0xFF);
+    }
+
+    private int brickIndex(int x, int y, int z) {
+        return ((z >> BRICK_SHIFT) * bricksCountY + (y >> BRICK_SHIFT)) * bricksCountX + (x >> BRICK_SHIFT);
+    }
+
+    private static int indexInBrick(int x, int y, int z) {
+        return (((z & BRICK_MASK) << BRICK_SHIFT) + (y & BRICK_MASK) << BRICK_SHIFT) + (x & BRICK_MASK);
+    }
+
+    /**
+     * @return the packed RGBA color of the voxel, 0 for an empty voxel
+     */
+    public int getRgba(int x, int y, int z) {
+        int[] brick = bricks[brickIndex(x, y, z)];
+        return brick == null ? 0 : brick[indexInBrick(x, y, z)];
+    }
+
+    public void setRgba(int x, int y, int z, int rgba) {
+        int brickIndex = brickIndex(x, y, z);
+        int[] brick = bricks[brickIndex];
+        if (brick == null) {
+            if (rgba == 0) {
+                return;
             }
+            brick = new int[BRICK_SIZE * BRICK_SIZE * BRICK_SIZE];
+            bricks[brickIndex] = brick;
         }
+        brick[indexInBrick(x, y, z)] = rgba;
     }
 
-    public Voxel getVoxel(int x, int y, int z) {
-        if (x < 0 || x >= gridsCountX || y < 0 || y >= gridsCountY || z < 0 || z >= gridsCountZ) {
-            int hola = 0;
+    /**
+     * Keeps the color with the highest alpha, the color is written only if its alpha is higher than the existing one.
+     */
+    private void setRgbaIfMoreOpaque(int x, int y, int z, int rgba) {
+        int alphaInt = rgba & 0xFF;
+        if (alphaInt == 0) {
+            return;
+        }
+        int brickIndex = brickIndex(x, y, z);
+        int[] brick = bricks[brickIndex];
+        if (brick == null) {
+            brick = new int[BRICK_SIZE * BRICK_SIZE * BRICK_SIZE];
+            bricks[brickIndex] = brick;
         }
-        return voxels[x][y][z];
+        int index = indexInBrick(x, y, z);
+        if ((brick[index] & 0xFF) < alphaInt) {
+            brick[index] = rgba;
+        }
+    }
+
+    /**
+     * @return a copy of the voxel color, changing the returned voxel does not change the grid
+     */
+    public Voxel getVoxel(int x, int y, int z) {
+        int rgba = getRgba(x, y, z);
+        Voxel voxel = new Voxel();
+        voxel.setByteColor4((byte) (rgba >>> 24), (byte) (rgba >>> 16), (byte) (rgba >>> 8), (byte) rgba);
+        return voxel;
+    }
+
+    public int getVoxelAlphaInt(int x, int y, int z) {
+        return getRgba(x, y, z) & 0xFF;
     }
 
     public float getVoxelAlphaFloat(int x, int y, int z) {
-        return voxels[x][y][z].getAlphaFloat();
+        return (float) (getRgba(x, y, z) & 0xFF) / 255.0f;
+    }
+
+    /**
+     * Reads the alpha values of a XY layer of the grid, indexed as y * gridsCountX + x.
+     * @return false if the layer is empty, all alpha values are 0
+     */
+    public boolean getAlphaLayerXY(int z, float[] alphaLayer) {
+        Arrays.fill(alphaLayer, 0, gridsCountX * gridsCountY, 0.0f);
+        boolean hasValues = false;
+        int brickZ = z >> BRICK_SHIFT;
+        int zOffset = (z & BRICK_MASK) << (BRICK_SHIFT * 2);
+        for (int brickY = 0; brickY < bricksCountY; brickY++) {
+            for (int brickX = 0; brickX < bricksCountX; brickX++) {
+                int[] brick = bricks[(brickZ * bricksCountY + brickY) * bricksCountX + brickX];
+                if (brick == null) {
+                    continue;
+                }
+                hasValues = true;
+                int minX = brickX << BRICK_SHIFT;
+                int minY = brickY << BRICK_SHIFT;
+                int maxX = Math.min(minX + BRICK_SIZE, gridsCountX);
+                int maxY = Math.min(minY + BRICK_SIZE, gridsCountY);
+                for (int y = minY; y < maxY; y++) {
+                    int brickOffset = zOffset + ((y & BRICK_MASK) << BRICK_SHIFT);
+                    int layerOffset = y * gridsCountX;
+                    for (int x = minX; x < maxX; x++) {
+                        alphaLayer[layerOffset + x] = (float) (brick[brickOffset + (x & BRICK_MASK)] & 0xFF) / 255.0f;
+                    }
+                }
+            }
+        }
+        return hasValues;
     }
 
     public void setVoxelsByAlphaXY(int gridZ, byte[] bufferArray) {
         int index = 0;
         for (int y = 0; y < gridsCountY; y++) {
             for (int x = 0; x < gridsCountX; x++) {
-                byte r = bufferArray[index++];
-                byte g = bufferArray[index++];
-                byte b = bufferArray[index++];
-                byte a = bufferArray[index++];
-
-                int alphaInt = a & 0xFF;
-                Voxel voxel = getVoxel(x, y, gridZ);
-                int existentAlphaInt = voxel.getAlphaInt();
-
-                if (existentAlphaInt < alphaInt) {
-                    voxel.setByteColor4(r, g, b, a);
-                }
+                setRgbaIfMoreOpaque(x, y, gridZ, packRgba(bufferArray[index], bufferArray[index + 1], bufferArray[index + 2], bufferArray[index + 3]));
+                index += 4;
             }
         }
     }
@@ -71,20 +173,8 @@ public class VoxelGrid3D {
         int index = 0;
         for (int z = 0; z < gridsCountZ; z++) {
             for (int x = 0; x < gridsCountX; x++) {
-                byte r = bufferArray[index++];
-                byte g = bufferArray[index++];
-                byte b = bufferArray[index++];
-                byte a = bufferArray[index++];
-
-
-                int alphaInt = (int) a & 0xFF;
-
-                Voxel voxel = getVoxel(x, gridY, z);
-                int existentAlphaInt = voxel.getAlphaInt();
-
-                if (existentAlphaInt < alphaInt) {
-                    voxel.setByteColor4(r, g, b, a);
-                }
+                setRgbaIfMoreOpaque(x, gridY, z, packRgba(bufferArray[index], bufferArray[index + 1], bufferArray[index + 2], bufferArray[index + 3]));
+                index += 4;
             }
         }
     }
@@ -93,21 +183,23 @@ public class VoxelGrid3D {
         int index = 0;
         for (int z = 0; z < gridsCountZ; z++) {
             for (int y = gridsCountY - 1; y >= 0; y--) {
-                byte r = bufferArray[index++];
-                byte g = bufferArray[index++];
-                byte b = bufferArray[index++];
-                byte a = bufferArray[index++];
-
-                int alphaInt = a & 0xFF;
-
-                Voxel voxel = getVoxel(gridX, y, z);
-                int existentAlphaInt = voxel.getAlphaInt();
+                setRgbaIfMoreOpaque(gridX, y, z, packRgba(bufferArray[index], bufferArray[index + 1], bufferArray[index + 2], bufferArray[index + 3]));
+                index += 4;
+            }
+        }
+    }
 
-                if (existentAlphaInt < alphaInt) {
-                    voxel.setByteColor4(r, g, b, a);
-                }
+    /**
+     * @return the number of allocated bricks of 8x8x8 voxels
+     */
+    public int getAllocatedBricksCount() {
+        int count = 0;
+        for (int[] brick : bricks) {
+            if (brick != null) {
+                count++;
             }
         }
+        return count;
     }
 
     public Vector3d getVoxelPosition(int x, int y, int z) {
@@ -120,27 +212,34 @@ public class VoxelGrid3D {
 
     public void expand(int expandQuantity) {
         // expand 1quantity to left and right, up and down, front and back
-        int newGridsCountX = gridsCountX + expandQuantity * 2;
-        int newGridsCountY = gridsCountY + expandQuantity * 2;
-        int newGridsCountZ = gridsCountZ + expandQuantity * 2;
-        Voxel[][][] newVoxels = new Voxel[newGridsCountX][newGridsCountY][newGridsCountZ];
-        for (int x = 0; x < newGridsCountX; x++) {
-            for (int y = 0; y < newGridsCountY; y++) {
-                for (int z = 0; z < newGridsCountZ; z++) {
-                    if (x >= expandQuantity && x < gridsCountX + expandQuantity &&
-                            y >= expandQuantity && y < gridsCountY + expandQuantity &&
-                            z >= expandQuantity && z < gridsCountZ + expandQuantity) {
-                        newVoxels[x][y][z] = voxels[x - expandQuantity][y - expandQuantity][z - expandQuantity];
-                    } else {
-                        newVoxels[x][y][z] = new Voxel();
+        int oldGridsCountX = gridsCountX;
+        int oldGridsCountY = gridsCountY;
+        int oldGridsCountZ = gridsCountZ;
+        int oldBricksCountX = bricksCountX;
+        int oldBricksCountY = bricksCountY;
+        int[][] oldBricks = bricks;
+
+        allocate(oldGridsCountX + expandQuantity * 2, oldGridsCountY + expandQuantity * 2, oldGridsCountZ + expandQuantity * 2);
+        for (int brickIndex = 0; brickIndex < oldBricks.length; brickIndex++) {
+            int[] brick = oldBricks[brickIndex];
+            if (brick == null) {
+                continue;
+            }
+            int minX = (brickIndex % oldBricksCountX) << BRICK_SHIFT;
+            int minY = ((brickIndex / oldBricksCountX) % oldBricksCountY) << BRICK_SHIFT;
+            int minZ = (brickIndex / oldBricksCountX / oldBricksCountY) << BRICK_SHIFT;
+            int maxX = Math.min(minX + BRICK_SIZE, oldGridsCountX);
+            int maxY = Math.min(minY + BRICK_SIZE, oldGridsCountY);
+            int maxZ = Math.min(minZ + BRICK_SIZE, oldGridsCountZ);
+            for (int z = minZ; z < maxZ; z++) {
+                for (int y = minY; y < maxY; y++) {
+                    for (int x = minX; x < maxX; x++) {
+                        setRgba(x + expandQuantity, y + expandQuantity, z + expandQuantity, brick[indexInBrick(x, y, z)]);
                     }
                 }
             }
         }
-        this.gridsCountX = newGridsCountX;
-        this.gridsCountY = newGridsCountY;
-        this.gridsCountZ = newGridsCountZ;
-        this.voxels = newVoxels;
+
         double minX = boundingBox.getMinX() - (boundingBox.getMaxX() - boundingBox.getMinX()) * ((double) expandQuantity / (double) gridsCountX);
         double minY = boundingBox.getMinY() - (boundingBox.getMaxY() - boundingBox.getMinY()) * ((double) expandQuantity / (double) gridsCountY);
         double minZ = boundingBox.getMinZ() - (boundingBox.getMaxZ() - boundingBox.getMinZ()) * ((double) expandQuantity / (double) gridsCountZ);
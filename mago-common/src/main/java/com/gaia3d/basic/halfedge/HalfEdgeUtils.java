@@ -1,8 +1,8 @@
 package com.gaia3d.basic.halfedge;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.GaiaVertexWelder;
 import com.gaia3d.basic.geometry.entities.GaiaPlane;
-import com.gaia3d.basic.geometry.octree.GaiaOctreeVertices;
 import com.gaia3d.basic.model.*;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
@@ -1327,104 +1327,26 @@ public class HalfEdgeUtils {
         return longest / height;
     }
 
-    private static void getWeldableVertexMap(Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster, List<GaiaVertex> vertices, double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
-        Map<GaiaVertex, GaiaVertex> visitedMap = new HashMap<>();
-        int verticesCount = vertices.size();
-        for (int i = 0; i < verticesCount; i++) {
-            GaiaVertex vertex = vertices.get(i);
-            if (visitedMap.containsKey(vertex)) {
-                continue;
-            }
-            mapVertexToVertexMaster.put(vertex, vertex);
-            for (int j = i + 1; j < verticesCount; j++) {
-                GaiaVertex vertex2 = vertices.get(j);
-                if (visitedMap.containsKey(vertex2)) {
-                    continue;
-                }
-                if (vertex.isWeldable(vertex2, error, checkTexCoord, checkNormal, checkColor, checkBatchId)) {
-                    mapVertexToVertexMaster.put(vertex2, vertex);
-
-                    visitedMap.put(vertex, vertex);
-                    visitedMap.put(vertex2, vertex2);
-                }
-            }
-        }
-    }
-
     public static void weldVerticesGaiaSurface(GaiaSurface gaiaSurface, List<GaiaVertex> gaiaVertices, double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
         // Weld the vertices
-        GaiaOctreeVertices octreeVertices = new GaiaOctreeVertices(null);
-        octreeVertices.getVertices().addAll(gaiaVertices);
-        octreeVertices.calculateSize();
-        octreeVertices.setAsCube();
-        octreeVertices.setMaxDepth(10);
-        octreeVertices.setMinBoxSize(1.0); // 1m
-
-        octreeVertices.makeTreeByMinVertexCount(50);
-
-        List<GaiaOctreeVertices> octreesWithContents = new ArrayList<>();
-        octreeVertices.extractOctreesWithContents(octreesWithContents);
-
-        Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster = new HashMap<>();
-
-        for (GaiaOctreeVertices octree : octreesWithContents) {
-            List<GaiaVertex> vertices = octree.getVertices();
-            getWeldableVertexMap(mapVertexToVertexMaster, vertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
-        }
-
-        Map<GaiaVertex, GaiaVertex> mapVertexMasters = new HashMap<>();
-        for (GaiaVertex vertexMaster : mapVertexToVertexMaster.values()) {
-            mapVertexMasters.put(vertexMaster, vertexMaster);
-        }
-
-        List<GaiaVertex> newVerticesArray = new ArrayList<>(mapVertexMasters.values());
-
-        Map<GaiaVertex, Integer> vertexIdxMap = new HashMap<>();
-        int verticesCount = newVerticesArray.size();
-        for (int i = 0; i < verticesCount; i++) {
-            vertexIdxMap.put(newVerticesArray.get(i), i);
-        }
+        int[] masters = GaiaVertexWelder.weld(gaiaVertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
+        int[] newIndices = GaiaVertexWelder.compact(masters);
 
         // Now, update the indices of the faces
-        Map<GaiaFace, GaiaFace> mapDeleteFaces = new HashMap<>();
-
-        int facesCount = gaiaSurface.getFaces().size();
-        for (int j = 0; j < facesCount; j++) {
-            GaiaFace face = gaiaSurface.getFaces().get(j);
-            int[] indices = face.getIndices();
-            for (int k = 0; k < indices.length; k++) {
-                GaiaVertex vertex = gaiaVertices.get(indices[k]);
-                GaiaVertex vertexMaster = mapVertexToVertexMaster.get(vertex);
-                int index = vertexIdxMap.get(vertexMaster);
-                indices[k] = index;
-            }
-
-            // check indices
-            for (int k = 0; k < indices.length; k++) {
-                int index = indices[k];
-                for (int m = k + 1; m < indices.length; m++) {
-                    if (index == indices[m]) {
-                        // must remove the face
-                        mapDeleteFaces.put(face, face);
-                    }
-                }
-            }
-        }
-
-        if (!mapDeleteFaces.isEmpty()) {
-            List<GaiaFace> newFaces = new ArrayList<>();
-            for (int j = 0; j < facesCount; j++) {
-                GaiaFace face = gaiaSurface.getFaces().get(j);
-                if (!mapDeleteFaces.containsKey(face)) {
-                    newFaces.add(face);
-                }
-            }
+        List<GaiaFace> faces = gaiaSurface.getFaces();
+        List<GaiaFace> newFaces = GaiaVertexWelder.remapFaces(faces, newIndices);
+        if (newFaces.size() != faces.size()) {
             gaiaSurface.setFaces(newFaces);
         }
 
         // delete no used vertices
-        for (GaiaVertex vertex : gaiaVertices) {
-            if (!mapVertexMasters.containsKey(vertex)) {
+        List<GaiaVertex> newVerticesArray = new ArrayList<>();
+        int verticesCount = gaiaVertices.size();
+        for (int i = 0; i < verticesCount; i++) {
+            GaiaVertex vertex = gaiaVertices.get(i);
+            if (masters[i] == i) {
+                newVerticesArray.add(vertex);
+            } else {
                 vertex.clear();
             }
         }
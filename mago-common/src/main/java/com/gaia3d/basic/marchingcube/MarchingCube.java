@@ -336,9 +336,23 @@ public class MarchingCube {
 
         log.info("start marching cube : {} {} {}", gridsCountX, gridsCountY, gridsCountZ);
 
-        for (int x = 0; x < gridsCountX - 1; x++) {
+        // the alpha values are read by XY layers, the lower and the upper layer of the cubes of a z step.***
+        float[] lowerLayer = new float[gridsCountX * gridsCountY];
+        float[] upperLayer = new float[gridsCountX * gridsCountY];
+        boolean upperHasValues = gridsCountZ > 0 && voxelGrid3d.getAlphaLayerXY(0, upperLayer);
+        for (int z = 0; z < gridsCountZ - 1; z++) {
+            float[] swapLayer = lowerLayer;
+            lowerLayer = upperLayer;
+            upperLayer = swapLayer;
+            boolean lowerHasValues = upperHasValues;
+            upperHasValues = voxelGrid3d.getAlphaLayerXY(z + 1, upperLayer);
+            if (!lowerHasValues && !upperHasValues && isoValue > 0.0f) {
+                continue; // all the cubes are outside, no triangles
+            }
             for (int y = 0; y < gridsCountY - 1; y++) {
-                for (int z = 0; z < gridsCountZ - 1; z++) {
+                int row = y * gridsCountX;
+                int nextRow = row + gridsCountX;
+                for (int x = 0; x < gridsCountX - 1; x++) {
                     // Indices pointing to cube vertices
                     //                6  ___________________  7
                     //                  /|                 /|
@@ -354,14 +368,14 @@ public class MarchingCube {
                     //              |/__________________|/                       *-------> x
                     //             0                     1
 
-                    float value0 = voxelGrid3d.getVoxelAlphaFloat(x, y, z);
-                    float value1 = voxelGrid3d.getVoxelAlphaFloat(x + 1, y, z);
-                    float value2 = voxelGrid3d.getVoxelAlphaFloat(x, y + 1, z);
-                    float value3 = voxelGrid3d.getVoxelAlphaFloat(x + 1, y + 1, z);
-                    float value4 = voxelGrid3d.getVoxelAlphaFloat(x, y, z + 1);
-                    float value5 = voxelGrid3d.getVoxelAlphaFloat(x + 1, y, z + 1);
-                    float value6 = voxelGrid3d.getVoxelAlphaFloat(x, y + 1, z + 1);
-                    float value7 = voxelGrid3d.getVoxelAlphaFloat(x + 1, y + 1, z + 1);
+                    float value0 = lowerLayer[row + x];
+                    float value1 = lowerLayer[row + x + 1];
+                    float value2 = lowerLayer[nextRow + x];
+                    float value3 = lowerLayer[nextRow + x + 1];
+                    float value4 = upperLayer[row + x];
+                    float value5 = upperLayer[row + x + 1];
+                    float value6 = upperLayer[nextRow + x];
+                    float value7 = upperLayer[nextRow + x + 1];
 
                     int cubeIndex = 0;
                     if (value0 < isoValue) cubeIndex |= 1;
@@ -2,8 +2,11 @@ package com.gaia3d.basic.model;
 
 import com.gaia3d.basic.model.structure.TextureStructure;
 import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.util.ImageCache;
 import com.gaia3d.util.ImageResizer;
 import com.gaia3d.util.ImageUtils;
+import com.gaia3d.util.XxHash64;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,10 +16,15 @@ import lombok.extern.slf4j.Slf4j;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * A class that represents a texture of a Gaia object.
@@ -45,28 +53,38 @@ public class GaiaTexture extends TextureStructure implements Serializable {
 
     private int textureId = -1;
 
-    public void loadImage() {
-        if (path == null || parentPath == null) {
-            return;
-        }
+    // hash of the decoded image, computed once until the image changes
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long contentHash;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean contentHashed = false;
+    // the image is shared with the ImageCache, it is copied before being drawn on
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean sharedImage = false;
 
-        // check for empty strings
-        if (path.isEmpty() || parentPath.isEmpty()) {
-            return;
-        }
-        Path diffusePath = new File(path).toPath();
-        String imagePath = parentPath + File.separator + diffusePath;
+    public void loadImage() {
         if (this.bufferedImage == null) {
-            BufferedImage bufferedImage = readImage(imagePath);
-            if (bufferedImage != null) {
-                this.bufferedImage = bufferedImage;
-                this.width = bufferedImage.getWidth();
-                this.height = bufferedImage.getHeight();
-                this.format = bufferedImage.getType();
+            File imageFile = findImageFile();
+            if (imageFile != null) {
+                setCachedImage(ImageCache.getInstance().getImage(imageFile));
             }
         }
     }
 
+    private void setCachedImage(BufferedImage bufferedImage) {
+        if (bufferedImage != null) {
+            this.bufferedImage = bufferedImage;
+            this.sharedImage = true;
+            this.contentHashed = false;
+            this.width = bufferedImage.getWidth();
+            this.height = bufferedImage.getHeight();
+            this.format = bufferedImage.getType();
+        }
+    }
+
     public void saveImage(String savePath) {
         try {
             String imageExtension = savePath.substring(savePath.lastIndexOf(".") + 1);
@@ -79,6 +97,8 @@ public class GaiaTexture extends TextureStructure implements Serializable {
     }
 
     public void flipImageY() {
+        copySharedImage();
+        this.contentHashed = false;
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height / 2; j++) {
                 int tmp = bufferedImage.getRGB(i, j);
@@ -93,8 +113,19 @@ public class GaiaTexture extends TextureStructure implements Serializable {
         return parentPath + File.separator + diffusePath;
     }
 
-    private BufferedImage readImage(String filePath) {
-        File imageFile = new File(filePath);
+    /**
+     * The image file, a missing jpg image is searched as png.
+     */
+    private File findImageFile() {
+        if (path == null || parentPath == null) {
+            return null;
+        }
+
+        // check for empty strings
+        if (path.isEmpty() || parentPath.isEmpty()) {
+            return null;
+        }
+        File imageFile = new File(getFullPath());
 
         String fileName = imageFile.getName();
         if (!imageFile.exists()) {
@@ -108,23 +139,29 @@ public class GaiaTexture extends TextureStructure implements Serializable {
                 return null;
             }
         }
+        return imageFile;
+    }
 
-        BufferedImage image = null;
-        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(imageFile))) {
-            image = ImageIO.read(stream);
-        } catch (IOException e) {
-            log.error("[ERROR] :", e);
+    private void copySharedImage() {
+        if (this.sharedImage && this.bufferedImage != null) {
+            ColorModel colorModel = this.bufferedImage.getColorModel();
+            WritableRaster raster = this.bufferedImage.copyData(this.bufferedImage.getRaster().createCompatibleWritableRaster());
+            this.bufferedImage = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
         }
-        return image;
+        this.sharedImage = false;
     }
 
     public void createImage(int width, int height, int imageType) {
         this.width = width;
         this.height = height;
         this.bufferedImage = new BufferedImage(width, height, imageType);
+        this.sharedImage = false;
+        this.contentHashed = false;
     }
 
     public void fillImage(Color color) {
+        copySharedImage();
+        this.contentHashed = false;
         Graphics2D graphics = this.bufferedImage.createGraphics();
         graphics.setColor(color);
         graphics.fillRect(0, 0, this.width, this.height);
@@ -139,19 +176,33 @@ public class GaiaTexture extends TextureStructure implements Serializable {
     }
 
     public void loadImage(float scaleFactor) {
-        loadImage();
-        if (this.bufferedImage != null) {
-            int resizeWidth = (int) (this.bufferedImage.getWidth() * scaleFactor);
-            int resizeHeight = (int) (this.bufferedImage.getHeight() * scaleFactor);
-            resizeWidth = ImageUtils.getNearestPowerOfTwo(resizeWidth);
-            resizeHeight = ImageUtils.getNearestPowerOfTwo(resizeHeight);
-            this.width = resizeWidth;
-            this.height = resizeHeight;
-            ImageResizer imageResizer = new ImageResizer();
-            this.bufferedImage = imageResizer.resizeImageGraphic2D(this.bufferedImage, resizeWidth, resizeHeight);
+        if (this.bufferedImage == null) {
+            // the scaled image is derived from the cached original image
+            File imageFile = findImageFile();
+            if (imageFile != null) {
+                setCachedImage(ImageCache.getInstance().getImage(imageFile, scaleFactor, (original) -> scaleImage(original, scaleFactor)));
+            }
+        } else {
+            BufferedImage scaledImage = scaleImage(this.bufferedImage, scaleFactor);
+            if (scaledImage != this.bufferedImage) {
+                this.bufferedImage = scaledImage;
+                this.sharedImage = false;
+            }
+            this.width = this.bufferedImage.getWidth();
+            this.height = this.bufferedImage.getHeight();
+            this.contentHashed = false;
         }
     }
 
+    private static BufferedImage scaleImage(BufferedImage image, float scaleFactor) {
+        int resizeWidth = (int) (image.getWidth() * scaleFactor);
+        int resizeHeight = (int) (image.getHeight() * scaleFactor);
+        resizeWidth = ImageUtils.getNearestPowerOfTwo(resizeWidth);
+        resizeHeight = ImageUtils.getNearestPowerOfTwo(resizeHeight);
+        ImageResizer imageResizer = new ImageResizer();
+        return imageResizer.resizeImageGraphic2D(image, resizeWidth, resizeHeight);
+    }
+
     public void resizeImage(int width, int height) {
         if (this.bufferedImage == null) {
             loadImage();
@@ -160,7 +211,25 @@ public class GaiaTexture extends TextureStructure implements Serializable {
             return;
         }
         ImageResizer imageResizer = new ImageResizer();
-        this.bufferedImage = imageResizer.resizeImageGraphic2D(this.bufferedImage, width, height);
+        BufferedImage resizedImage = imageResizer.resizeImageGraphic2D(this.bufferedImage, width, height);
+        if (resizedImage != this.bufferedImage) {
+            this.bufferedImage = resizedImage;
+            this.sharedImage = false;
+        }
+        this.contentHashed = false;
+    }
+
+    public void setBufferedImage(BufferedImage bufferedImage) {
+        this.bufferedImage = bufferedImage;
+        this.sharedImage = false;
+        this.contentHashed = false;
+    }
+
+    /**
+     * Whether the image is decoded, without loading it.
+     */
+    public boolean hasBufferedImage() {
+        return this.bufferedImage != null;
     }
 
     public BufferedImage getBufferedImage() {
@@ -209,16 +278,16 @@ public class GaiaTexture extends TextureStructure implements Serializable {
             return false;
         }
 
-        byte[] rgbaByteArray;
-        byte[] rgbaByteArray2;
-        try {
-            rgbaByteArray = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
-            rgbaByteArray2 = ((DataBufferByte) comparebufferedImage.getRaster().getDataBuffer()).getData();
-        } catch (Exception e) {
-            log.error("[ERROR] Unable to get byte array from buffered image: {}", e.getMessage());
-            return false;
+        if (!(bufferedImage.getRaster().getDataBuffer() instanceof DataBufferByte) || !(comparebufferedImage.getRaster().getDataBuffer() instanceof DataBufferByte)) {
+            // the other raster types are compared exactly
+            int[] argb = bufferedImage.getRGB(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight(), null, 0, bufferedImage.getWidth());
+            int[] compareArgb = comparebufferedImage.getRGB(0, 0, comparebufferedImage.getWidth(), comparebufferedImage.getHeight(), null, 0, comparebufferedImage.getWidth());
+            return Arrays.equals(argb, compareArgb);
         }
 
+        byte[] rgbaByteArray = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+        byte[] rgbaByteArray2 = ((DataBufferByte) comparebufferedImage.getRaster().getDataBuffer()).getData();
+
         // compare the byte array by difference.
         int length = rgbaByteArray.length;
         int length2 = rgbaByteArray2.length;
@@ -243,6 +312,33 @@ public class GaiaTexture extends TextureStructure implements Serializable {
         return differenceRatio < tolerance;
     }
 
+    /**
+     * The 64-bit xxHash of the decoded image and its size, 0 without image.
+     * The hash is kept until the image is replaced, an image drawn on in place must be set again.
+     */
+    public long getContentHash() {
+        if (contentHashed) {
+            return contentHash;
+        }
+        BufferedImage image = getBufferedImage();
+        if (image == null) {
+            return 0;
+        }
+        long seed = ((long) image.getWidth() << 32) | ((long) image.getHeight() << 8) | image.getType();
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        boolean isPacked = image.getRaster().getParent() == null && dataBuffer.getNumBanks() == 1 && dataBuffer.getOffset() == 0;
+        if (isPacked && dataBuffer instanceof DataBufferByte bytes) {
+            contentHash = XxHash64.hash(bytes.getData(), seed);
+        } else if (isPacked && dataBuffer instanceof DataBufferInt ints) {
+            contentHash = XxHash64.hash(ints.getData(), seed);
+        } else {
+            int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+            contentHash = XxHash64.hash(argb, seed);
+        }
+        contentHashed = true;
+        return contentHash;
+    }
+
     public boolean isEqualTexture(GaiaTexture compareTexture, float scaleFactor) {
         getBufferedImage(scaleFactor);
         compareTexture.getBufferedImage(scaleFactor);
@@ -254,6 +350,8 @@ public class GaiaTexture extends TextureStructure implements Serializable {
             this.bufferedImage.flush();
             this.bufferedImage = null;
         }
+        this.sharedImage = false;
+        this.contentHashed = false;
         if (this.byteBuffer != null) {
             this.byteBuffer.clear();
             this.byteBuffer = null;
@@ -2,7 +2,6 @@ package com.gaia3d.basic.pointcloud;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.model.GaiaAttribute;
-import com.gaia3d.basic.model.GaiaVertex;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -25,7 +24,7 @@ public class GaiaPointCloud implements Serializable {
     private String code = "A";
     private Path originalPath;
     private GaiaBoundingBox gaiaBoundingBox = new GaiaBoundingBox();
-    private List<GaiaVertex> vertices = new ArrayList<>();
+    private PointBuffer pointBuffer = null;
     private int vertexCount = 0;
     private GaiaAttribute gaiaAttribute = new GaiaAttribute();
     private boolean isMinimized = false;
@@ -34,7 +33,7 @@ public class GaiaPointCloud implements Serializable {
     private Vector3d quantizedVolumeOffset = null;
 
     public void minimizeTemp() {
-        vertices = null;
+        pointBuffer = null;
         isMinimized = true;
     }
 
@@ -44,34 +43,17 @@ public class GaiaPointCloud implements Serializable {
             return;
         }
 
-        Vector3d quantizationOffset = gaiaBoundingBox.getMinPosition();
-        Vector3d quantizationScale = gaiaBoundingBox.getVolume();
-        // correct the scale if it is zero
-        if (quantizationScale.x == 0) {
-            quantizationScale.x = 1;
-        }
-        if (quantizationScale.y == 0) {
-            quantizationScale.y = 1;
-        }
-        if (quantizationScale.z == 0) {
-            quantizationScale.z = 1;
-        }
-
-        this.quantizedVolumeScale = quantizationScale;
-        this.quantizedVolumeOffset = quantizationOffset;
+        // keep the quantization of the point buffer, so the positions are written without re-quantizing
+        double[] bufferScale = pointBuffer.getQuantizedVolumeScale();
+        double[] bufferOffset = pointBuffer.getQuantizedVolumeOffset();
+        this.quantizedVolumeScale = new Vector3d(bufferScale[0], bufferScale[1], bufferScale[2]);
+        this.quantizedVolumeOffset = new Vector3d(bufferOffset[0], bufferOffset[1], bufferOffset[2]);
         this.pointCloudTemp = new GaiaPointCloudTemp(minimizedFile);
-        double[] volumeOffset = pointCloudTemp.getQuantizedVolumeOffset();
-        volumeOffset[0] = quantizationOffset.x;
-        volumeOffset[1] = quantizationOffset.y;
-        volumeOffset[2] = quantizationOffset.z;
-        double[] volumeScale = pointCloudTemp.getQuantizedVolumeScale();
-        volumeScale[0] = quantizationScale.x;
-        volumeScale[1] = quantizationScale.y;
-        volumeScale[2] = quantizationScale.z;
+        System.arraycopy(bufferScale, 0, pointCloudTemp.getQuantizedVolumeScale(), 0, 3);
+        System.arraycopy(bufferOffset, 0, pointCloudTemp.getQuantizedVolumeOffset(), 0, 3);
         pointCloudTemp.writeHeader();
-        this.vertexCount = vertices.size();
-        pointCloudTemp.writePositionsFast(vertices);
-        this.vertices.clear();
+        this.vertexCount = pointBuffer.size();
+        pointCloudTemp.writePoints(pointBuffer);
         try {
             pointCloudTemp.getOutputStream().flush();
             pointCloudTemp.getOutputStream().close();
@@ -81,7 +63,7 @@ public class GaiaPointCloud implements Serializable {
         }
 
         // Minimize the point cloud
-        this.vertices = null;
+        this.pointBuffer = null;
         this.isMinimized = true;
         this.minimizedFile = minimizedFile;
     }
@@ -92,44 +74,22 @@ public class GaiaPointCloud implements Serializable {
             return;
         }
 
-        pointCloudTemp.readHeader();
-
-        List<GaiaVertex> vertices = pointCloudTemp.readTemp();
-        vertexCount = vertices.size();
-        try {
-            pointCloudTemp.getInputStream().close();
+        try (GaiaPointCloudTempReader reader = openTempReader()) {
+            this.pointBuffer = reader.readPointBuffer();
+            this.vertexCount = pointBuffer.size();
         } catch (IOException e) {
             log.error("[ERROR][maximize] : Failed to maximize the point cloud.", e);
         }
-        this.vertices = vertices;
     }
 
-    public void maximizeTempOld() {
-        if (!isMinimized) {
-            log.warn("[WARN] The point cloud is already maximized.");
-            return;
-        }
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(minimizedFile)))) {
-            List<GaiaVertex> vertices = (List<GaiaVertex>) objectInputStream.readObject();
-            this.vertices = vertices;
-
-            vertices.forEach(vertex -> {
-                short[] quantizedPosition = vertex.getQuantizedPosition();
-                int xQuantizedPositionInt = toDoubleFromUnsignedShort(quantizedPosition[0]);
-                int yQuantizedPositionInt = toDoubleFromUnsignedShort(quantizedPosition[1]);
-                int zQuantizedPositionInt = toDoubleFromUnsignedShort(quantizedPosition[2]);
-
-                double xQuantizedPosition = xQuantizedPositionInt / 65535.0;
-                double yQuantizedPosition = yQuantizedPositionInt / 65535.0;
-                double zQuantizedPosition = zQuantizedPositionInt / 65535.0;
-
-                Vector3d position = new Vector3d(quantizedVolumeScale.x * xQuantizedPosition + quantizedVolumeOffset.x, quantizedVolumeScale.y * yQuantizedPosition + quantizedVolumeOffset.y, quantizedVolumeScale.z * zQuantizedPosition + quantizedVolumeOffset.z);
-                vertex.setPosition(position);
-                vertex.setQuantizedPosition(null);
-            });
-        } catch (Exception e) {
-            log.error("[ERROR][maximize] : Failed to maximize the point cloud.", e);
-        }
+    /**
+     * Opens a memory-mapped view of the minimized temp file, to walk the points without loading them.
+     */
+    public GaiaPointCloudTempReader openTempReader() throws IOException {
+        GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(pointCloudTemp.getTempFile());
+        System.arraycopy(reader.getQuantizedVolumeScale(), 0, pointCloudTemp.getQuantizedVolumeScale(), 0, 3);
+        System.arraycopy(reader.getQuantizedVolumeOffset(), 0, pointCloudTemp.getQuantizedVolumeOffset(), 0, 3);
+        return reader;
     }
 
     public void maximize() {
@@ -142,7 +102,6 @@ public class GaiaPointCloud implements Serializable {
         this.quantizedVolumeOffset = null;
     }
 
-
     public List<GaiaPointCloud> distribute() {
         double minX = gaiaBoundingBox.getMinX();
         double minY = gaiaBoundingBox.getMinY();
@@ -171,296 +130,88 @@ public class GaiaPointCloud implements Serializable {
         }
     }
 
-    // Quarter based on the bounding box
+    // Half based on the bounding box
     public List<GaiaPointCloud> distributeHalf(boolean isX) {
-        List<GaiaPointCloud> pointClouds = new ArrayList<>();
-
-        GaiaBoundingBox gaiaBoundingBoxA = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudA = new GaiaPointCloud();
-        gaiaPointCloudA.setCode("A");
-        gaiaPointCloudA.setOriginalPath(originalPath);
-        gaiaPointCloudA.setGaiaBoundingBox(gaiaBoundingBoxA);
-        List<GaiaVertex> verticesA = gaiaPointCloudA.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxB = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudB = new GaiaPointCloud();
-        gaiaPointCloudB.setCode("B");
-        gaiaPointCloudB.setOriginalPath(originalPath);
-        gaiaPointCloudB.setGaiaBoundingBox(gaiaBoundingBoxB);
-        List<GaiaVertex> verticesB = gaiaPointCloudB.getVertices();
-
-        double minX = gaiaBoundingBox.getMinX();
-        double minY = gaiaBoundingBox.getMinY();
-        double maxX = gaiaBoundingBox.getMaxX();
-        double maxY = gaiaBoundingBox.getMaxY();
-        double midX = (minX + maxX) / 2;
-        double midY = (minY + maxY) / 2;
-
-        for (GaiaVertex vertex : this.vertices) {
-            Vector3d center = vertex.getPosition();
+        double midX = (gaiaBoundingBox.getMinX() + gaiaBoundingBox.getMaxX()) / 2;
+        double midY = (gaiaBoundingBox.getMinY() + gaiaBoundingBox.getMaxY()) / 2;
+        int[] bounds = pointBuffer.partition(2, (index) -> {
             if (isX) {
-                if (midX < center.x()) {
-                    verticesB.add(vertex);
-                    gaiaBoundingBoxB.addPoint(center);
-                } else {
-                    verticesA.add(vertex);
-                    gaiaBoundingBoxA.addPoint(center);
-                }
+                return midX < pointBuffer.getX(index) ? 1 : 0;
             } else {
-                if (midY < center.y()) {
-                    verticesB.add(vertex);
-                    gaiaBoundingBoxB.addPoint(center);
-                } else {
-                    verticesA.add(vertex);
-                    gaiaBoundingBoxA.addPoint(center);
-                }
+                return midY < pointBuffer.getY(index) ? 1 : 0;
             }
-        }
-
-        pointClouds.add(gaiaPointCloudA);
-        pointClouds.add(gaiaPointCloudB);
-        return pointClouds;
+        });
+        return createChildren(bounds);
     }
 
     // Quarter based on the bounding box
     public List<GaiaPointCloud> distributeQuad() {
-        List<GaiaPointCloud> pointClouds = new ArrayList<>();
-
-        GaiaBoundingBox gaiaBoundingBoxA = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudA = new GaiaPointCloud();
-        gaiaPointCloudA.setCode("A");
-        gaiaPointCloudA.setOriginalPath(originalPath);
-        gaiaPointCloudA.setGaiaBoundingBox(gaiaBoundingBoxA);
-        List<GaiaVertex> verticesA = gaiaPointCloudA.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxB = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudB = new GaiaPointCloud();
-        gaiaPointCloudB.setCode("B");
-        gaiaPointCloudB.setOriginalPath(originalPath);
-        gaiaPointCloudB.setGaiaBoundingBox(gaiaBoundingBoxB);
-        List<GaiaVertex> verticesB = gaiaPointCloudB.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxC = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudC = new GaiaPointCloud();
-        gaiaPointCloudC.setCode("C");
-        gaiaPointCloudC.setOriginalPath(originalPath);
-        gaiaPointCloudC.setGaiaBoundingBox(gaiaBoundingBoxC);
-        List<GaiaVertex> verticesC = gaiaPointCloudC.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxD = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudD = new GaiaPointCloud();
-        gaiaPointCloudD.setCode("D");
-        gaiaPointCloudD.setOriginalPath(originalPath);
-        gaiaPointCloudD.setGaiaBoundingBox(gaiaBoundingBoxD);
-        List<GaiaVertex> verticesD = gaiaPointCloudD.getVertices();
-
-        double minX = gaiaBoundingBox.getMinX();
-        double minY = gaiaBoundingBox.getMinY();
-        double maxX = gaiaBoundingBox.getMaxX();
-        double maxY = gaiaBoundingBox.getMaxY();
-        double midX = (minX + maxX) / 2;
-        double midY = (minY + maxY) / 2;
-
-        for (GaiaVertex vertex : this.vertices) {
-            Vector3d center = vertex.getPosition();
-            if (midX < center.x()) {
-                if (midY < center.y()) {
-                    verticesC.add(vertex);
-                    gaiaBoundingBoxC.addPoint(center);
-                } else {
-                    verticesB.add(vertex);
-                    gaiaBoundingBoxB.addPoint(center);
-                }
-            } else {
-                if (midY < center.y()) {
-                    verticesD.add(vertex);
-                    gaiaBoundingBoxD.addPoint(center);
-                } else {
-                    verticesA.add(vertex);
-                    gaiaBoundingBoxA.addPoint(center);
-                }
-            }
-        }
-
-        pointClouds.add(gaiaPointCloudA);
-        pointClouds.add(gaiaPointCloudB);
-        pointClouds.add(gaiaPointCloudC);
-        pointClouds.add(gaiaPointCloudD);
-        return pointClouds;
+        double midX = (gaiaBoundingBox.getMinX() + gaiaBoundingBox.getMaxX()) / 2;
+        double midY = (gaiaBoundingBox.getMinY() + gaiaBoundingBox.getMaxY()) / 2;
+        int[] bounds = pointBuffer.partition(4, (index) -> quadrant(index, midX, midY));
+        return createChildren(bounds);
     }
 
     // Octree based on the bounding box
     public List<GaiaPointCloud> distributeOct() {
-        List<GaiaPointCloud> pointClouds = new ArrayList<>();
-
-        GaiaBoundingBox gaiaBoundingBoxA = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudA = new GaiaPointCloud();
-        gaiaPointCloudA.setCode("A");
-        gaiaPointCloudA.setOriginalPath(originalPath);
-        gaiaPointCloudA.setGaiaBoundingBox(gaiaBoundingBoxA);
-        gaiaPointCloudA.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesA = gaiaPointCloudA.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxB = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudB = new GaiaPointCloud();
-        gaiaPointCloudB.setCode("B");
-        gaiaPointCloudB.setOriginalPath(originalPath);
-        gaiaPointCloudB.setGaiaBoundingBox(gaiaBoundingBoxB);
-        gaiaPointCloudB.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesB = gaiaPointCloudB.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxC = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudC = new GaiaPointCloud();
-        gaiaPointCloudC.setCode("C");
-        gaiaPointCloudC.setOriginalPath(originalPath);
-        gaiaPointCloudC.setGaiaBoundingBox(gaiaBoundingBoxC);
-        gaiaPointCloudC.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesC = gaiaPointCloudC.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxD = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudD = new GaiaPointCloud();
-        gaiaPointCloudD.setCode("D");
-        gaiaPointCloudD.setOriginalPath(originalPath);
-        gaiaPointCloudD.setGaiaBoundingBox(gaiaBoundingBoxD);
-        gaiaPointCloudD.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesD = gaiaPointCloudD.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxE = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudE = new GaiaPointCloud();
-        gaiaPointCloudE.setCode("E");
-        gaiaPointCloudE.setOriginalPath(originalPath);
-        gaiaPointCloudE.setGaiaBoundingBox(gaiaBoundingBoxE);
-        gaiaPointCloudE.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesE = gaiaPointCloudE.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxF = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudF = new GaiaPointCloud();
-        gaiaPointCloudF.setCode("F");
-        gaiaPointCloudF.setOriginalPath(originalPath);
-        gaiaPointCloudF.setGaiaBoundingBox(gaiaBoundingBoxF);
-        gaiaPointCloudF.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesF = gaiaPointCloudF.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxG = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudG = new GaiaPointCloud();
-        gaiaPointCloudG.setCode("G");
-        gaiaPointCloudG.setOriginalPath(originalPath);
-        gaiaPointCloudG.setGaiaBoundingBox(gaiaBoundingBoxG);
-        gaiaPointCloudG.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesG = gaiaPointCloudG.getVertices();
-
-        GaiaBoundingBox gaiaBoundingBoxH = new GaiaBoundingBox();
-        GaiaPointCloud gaiaPointCloudH = new GaiaPointCloud();
-        gaiaPointCloudH.setCode("H");
-        gaiaPointCloudH.setOriginalPath(originalPath);
-        gaiaPointCloudH.setGaiaBoundingBox(gaiaBoundingBoxH);
-        gaiaPointCloudH.setGaiaAttribute(gaiaAttribute);
-        List<GaiaVertex> verticesH = gaiaPointCloudH.getVertices();
-
-        double minX = gaiaBoundingBox.getMinX();
-        double minY = gaiaBoundingBox.getMinY();
-        double minZ = gaiaBoundingBox.getMinZ();
-        double maxX = gaiaBoundingBox.getMaxX();
-        double maxY = gaiaBoundingBox.getMaxY();
-        double maxZ = gaiaBoundingBox.getMaxZ();
-
-        double midX = (minX + maxX) / 2;
-        double midY = (minY + maxY) / 2;
-        double midZ = (minZ + maxZ) / 2;
-
-        for (GaiaVertex vertex : this.vertices) {
-            Vector3d center = vertex.getPosition();
-            if (midZ < center.z()) {
-                if (midX < center.x()) {
-                    if (midY < center.y()) {
-                        verticesC.add(vertex);
-                        gaiaBoundingBoxC.addPoint(center);
-                    } else {
-                        verticesB.add(vertex);
-                        gaiaBoundingBoxB.addPoint(center);
-                    }
-                } else {
-                    if (midY < center.y()) {
-                        verticesD.add(vertex);
-                        gaiaBoundingBoxD.addPoint(center);
-                    } else {
-                        verticesA.add(vertex);
-                        gaiaBoundingBoxA.addPoint(center);
-                    }
-                }
-            } else {
-                if (midX < center.x()) {
-                    if (midY < center.y()) {
-                        verticesG.add(vertex);
-                        gaiaBoundingBoxG.addPoint(center);
-                    } else {
-                        verticesF.add(vertex);
-                        gaiaBoundingBoxF.addPoint(center);
-                    }
-                } else {
-                    if (midY < center.y()) {
-                        verticesH.add(vertex);
-                        gaiaBoundingBoxH.addPoint(center);
-                    } else {
-                        verticesE.add(vertex);
-                        gaiaBoundingBoxE.addPoint(center);
-                    }
-                }
-            }
-        }
-
-        pointClouds.add(gaiaPointCloudA);
-        pointClouds.add(gaiaPointCloudB);
-        pointClouds.add(gaiaPointCloudC);
-        pointClouds.add(gaiaPointCloudD);
-        pointClouds.add(gaiaPointCloudE);
-        pointClouds.add(gaiaPointCloudF);
-        pointClouds.add(gaiaPointCloudG);
-        pointClouds.add(gaiaPointCloudH);
-        return pointClouds;
+        double midX = (gaiaBoundingBox.getMinX() + gaiaBoundingBox.getMaxX()) / 2;
+        double midY = (gaiaBoundingBox.getMinY() + gaiaBoundingBox.getMaxY()) / 2;
+        double midZ = (gaiaBoundingBox.getMinZ() + gaiaBoundingBox.getMaxZ()) / 2;
+        int[] bounds = pointBuffer.partition(8, (index) -> {
+            int quadrant = quadrant(index, midX, midY);
+            return midZ < pointBuffer.getZ(index) ? quadrant : quadrant + 4;
+        });
+        return createChildren(bounds);
     }
 
     public List<GaiaPointCloud> divideChunkSize(int chunkSize) {
         List<GaiaPointCloud> pointClouds = new ArrayList<>();
+        int size = pointBuffer.size();
+        int chunkEnd = Math.min(chunkSize, size);
 
         GaiaPointCloud chunkPointCloud = new GaiaPointCloud();
         chunkPointCloud.setOriginalPath(originalPath);
         chunkPointCloud.setGaiaBoundingBox(gaiaBoundingBox);
         chunkPointCloud.setGaiaAttribute(gaiaAttribute);
+        chunkPointCloud.setPointBuffer(pointBuffer.slice(0, chunkEnd));
+        chunkPointCloud.setVertexCount(chunkEnd);
 
         GaiaPointCloud remainderPointCloud = new GaiaPointCloud();
         remainderPointCloud.setOriginalPath(originalPath);
         remainderPointCloud.setGaiaBoundingBox(gaiaBoundingBox);
         remainderPointCloud.setGaiaAttribute(gaiaAttribute);
-
-        if (vertices.size() > chunkSize) {
-            chunkPointCloud.setVertices(new ArrayList<>(vertices.subList(0, chunkSize)));
-            remainderPointCloud.setVertices(new ArrayList<>(vertices.subList(chunkSize, vertices.size())));
-        } else {
-            chunkPointCloud.setVertices(new ArrayList<>(vertices.subList(0, vertices.size())));
-        }
+        remainderPointCloud.setPointBuffer(pointBuffer.slice(chunkEnd, size));
+        remainderPointCloud.setVertexCount(size - chunkEnd);
 
         pointClouds.add(chunkPointCloud);
         pointClouds.add(remainderPointCloud);
         return pointClouds;
     }
 
-    private short toUnsignedShort(int value) {
-        if (value < 0 || value > 65535) {
-            throw new IllegalArgumentException("Value out of range for unsigned short: " + value);
-        }
-        if (value <= 32767) {
-            return (short) value;
+    /**
+     * A : (-x, -y), B : (+x, -y), C : (+x, +y), D : (-x, +y)
+     */
+    private int quadrant(int index, double midX, double midY) {
+        if (midX < pointBuffer.getX(index)) {
+            return midY < pointBuffer.getY(index) ? 2 : 1;
         } else {
-            return (short) (value - 65536);
+            return midY < pointBuffer.getY(index) ? 3 : 0;
         }
     }
 
-    private int toDoubleFromUnsignedShort(short value) {
-        if (value < 0) {
-            return value + 65536;
-        } else {
-            return value;
+    private List<GaiaPointCloud> createChildren(int[] bounds) {
+        List<GaiaPointCloud> pointClouds = new ArrayList<>();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            PointBuffer childBuffer = pointBuffer.slice(bounds[i], bounds[i + 1]);
+            GaiaPointCloud childPointCloud = new GaiaPointCloud();
+            childPointCloud.setCode(String.valueOf((char) ('A' + i)));
+            childPointCloud.setOriginalPath(originalPath);
+            childPointCloud.setGaiaBoundingBox(childBuffer.calcBoundingBox());
+            childPointCloud.setGaiaAttribute(gaiaAttribute);
+            childPointCloud.setPointBuffer(childBuffer);
+            childPointCloud.setVertexCount(childBuffer.size());
+            pointClouds.add(childPointCloud);
         }
+        return pointClouds;
     }
 }
@@ -0,0 +1,61 @@
+package com.gaia3d.basic.pointcloud;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bins points into the temp cells of a GaiaPointCloudHeader through per-cell write buffers.
+ * An instance belongs to a single worker, full buffers are appended to the shared temp files in one block
+ * through the writer pool of the header.
+ */
+@Slf4j
+public class GaiaPointCloudGridWriter {
+    private final GaiaPointCloudHeader pointCloudHeader;
+    private final GaiaPointCloudTempWriterPool writerPool;
+    private final ByteBuffer[] buffers;
+    private long pointCount = 0;
+
+    public GaiaPointCloudGridWriter(GaiaPointCloudHeader pointCloudHeader) {
+        this.pointCloudHeader = pointCloudHeader;
+        this.writerPool = pointCloudHeader.getWriterPool();
+        this.buffers = new ByteBuffer[pointCloudHeader.getTempCells().length];
+    }
+
+    public void write(double x, double y, double z, byte red, byte green, byte blue, char intensity, short classification) {
+        int cell = pointCloudHeader.findCell(x, y, z);
+        if (cell < 0) {
+            log.error("[ERROR] Failed to find temp file.");
+            return;
+        }
+        GaiaPointCloudTemp temp = pointCloudHeader.getTempCells()[cell];
+        ByteBuffer buffer = buffers[cell];
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(writerPool.getBufferPoints() * temp.getBlockSize());
+            buffers[cell] = buffer;
+        } else if (!buffer.hasRemaining()) {
+            writerPool.write(temp, buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        temp.putPoint(buffer, x, y, z, red, green, blue, intensity, classification);
+        pointCount++;
+    }
+
+    /**
+     * Appends every pending buffer to its temp file.
+     */
+    public void flush() {
+        GaiaPointCloudTemp[] tempCells = pointCloudHeader.getTempCells();
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer buffer = buffers[i];
+            if (buffer != null && buffer.position() > 0) {
+                writerPool.write(tempCells[i], buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+}
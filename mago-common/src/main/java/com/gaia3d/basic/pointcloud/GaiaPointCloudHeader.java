@@ -19,7 +19,9 @@ public class GaiaPointCloudHeader {
     private int index;
     private long size;
     private GaiaBoundingBox srsBoundingBox; // original bounding box
-    private GaiaPointCloudTemp[][] tempGrid;
+    private GaiaPointCloudPartition partition;
+    private GaiaPointCloudTemp[] tempCells;
+    private GaiaPointCloudTempWriterPool writerPool;
 
     public static GaiaPointCloudHeader combineHeaders(List<GaiaPointCloudHeader> headers) {
         UUID uuid = UUID.randomUUID();
@@ -42,18 +44,24 @@ public class GaiaPointCloudHeader {
     }
 
     public GaiaPointCloudTemp findTemp(Vector3d position) {
-        int gridXLength = tempGrid.length;
-        int gridYLength = tempGrid[0].length;
+        return findTemp(position.x, position.y, position.z);
+    }
 
-        Vector3d volume = srsBoundingBox.getVolume();
-        int gridX = (int) Math.floor((position.x - srsBoundingBox.getMinX()) / volume.x * gridXLength);
-        int gridY = (int) Math.floor((position.y - srsBoundingBox.getMinY()) / volume.y * gridYLength);
+    public GaiaPointCloudTemp findTemp(double x, double y, double z) {
+        int cell = findCell(x, y, z);
 
         // Check if the point is outside the bounding box
-        if (gridX < 0 || gridX >= gridXLength || gridY < 0 || gridY >= gridYLength) {
-            log.warn("[WARN] Point is outside the bounding box: [[{}/{}], [{}/{}]]", gridX, gridXLength - 1, gridY, gridYLength - 1);
+        if (cell < 0) {
+            log.warn("[WARN] Point is outside the bounding box: [[{}/{}], [{}/{}], [{}/{}]]", x, srsBoundingBox.getMaxX(), y, srsBoundingBox.getMaxY(), z, srsBoundingBox.getMaxZ());
             return null;
         }
-        return tempGrid[gridX][gridY];
+        return tempCells[cell];
+    }
+
+    /**
+     * @return the temp cell index of the position, or -1 if it is outside the bounding box
+     */
+    public int findCell(double x, double y, double z) {
+        return partition.findCell(x, y, z);
     }
 }
@@ -0,0 +1,233 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Adaptive kd-tree partition of the point cloud volume into temp cells.
+ * The tree is built from a sample of the points, every cell is split at the median of its samples
+ * along its longest axis (x, y or z) until the estimated point count of the cell is under the limit.
+ * The nodes are stored in flat arrays, a leaf node stores the index of its cell.
+ */
+@Slf4j
+public class GaiaPointCloudPartition {
+    private static final int MAXIMUM_DEPTH = 32;
+    private static final double MINIMUM_EXTENT = 1.0e-6;
+
+    private final GaiaBoundingBox boundingBox;
+    private final List<GaiaBoundingBox> cells = new ArrayList<>();
+    private int[] axes = new int[64];
+    private double[] splits = new double[64];
+    private int[] lowers = new int[64];
+    private int[] uppers = new int[64];
+    private int nodeCount = 0;
+
+    private GaiaPointCloudPartition(GaiaBoundingBox boundingBox) {
+        this.boundingBox = boundingBox;
+    }
+
+    /**
+     * A partition with a single cell covering the whole bounding box.
+     */
+    public static GaiaPointCloudPartition single(GaiaBoundingBox boundingBox) {
+        GaiaPointCloudPartition partition = new GaiaPointCloudPartition(boundingBox);
+        partition.addLeaf(copy(boundingBox));
+        return partition;
+    }
+
+    /**
+     * @param boundingBox    the volume of all the points
+     * @param samples        sampled positions, xyz interleaved
+     * @param sampleCount    the number of sampled positions
+     * @param totalPoints    the number of points represented by the samples
+     * @param cellPointLimit the maximum estimated point count of a cell
+     * @param axisWeights    the size of a unit of each axis, to compare the axes of geographic coordinates
+     */
+    public static GaiaPointCloudPartition build(GaiaBoundingBox boundingBox, double[] samples, int sampleCount, long totalPoints, long cellPointLimit, double[] axisWeights) {
+        GaiaPointCloudPartition partition = new GaiaPointCloudPartition(boundingBox);
+        if (sampleCount == 0) {
+            partition.addLeaf(copy(boundingBox));
+            return partition;
+        }
+        int[] order = new int[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            order[i] = i;
+        }
+        double pointsPerSample = (double) totalPoints / sampleCount;
+        double[] min = new double[]{boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ()};
+        double[] max = new double[]{boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ()};
+        partition.split(samples, order, 0, sampleCount, min, max, pointsPerSample, cellPointLimit, axisWeights, 0);
+        return partition;
+    }
+
+    /**
+     * @return the index of the cell containing the position, or -1 if it is outside the bounding box
+     */
+    public int findCell(double x, double y, double z) {
+        if (x < boundingBox.getMinX() || x > boundingBox.getMaxX()
+                || y < boundingBox.getMinY() || y > boundingBox.getMaxY()
+                || z < boundingBox.getMinZ() || z > boundingBox.getMaxZ()) {
+            return -1;
+        }
+        int node = 0;
+        while (axes[node] >= 0) {
+            int axis = axes[node];
+            double value = axis == 0 ? x : (axis == 1 ? y : z);
+            node = value < splits[node] ? lowers[node] : uppers[node];
+        }
+        return lowers[node];
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public GaiaBoundingBox getCellBoundingBox(int index) {
+        return cells.get(index);
+    }
+
+    private int split(double[] samples, int[] order, int from, int to, double[] min, double[] max, double pointsPerSample, long cellPointLimit, double[] axisWeights, int depth) {
+        int count = to - from;
+        if (count * pointsPerSample <= cellPointLimit || depth >= MAXIMUM_DEPTH) {
+            return addLeaf(toBoundingBox(min, max));
+        }
+
+        // the longest axis first, the others when all the samples are on the same plane
+        int[] candidates = sortAxes(min, max, axisWeights);
+        for (int axis : candidates) {
+            if (max[axis] - min[axis] < MINIMUM_EXTENT) {
+                continue;
+            }
+            double split = select(samples, order, from, to, from + count / 2, axis);
+            int middle = partition(samples, order, from, to, axis, split);
+            if (middle == from || middle == to) {
+                // most of the samples have the median value, split the cell in the middle instead
+                split = (min[axis] + max[axis]) / 2;
+                middle = partition(samples, order, from, to, axis, split);
+                if (middle == from || middle == to) {
+                    continue;
+                }
+            }
+
+            int node = addNode();
+            axes[node] = axis;
+            splits[node] = split;
+            double[] lowerMax = max.clone();
+            lowerMax[axis] = split;
+            double[] upperMin = min.clone();
+            upperMin[axis] = split;
+            int lower = split(samples, order, from, middle, min, lowerMax, pointsPerSample, cellPointLimit, axisWeights, depth + 1);
+            int upper = split(samples, order, middle, to, upperMin, max, pointsPerSample, cellPointLimit, axisWeights, depth + 1);
+            lowers[node] = lower;
+            uppers[node] = upper;
+            return node;
+        }
+        log.warn("[WARN] Failed to split a dense point cloud cell of {} samples.", count);
+        return addLeaf(toBoundingBox(min, max));
+    }
+
+    private int[] sortAxes(double[] min, double[] max, double[] axisWeights) {
+        int[] sorted = new int[]{0, 1, 2};
+        double[] lengths = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            lengths[axis] = (max[axis] - min[axis]) * axisWeights[axis];
+        }
+        for (int i = 1; i < 3; i++) {
+            for (int j = i; j > 0 && lengths[sorted[j]] > lengths[sorted[j - 1]]; j--) {
+                int temp = sorted[j];
+                sorted[j] = sorted[j - 1];
+                sorted[j - 1] = temp;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Quickselect of the k-th sample value along the axis, reorders the range of the order array.
+     */
+    private static double select(double[] samples, int[] order, int from, int to, int k, int axis) {
+        int left = from;
+        int right = to - 1;
+        while (left < right) {
+            double pivot = samples[order[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (samples[order[i] * 3 + axis] < pivot) {
+                    i++;
+                }
+                while (samples[order[j] * 3 + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return samples[order[k] * 3 + axis];
+    }
+
+    /**
+     * Moves the samples under the split value to the front of the range.
+     * @return the index of the first sample over or equal to the split value
+     */
+    private static int partition(double[] samples, int[] order, int from, int to, int axis, double split) {
+        int middle = from;
+        for (int i = from; i < to; i++) {
+            if (samples[order[i] * 3 + axis] < split) {
+                int temp = order[i];
+                order[i] = order[middle];
+                order[middle] = temp;
+                middle++;
+            }
+        }
+        return middle;
+    }
+
+    private int addLeaf(GaiaBoundingBox cellBoundingBox) {
+        int node = addNode();
+        axes[node] = -1;
+        lowers[node] = cells.size();
+        cells.add(cellBoundingBox);
+        return node;
+    }
+
+    private int addNode() {
+        if (nodeCount == axes.length) {
+            int length = axes.length * 2;
+            axes = Arrays.copyOf(axes, length);
+            splits = Arrays.copyOf(splits, length);
+            lowers = Arrays.copyOf(lowers, length);
+            uppers = Arrays.copyOf(uppers, length);
+        }
+        return nodeCount++;
+    }
+
+    private static GaiaBoundingBox toBoundingBox(double[] min, double[] max) {
+        GaiaBoundingBox cellBoundingBox = new GaiaBoundingBox();
+        cellBoundingBox.addPoint(min[0], min[1], min[2]);
+        cellBoundingBox.addPoint(max[0], max[1], max[2]);
+        return cellBoundingBox;
+    }
+
+    private static GaiaBoundingBox copy(GaiaBoundingBox boundingBox) {
+        GaiaBoundingBox cellBoundingBox = new GaiaBoundingBox();
+        cellBoundingBox.addBoundingBox(boundingBox);
+        return cellBoundingBox;
+    }
+}
@@ -1,17 +1,16 @@
 package com.gaia3d.basic.pointcloud;
 
-import com.gaia3d.basic.model.GaiaVertex;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
-import org.joml.Vector3d;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -105,97 +104,73 @@ public class GaiaPointCloudTemp {
         }
     }
 
-    public List<GaiaVertex> readTemp() {
-        List<GaiaVertex> vertices = new ArrayList<>();
+    public void writePoints(PointBuffer pointBuffer) {
         try {
-            while (inputStream.available() > 0) {
-                float floatX = inputStream.readFloat();
-                float floatY = inputStream.readFloat();
-                float floatZ = inputStream.readFloat();
-                byte[] colorBytes = new byte[3];
-                inputStream.read(colorBytes);
-                inputStream.readByte(); // padding
-                byte[] intensityBytes = new byte[2];
-                inputStream.read(intensityBytes);
-                byte[] classificationBytes = new byte[2];
-                inputStream.read(classificationBytes);
-
-                double x = floatX * quantizedVolumeScale[0] + quantizedVolumeOffset[0];
-                double y = floatY * quantizedVolumeScale[1] + quantizedVolumeOffset[1];
-                double z = floatZ * quantizedVolumeScale[2] + quantizedVolumeOffset[2];
-
-                GaiaVertex vertex = new GaiaVertex();
-                vertex.setColor(colorBytes);
-                vertex.setIntensity(ByteBuffer.wrap(intensityBytes).getChar());
-                vertex.setClassification(ByteBuffer.wrap(classificationBytes).getShort());
-                vertex.setPosition(new Vector3d(x, y, z));
-                vertices.add(vertex);
-            }
-        } catch (IOException e) {
-            log.error("[ERROR] Failed to read temp from input stream", e);
-        }
-        return vertices;
-    }
-
-    public void writePositionsFast(List<GaiaVertex> vertices) {
-        try {
-            int size = vertices.size() * blockSize;
-            byte[] bytes = new byte[size];
-            int index = 0;
-            for (GaiaVertex vertex : vertices) {
-                Vector3d position = vertex.getPosition();
-                byte[] color = vertex.getColor();
-                float x = (float) ((position.x - quantizedVolumeOffset[0]) / quantizedVolumeScale[0]);
-                float y = (float) ((position.y - quantizedVolumeOffset[1]) / quantizedVolumeScale[1]);
-                float z = (float) ((position.z - quantizedVolumeOffset[2]) / quantizedVolumeScale[2]);
-
-                if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z)) {
-                    log.error("[ERROR] Invalid position: x={}, y={}, z={}", x, y, z);
-                } else if (Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
-                    log.error("[ERROR] Invalid position: x={}, y={}, z={}", x, y, z);
+            double[] bufferScale = pointBuffer.getQuantizedVolumeScale();
+            double[] bufferOffset = pointBuffer.getQuantizedVolumeOffset();
+            boolean sameQuantization = Arrays.equals(bufferScale, quantizedVolumeScale) && Arrays.equals(bufferOffset, quantizedVolumeOffset);
+            ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE / blockSize * blockSize).order(ByteOrder.BIG_ENDIAN);
+            int size = pointBuffer.size();
+            for (int i = 0; i < size; i++) {
+                float x;
+                float y;
+                float z;
+                if (sameQuantization) {
+                    x = pointBuffer.getQuantizedX(i);
+                    y = pointBuffer.getQuantizedY(i);
+                    z = pointBuffer.getQuantizedZ(i);
+                } else {
+                    x = (float) ((pointBuffer.getX(i) - quantizedVolumeOffset[0]) / quantizedVolumeScale[0]);
+                    y = (float) ((pointBuffer.getY(i) - quantizedVolumeOffset[1]) / quantizedVolumeScale[1]);
+                    z = (float) ((pointBuffer.getZ(i) - quantizedVolumeOffset[2]) / quantizedVolumeScale[2]);
+                }
+                if (!byteBuffer.hasRemaining()) {
+                    outputStream.write(byteBuffer.array(), 0, byteBuffer.position());
+                    byteBuffer.clear();
                 }
-
                 // XYZ
-                byte[] xBytes = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putFloat(x).array();
-                byte[] yBytes = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putFloat(y).array();
-                byte[] zBytes = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putFloat(z).array();
-                System.arraycopy(xBytes, 0, bytes, index, 4);
-                System.arraycopy(yBytes, 0, bytes, index + 4, 4);
-                System.arraycopy(zBytes, 0, bytes, index + 8, 4);
+                byteBuffer.putFloat(x);
+                byteBuffer.putFloat(y);
+                byteBuffer.putFloat(z);
                 // RGB + padding
-                System.arraycopy(color, 0, bytes, index + 12, color.length);
-                bytes[index + 12 + color.length] = 0; // padding
+                byteBuffer.put(pointBuffer.getRed(i));
+                byteBuffer.put(pointBuffer.getGreen(i));
+                byteBuffer.put(pointBuffer.getBlue(i));
+                byteBuffer.put((byte) 0);
                 // intensity + classification
-                char intensity = vertex.getIntensity();
-                byte[] intensityBytes = ByteBuffer.allocate(2).order(ByteOrder.BIG_ENDIAN).putChar(intensity).array();
-                System.arraycopy(intensityBytes, 0, bytes, index + 16, 2);
-                short classification = vertex.getClassification();
-                byte[] classificationBytes = ByteBuffer.allocate(2).order(ByteOrder.BIG_ENDIAN).putShort(classification).array();
-                System.arraycopy(classificationBytes, 0, bytes, index + 18, 2);
-                // padding
-                //bytes[index + 15] = 0;
-                index += blockSize;
+                byteBuffer.putChar(pointBuffer.getIntensity(i));
+                byteBuffer.putShort(pointBuffer.getClassification(i));
             }
-            outputStream.write(bytes);
+            outputStream.write(byteBuffer.array(), 0, byteBuffer.position());
         } catch (Exception e) {
             log.error("[ERROR] Failed to write positions to output stream", e);
         }
     }
 
-    public void writePosition(Vector3d position, byte[] bytes) {
-        try {
-            float x = (float) ((position.x - quantizedVolumeOffset[0]) / quantizedVolumeScale[0]);
-            float y = (float) ((position.y - quantizedVolumeOffset[1]) / quantizedVolumeScale[1]);
-            float z = (float) ((position.z - quantizedVolumeOffset[2]) / quantizedVolumeScale[2]);
+    /**
+     * Encodes a point record into the given buffer, using the quantization of this temp file.
+     */
+    public void putPoint(ByteBuffer buffer, double x, double y, double z, byte red, byte green, byte blue, char intensity, short classification) {
+        // XYZ
+        buffer.putFloat((float) ((x - quantizedVolumeOffset[0]) / quantizedVolumeScale[0]));
+        buffer.putFloat((float) ((y - quantizedVolumeOffset[1]) / quantizedVolumeScale[1]));
+        buffer.putFloat((float) ((z - quantizedVolumeOffset[2]) / quantizedVolumeScale[2]));
+        // RGB + padding
+        buffer.put(red);
+        buffer.put(green);
+        buffer.put(blue);
+        buffer.put((byte) 0);
+        // intensity + classification
+        buffer.putChar(intensity);
+        buffer.putShort(classification);
+    }
 
-            // XYZ
-            outputStream.writeFloat(x);
-            outputStream.writeFloat(y);
-            outputStream.writeFloat(z);
-            // RGB + padding or other data
-            outputStream.write(bytes);
-            // padding
-            //outputStream.writeByte(0);
+    /**
+     * Appends encoded point records, several workers can write to the same temp file.
+     */
+    public synchronized void writeBlock(byte[] bytes, int offset, int length) {
+        try {
+            outputStream.write(bytes, offset, length);
         } catch (IOException e) {
             log.error("[ERROR] Failed to write bytes to output stream", e);
         }
@@ -275,6 +250,105 @@ public class GaiaPointCloudTemp {
         }
     }
 
+    /**
+     * Shuffles the temp file with sequential reads and writes, using at most memoryBudget bytes for records.
+     * The records are read in chunks that fit in the budget, each chunk is shuffled in memory (Fisher-Yates) and written as a run.
+     * The runs are then interleaved by picking the next run at random, weighted by the records it has left.
+     */
+    public void shuffleTempExternal(int shuffleNumber, int shuffleLength, long memoryBudget) {
+        String fileName = "shuffled-" + this.tempFile.getName();
+        File shuffledFile = new File(this.tempFile.getParent(), fileName);
+        Random random = new Random(RANDOM_SEED);
+        long blockCount = (this.tempFile.length() - HEADER_SIZE) / blockSize;
+        int chunkSize = (int) Math.max(1, Math.min(memoryBudget, Integer.MAX_VALUE) / blockSize);
+        log.info("[Pre][{}/{}][Shuffle] TotalPoints: {}, chunkSize: {}, runCount: {}, blockSize: {}", shuffleNumber, shuffleLength, blockCount, chunkSize, (blockCount + chunkSize - 1) / chunkSize, blockSize);
+
+        byte[] header = new byte[HEADER_SIZE];
+        List<File> runFiles = new ArrayList<>();
+        List<Long> runSizes = new ArrayList<>();
+        try {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.tempFile), BUFFER_SIZE))) {
+                input.readFully(header);
+                if (blockCount <= chunkSize) {
+                    writeShuffledChunk(input, header, (int) blockCount, shuffledFile, random);
+                } else {
+                    long remaining = blockCount;
+                    while (remaining > 0) {
+                        int records = (int) Math.min(chunkSize, remaining);
+                        File runFile = new File(this.tempFile.getParent(), "run-" + runFiles.size() + "-" + this.tempFile.getName());
+                        writeShuffledChunk(input, null, records, runFile, random);
+                        runFiles.add(runFile);
+                        runSizes.add((long) records);
+                        remaining -= records;
+                    }
+                }
+            }
+            if (!runFiles.isEmpty()) {
+                interleaveRuns(header, runFiles, runSizes, shuffledFile, memoryBudget, random);
+            }
+        } catch (IOException e) {
+            log.error("[ERROR] Failed to shuffle temp file", e);
+            throw new RuntimeException(e);
+        } finally {
+            runFiles.forEach(FileUtils::deleteQuietly);
+        }
+        FileUtils.deleteQuietly(this.tempFile);
+        this.tempFile = shuffledFile;
+    }
+
+    private void writeShuffledChunk(DataInputStream input, byte[] header, int records, File outputFile, Random random) throws IOException {
+        byte[] chunk = new byte[records * blockSize];
+        input.readFully(chunk);
+        byte[] swap = new byte[blockSize];
+        for (int i = records - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            System.arraycopy(chunk, i * blockSize, swap, 0, blockSize);
+            System.arraycopy(chunk, j * blockSize, chunk, i * blockSize, blockSize);
+            System.arraycopy(swap, 0, chunk, j * blockSize, blockSize);
+        }
+        try (OutputStream output = new FileOutputStream(outputFile, false)) {
+            if (header != null) {
+                output.write(header);
+            }
+            output.write(chunk);
+        }
+    }
+
+    private void interleaveRuns(byte[] header, List<File> runFiles, List<Long> runSizes, File outputFile, long memoryBudget, Random random) throws IOException {
+        int runCount = runFiles.size();
+        int streamBufferSize = (int) Math.max(BUFFER_SIZE, Math.min(memoryBudget / (runCount + 1), Integer.MAX_VALUE / 2));
+        DataInputStream[] inputs = new DataInputStream[runCount];
+        long[] remains = new long[runCount];
+        long total = 0;
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile, false), streamBufferSize)) {
+            for (int i = 0; i < runCount; i++) {
+                inputs[i] = new DataInputStream(new BufferedInputStream(new FileInputStream(runFiles.get(i)), streamBufferSize));
+                remains[i] = runSizes.get(i);
+                total += remains[i];
+            }
+            output.write(header);
+            byte[] record = new byte[blockSize];
+            while (total > 0) {
+                long pick = random.nextLong(total);
+                int run = 0;
+                while (pick >= remains[run]) {
+                    pick -= remains[run];
+                    run++;
+                }
+                inputs[run].readFully(record);
+                output.write(record);
+                remains[run]--;
+                total--;
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
     private List<Integer> createShuffleIndexes(int loop) {
         List<Integer> indexes = new ArrayList<>();
         for (int i = 0; i < loop; i++) {
@@ -0,0 +1,154 @@
+package com.gaia3d.basic.pointcloud;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view over a point cloud temp file.
+ * Points are accessed by index directly from the mapped records, so walking a temp file does not allocate per point.
+ * Files larger than 2GB are mapped as several segments, each holding a whole number of records.
+ */
+@Slf4j
+public class GaiaPointCloudTempReader implements Closeable {
+    private static final short VERSION = 1106;
+    private static final int HEADER_SIZE = 52;
+    private static final int BLOCK_SIZE = 20;
+    private static final int RECORDS_PER_SEGMENT = Integer.MAX_VALUE / BLOCK_SIZE;
+
+    @Getter
+    private final File tempFile;
+    @Getter
+    private final long pointCount;
+    @Getter
+    private final double[] quantizedVolumeScale = new double[3];
+    @Getter
+    private final double[] quantizedVolumeOffset = new double[3];
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+
+    public GaiaPointCloudTempReader(File tempFile) throws IOException {
+        this.tempFile = tempFile;
+        this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Invalid pointscloud temp file size : " + tempFile.getAbsolutePath());
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (header.getShort() != VERSION) {
+                throw new IOException("Invalid pointscloud temp version : " + tempFile.getAbsolutePath());
+            }
+            if (header.getShort() != BLOCK_SIZE) {
+                throw new IOException("Invalid pointscloud temp block size : " + tempFile.getAbsolutePath());
+            }
+            quantizedVolumeScale[0] = header.getDouble();
+            quantizedVolumeScale[1] = header.getDouble();
+            quantizedVolumeScale[2] = header.getDouble();
+            quantizedVolumeOffset[0] = header.getDouble();
+            quantizedVolumeOffset[1] = header.getDouble();
+            quantizedVolumeOffset[2] = header.getDouble();
+
+            this.pointCount = (fileSize - HEADER_SIZE) / BLOCK_SIZE;
+            int segmentCount = (int) ((pointCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long firstRecord = (long) i * RECORDS_PER_SEGMENT;
+                long records = Math.min(RECORDS_PER_SEGMENT, pointCount - firstRecord);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRecord * BLOCK_SIZE, records * BLOCK_SIZE);
+                segment.order(ByteOrder.BIG_ENDIAN);
+                segments[i] = segment;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public double getX(long index) {
+        return segment(index).getFloat(offset(index)) * quantizedVolumeScale[0] + quantizedVolumeOffset[0];
+    }
+
+    public double getY(long index) {
+        return segment(index).getFloat(offset(index) + 4) * quantizedVolumeScale[1] + quantizedVolumeOffset[1];
+    }
+
+    public double getZ(long index) {
+        return segment(index).getFloat(offset(index) + 8) * quantizedVolumeScale[2] + quantizedVolumeOffset[2];
+    }
+
+    public Vector3d getPosition(long index, Vector3d result) {
+        return result.set(getX(index), getY(index), getZ(index));
+    }
+
+    public byte getRed(long index) {
+        return segment(index).get(offset(index) + 12);
+    }
+
+    public byte getGreen(long index) {
+        return segment(index).get(offset(index) + 13);
+    }
+
+    public byte getBlue(long index) {
+        return segment(index).get(offset(index) + 14);
+    }
+
+    public byte[] getColor(long index, byte[] result) {
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+        result[0] = segment.get(offset + 12);
+        result[1] = segment.get(offset + 13);
+        result[2] = segment.get(offset + 14);
+        return result;
+    }
+
+    public char getIntensity(long index) {
+        return segment(index).getChar(offset(index) + 16);
+    }
+
+    public short getClassification(long index) {
+        return segment(index).getShort(offset(index) + 18);
+    }
+
+    /**
+     * Copies every point into a PointBuffer, keeping the quantized positions of the temp file.
+     */
+    public PointBuffer readPointBuffer() {
+        if (pointCount > Integer.MAX_VALUE / 3) {
+            throw new IllegalStateException("Too many points to load in a point buffer : " + pointCount);
+        }
+        PointBuffer pointBuffer = new PointBuffer((int) pointCount, quantizedVolumeScale, quantizedVolumeOffset);
+        for (int i = 0; i < pointCount; i++) {
+            MappedByteBuffer segment = segment(i);
+            int offset = offset(i);
+            pointBuffer.set(i, segment.getFloat(offset), segment.getFloat(offset + 4), segment.getFloat(offset + 8),
+                    segment.get(offset + 12), segment.get(offset + 13), segment.get(offset + 14),
+                    segment.getChar(offset + 16), segment.getShort(offset + 18));
+        }
+        return pointBuffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // mapped segments are released by the garbage collector, the channel can be closed right away
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    private int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * BLOCK_SIZE;
+    }
+}
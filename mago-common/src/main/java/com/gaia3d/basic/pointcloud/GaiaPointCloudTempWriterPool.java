@@ -0,0 +1,136 @@
+package com.gaia3d.basic.pointcloud;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends coalesced point blocks to the temp files, with a bounded number of open files.
+ * The least recently used idle file is closed when the limit is reached, and reopened in append mode on the next write.
+ */
+@Slf4j
+public class GaiaPointCloudTempWriterPool implements Closeable {
+    private final int maximumOpenFiles;
+    @Getter
+    private final int bufferPoints;
+    private final LinkedHashMap<GaiaPointCloudTemp, PooledStream> streams = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong openCount = new AtomicLong();
+    private final AtomicLong evictCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushBytes = new AtomicLong();
+
+    /**
+     * @param maximumOpenFiles the maximum number of temp files open at the same time
+     * @param bufferPoints     the number of points a grid writer buffers per cell before appending them
+     */
+    public GaiaPointCloudTempWriterPool(int maximumOpenFiles, int bufferPoints) {
+        this.maximumOpenFiles = Math.max(1, maximumOpenFiles);
+        this.bufferPoints = bufferPoints;
+    }
+
+    /**
+     * Appends encoded point records to the temp file, several workers can write to the same temp file.
+     */
+    public void write(GaiaPointCloudTemp temp, byte[] bytes, int offset, int length) {
+        synchronized (temp) {
+            PooledStream stream = acquire(temp);
+            try {
+                stream.outputStream.write(bytes, offset, length);
+                flushCount.incrementAndGet();
+                flushBytes.addAndGet(length);
+            } catch (IOException e) {
+                log.error("[ERROR] Failed to write bytes to temp file : {}", temp.getTempFile(), e);
+            } finally {
+                release(stream);
+            }
+        }
+    }
+
+    private synchronized PooledStream acquire(GaiaPointCloudTemp temp) {
+        PooledStream stream = streams.get(temp);
+        if (stream == null) {
+            evictIdle();
+            try {
+                stream = new PooledStream(new FileOutputStream(temp.getTempFile(), true));
+            } catch (IOException e) {
+                log.error("[ERROR] Failed to open temp file : {}", temp.getTempFile(), e);
+                throw new RuntimeException(e);
+            }
+            streams.put(temp, stream);
+            openCount.incrementAndGet();
+        }
+        stream.users++;
+        return stream;
+    }
+
+    private synchronized void release(PooledStream stream) {
+        stream.users--;
+    }
+
+    /**
+     * Closes the least recently used files that are not being written, until a file can be opened.
+     */
+    private void evictIdle() {
+        Iterator<Map.Entry<GaiaPointCloudTemp, PooledStream>> iterator = streams.entrySet().iterator();
+        while (streams.size() >= maximumOpenFiles && iterator.hasNext()) {
+            PooledStream stream = iterator.next().getValue();
+            if (stream.users > 0) {
+                continue;
+            }
+            closeQuietly(stream);
+            iterator.remove();
+            evictCount.incrementAndGet();
+        }
+    }
+
+    public int getOpenFileCount() {
+        synchronized (this) {
+            return streams.size();
+        }
+    }
+
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    public long getEvictCount() {
+        return evictCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        streams.values().forEach(this::closeQuietly);
+        streams.clear();
+        log.info("[Pre] Temp writer pool : {} opened, {} evicted, {} flushed ({}MB)", openCount.get(), evictCount.get(), flushCount.get(), flushBytes.get() / 1024 / 1024);
+    }
+
+    private void closeQuietly(PooledStream stream) {
+        try {
+            stream.outputStream.close();
+        } catch (IOException e) {
+            log.error("[ERROR] Failed to close temp file stream", e);
+        }
+    }
+
+    private static class PooledStream {
+        private final OutputStream outputStream;
+        private int users = 0;
+
+        private PooledStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.Getter;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Struct-of-arrays storage for point cloud points.
+ * Positions are kept quantized as in the temp file (float xyz in the quantized volume), so a point costs 19 bytes of heap.
+ * A PointBuffer can be a slice of another one, sharing its columns, so octree nodes are ranges of the same arrays.
+ */
+@Getter
+public class PointBuffer {
+    private final float[] positions; // quantized xyz
+    private final byte[] colors; // rgb
+    private final char[] intensities;
+    private final short[] classifications;
+    private final double[] quantizedVolumeScale;
+    private final double[] quantizedVolumeOffset;
+    private final int start;
+    private final int size;
+
+    public PointBuffer(int size, double[] quantizedVolumeScale, double[] quantizedVolumeOffset) {
+        this.positions = new float[size * 3];
+        this.colors = new byte[size * 3];
+        this.intensities = new char[size];
+        this.classifications = new short[size];
+        this.quantizedVolumeScale = quantizedVolumeScale.clone();
+        this.quantizedVolumeOffset = quantizedVolumeOffset.clone();
+        this.start = 0;
+        this.size = size;
+    }
+
+    private PointBuffer(PointBuffer parent, int start, int size) {
+        this.positions = parent.positions;
+        this.colors = parent.colors;
+        this.intensities = parent.intensities;
+        this.classifications = parent.classifications;
+        this.quantizedVolumeScale = parent.quantizedVolumeScale;
+        this.quantizedVolumeOffset = parent.quantizedVolumeOffset;
+        this.start = start;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a view over [from, to) of this buffer, sharing the same columns.
+     */
+    public PointBuffer slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid slice [" + from + ", " + to + ") of " + size);
+        }
+        return new PointBuffer(this, start + from, to - from);
+    }
+
+    public void set(int index, float quantizedX, float quantizedY, float quantizedZ, byte red, byte green, byte blue, char intensity, short classification) {
+        int position = start + index;
+        positions[position * 3] = quantizedX;
+        positions[position * 3 + 1] = quantizedY;
+        positions[position * 3 + 2] = quantizedZ;
+        colors[position * 3] = red;
+        colors[position * 3 + 1] = green;
+        colors[position * 3 + 2] = blue;
+        intensities[position] = intensity;
+        classifications[position] = classification;
+    }
+
+    public float getQuantizedX(int index) {
+        return positions[(start + index) * 3];
+    }
+
+    public float getQuantizedY(int index) {
+        return positions[(start + index) * 3 + 1];
+    }
+
+    public float getQuantizedZ(int index) {
+        return positions[(start + index) * 3 + 2];
+    }
+
+    public double getX(int index) {
+        return getQuantizedX(index) * quantizedVolumeScale[0] + quantizedVolumeOffset[0];
+    }
+
+    public double getY(int index) {
+        return getQuantizedY(index) * quantizedVolumeScale[1] + quantizedVolumeOffset[1];
+    }
+
+    public double getZ(int index) {
+        return getQuantizedZ(index) * quantizedVolumeScale[2] + quantizedVolumeOffset[2];
+    }
+
+    public byte getRed(int index) {
+        return colors[(start + index) * 3];
+    }
+
+    public byte getGreen(int index) {
+        return colors[(start + index) * 3 + 1];
+    }
+
+    public byte getBlue(int index) {
+        return colors[(start + index) * 3 + 2];
+    }
+
+    public char getIntensity(int index) {
+        return intensities[start + index];
+    }
+
+    public short getClassification(int index) {
+        return classifications[start + index];
+    }
+
+    public GaiaBoundingBox calcBoundingBox() {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        for (int i = 0; i < size; i++) {
+            boundingBox.addPoint(getX(i), getY(i), getZ(i));
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Reorders the points in place so that each bucket is a contiguous range.
+     * @param bucketCount number of buckets
+     * @param bucketOf returns the bucket of the point at the given index
+     * @return bucket boundaries, bucket i is [bounds[i], bounds[i + 1])
+     */
+    public int[] partition(int bucketCount, IntUnaryOperator bucketOf) {
+        int[] bounds = new int[bucketCount + 1];
+        for (int i = 0; i < size; i++) {
+            bounds[bucketOf.applyAsInt(i) + 1]++;
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            bounds[i + 1] += bounds[i];
+        }
+
+        int[] next = new int[bucketCount];
+        System.arraycopy(bounds, 0, next, 0, bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            while (next[bucket] < bounds[bucket + 1]) {
+                int index = next[bucket];
+                int target = bucketOf.applyAsInt(index);
+                if (target == bucket) {
+                    next[bucket]++;
+                } else {
+                    swap(index, next[target]++);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    public void swap(int indexA, int indexB) {
+        int a = start + indexA;
+        int b = start + indexB;
+        for (int i = 0; i < 3; i++) {
+            float position = positions[a * 3 + i];
+            positions[a * 3 + i] = positions[b * 3 + i];
+            positions[b * 3 + i] = position;
+            byte color = colors[a * 3 + i];
+            colors[a * 3 + i] = colors[b * 3 + i];
+            colors[b * 3 + i] = color;
+        }
+        char intensity = intensities[a];
+        intensities[a] = intensities[b];
+        intensities[b] = intensity;
+        short classification = classifications[a];
+        classifications[a] = classifications[b];
+        classifications[b] = classification;
+    }
+}
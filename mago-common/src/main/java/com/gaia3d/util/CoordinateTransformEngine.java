@@ -0,0 +1,225 @@
+package com.gaia3d.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.locationtech.proj4j.BasicCoordinateTransform;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.Proj4jException;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static com.gaia3d.util.GlobeUtils.*;
+
+/**
+ * Batched transformation of coordinate arrays between coordinate reference systems.
+ * The proj4j transforms are cached per CRS pair and per thread, a transform keeps intermediate coordinates and is not thread-safe.
+ * The coordinates are xyz interleaved and transformed in place, the z value is kept as the height above the ellipsoid.
+ * A missing source CRS is an error, only a pair of the same CRS is left as it is.
+ */
+@Slf4j
+public class CoordinateTransformEngine {
+    private static final int PARALLEL_CHUNK_SIZE = 65536;
+    private static final ThreadLocal<Map<TransformKey, CoordinateTransform>> transforms = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * @return the cached transform of the calling thread
+     * @throws IllegalArgumentException if the source or the target CRS is null
+     */
+    public static CoordinateTransform getTransform(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+        checkCrs(source, target);
+        return transforms.get().computeIfAbsent(new TransformKey(source, target), (key) -> new BasicCoordinateTransform(source, target));
+    }
+
+    public static ProjCoordinate transform(CoordinateReferenceSystem source, CoordinateReferenceSystem target, ProjCoordinate coordinate) {
+        return getTransform(source, target).transform(coordinate, new ProjCoordinate());
+    }
+
+    public static ProjCoordinate transformToWgs84(CoordinateReferenceSystem source, ProjCoordinate coordinate) {
+        return transform(source, wgs84, coordinate);
+    }
+
+    public static void transformToWgs84(CoordinateReferenceSystem source, double[] coordinates) {
+        transform(source, wgs84, coordinates, 0, coordinates.length / 3);
+    }
+
+    /**
+     * Transforms the x and y values of the coordinates in place.
+     * @param offset the index of the first coordinate
+     * @param count  the number of coordinates
+     */
+    public static void transform(CoordinateReferenceSystem source, CoordinateReferenceSystem target, double[] coordinates, int offset, int count) {
+        if (isIdentity(source, target)) {
+            return;
+        }
+        CoordinateTransform transform = getTransform(source, target);
+        ProjCoordinate sourceCoordinate = new ProjCoordinate();
+        ProjCoordinate targetCoordinate = new ProjCoordinate();
+        int end = (offset + count) * 3;
+        for (int i = offset * 3; i < end; i += 3) {
+            sourceCoordinate.setValue(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+            transform.transform(sourceCoordinate, targetCoordinate);
+            coordinates[i] = targetCoordinate.x;
+            coordinates[i + 1] = targetCoordinate.y;
+        }
+    }
+
+    /**
+     * Transforms the coordinates in place, splitting large arrays in chunks transformed in parallel.
+     */
+    public static void transformParallel(CoordinateReferenceSystem source, CoordinateReferenceSystem target, double[] coordinates, int offset, int count) {
+        forEachChunk(offset, count, (chunkOffset, chunkCount) -> transform(source, target, coordinates, chunkOffset, chunkCount));
+    }
+
+    /**
+     * Converts geographic WGS84 coordinates (longitude, latitude, height) to earth-centered cartesian coordinates in place.
+     */
+    public static void geographicToCartesianWgs84(double[] coordinates, int offset, int count) {
+        int end = (offset + count) * 3;
+        for (int i = offset * 3; i < end; i += 3) {
+            toCartesian(coordinates, i, coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+        }
+    }
+
+    /**
+     * Transforms the source coordinates to the local frame of a tile in a single pass:
+     * source CRS to WGS84, WGS84 to earth-centered cartesian, then the world to local matrix.
+     * The cartesian and local coordinates are computed inline without intermediate objects.
+     * @param worldToLocal the matrix from the earth-centered cartesian coordinates to the local frame
+     * @throws Proj4jException if a coordinate cannot be transformed
+     */
+    public static void transformToLocal(CoordinateReferenceSystem source, double[] coordinates, int offset, int count, Matrix4d worldToLocal) {
+        transformToLocal(source, coordinates, offset, count, worldToLocal, false);
+    }
+
+    /**
+     * Transforms the source coordinates to the local frame of a tile in a single pass.
+     * @param invalidToOrigin whether a coordinate that cannot be transformed is placed at longitude 0, latitude 0 and height 0,
+     *                        as the point clouds do, instead of failing
+     */
+    public static void transformToLocal(CoordinateReferenceSystem source, double[] coordinates, int offset, int count, Matrix4d worldToLocal, boolean invalidToOrigin) {
+        boolean identity = isIdentity(source, wgs84);
+        CoordinateTransform transform = identity ? null : getTransform(source, wgs84);
+        ProjCoordinate sourceCoordinate = new ProjCoordinate();
+        ProjCoordinate targetCoordinate = new ProjCoordinate();
+
+        double m00 = worldToLocal.m00(), m01 = worldToLocal.m01(), m02 = worldToLocal.m02();
+        double m10 = worldToLocal.m10(), m11 = worldToLocal.m11(), m12 = worldToLocal.m12();
+        double m20 = worldToLocal.m20(), m21 = worldToLocal.m21(), m22 = worldToLocal.m22();
+        double m30 = worldToLocal.m30(), m31 = worldToLocal.m31(), m32 = worldToLocal.m32();
+
+        int end = (offset + count) * 3;
+        for (int i = offset * 3; i < end; i += 3) {
+            double longitude = coordinates[i];
+            double latitude = coordinates[i + 1];
+            double height = coordinates[i + 2];
+            if (!identity) {
+                try {
+                    sourceCoordinate.setValue(longitude, latitude, height);
+                    transform.transform(sourceCoordinate, targetCoordinate);
+                    longitude = targetCoordinate.x;
+                    latitude = targetCoordinate.y;
+                } catch (Proj4jException e) {
+                    if (!invalidToOrigin) {
+                        throw e;
+                    }
+                    longitude = 0.0d;
+                    latitude = 0.0d;
+                    height = 0.0d;
+                    log.debug("Invalid value exception", e);
+                }
+            }
+            toCartesian(coordinates, i, longitude, latitude, height);
+
+            double x = coordinates[i];
+            double y = coordinates[i + 1];
+            double z = coordinates[i + 2];
+            coordinates[i] = m00 * x + m10 * y + m20 * z + m30;
+            coordinates[i + 1] = m01 * x + m11 * y + m21 * z + m31;
+            coordinates[i + 2] = m02 * x + m12 * y + m22 * z + m32;
+        }
+    }
+
+    /**
+     * Transforms the source coordinates to the local frame of a tile, splitting large arrays in chunks transformed in parallel.
+     */
+    public static void transformToLocalParallel(CoordinateReferenceSystem source, double[] coordinates, int offset, int count, Matrix4d worldToLocal) {
+        transformToLocalParallel(source, coordinates, offset, count, worldToLocal, false);
+    }
+
+    /**
+     * Transforms the source coordinates to the local frame of a tile in parallel chunks.
+     * @param invalidToOrigin whether a coordinate that cannot be transformed is placed at longitude 0, latitude 0 and height 0
+     */
+    public static void transformToLocalParallel(CoordinateReferenceSystem source, double[] coordinates, int offset, int count, Matrix4d worldToLocal, boolean invalidToOrigin) {
+        forEachChunk(offset, count, (chunkOffset, chunkCount) -> transformToLocal(source, coordinates, chunkOffset, chunkCount, worldToLocal, invalidToOrigin));
+    }
+
+    private static boolean isIdentity(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+        checkCrs(source, target);
+        return source == target || source.equals(target);
+    }
+
+    private static void checkCrs(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+        if (source == null) {
+            throw new IllegalArgumentException("The source CRS is null, the coordinates can not be transformed.");
+        } else if (target == null) {
+            throw new IllegalArgumentException("The target CRS is null, the coordinates can not be transformed.");
+        }
+    }
+
+    private static void toCartesian(double[] coordinates, int index, double longitude, double latitude, double altitude) {
+        double lonRad = longitude * DEGREE_TO_RADIAN_FACTOR;
+        double latRad = latitude * DEGREE_TO_RADIAN_FACTOR;
+        double cosLat = Math.cos(latRad);
+        double sinLat = Math.sin(latRad);
+        double v = EQUATORIAL_RADIUS / Math.sqrt(1.0 - FIRST_ECCENTRICITY_SQUARED * sinLat * sinLat);
+        coordinates[index] = (v + altitude) * cosLat * Math.cos(lonRad);
+        coordinates[index + 1] = (v + altitude) * cosLat * Math.sin(lonRad);
+        coordinates[index + 2] = (v * (1.0 - FIRST_ECCENTRICITY_SQUARED) + altitude) * sinLat;
+    }
+
+    private static void forEachChunk(int offset, int count, ChunkConsumer consumer) {
+        if (count <= PARALLEL_CHUNK_SIZE) {
+            consumer.accept(offset, count);
+            return;
+        }
+        int chunkCount = (count + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        IntStream.range(0, chunkCount).parallel().forEach((chunk) -> {
+            int chunkOffset = chunk * PARALLEL_CHUNK_SIZE;
+            consumer.accept(offset + chunkOffset, Math.min(PARALLEL_CHUNK_SIZE, count - chunkOffset));
+        });
+    }
+
+    private interface ChunkConsumer {
+        void accept(int offset, int count);
+    }
+
+    private static class TransformKey {
+        private final CoordinateReferenceSystem source;
+        private final CoordinateReferenceSystem target;
+
+        private TransformKey(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof TransformKey)) {
+                return false;
+            }
+            TransformKey other = (TransformKey) object;
+            return source.equals(other.source) && target.equals(other.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, target);
+        }
+    }
+}
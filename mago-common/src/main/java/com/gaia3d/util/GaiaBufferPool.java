@@ -0,0 +1,216 @@
+package com.gaia3d.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-local pool of the heap arrays used for the tile buffers.
+ * The arrays are pooled by power of two size classes, a buffer is borrowed and returned by the same worker thread.
+ * The memory retained by all the threads is capped, an array returned over the cap is left to the garbage collector.
+ * The retained memory of a thread is given back to the cap when the thread ends.
+ */
+@Slf4j
+public class GaiaBufferPool {
+    private static final int MIN_SIZE_CLASS_SHIFT = 10; // 1KB
+    private static final int MAX_SIZE_CLASS_SHIFT = 30; // 1GB
+    private static final int MAX_ARRAYS_PER_SIZE_CLASS = 8;
+    private static final Cleaner cleaner = Cleaner.create();
+    private static final GaiaBufferPool instance = new GaiaBufferPool(Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16));
+
+    private final ThreadLocal<ThreadCache> threadCaches = ThreadLocal.withInitial(this::createThreadCache);
+    private volatile long maximumRetainedBytes;
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong dropCount = new AtomicLong();
+
+    /**
+     * @param maximumRetainedBytes the maximum bytes of the arrays kept by all the threads
+     */
+    public GaiaBufferPool(long maximumRetainedBytes) {
+        this.maximumRetainedBytes = maximumRetainedBytes;
+    }
+
+    public static GaiaBufferPool getInstance() {
+        return instance;
+    }
+
+    public void setMaximumRetainedBytes(long maximumRetainedBytes) {
+        this.maximumRetainedBytes = maximumRetainedBytes;
+    }
+
+    /**
+     * Borrows a zero filled little-endian buffer, the capacity of the buffer is exactly the requested capacity.
+     * The buffer is a view of a pooled array, it is returned with {@link #release(ByteBuffer)}.
+     */
+    public ByteBuffer acquireByteBuffer(int capacity) {
+        byte[] array = acquireBytes(capacity);
+        Arrays.fill(array, 0, capacity, (byte) 0);
+        return ByteBuffer.wrap(array, 0, capacity).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.hasArray()) {
+            release(buffer.array());
+        }
+    }
+
+    /**
+     * Borrows an array of at least the requested length, the values of the array are not cleared.
+     */
+    public byte[] acquireBytes(int minimumLength) {
+        byte[] array = (byte[]) acquire(ArrayType.BYTE, minimumLength);
+        return array != null ? array : new byte[sizeClassLength(minimumLength, ArrayType.BYTE)];
+    }
+
+    public void release(byte[] array) {
+        if (array != null) {
+            release(ArrayType.BYTE, array, array.length);
+        }
+    }
+
+    /**
+     * Borrows an array of at least the requested length, the values of the array are not cleared.
+     */
+    public double[] acquireDoubles(int minimumLength) {
+        double[] array = (double[]) acquire(ArrayType.DOUBLE, minimumLength);
+        return array != null ? array : new double[sizeClassLength(minimumLength, ArrayType.DOUBLE)];
+    }
+
+    public void release(double[] array) {
+        if (array != null) {
+            release(ArrayType.DOUBLE, array, array.length);
+        }
+    }
+
+    private Object acquire(ArrayType type, int minimumLength) {
+        int sizeClass = sizeClass((long) minimumLength * type.elementSize);
+        if (sizeClass < 0) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        ThreadCache threadCache = threadCaches.get();
+        ArrayDeque<Object> arrays = threadCache.arrays[type.ordinal()][sizeClass];
+        Object array = arrays == null ? null : arrays.pollLast();
+        if (array == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        long bytes = 1L << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+        threadCache.retainedBytes.addAndGet(-bytes);
+        retainedBytes.addAndGet(-bytes);
+        hitCount.incrementAndGet();
+        return array;
+    }
+
+    /**
+     * Keeps the array if it has the length of a size class, and the cap is not reached.
+     * The caller must not use the array after the release.
+     */
+    private void release(ArrayType type, Object array, int length) {
+        long bytes = (long) length * type.elementSize;
+        int sizeClass = sizeClass(bytes);
+        if (sizeClass < 0 || (1L << (sizeClass + MIN_SIZE_CLASS_SHIFT)) != bytes) {
+            return;
+        }
+        ThreadCache threadCache = threadCaches.get();
+        ArrayDeque<Object>[] typeArrays = threadCache.arrays[type.ordinal()];
+        if (typeArrays[sizeClass] == null) {
+            typeArrays[sizeClass] = new ArrayDeque<>();
+        }
+        ArrayDeque<Object> arrays = typeArrays[sizeClass];
+        if (arrays.size() >= MAX_ARRAYS_PER_SIZE_CLASS) {
+            dropCount.incrementAndGet();
+            return;
+        }
+        if (retainedBytes.addAndGet(bytes) > maximumRetainedBytes) {
+            retainedBytes.addAndGet(-bytes);
+            dropCount.incrementAndGet();
+            return;
+        }
+        threadCache.retainedBytes.addAndGet(bytes);
+        arrays.addLast(array);
+    }
+
+    /**
+     * Drops the arrays kept by the calling thread.
+     */
+    public void clearThreadCache() {
+        ThreadCache threadCache = threadCaches.get();
+        for (ArrayDeque<Object>[] typeArrays : threadCache.arrays) {
+            Arrays.fill(typeArrays, null);
+        }
+        retainedBytes.addAndGet(-threadCache.retainedBytes.getAndSet(0));
+    }
+
+    private ThreadCache createThreadCache() {
+        ThreadCache threadCache = new ThreadCache();
+        AtomicLong threadRetainedBytes = threadCache.retainedBytes;
+        AtomicLong poolRetainedBytes = retainedBytes;
+        // the action must not reference the cache, it runs when the cache of an ended thread is collected
+        cleaner.register(threadCache, () -> poolRetainedBytes.addAndGet(-threadRetainedBytes.getAndSet(0)));
+        return threadCache;
+    }
+
+    /**
+     * @return the index of the size class of the bytes, or -1 if the bytes are too large to be pooled
+     */
+    private static int sizeClass(long bytes) {
+        if (bytes <= 1L << MIN_SIZE_CLASS_SHIFT) {
+            return 0;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(bytes - 1);
+        return shift > MAX_SIZE_CLASS_SHIFT ? -1 : shift - MIN_SIZE_CLASS_SHIFT;
+    }
+
+    private static int sizeClassLength(int minimumLength, ArrayType type) {
+        int sizeClass = sizeClass((long) minimumLength * type.elementSize);
+        if (sizeClass < 0) {
+            return minimumLength;
+        }
+        return (int) ((1L << (sizeClass + MIN_SIZE_CLASS_SHIFT)) / type.elementSize);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getDropCount() {
+        return dropCount.get();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public void logMetrics(String phase) {
+        log.info("[{}] Buffer pool : {} hits, {} misses, {} dropped, {}MB retained of {}MB", phase, hitCount.get(), missCount.get(), dropCount.get(), retainedBytes.get() / 1024 / 1024, maximumRetainedBytes / 1024 / 1024);
+    }
+
+    private enum ArrayType {
+        BYTE(Byte.BYTES), DOUBLE(Double.BYTES);
+
+        private final int elementSize;
+
+        ArrayType(int elementSize) {
+            this.elementSize = elementSize;
+        }
+    }
+
+    private static class ThreadCache {
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<Object>[][] arrays = new ArrayDeque[ArrayType.values().length][MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1];
+        private final AtomicLong retainedBytes = new AtomicLong();
+    }
+}
@@ -1,5 +1,6 @@
 package com.gaia3d.util;
 
+import com.gaia3d.basic.geometry.GaiaVertexWelder;
 import com.gaia3d.basic.model.GaiaFace;
 import com.gaia3d.basic.model.GaiaPrimitive;
 import com.gaia3d.basic.model.GaiaSurface;
@@ -7,7 +8,6 @@ import com.gaia3d.basic.model.GaiaVertex;
 import org.joml.Vector2d;
 import org.joml.Vector3d;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -83,28 +83,10 @@ public class GaiaPrimitiveUtils {
     }
 
     public static void getWeldableVertexMap(Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster, List<GaiaVertex> vertices, double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
-        Map<GaiaVertex, GaiaVertex> visitedMap = new HashMap<>();
+        int[] masters = GaiaVertexWelder.weld(vertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
         int verticesCount = vertices.size();
         for (int i = 0; i < verticesCount; i++) {
-            GaiaVertex vertex = vertices.get(i);
-            if (visitedMap.containsKey(vertex)) {
-                continue;
-            }
-
-            mapVertexToVertexMaster.put(vertex, vertex);
-
-            for (int j = i + 1; j < verticesCount; j++) {
-                GaiaVertex vertex2 = vertices.get(j);
-                if (visitedMap.containsKey(vertex2)) {
-                    continue;
-                }
-                if (vertex.isWeldable(vertex2, error, checkTexCoord, checkNormal, checkColor, checkBatchId)) {
-                    mapVertexToVertexMaster.put(vertex2, vertex);
-
-                    visitedMap.put(vertex, vertex);
-                    visitedMap.put(vertex2, vertex2);
-                }
-            }
+            mapVertexToVertexMaster.put(vertices.get(i), vertices.get(masters[i]));
         }
     }
 
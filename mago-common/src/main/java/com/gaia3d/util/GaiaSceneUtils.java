@@ -1,6 +1,5 @@
 package com.gaia3d.util;
 
-import com.gaia3d.basic.geometry.octree.GaiaOctreeVertices;
 import com.gaia3d.basic.model.*;
 import com.gaia3d.basic.model.structure.GaiaFaceExplicit;
 import lombok.extern.slf4j.Slf4j;
@@ -116,30 +115,13 @@ public class GaiaSceneUtils {
         }
 
         // 1rst, find the coincident vertices.
-        //List<GaiaVertex> primitiveVertices = primitive.getVertices();
-        GaiaOctreeVertices octreeVertices = new GaiaOctreeVertices(null);
-        octreeVertices.getVertices().addAll(totalVertices);
-        octreeVertices.calculateSize();
-        octreeVertices.setAsCube();
-        octreeVertices.setMaxDepth(10);
-        octreeVertices.setMinBoxSize(1.0); // 1m.
-
-        octreeVertices.makeTreeByMinVertexCount(50);
-
-        List<GaiaOctreeVertices> octreesWithContents = new ArrayList<>();
-        octreeVertices.extractOctreesWithContents(octreesWithContents);
-
         Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster = new HashMap<>();
         double error = 0.001;
         boolean checkTexCoord = false;
         boolean checkNormal = false;
         boolean checkColor = false;
         boolean checkBatchId = false;
-
-        for (GaiaOctreeVertices octree : octreesWithContents) {
-            List<GaiaVertex> vertices = octree.getVertices();
-            GaiaPrimitiveUtils.getWeldableVertexMap(mapVertexToVertexMaster, vertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
-        }
+        GaiaPrimitiveUtils.getWeldableVertexMap(mapVertexToVertexMaster, totalVertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
 
         // make a map<vertexMaster, List<GaiaVertex>>
         Map<GaiaVertex, List<GaiaVertex>> mapVertexMasterToListVertices = new HashMap<>();
@@ -0,0 +1,192 @@
+package com.gaia3d.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Process-wide LRU cache of the decoded texture images, bounded by the size of their rasters.
+ * The images are keyed by file and texture scale, a scaled image is derived from the cached original image.
+ * The cached images are shared, they must not be drawn on.
+ */
+@Slf4j
+public class ImageCache {
+    private static final ImageCache instance = new ImageCache();
+
+    private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes = 256L * 1024 * 1024;
+    private long bytes = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    public static ImageCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * The original image of the file, decoded on a miss.
+     * @return null if the file can not be decoded
+     */
+    public BufferedImage getImage(File file) {
+        Key key = new Key(file, 0.0f);
+        BufferedImage image = get(key);
+        if (image == null) {
+            image = readImage(file);
+            put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * The image of the file at a texture scale, derived from the original image on a miss.
+     * @param scaler resizes the original image, an image of the original size is not cached twice
+     */
+    public BufferedImage getImage(File file, float scaleFactor, UnaryOperator<BufferedImage> scaler) {
+        Key key = new Key(file, scaleFactor);
+        BufferedImage image = get(key);
+        if (image == null) {
+            BufferedImage original = getImage(file);
+            if (original == null) {
+                return null;
+            }
+            image = scaler.apply(original);
+            if (image != original) {
+                put(key, image);
+            }
+        }
+        return image;
+    }
+
+    synchronized public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evict();
+    }
+
+    synchronized public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    synchronized public long getBytes() {
+        return bytes;
+    }
+
+    synchronized public int size() {
+        return images.size();
+    }
+
+    synchronized public long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized public long getMissCount() {
+        return missCount;
+    }
+
+    synchronized public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    synchronized public void clear() {
+        images.clear();
+        bytes = 0;
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    synchronized private BufferedImage get(Key key) {
+        BufferedImage image = images.get(key);
+        if (image != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return image;
+    }
+
+    synchronized private void put(Key key, BufferedImage image) {
+        if (image == null) {
+            return;
+        }
+        long imageBytes = getByteSize(image);
+        if (imageBytes > maxBytes) {
+            return;
+        }
+        BufferedImage previous = images.put(key, image);
+        if (previous != null) {
+            bytes -= getByteSize(previous);
+        }
+        bytes += imageBytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, BufferedImage>> iterator = images.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = iterator.next();
+            bytes -= getByteSize(eldest.getValue());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private long getByteSize(BufferedImage image) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    private BufferedImage readImage(File file) {
+        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            return ImageIO.read(stream);
+        } catch (IOException e) {
+            log.error("[ERROR] :", e);
+            return null;
+        }
+    }
+
+    /**
+     * The size and modification time of the file tell a rewritten file apart, scale 0 is the original image.
+     */
+    private static class Key {
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final float scaleFactor;
+
+        private Key(File file, float scaleFactor) {
+            this.path = file.getAbsolutePath();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.scaleFactor = scaleFactor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return length == key.length && lastModified == key.lastModified && Float.compare(scaleFactor, key.scaleFactor) == 0 && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, length, lastModified, scaleFactor);
+        }
+    }
+}
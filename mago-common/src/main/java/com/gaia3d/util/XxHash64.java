@@ -0,0 +1,131 @@
+package com.gaia3d.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 64-bit xxHash (XXH64) of byte and int arrays.
+ * An int array hashes like its little-endian bytes.
+ */
+public class XxHash64 {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_HANDLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    public static long hash(byte[] data, long seed) {
+        int length = data.length;
+        int offset = 0;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, (long) LONG_HANDLE.get(data, offset));
+                v2 = round(v2, (long) LONG_HANDLE.get(data, offset + 8));
+                v3 = round(v3, (long) LONG_HANDLE.get(data, offset + 16));
+                v4 = round(v4, (long) LONG_HANDLE.get(data, offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+            hash = converge(v1, v2, v3, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += length;
+
+        for (; offset + 8 <= length; offset += 8) {
+            hash = mixLong(hash, (long) LONG_HANDLE.get(data, offset));
+        }
+        if (offset + 4 <= length) {
+            hash = mixInt(hash, (int) INT_HANDLE.get(data, offset));
+            offset += 4;
+        }
+        for (; offset < length; offset++) {
+            hash ^= (data[offset] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        return avalanche(hash);
+    }
+
+    public static long hash(int[] data, long seed) {
+        int count = data.length;
+        int index = 0;
+        long hash;
+        if (count >= 8) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = count - 8;
+            do {
+                v1 = round(v1, lane(data, index));
+                v2 = round(v2, lane(data, index + 2));
+                v3 = round(v3, lane(data, index + 4));
+                v4 = round(v4, lane(data, index + 6));
+                index += 8;
+            } while (index <= limit);
+            hash = converge(v1, v2, v3, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += (long) count * 4;
+
+        for (; index + 2 <= count; index += 2) {
+            hash = mixLong(hash, lane(data, index));
+        }
+        if (index < count) {
+            hash = mixInt(hash, data[index]);
+        }
+        return avalanche(hash);
+    }
+
+    private static long lane(int[] data, int index) {
+        return (data[index] & 0xFFFFFFFFL) | ((long) data[index + 1] << 32);
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long merge(long hash, long value) {
+        hash ^= round(0, value);
+        return hash * PRIME1 + PRIME4;
+    }
+
+    private static long converge(long v1, long v2, long v3, long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = merge(hash, v1);
+        hash = merge(hash, v2);
+        hash = merge(hash, v3);
+        return merge(hash, v4);
+    }
+
+    private static long mixLong(long hash, long value) {
+        hash ^= round(0, value);
+        return Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+    }
+
+    private static long mixInt(long hash, int value) {
+        hash ^= (value & 0xFFFFFFFFL) * PRIME1;
+        return Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
@@ -21,10 +21,19 @@ public class GlobalConstants {
     public static final int DEFAULT_MIN_I3DM_FEATURE_COUNT = 128;
     public static final int DEFAULT_POINT_PER_TILE = 300000;
     public static final int DEFAULT_POINT_RATIO = 100;
+    public static final int DEFAULT_POINT_MEMORY_BUDGET = 1024; // in MB
+    public static final String DEFAULT_TEXTURE_FORMAT = "auto";
+    public static final int DEFAULT_TEXTURE_QUALITY = 75;
+    public static final String DEFAULT_ATLAS_PACKER = "skyline";
+    public static final int DEFAULT_IMAGE_CACHE_SIZE = 256; // in MB
+    public static final String DEFAULT_RENDERER = "opengl";
     public static final float POINTSCLOUD_HORIZONTAL_GRID = 500.0f; // in meters
     public static final float POINTSCLOUD_VERTICAL_GRID = 500.0f; // in meters
     public static final float POINTSCLOUD_HORIZONTAL_ARC = (1.0f / 60.0f / 60.0f) * 20.0f;
     public static final float POINTSCLOUD_VERTICAL_ARC = (1.0f / 60.0f / 60.0f) * 20.0f;
+    public static final int POINTSCLOUD_CELL_POINTS = 8388608; // maximum points of a temp cell
+    public static final int POINTSCLOUD_SAMPLE_POINTS = 1048576; // sampled points to build the temp cells
+    public static final int POINTSCLOUD_MAXIMUM_OPEN_FILES = 256; // temp files open at the same time
     public static final String DEFAULT_SOURCE_CRS_CODE = "3857";
     // The default target CRS is WGS 84 / ECEF (EPSG:4978)
     public static final String DEFAULT_TARGET_CRS_CODE = "4978";
@@ -46,6 +55,10 @@ public class GlobalConstants {
     public static final double DEFAULT_DENSITY = 1.0d;
 
     public static final boolean DEFAULT_USE_QUANTIZATION = false;
+    public static final boolean DEFAULT_USE_MESH_COMPRESSION = false;
+    public static final boolean DEFAULT_IMPLICIT_TILING = false;
+    public static final int DEFAULT_IMPLICIT_SUBTREE_LEVELS = 4;
+    public static final int DEFAULT_SHARD_DEPTH = 0;
     public static final int REALISTIC_LOD0_MAX_TEXTURE_SIZE = 1024;
     public static final int REALISTIC_MAX_TEXTURE_SIZE = 1024;
     public static final int REALISTIC_MIN_TEXTURE_SIZE = 32;
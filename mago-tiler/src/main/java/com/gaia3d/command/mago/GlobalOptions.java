@@ -3,6 +3,7 @@ package com.gaia3d.command.mago;
 import com.gaia3d.TilerExtensionModule;
 import com.gaia3d.basic.exception.Reporter;
 import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.util.ImageCache;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -61,8 +62,10 @@ public class GlobalOptions {
     private int maximumPointPerTile = 0; // Maximum number of points per a tile
     private int pointRatio = 0; // Percentage of points from original data
     private boolean force4ByteRGB = false; // Force 4Byte RGB for pointscloud tile
+    private int memoryBudget = 0; // Memory budget in MB for pointscloud temp processing
 
     private boolean useQuantization; // Use quantization via KHR_mesh_quantization
+    private boolean useMeshCompression; // Use compression via EXT_meshopt_compression
 
     /* Tiling Options */
     // Level of Detail
@@ -80,21 +83,30 @@ public class GlobalOptions {
     private boolean debug = false;
     private boolean debugLod = false;
     private boolean isLeaveTemp = false;
+    private boolean tempCompression = false; // deflate compression for the binary temp scene files
+    private boolean pipeline = false; // post-process the contents while the tiling is in progress
 
     private boolean glb = false;
     private boolean classicTransformMatrix = false;
-    private byte multiThreadCount = 1;
+    private int multiThreadCount = 1;
 
     /* 3D Data Options */
     private boolean recursive = false;
     private double rotateX = 0; // degrees
 
     private boolean refineAdd = false; // 3dTiles refine option ADD fix flag
+    private boolean implicitTiling = false; // write the tree as implicit tiling subtrees instead of one tileset.json
+    private int shardDepth = GlobalConstants.DEFAULT_SHARD_DEPTH; // tile depth between the external tilesets, 0 writes a single tileset.json
     private boolean flipCoordinate = false; // flip coordinate flag for 2D Data
     private boolean ignoreTextures = false; // ignore textures flag
+    private String textureFormat = GlobalConstants.DEFAULT_TEXTURE_FORMAT; // texture image format, auto keeps the source format
+    private int textureQuality = GlobalConstants.DEFAULT_TEXTURE_QUALITY; // jpeg texture quality from 0 to 100
+    private int imageCacheSize = GlobalConstants.DEFAULT_IMAGE_CACHE_SIZE; // memory limit in MB of the decoded texture image cache
+    private String atlasPacker = GlobalConstants.DEFAULT_ATLAS_PACKER; // texture atlas packing algorithm
 
     // [Experimental] 3D Data Options
     private boolean isPhotogrammetry = false; // [Experimental] isPhotogrammetry mode flag
+    private String renderer = GlobalConstants.DEFAULT_RENDERER; // [Experimental] photogrammetry renderer, opengl or the cpu software renderer
     private boolean isSplitByNode = false; // [Experimental] split by node flag
 
     /* 2D Data Column Options */
@@ -283,19 +295,49 @@ public class GlobalOptions {
         instance.setMinGeometricError(command.hasOption(ProcessOptions.MIN_GEOMETRIC_ERROR.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MIN_GEOMETRIC_ERROR.getLongName())) : GlobalConstants.DEFAULT_MIN_GEOMETRIC_ERROR);
         instance.setMaxGeometricError(command.hasOption(ProcessOptions.MAX_GEOMETRIC_ERROR.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MAX_GEOMETRIC_ERROR.getLongName())) : GlobalConstants.DEFAULT_MAX_GEOMETRIC_ERROR);
         instance.setIgnoreTextures(command.hasOption(ProcessOptions.IGNORE_TEXTURES.getLongName()));
+        String textureFormat = command.hasOption(ProcessOptions.TEXTURE_FORMAT.getLongName()) ? command.getOptionValue(ProcessOptions.TEXTURE_FORMAT.getLongName()).toLowerCase() : GlobalConstants.DEFAULT_TEXTURE_FORMAT;
+        if (!textureFormat.equals("auto") && !textureFormat.equals("png") && !textureFormat.equals("jpeg") && !textureFormat.equals("jpg") && !textureFormat.equals("ktx2")) {
+            throw new IllegalArgumentException("Invalid texture format: " + textureFormat);
+        }
+        instance.setTextureFormat(textureFormat);
+        int textureQuality = command.hasOption(ProcessOptions.TEXTURE_QUALITY.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.TEXTURE_QUALITY.getLongName())) : GlobalConstants.DEFAULT_TEXTURE_QUALITY;
+        if (textureQuality < 0 || textureQuality > 100) {
+            throw new IllegalArgumentException("Invalid texture quality: " + textureQuality);
+        }
+        instance.setTextureQuality(textureQuality);
+        int imageCacheSize = command.hasOption(ProcessOptions.IMAGE_CACHE_SIZE.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.IMAGE_CACHE_SIZE.getLongName())) : GlobalConstants.DEFAULT_IMAGE_CACHE_SIZE;
+        if (imageCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid image cache size: " + imageCacheSize);
+        }
+        instance.setImageCacheSize(imageCacheSize);
+        ImageCache.getInstance().setMaxBytes((long) imageCacheSize * 1024 * 1024);
+        String atlasPacker = command.hasOption(ProcessOptions.ATLAS_PACKER.getLongName()) ? command.getOptionValue(ProcessOptions.ATLAS_PACKER.getLongName()).toLowerCase() : GlobalConstants.DEFAULT_ATLAS_PACKER;
+        if (!atlasPacker.equals("maxrects") && !atlasPacker.equals("skyline") && !atlasPacker.equals("corner")) {
+            throw new IllegalArgumentException("Invalid atlas packer: " + atlasPacker);
+        }
+        instance.setAtlasPacker(atlasPacker);
         instance.setMaxTriangles(GlobalConstants.DEFAULT_MAX_TRIANGLES);
         instance.setMaxInstance(GlobalConstants.DEFAULT_MAX_INSTANCE);
         instance.setMaxNodeDepth(GlobalConstants.DEFAULT_MAX_NODE_DEPTH);
         //instance.setLargeMesh(command.hasOption(ProcessOptions.LARGE_MESH.getLongName()));
         //instance.setVoxelLod(command.hasOption(ProcessOptions.VOXEL_LOD.getLongName()));
         instance.setPhotogrammetry(command.hasOption(ProcessOptions.PHOTOGRAMMETRY.getLongName()));
+        String renderer = command.hasOption(ProcessOptions.RENDERER.getLongName()) ? command.getOptionValue(ProcessOptions.RENDERER.getLongName()).toLowerCase() : GlobalConstants.DEFAULT_RENDERER;
+        if (!renderer.equals("opengl") && !renderer.equals("cpu")) {
+            throw new IllegalArgumentException("Invalid renderer: " + renderer);
+        }
+        instance.setRenderer(renderer);
         instance.setLeaveTemp(command.hasOption(ProcessOptions.LEAVE_TEMP.getLongName()));
+        instance.setTempCompression(command.hasOption(ProcessOptions.TEMP_COMPRESSION.getLongName()));
+        instance.setPipeline(command.hasOption(ProcessOptions.PIPELINE.getLongName()));
         instance.setUseQuantization(command.hasOption(ProcessOptions.MESH_QUANTIZATION.getLongName()) || GlobalConstants.DEFAULT_USE_QUANTIZATION);
+        instance.setUseMeshCompression(command.hasOption(ProcessOptions.MESH_COMPRESSION.getLongName()) || GlobalConstants.DEFAULT_USE_MESH_COMPRESSION);
 
         /* Point Cloud Options */
         instance.setMaximumPointPerTile(command.hasOption(ProcessOptions.MAX_POINTS.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MAX_POINTS.getLongName())) : GlobalConstants.DEFAULT_POINT_PER_TILE);
         instance.setPointRatio(command.hasOption(ProcessOptions.POINT_RATIO.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.POINT_RATIO.getLongName())) : GlobalConstants.DEFAULT_POINT_RATIO);
         instance.setForce4ByteRGB(command.hasOption(ProcessOptions.POINT_FORCE_4BYTE_RGB.getLongName()));
+        instance.setMemoryBudget(command.hasOption(ProcessOptions.POINT_MEMORY_BUDGET.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.POINT_MEMORY_BUDGET.getLongName())) : GlobalConstants.DEFAULT_POINT_MEMORY_BUDGET);
 
         /* 2D Data Column Options */
         instance.setHeightColumn(command.hasOption(ProcessOptions.HEIGHT_COLUMN.getLongName()) ? command.getOptionValue(ProcessOptions.HEIGHT_COLUMN.getLongName()) : GlobalConstants.DEFAULT_HEIGHT_COLUMN);
@@ -346,27 +388,38 @@ public class GlobalOptions {
         }
         instance.setRotateX(rotateXAxis);
         instance.setRefineAdd(isRefineAdd);
+
+        boolean isImplicitTiling = command.hasOption(ProcessOptions.IMPLICIT_TILING.getLongName()) || GlobalConstants.DEFAULT_IMPLICIT_TILING;
+        if (isImplicitTiling && instance.getTilesVersion().equals("1.0")) {
+            log.warn("[WARN] Implicit tiling is ignored in 3D Tiles 1.0.");
+            isImplicitTiling = false;
+        } else if (isImplicitTiling && instance.isPipeline()) {
+            // the contents are renamed to the template paths when the tileset is written, after the tiling
+            log.warn("[WARN] Pipelined post-process is disabled with implicit tiling.");
+            instance.setPipeline(false);
+        }
+        instance.setImplicitTiling(isImplicitTiling);
+        instance.setShardDepth(command.hasOption(ProcessOptions.SHARD_DEPTH.getLongName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.SHARD_DEPTH.getLongName())) : GlobalConstants.DEFAULT_SHARD_DEPTH);
         instance.setGlb(command.hasOption(ProcessOptions.DEBUG_GLB.getLongName()));
         instance.setFlipCoordinate(command.hasOption(ProcessOptions.FLIP_COORDINATE.getLongName()));
 
         if (command.hasOption(ProcessOptions.MULTI_THREAD_COUNT.getLongName())) {
-            instance.setMultiThreadCount(Byte.parseByte(command.getOptionValue(ProcessOptions.MULTI_THREAD_COUNT.getLongName())));
+            instance.setMultiThreadCount(Integer.parseInt(command.getOptionValue(ProcessOptions.MULTI_THREAD_COUNT.getLongName())));
         } else {
             int processorCount = Runtime.getRuntime().availableProcessors();
             int threadCount = processorCount > 1 ? processorCount / 2 : 1;
-            instance.setMultiThreadCount((byte) threadCount);
+            instance.setMultiThreadCount(threadCount);
         }
 
         instance.printDebugOptions();
 
         TilerExtensionModule extensionModule = new TilerExtensionModule();
         extensionModule.executePhotogrammetry(null, null);
-        if (!extensionModule.isSupported() && instance.isPhotogrammetry()) {
-            log.error("[ERROR] *** Extension Module is not supported ***");
-            throw new IllegalArgumentException("Extension Module is not supported.");
-        } else {
-            instance.setUseQuantization(false);
+        if (!extensionModule.isSupported() && instance.isPhotogrammetry() && renderer.equals("opengl")) {
+            log.warn("[WARN] *** Extension Module is not supported, the cpu renderer is used ***");
+            instance.setRenderer("cpu");
         }
+        instance.setUseQuantization(false);
     }
 
     private static void initVersionInfo() {
@@ -403,6 +456,8 @@ public class GlobalOptions {
             return;
         }
         log.info("Leave Temp Files: {}", isLeaveTemp);
+        log.info("Temp Compression: {}", tempCompression);
+        log.info("Pipelined Post-Process: {}", pipeline);
         log.info("Minimum LOD: {}", minLod);
         log.info("Maximum LOD: {}", maxLod);
         log.info("Minimum GeometricError: {}", minGeometricError);
@@ -415,19 +470,29 @@ public class GlobalOptions {
         log.info("Multi-Thread Count: {}", multiThreadCount);
         Mago3DTilerMain.drawLine();
         log.info("Mesh Quantization: {}", useQuantization);
+        log.info("Mesh Compression: {}", useMeshCompression);
         log.info("Rotate X-Axis: {}", rotateX);
         log.info("RefineAdd: {}", refineAdd);
+        log.info("Implicit Tiling: {}", implicitTiling);
+        log.info("Shard Depth: {}", shardDepth);
         log.info("Flip Coordinate: {}", flipCoordinate);
         log.info("Ignore Textures: {}", ignoreTextures);
+        log.info("Texture Format: {}", textureFormat);
+        log.info("Texture Quality: {}", textureQuality);
+        log.info("Image Cache Size: {}MB", imageCacheSize);
+        log.info("Atlas Packer: {}", atlasPacker);
         log.info("Max Triangles: {}", maxTriangles);
         log.info("Max Instance Size: {}", maxInstance);
         log.info("Max Node Depth: {}", maxNodeDepth);
         log.info("isPhotogrammetry: {}", isPhotogrammetry);
+        log.info("Renderer: {}", renderer);
         Mago3DTilerMain.drawLine();
         log.info("PointCloud Ratio: {}", pointRatio);
         log.info("Point Cloud Horizontal Grid: {}", GlobalConstants.POINTSCLOUD_HORIZONTAL_GRID);
         log.info("Point Cloud Vertical Grid: {}", GlobalConstants.POINTSCLOUD_VERTICAL_GRID);
+        log.info("Point Cloud Cell Points: {}", GlobalConstants.POINTSCLOUD_CELL_POINTS);
         log.info("Force 4Byte RGB: {}", force4ByteRGB);
+        log.info("PointCloud Memory Budget: {}MB", memoryBudget);
         Mago3DTilerMain.drawLine();
         log.info("Height Column: {}", heightColumn);
         log.info("Altitude Column: {}", altitudeColumn);
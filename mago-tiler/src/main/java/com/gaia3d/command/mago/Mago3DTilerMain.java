@@ -3,6 +3,7 @@ package com.gaia3d.command.mago;
 import com.gaia3d.basic.exception.Reporter;
 import com.gaia3d.command.Configuration;
 import com.gaia3d.util.DecimalUtils;
+import com.gaia3d.util.ImageCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.*;
 import org.apache.logging.log4j.Level;
@@ -120,6 +121,12 @@ public class Mago3DTilerMain {
         log.info("Fatal : {}", reporter.getFatalCount());
         log.info("Total Report Count : {}", reporter.getReportList().size());
         drawLine();
+        ImageCache imageCache = ImageCache.getInstance();
+        log.info("[Image Cache Summary]");
+        log.info("Hit : {}", imageCache.getHitCount());
+        log.info("Miss : {}", imageCache.getMissCount());
+        log.info("Eviction : {}", imageCache.getEvictionCount());
+        drawLine();
     }
 
     public static void drawLine() {
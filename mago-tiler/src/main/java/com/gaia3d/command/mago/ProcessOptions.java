@@ -10,6 +10,8 @@ public enum ProcessOptions {
     HELP("help", "h", false, false, "Print Help"),
     QUIET("quiet", "q", false, false,"Quiet mode/Silent mode"),
     LEAVE_TEMP("leaveTemp", "lt", false, false, "Leave temporary files"),
+    TEMP_COMPRESSION("tempCompression", "tc", false, false, "Compress temporary scene files (smaller temp directory, more CPU)"),
+    PIPELINE("pipeline", "pl", false, false, "Post-process the tile contents while the tiling is in progress"),
     MERGE("merge", "m", false, false, "Merge tileset.json files"),
 
     /* Path Options */
@@ -24,6 +26,7 @@ public enum ProcessOptions {
     INSTANCE_PATH("instance", "if", true, false, "Instance file path for I3DM (Default: {OUTPUT}/instance.dae)"),
 
     MESH_QUANTIZATION("quantize", "qt", false, false, "Quantize mesh to reduce glb size via \"KHR_mesh_quantization\" Extension"),
+    MESH_COMPRESSION("meshopt", "mo", false, false, "Compress mesh to reduce glb size via \"EXT_meshopt_compression\" Extension"),
 
     /* Coordinate Setting Options */
     CRS("crs", "c", true, false,"Coordinate Reference Systems, EPSG Code(4326, 3857, 32652, 5186...)"),
@@ -53,17 +56,24 @@ public enum ProcessOptions {
 
     /* Tiling Control Options */
     REFINE_ADD("refineAdd", "ra", false, false, "Set 3D Tiles Refine 'ADD' mode"),
+    IMPLICIT_TILING("implicit", "imp", false, false, "Write the point cloud and photogrammetry tileset with implicit tiling subtrees (3D Tiles 1.1)"),
+    SHARD_DEPTH("shardDepth", "sd", true, false, "Split the tileset into external tilesets every given tile depth (0: single tileset.json)"),
     MAX_COUNT("maxCount", "mx",  true, false, "Maximum number of triangles per node."),
     MIN_LOD("minLod", "nl",  true, false, "min level of detail"),
     MAX_LOD("maxLod", "xl",  true, false, "Max Level of detail"),
     MIN_GEOMETRIC_ERROR("minGeometricError", "ng",  true, false, "Minimum geometric error"),
     MAX_GEOMETRIC_ERROR("maxGeometricError", "mg",  true, false, "Maximum geometric error"),
     MAX_POINTS("maxPoints", "mp",  true, false, "Maximum number of points per a tile"),
+    TEXTURE_FORMAT("textureFormat", "txf", true, false, "Texture image format [Default: auto][auto, png, jpeg, ktx2]"),
+    TEXTURE_QUALITY("textureQuality", "txq", true, false, "JPEG and KTX2 texture quality from 0 to 100. (Default: 75)"),
+    IMAGE_CACHE_SIZE("imageCacheSize", "ics", true, false, "Memory limit in MB of the decoded texture image cache, 0 disables it. (Default: 256)"),
+    ATLAS_PACKER("atlasPacker", "ap", true, false, "Texture atlas packing algorithm [Default: skyline][maxrects, skyline, corner]"),
 
     // PointCloud Options
     POINT_RATIO("pointRatio", "pcr",  true, false, "Percentage of points from original data"),
     POINT_PRECISION("sourcePrecision", "sp", false, false, "Create pointscloud tile with original precision. "),
     POINT_FORCE_4BYTE_RGB("force4ByteRGB", "f4", false, false, "Force 4Byte RGB for pointscloud tile."),
+    POINT_MEMORY_BUDGET("memoryBudget", "mb", true, false, "Memory budget in MB for pointscloud temp processing. (Default: 1024)"),
 
     /* GIS Vector Generate Options */
     FLIP_COORDINATE("flipCoordinate", "fc", false, false, "Flip x, y coordinate for 2D Original Data."),
@@ -84,6 +94,7 @@ public enum ProcessOptions {
     /* Experimental Options */
     TILES_VERSION("tilesVersion", "tv",  true, false, "[Experimental] 3DTiles Version [Default: 1.1][1.0, 1.1]"),
     PHOTOGRAMMETRY("photogrammetry", "pg", false, false, "[Experimental] generate b3dm for photogrammetry model with GPU"),
+    RENDERER("renderer", "rd", true, false, "[Experimental] Photogrammetry renderer, cpu runs without OpenGL [Default: opengl][opengl, cpu]"),
 
     /* Deprecated Options */
     MULTI_THREAD_COUNT("multiThreadCount", "mc",  true, false, "[Deprecated] set thread count"),
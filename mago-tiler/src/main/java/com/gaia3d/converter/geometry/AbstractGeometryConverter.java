@@ -11,11 +11,14 @@ import com.gaia3d.converter.geometry.pipe.GaiaPipeLineString;
 import com.gaia3d.converter.geometry.pipe.Modeler3D;
 import com.gaia3d.converter.geometry.pipe.PipeElbow;
 import com.gaia3d.converter.geometry.pipe.PipeType;
+import com.gaia3d.util.CoordinateTransformEngine;
 import com.gaia3d.util.GeometryUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
 import org.joml.Vector4d;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
 import org.opengis.feature.simple.SimpleFeature;
 
 import java.io.File;
@@ -137,6 +140,31 @@ public abstract class AbstractGeometryConverter {
         return primitive;
     }
 
+    /**
+     * Transforms the coordinates of a ring from the source CRS to WGS84 in a single batch.
+     * @param keepZ keeps the z value of the coordinates, or sets it to 0
+     */
+    protected List<Vector3d> transformToWgs84(Coordinate[] coordinates, boolean flipCoordinate, boolean keepZ) {
+        double[] values = new double[coordinates.length * 3];
+        for (int i = 0; i < coordinates.length; i++) {
+            Coordinate coordinate = coordinates[i];
+            values[i * 3] = flipCoordinate ? coordinate.getY() : coordinate.getX();
+            values[i * 3 + 1] = flipCoordinate ? coordinate.getX() : coordinate.getY();
+        }
+
+        CoordinateReferenceSystem crs = GlobalOptions.getInstance().getSourceCrs();
+        if (crs != null && !crs.getName().equals("EPSG:4326")) {
+            CoordinateTransformEngine.transformToWgs84(crs, values);
+        }
+
+        List<Vector3d> positions = new ArrayList<>(coordinates.length);
+        for (int i = 0; i < coordinates.length; i++) {
+            double z = keepZ ? coordinates[i].getZ() : 0.0d;
+            positions.add(new Vector3d(values[i * 3], values[i * 3 + 1], z));
+        }
+        return positions;
+    }
+
     protected int indexOf(List<Vector3d> positions, Vector3d item) {
         //return positions.indexOf(item);
         IntStream intStream = IntStream.range(0, positions.size());
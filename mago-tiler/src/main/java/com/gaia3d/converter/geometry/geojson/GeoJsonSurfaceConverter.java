@@ -139,26 +139,7 @@ public class GeoJsonSurfaceConverter extends AbstractGeometryConverter implement
                         LineString interiorRingLineString= polygon.getInteriorRingN(i);
                         Coordinate[] interiorCoordinates = interiorRingLineString.getCoordinates();
 
-                        for (Coordinate coordinate : interiorCoordinates) {
-                            double x, y, z;
-                            if (flipCoordinate) {
-                                x = coordinate.getY();
-                                y = coordinate.getX();
-                            } else {
-                                x = coordinate.getX();
-                                y = coordinate.getY();
-                            }
-                            z = coordinate.getZ();
-
-                            Vector3d position;
-                            CoordinateReferenceSystem crs = globalOptions.getSourceCrs();
-                            if (crs != null && !crs.getName().equals("EPSG:4326")) {
-                                ProjCoordinate projCoordinate = new ProjCoordinate(x, y, boundingBox.getMinZ());
-                                ProjCoordinate centerWgs84 = GlobeUtils.transform(crs, projCoordinate);
-                                position = new Vector3d(centerWgs84.x, centerWgs84.y, z);
-                            } else {
-                                position = new Vector3d(x, y, z);
-                            }
+                        for (Vector3d position : transformToWgs84(interiorCoordinates, flipCoordinate, true)) {
                             positions.add(position);
                             boundingBox.addPoint(position);
                         }
@@ -168,26 +149,7 @@ public class GeoJsonSurfaceConverter extends AbstractGeometryConverter implement
                     GaiaBoundingBox boundingBox = new GaiaBoundingBox();
                     List<Vector3d> positions = new ArrayList<>();
 
-                    for (Coordinate coordinate : outerCoordinates) {
-                        double x, y, z;
-                        if (flipCoordinate) {
-                            x = coordinate.getY();
-                            y = coordinate.getX();
-                        } else {
-                            x = coordinate.getX();
-                            y = coordinate.getY();
-                        }
-                        z = coordinate.getZ();
-
-                        Vector3d position;
-                        CoordinateReferenceSystem crs = globalOptions.getSourceCrs();
-                        if (crs != null && !crs.getName().equals("EPSG:4326")) {
-                            ProjCoordinate projCoordinate = new ProjCoordinate(x, y, boundingBox.getMinZ());
-                            ProjCoordinate centerWgs84 = GlobeUtils.transform(crs, projCoordinate);
-                            position = new Vector3d(centerWgs84.x, centerWgs84.y, z);
-                        } else {
-                            position = new Vector3d(x, y, z);
-                        }
+                    for (Vector3d position : transformToWgs84(outerCoordinates, flipCoordinate, true)) {
                         positions.add(position);
                         boundingBox.addPoint(position);
                     }
@@ -222,27 +222,7 @@ public class ShapeConverter extends AbstractGeometryConverter implements Convert
                     GaiaBoundingBox boundingBox = new GaiaBoundingBox();
                     List<Vector3d> positions = new ArrayList<>();
 
-                    for (Coordinate coordinate : outerCoordinates) {
-                        double x, y, z;
-                        if (flipCoordinate) {
-                            x = coordinate.getY();
-                            y = coordinate.getX();
-                        } else {
-                            x = coordinate.getX();
-                            y = coordinate.getY();
-                        }
-                        z = coordinate.getZ();
-
-                        Vector3d position;
-                        CoordinateReferenceSystem crs = globalOptions.getSourceCrs();
-                        if (crs != null && !crs.getName().equals("EPSG:4326")) {
-                            ProjCoordinate projCoordinate = new ProjCoordinate(x, y, boundingBox.getMinZ());
-                            ProjCoordinate centerWgs84 = GlobeUtils.transform(crs, projCoordinate);
-                            position = new Vector3d(centerWgs84.x, centerWgs84.y, 0.0d);
-                        } else {
-                            position = new Vector3d(x, y, 0.0d);
-                        }
-
+                    for (Vector3d position : transformToWgs84(outerCoordinates, flipCoordinate, false)) {
                         positions.add(position);
                         boundingBox.addPoint(position);
                     }
@@ -9,14 +9,11 @@ import com.gaia3d.basic.types.AttributeType;
 import com.gaia3d.converter.jgltf.extension.ExtensionConstant;
 import com.gaia3d.converter.jgltf.extension.ExtensionMeshFeatures;
 import com.gaia3d.converter.jgltf.extension.ExtensionStructuralMetadata;
+import com.gaia3d.converter.jgltf.meshopt.MeshOptimizer;
 import com.gaia3d.process.postprocess.batch.GaiaBatchTableMap;
 import com.gaia3d.process.postprocess.instance.GaiaFeatureTable;
 import de.javagl.jgltf.impl.v2.*;
 import de.javagl.jgltf.model.GltfConstants;
-import de.javagl.jgltf.model.GltfModel;
-import de.javagl.jgltf.model.GltfModels;
-import de.javagl.jgltf.model.io.GltfModelWriter;
-import de.javagl.jgltf.model.io.v2.GltfAssetV2;
 import de.javagl.jgltf.validator.Validator;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -51,13 +48,15 @@ public class BatchedModelGltfWriter extends GltfWriter {
      * @param outputPath The output path of the glTF file.
      */
     public void writeGlb(GaiaScene gaiaScene, File outputPath, GaiaFeatureTable featureTable, GaiaBatchTableMap<String, List<String>> batchTableMap) {
+        GltfBinary binary = new GltfBinary();
         try {
-            GltfModel gltfModel = convert(gaiaScene, featureTable, batchTableMap);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputPath);
+            GlTF gltf = createGltf(gaiaScene, binary, featureTable, batchTableMap);
+            GlbWriter.write(gltf, binary, outputPath);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Failed to write glb file.");
+        } finally {
+            binary.release();
         }
     }
 
@@ -67,20 +66,21 @@ public class BatchedModelGltfWriter extends GltfWriter {
      * @param outputStream The output stream of the glTF file.
      */
     public void writeGlb(GaiaScene gaiaScene, OutputStream outputStream, GaiaFeatureTable featureTable, GaiaBatchTableMap<String, List<String>> batchTableMap) {
+        GltfBinary binary = new GltfBinary();
         try {
-            GltfModel gltfModel = convert(gaiaScene, featureTable, batchTableMap);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputStream);
+            GlTF gltf = createGltf(gaiaScene, binary, featureTable, batchTableMap);
+            GlbWriter.write(gltf, binary, outputStream);
             outputStream.flush();
             outputStream.close();
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Failed to write glb file.");
+        } finally {
+            binary.release();
         }
     }
 
-    protected GltfModel convert(GaiaScene gaiaScene, GaiaFeatureTable featureTable, GaiaBatchTableMap<String, List<String>> batchTableMap) {
-        GltfBinary binary = new GltfBinary();
+    protected GlTF createGltf(GaiaScene gaiaScene, GltfBinary binary, GaiaFeatureTable featureTable, GaiaBatchTableMap<String, List<String>> batchTableMap) {
         GlTF gltf = new GlTF();
         gltf.setAsset(genAsset());
         gltf.addSamplers(genSampler());
@@ -120,16 +120,12 @@ public class BatchedModelGltfWriter extends GltfWriter {
         gltf.setExtensions(extensions);
 
         convertNode(gltf, binary, rootNode, gaiaScene.getNodes(), batchTableMap, rtcCenterSmallArray);
+        compressBuffers(gltf, binary);
         gaiaScene.getMaterials()
                 .forEach(gaiaMaterial -> createMaterial(gltf, binary, gaiaMaterial));
+        completeImages(gltf, binary);
         applyPropertiesBinary(gltf, binary, extensionStructuralMetadata);
-
-        binary.fill();
-        if (binary.getBody() != null) {
-            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
-            return GltfModels.create(asset);
-        }
-        return null;
+        return gltf;
     }
 
     private void applyPropertiesBinary(GlTF gltf, GltfBinary binary, ExtensionStructuralMetadata extensionStructuralMetadata) {
@@ -252,6 +248,9 @@ public class BatchedModelGltfWriter extends GltfWriter {
     }
 
     private GltfNodeBuffer convertGeometryInfo(GlTF gltf, GaiaMesh gaiaMesh, Node node, GaiaBatchTableMap<String, List<String>> batchTableMap) {
+        if (globalOptions.isUseMeshCompression()) {
+            gaiaMesh.getPrimitives().forEach(MeshOptimizer::optimize);
+        }
         int[] indices = gaiaMesh.getIndices();
         float[] positions = gaiaMesh.getFloatPositions();
 
@@ -301,47 +300,16 @@ public class BatchedModelGltfWriter extends GltfWriter {
         int texcoordsBufferViewId = nodeBuffer.getTexcoordsBufferViewId();
         int batchIdBufferViewId = nodeBuffer.getBatchIdBufferViewId();
 
-        if (indicesBuffer != null) {
-            for (int indicesValue : indices) {
-                if (isOverShortVertices) {
-                    indicesBuffer.putInt(indicesValue);
-                } else {
-                    short indicesValueShort = (short) indicesValue;
-                    indicesBuffer.putShort(indicesValueShort);
-                }
-            }
-        }
-        if (positionsBuffer != null) {
-            if (globalOptions.isUseQuantization() && unsignedShortsPositions != null) {
-                for (short position : unsignedShortsPositions) {
-                    positionsBuffer.putShort(position);
-                }
-            } else {
-                for (Float position : positions) {
-                    positionsBuffer.putFloat(position);
-                }
-            }
-        }
-        if (normalsBuffer != null) {
-            for (Float normal : normals) {
-                normalsBuffer.putFloat(normal);
-            }
-        }
-        if (colorsBuffer != null) {
-            for (Byte color : colors) {
-                colorsBuffer.put(color);
-            }
-        }
-        if (texcoordsBuffer != null) {
-            for (Float textureCoordinate : texcoords) {
-                texcoordsBuffer.putFloat(textureCoordinate);
-            }
-        }
-        if (batchIdBuffer != null) {
-            for (Float batchId : batchIds) {
-                batchIdBuffer.putFloat(batchId);
-            }
+        putIndices(indicesBuffer, indices, isOverShortVertices);
+        if (globalOptions.isUseQuantization() && unsignedShortsPositions != null) {
+            putShorts(positionsBuffer, unsignedShortsPositions);
+        } else {
+            putFloats(positionsBuffer, positions);
         }
+        putFloats(normalsBuffer, normals);
+        putBytes(colorsBuffer, colors);
+        putFloats(texcoordsBuffer, texcoords);
+        putFloats(batchIdBuffer, batchIds);
 
         if (indicesBufferViewId > -1 && indices.length > 0) {
             if (isOverShortVertices) {
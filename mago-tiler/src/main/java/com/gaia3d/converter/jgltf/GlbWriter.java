@@ -0,0 +1,249 @@
+package com.gaia3d.converter.jgltf;
+
+import de.javagl.jgltf.impl.v2.Accessor;
+import de.javagl.jgltf.impl.v2.Buffer;
+import de.javagl.jgltf.impl.v2.BufferView;
+import de.javagl.jgltf.impl.v2.GlTF;
+import de.javagl.jgltf.model.GltfConstants;
+import de.javagl.jgltf.model.io.JacksonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a binary glTF (GLB) file directly from the glTF json and the buffers of the GltfBinary.
+ * The json chunk is serialized from the glTF, the bin chunk is streamed from the node, image, property and instancing buffers,
+ * so the binary body is never copied into a single buffer and no jgltf GltfModel is created.
+ */
+@Slf4j
+public class GlbWriter {
+    private static final int MAGIC = 0x46546C67; // "glTF"
+    private static final int VERSION = 2;
+    private static final int CHUNK_TYPE_JSON = 0x4E4F534A; // "JSON"
+    private static final int CHUNK_TYPE_BIN = 0x004E4942; // "BIN"
+    private static final int HEADER_LENGTH = 12;
+    private static final int CHUNK_HEADER_LENGTH = 8;
+
+    public static void write(GlTF gltf, GltfBinary binary, File outputPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(outputPath.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(gltf, binary, channel);
+        }
+    }
+
+    public static void write(GlTF gltf, GltfBinary binary, OutputStream outputStream) throws IOException {
+        write(gltf, binary, Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Writes the GLB header, the json chunk and the bin chunk to the channel, the channel is not closed.
+     */
+    public static void write(GlTF gltf, GltfBinary binary, WritableByteChannel channel) throws IOException {
+        int bodyLength = binary.calcTotalBodyLength();
+        List<Buffer> buffers = gltf.getBuffers();
+        if (buffers != null && !buffers.isEmpty()) {
+            buffers.get(0).setByteLength(bodyLength);
+        }
+
+        if (gltf.getTextures() == null || gltf.getTextures().isEmpty()) {
+            // the sampler is only referenced by the textures
+            gltf.setSamplers(null);
+        }
+        List<ByteBuffer> bodyBuffers = binary.getBodyBuffers();
+        updateAccessorBounds(gltf, bodyBuffers);
+
+        byte[] json = JacksonUtils.createObjectMapper().writeValueAsBytes(gltf);
+        int jsonChunkLength = padMultiple4(json.length);
+        int binChunkLength = padMultiple4(bodyLength);
+        int totalLength = HEADER_LENGTH + CHUNK_HEADER_LENGTH + jsonChunkLength;
+        if (bodyLength > 0) {
+            totalLength += CHUNK_HEADER_LENGTH + binChunkLength;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + CHUNK_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(totalLength);
+        header.putInt(jsonChunkLength);
+        header.putInt(CHUNK_TYPE_JSON);
+        header.flip();
+
+        List<ByteBuffer> chunks = new ArrayList<>();
+        chunks.add(header);
+        chunks.add(ByteBuffer.wrap(json));
+        chunks.add(padding(jsonChunkLength - json.length, (byte) 0x20));
+        if (bodyLength > 0) {
+            ByteBuffer binHeader = ByteBuffer.allocate(CHUNK_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            binHeader.putInt(binChunkLength);
+            binHeader.putInt(CHUNK_TYPE_BIN);
+            binHeader.flip();
+            chunks.add(binHeader);
+            chunks.addAll(bodyBuffers);
+            chunks.add(padding(binChunkLength - bodyLength, (byte) 0x00));
+        }
+
+        for (ByteBuffer chunk : chunks) {
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        }
+    }
+
+    /**
+     * Sets the min and max values of the accessors without bounds, as the jgltf model writer did.
+     * The min and max values are required for the positions, and used by the viewers for the culling.
+     * Only the buffer views of the first buffer are read, the buffer views of the meshopt fallback buffer have no data.
+     */
+    static void updateAccessorBounds(GlTF gltf, List<ByteBuffer> bodyBuffers) {
+        List<Accessor> accessors = gltf.getAccessors();
+        List<BufferView> bufferViews = gltf.getBufferViews();
+        if (accessors == null || bufferViews == null) {
+            return;
+        }
+        int[] bodyOffsets = new int[bodyBuffers.size()];
+        int bodyOffset = 0;
+        for (int i = 0; i < bodyBuffers.size(); i++) {
+            bodyOffsets[i] = bodyOffset;
+            bodyOffset += bodyBuffers.get(i).remaining();
+        }
+
+        for (Accessor accessor : accessors) {
+            if (accessor.getBufferView() == null || accessor.getMin() != null || accessor.getMax() != null || accessor.getCount() == 0) {
+                continue;
+            }
+            BufferView bufferView = bufferViews.get(accessor.getBufferView());
+            if (bufferView.getBuffer() != 0) {
+                continue;
+            }
+            int viewOffset = bufferView.getByteOffset() == null ? 0 : bufferView.getByteOffset();
+            int bufferIndex = findBodyBuffer(bodyOffsets, bodyBuffers, viewOffset);
+            if (bufferIndex < 0) {
+                continue;
+            }
+            ByteBuffer buffer = bodyBuffers.get(bufferIndex).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int componentType = accessor.getComponentType();
+            int componentSize = getComponentSize(componentType);
+            int componentCount = getComponentCount(accessor.getType());
+            int elementSize = componentSize * componentCount;
+            int stride = bufferView.getByteStride() == null ? elementSize : bufferView.getByteStride();
+            int start = viewOffset - bodyOffsets[bufferIndex] + (accessor.getByteOffset() == null ? 0 : accessor.getByteOffset());
+            if (componentSize <= 0 || componentCount <= 0 || start + (accessor.getCount() - 1) * stride + elementSize > buffer.limit()) {
+                continue;
+            }
+
+            double[] min = new double[componentCount];
+            double[] max = new double[componentCount];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            for (int i = 0; i < accessor.getCount(); i++) {
+                int elementOffset = start + i * stride;
+                for (int c = 0; c < componentCount; c++) {
+                    double value = readComponent(buffer, elementOffset + c * componentSize, componentType);
+                    min[c] = Math.min(min[c], value);
+                    max[c] = Math.max(max[c], value);
+                }
+            }
+            accessor.setMin(toNumbers(min, componentType));
+            accessor.setMax(toNumbers(max, componentType));
+        }
+    }
+
+    /**
+     * The index of the body buffer holding the offset, the empty buffers share their offset with the next buffer and are skipped.
+     */
+    private static int findBodyBuffer(int[] bodyOffsets, List<ByteBuffer> bodyBuffers, int offset) {
+        for (int i = bodyOffsets.length - 1; i >= 0; i--) {
+            if (bodyOffsets[i] <= offset && bodyBuffers.get(i).hasRemaining()) {
+                return offset < bodyOffsets[i] + bodyBuffers.get(i).remaining() ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static double readComponent(ByteBuffer buffer, int offset, int componentType) {
+        switch (componentType) {
+            case GltfConstants.GL_BYTE:
+                return buffer.get(offset);
+            case GltfConstants.GL_UNSIGNED_BYTE:
+                return buffer.get(offset) & 0xFF;
+            case GltfConstants.GL_SHORT:
+                return buffer.getShort(offset);
+            case GltfConstants.GL_UNSIGNED_SHORT:
+                return buffer.getShort(offset) & 0xFFFF;
+            case GltfConstants.GL_UNSIGNED_INT:
+                return buffer.getInt(offset) & 0xFFFFFFFFL;
+            default:
+                return buffer.getFloat(offset);
+        }
+    }
+
+    private static Number[] toNumbers(double[] values, int componentType) {
+        Number[] numbers = new Number[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (componentType == GltfConstants.GL_FLOAT) {
+                numbers[i] = (float) values[i];
+            } else if (componentType == GltfConstants.GL_UNSIGNED_INT) {
+                numbers[i] = (long) values[i];
+            } else {
+                numbers[i] = (int) values[i];
+            }
+        }
+        return numbers;
+    }
+
+    private static int getComponentSize(int componentType) {
+        switch (componentType) {
+            case GltfConstants.GL_BYTE:
+            case GltfConstants.GL_UNSIGNED_BYTE:
+                return 1;
+            case GltfConstants.GL_SHORT:
+            case GltfConstants.GL_UNSIGNED_SHORT:
+                return 2;
+            case GltfConstants.GL_UNSIGNED_INT:
+            case GltfConstants.GL_FLOAT:
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    private static int getComponentCount(String type) {
+        switch (type) {
+            case "SCALAR":
+                return 1;
+            case "VEC2":
+                return 2;
+            case "VEC3":
+                return 3;
+            case "VEC4":
+            case "MAT2":
+                return 4;
+            case "MAT3":
+                return 9;
+            case "MAT4":
+                return 16;
+            default:
+                return -1;
+        }
+    }
+
+    private static ByteBuffer padding(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static int padMultiple4(int value) {
+        return (value + 3) & ~3;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gaia3d.converter.jgltf;
 
+import com.gaia3d.util.GaiaBufferPool;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -52,104 +53,65 @@ public class GltfBinary {
                 .sum();
     }
 
+    public int calcTotalBodyLength() {
+        return calcTotalByteBufferLength() + calcTotalImageByteBufferLength() + calcTotalPropertyByteBufferLength() + calcTotalInstancingByteBufferLength();
+    }
+
     /**
-     * Fills the body variable with the binary data of the glTF file.
-     * It iterates through the nodeBuffers list and puts the binary data of each node into the body variable.
+     * Returns the buffers of the binary body in the order of their buffer views,
+     * the node buffers, then the image, property and instancing buffers.
+     * Each buffer is a view of its whole capacity, the buffers are not copied.
      */
-    public void fill() {
-        int imageBuffersTotalLength = imageBuffers.stream()
-                .mapToInt(ImageBuffer::getByteBufferLength)
-                .sum();
-        int nodeBuffersTotalLength = nodeBuffers.stream()
-                .mapToInt(GltfNodeBuffer::getTotalByteBufferLength)
-                .sum();
-        int propertyBuffersTotalLength = propertyBuffers.stream()
-                .mapToInt(ByteBuffer::capacity)
-                .sum();
-        int instancingBuffersTotalLength = instancingBuffers.stream()
-                .mapToInt(ByteBuffer::capacity)
-                .sum();
-
-        int totalByteBufferLength = imageBuffersTotalLength + nodeBuffersTotalLength + propertyBuffersTotalLength + instancingBuffersTotalLength;
-
-        body = ByteBuffer.allocate(totalByteBufferLength);
-        ByteBuffer bodyBuffer = body;
-        bodyBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        bodyBuffer.clear();
-
+    public List<ByteBuffer> getBodyBuffers() {
+        List<ByteBuffer> bodyBuffers = new ArrayList<>();
         nodeBuffers.forEach((nodeBuffer) -> {
-            if (nodeBuffer.getIndicesBuffer() != null) {
-                nodeBuffer.getIndicesBuffer()
-                        .rewind();
-                nodeBuffer.getIndicesBuffer()
-                        .limit(nodeBuffer.getIndicesBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getIndicesBuffer());
-            }
-            if (nodeBuffer.getPositionsBuffer() != null) {
-                nodeBuffer.getPositionsBuffer()
-                        .rewind();
-                nodeBuffer.getPositionsBuffer()
-                        .limit(nodeBuffer.getPositionsBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getPositionsBuffer());
-            }
-            if (nodeBuffer.getNormalsBuffer() != null) {
-                nodeBuffer.getNormalsBuffer()
-                        .rewind();
-                nodeBuffer.getNormalsBuffer()
-                        .limit(nodeBuffer.getNormalsBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getNormalsBuffer());
-            }
-            if (nodeBuffer.getColorsBuffer() != null) {
-                nodeBuffer.getColorsBuffer()
-                        .rewind();
-                nodeBuffer.getColorsBuffer()
-                        .limit(nodeBuffer.getColorsBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getColorsBuffer());
-            }
-            if (nodeBuffer.getTexcoordsBuffer() != null) {
-                nodeBuffer.getTexcoordsBuffer()
-                        .rewind();
-                nodeBuffer.getTexcoordsBuffer()
-                        .limit(nodeBuffer.getTexcoordsBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getTexcoordsBuffer());
-            }
-            if (nodeBuffer.getBatchIdBuffer() != null) {
-                nodeBuffer.getBatchIdBuffer()
-                        .rewind();
-                nodeBuffer.getBatchIdBuffer()
-                        .limit(nodeBuffer.getBatchIdBuffer()
-                                .capacity());
-                bodyBuffer.put(nodeBuffer.getBatchIdBuffer());
-            }
+            addBodyBuffer(bodyBuffers, nodeBuffer.getIndicesBuffer());
+            addBodyBuffer(bodyBuffers, nodeBuffer.getPositionsBuffer());
+            addBodyBuffer(bodyBuffers, nodeBuffer.getNormalsBuffer());
+            addBodyBuffer(bodyBuffers, nodeBuffer.getColorsBuffer());
+            addBodyBuffer(bodyBuffers, nodeBuffer.getTexcoordsBuffer());
+            addBodyBuffer(bodyBuffers, nodeBuffer.getBatchIdBuffer());
         });
+        imageBuffers.forEach((imageBuffer) -> addBodyBuffer(bodyBuffers, imageBuffer.getByteBuffer()));
+        propertyBuffers.forEach((propertyBuffer) -> addBodyBuffer(bodyBuffers, propertyBuffer));
+        instancingBuffers.forEach((instancingBuffer) -> addBodyBuffer(bodyBuffers, instancingBuffer));
+        return bodyBuffers;
+    }
 
-        imageBuffers.forEach((imageBuffer) -> {
-            if (imageBuffer.getByteBuffer() != null) {
-                imageBuffer.getByteBuffer()
-                        .rewind();
-                imageBuffer.getByteBuffer()
-                        .limit(imageBuffer.getByteBuffer()
-                                .capacity());
-                bodyBuffer.put(imageBuffer.getByteBuffer());
-            }
-        });
+    private void addBodyBuffer(List<ByteBuffer> bodyBuffers, ByteBuffer buffer) {
+        if (buffer != null) {
+            ByteBuffer view = buffer.duplicate();
+            view.clear();
+            bodyBuffers.add(view);
+        }
+    }
 
-        propertyBuffers.forEach((propertyBuffer) -> {
-            propertyBuffer.rewind();
-            propertyBuffer.limit(propertyBuffer.capacity());
-            bodyBuffer.put(propertyBuffer);
-        });
+    /**
+     * Fills the body variable with the binary data of the glTF file.
+     * It iterates through the body buffers and puts them into the body variable.
+     * The GLB writer streams the body buffers instead, the body is only needed by the jgltf model.
+     */
+    public void fill() {
+        body = ByteBuffer.allocate(calcTotalBodyLength());
+        body.order(ByteOrder.LITTLE_ENDIAN);
+        getBodyBuffers().forEach(body::put);
+        body.rewind();
+    }
 
-        instancingBuffers.forEach((instancingBuffer) -> {
-            instancingBuffer.rewind();
-            instancingBuffer.limit(instancingBuffer.capacity());
-            bodyBuffer.put(instancingBuffer);
+    /**
+     * Returns the node buffers to the buffer pool, the node buffers are borrowed from the pool by the writers.
+     * The binary can not be written after the release.
+     */
+    public void release() {
+        GaiaBufferPool bufferPool = GaiaBufferPool.getInstance();
+        nodeBuffers.forEach((nodeBuffer) -> {
+            bufferPool.release(nodeBuffer.getIndicesBuffer());
+            bufferPool.release(nodeBuffer.getPositionsBuffer());
+            bufferPool.release(nodeBuffer.getNormalsBuffer());
+            bufferPool.release(nodeBuffer.getColorsBuffer());
+            bufferPool.release(nodeBuffer.getTexcoordsBuffer());
+            bufferPool.release(nodeBuffer.getBatchIdBuffer());
         });
-        bodyBuffer.rewind();
+        nodeBuffers.clear();
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,12 @@ import com.gaia3d.basic.types.FormatType;
 import com.gaia3d.basic.types.TextureType;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.jgltf.extension.ExtensionConstant;
+import com.gaia3d.converter.jgltf.image.ImageEncoders;
+import com.gaia3d.converter.jgltf.image.ImageEncodingStage;
+import com.gaia3d.converter.jgltf.image.Ktx2ImageEncoder;
+import com.gaia3d.converter.jgltf.meshopt.MeshOptimizer;
+import com.gaia3d.converter.jgltf.meshopt.MeshoptEncoder;
+import com.gaia3d.util.GaiaBufferPool;
 import com.gaia3d.util.ImageResizer;
 import com.gaia3d.util.ImageUtils;
 import de.javagl.jgltf.impl.v2.*;
@@ -24,14 +30,7 @@ import org.joml.Quaterniond;
 import org.joml.Vector3d;
 import org.lwjgl.opengl.GL20;
 
-import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.stream.ImageOutputStream;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -49,6 +48,7 @@ import java.util.List;
 @NoArgsConstructor
 public class GltfWriter {
     protected final GlobalOptions globalOptions = GlobalOptions.getInstance();
+    protected final GaiaBufferPool bufferPool = GaiaBufferPool.getInstance();
 
     /**
      * Write the glTF file from the GaiaScene object.
@@ -81,13 +81,15 @@ public class GltfWriter {
      * @param outputPath The output path of the glTF file.
      */
     public void writeGlb(GaiaScene gaiaScene, File outputPath) {
+        GltfBinary binary = new GltfBinary();
         try {
-            GltfModel gltfModel = convert(gaiaScene);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputPath);
+            GlTF gltf = createGltf(gaiaScene, binary);
+            GlbWriter.write(gltf, binary, outputPath);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Failed to write glb file.");
+        } finally {
+            binary.release();
         }
     }
 
@@ -97,15 +99,17 @@ public class GltfWriter {
      * @param outputStream The output stream of the glTF file.
      */
     public void writeGlb(GaiaScene gaiaScene, OutputStream outputStream) {
+        GltfBinary binary = new GltfBinary();
         try {
-            GltfModel gltfModel = convert(gaiaScene);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputStream);
+            GlTF gltf = createGltf(gaiaScene, binary);
+            GlbWriter.write(gltf, binary, outputStream);
             outputStream.flush();
             outputStream.close();
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Failed to write glb file.");
+        } finally {
+            binary.release();
         }
     }
 
@@ -120,6 +124,28 @@ public class GltfWriter {
 
     protected GltfModel convert(GaiaScene gaiaScene) {
         GltfBinary binary = new GltfBinary();
+        GlTF gltf = createGltf(gaiaScene, binary);
+        return toGltfModel(gltf, binary);
+    }
+
+    /**
+     * Creates the jgltf model of the glTF, for the embedded glTF output.
+     * The binary body is copied into a single buffer, the GLB output streams the buffers instead.
+     */
+    protected GltfModel toGltfModel(GlTF gltf, GltfBinary binary) {
+        binary.fill();
+        binary.release();
+        if (binary.getBody() != null) {
+            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
+            return GltfModels.create(asset);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the glTF json of the GaiaScene object, the binary data are added to the GltfBinary.
+     */
+    protected GlTF createGltf(GaiaScene gaiaScene, GltfBinary binary) {
         GlTF gltf = new GlTF();
         gltf.setAsset(genAsset());
         gltf.addSamplers(genSampler());
@@ -135,13 +161,9 @@ public class GltfWriter {
         gaiaScene.getMaterials()
                 .forEach(gaiaMaterial -> createMaterial(gltf, binary, gaiaMaterial));
         convertNode(gltf, binary, null, gaiaScene.getNodes());
-
-        binary.fill();
-        if (binary.getBody() != null) {
-            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
-            return GltfModels.create(asset);
-        }
-        return null;
+        compressBuffers(gltf, binary);
+        completeImages(gltf, binary);
+        return gltf;
     }
 
     protected void convertNode(GlTF gltf, GltfBinary binary, Node parentNode, List<GaiaNode> gaiaNodes) {
@@ -167,6 +189,157 @@ public class GltfWriter {
         });
     }
 
+    /**
+     * Compresses the filled node buffers with the EXT_meshopt_compression extension, if the mesh compression is used.
+     * The buffer views of the node buffers are moved to a fallback buffer without data, and the encoded streams replace the node buffers in the first buffer.
+     * The normals are encoded with the octahedral filter, the streams which are not smaller when encoded are kept uncompressed.
+     */
+    protected void compressBuffers(GlTF gltf, GltfBinary binary) {
+        List<GltfNodeBuffer> nodeBuffers = binary.getNodeBuffers();
+        if (!globalOptions.isUseMeshCompression() || nodeBuffers.isEmpty()) {
+            return;
+        }
+        // the bounds are computed from the uncompressed data, the fallback buffer has no data
+        GlbWriter.updateAccessorBounds(gltf, binary.getBodyBuffers());
+
+        Buffer buffer = gltf.getBuffers()
+                .get(0);
+        Buffer fallbackBuffer = new Buffer();
+        fallbackBuffer.setByteLength(buffer.getByteLength());
+        Map<String, Object> fallback = new HashMap<>();
+        fallback.put("fallback", true);
+        fallbackBuffer.addExtensions(ExtensionConstant.MESHOPT_COMPRESSION.getExtensionName(), fallback);
+        gltf.addBuffers(fallbackBuffer);
+        int fallbackBufferId = gltf.getBuffers()
+                .size() - 1;
+
+        Map<Integer, Accessor> accessors = new HashMap<>();
+        gltf.getAccessors()
+                .forEach((accessor) -> accessors.putIfAbsent(accessor.getBufferView(), accessor));
+        int compressedOffset = 0;
+        for (GltfNodeBuffer nodeBuffer : nodeBuffers) {
+            int nodeOffset = compressedOffset;
+            nodeBuffer.setIndicesBuffer(compressBufferView(gltf, nodeBuffer.getIndicesBufferViewId(), nodeBuffer.getIndicesBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getIndicesBuffer());
+            nodeBuffer.setPositionsBuffer(compressBufferView(gltf, nodeBuffer.getPositionsBufferViewId(), nodeBuffer.getPositionsBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getPositionsBuffer());
+            nodeBuffer.setNormalsBuffer(compressBufferView(gltf, nodeBuffer.getNormalsBufferViewId(), nodeBuffer.getNormalsBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getNormalsBuffer());
+            nodeBuffer.setColorsBuffer(compressBufferView(gltf, nodeBuffer.getColorsBufferViewId(), nodeBuffer.getColorsBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getColorsBuffer());
+            nodeBuffer.setTexcoordsBuffer(compressBufferView(gltf, nodeBuffer.getTexcoordsBufferViewId(), nodeBuffer.getTexcoordsBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getTexcoordsBuffer());
+            nodeBuffer.setBatchIdBuffer(compressBufferView(gltf, nodeBuffer.getBatchIdBufferViewId(), nodeBuffer.getBatchIdBuffer(), accessors, fallbackBufferId, compressedOffset));
+            compressedOffset += capacity(nodeBuffer.getBatchIdBuffer());
+            nodeBuffer.setTotalByteBufferLength(compressedOffset - nodeOffset);
+        }
+        buffer.setByteLength(compressedOffset);
+        addExtension(gltf, ExtensionConstant.MESHOPT_COMPRESSION, true);
+    }
+
+    /**
+     * Encodes the stream of a buffer view, the indices with the TRIANGLES mode and the vertex attributes with the ATTRIBUTES mode.
+     * @return the buffer of the stream in the first buffer, the encoded stream or the given buffer if it is not compressed
+     */
+    private ByteBuffer compressBufferView(GlTF gltf, int bufferViewId, ByteBuffer byteBuffer, Map<Integer, Accessor> accessors, int fallbackBufferId, int compressedOffset) {
+        Accessor accessor = accessors.get(bufferViewId);
+        if (byteBuffer == null || bufferViewId < 0 || accessor == null) {
+            return byteBuffer;
+        }
+        BufferView bufferView = gltf.getBufferViews()
+                .get(bufferViewId);
+        ByteBuffer data = byteBuffer.duplicate()
+                .order(ByteOrder.LITTLE_ENDIAN);
+        data.clear();
+        int count = accessor.getCount();
+        int byteStride;
+        String mode;
+        String filter = null;
+        ByteBuffer encoded;
+        if (bufferView.getTarget() != null && bufferView.getTarget() == GL20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (count % 3 != 0) {
+                return keepBufferView(bufferView, byteBuffer, compressedOffset);
+            }
+            boolean isIntegerIndices = accessor.getComponentType() == GltfConstants.GL_UNSIGNED_INT;
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                indices[i] = isIntegerIndices ? data.getInt(i * 4) : data.getShort(i * 2) & 0xFFFF;
+            }
+            byteStride = isIntegerIndices ? 4 : 2;
+            mode = "TRIANGLES";
+            encoded = MeshoptEncoder.encodeIndexBuffer(indices, count);
+        } else {
+            if (bufferView.getByteStride() == null || bufferView.getByteStride() % 4 != 0) {
+                return keepBufferView(bufferView, byteBuffer, compressedOffset);
+            }
+            byteStride = bufferView.getByteStride();
+            boolean isFloatNormals = "normals".equals(bufferView.getName()) && byteStride == 12 && accessor.getComponentType() == GltfConstants.GL_FLOAT;
+            if (isFloatNormals) {
+                data = MeshoptEncoder.encodeFilterOctahedral(data, count, byteStride);
+                byteStride = 4;
+                filter = "OCTAHEDRAL";
+            }
+            mode = "ATTRIBUTES";
+            encoded = MeshoptEncoder.encodeVertexBuffer(data, count, byteStride);
+        }
+
+        if (filter == null && encoded.remaining() >= count * byteStride) {
+            return keepBufferView(bufferView, byteBuffer, compressedOffset);
+        }
+        if (filter != null) {
+            // the filtered normals are decoded as normalized bytes
+            accessor.setComponentType(GltfConstants.GL_BYTE);
+            accessor.setNormalized(true);
+            accessor.setMin(null);
+            accessor.setMax(null);
+            bufferView.setByteStride(byteStride);
+            addExtension(gltf, ExtensionConstant.MESH_QUANTIZATION, true);
+        }
+
+        Map<String, Object> meshoptCompression = new LinkedHashMap<>();
+        meshoptCompression.put("buffer", 0);
+        meshoptCompression.put("byteOffset", compressedOffset);
+        meshoptCompression.put("byteLength", encoded.remaining());
+        meshoptCompression.put("byteStride", byteStride);
+        meshoptCompression.put("count", count);
+        meshoptCompression.put("mode", mode);
+        if (filter != null) {
+            meshoptCompression.put("filter", filter);
+        }
+        bufferView.setBuffer(fallbackBufferId);
+        bufferView.setByteLength(count * byteStride);
+        bufferView.addExtensions(ExtensionConstant.MESHOPT_COMPRESSION.getExtensionName(), meshoptCompression);
+
+        ByteBuffer compressedBuffer = ByteBuffer.allocate(padMultiple4(encoded.remaining()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        compressedBuffer.put(encoded);
+        compressedBuffer.clear();
+        bufferPool.release(byteBuffer);
+        return compressedBuffer;
+    }
+
+    private ByteBuffer keepBufferView(BufferView bufferView, ByteBuffer byteBuffer, int compressedOffset) {
+        bufferView.setByteOffset(compressedOffset);
+        return byteBuffer;
+    }
+
+    private int capacity(ByteBuffer byteBuffer) {
+        return byteBuffer == null ? 0 : byteBuffer.capacity();
+    }
+
+    /**
+     * Adds the extension to the used extensions, and to the required extensions, once.
+     */
+    protected void addExtension(GlTF gltf, ExtensionConstant extension, boolean required) {
+        String extensionName = extension.getExtensionName();
+        if (gltf.getExtensionsUsed() == null || !gltf.getExtensionsUsed().contains(extensionName)) {
+            gltf.addExtensionsUsed(extensionName);
+        }
+        if (required && (gltf.getExtensionsRequired() == null || !gltf.getExtensionsRequired().contains(extensionName))) {
+            gltf.addExtensionsRequired(extensionName);
+        }
+    }
+
     private Byte convertNormal(Float normalValue) {
         return (byte) (normalValue * 127);
     }
@@ -193,6 +366,9 @@ public class GltfWriter {
     }
 
     protected GltfNodeBuffer convertGeometryInfo(GlTF gltf, GaiaMesh gaiaMesh, Node node) {
+        if (globalOptions.isUseMeshCompression()) {
+            gaiaMesh.getPrimitives().forEach(MeshOptimizer::optimize);
+        }
         int[] indices = gaiaMesh.getIndices();
         float[] positions = gaiaMesh.getFloatPositions();
 
@@ -242,47 +418,16 @@ public class GltfWriter {
         int texcoordsBufferViewId = nodeBuffer.getTexcoordsBufferViewId();
         int batchIdBufferViewId = nodeBuffer.getBatchIdBufferViewId();
 
-        if (indicesBuffer != null) {
-            for (int indicesValue : indices) {
-                if (isOverShortVertices) {
-                    indicesBuffer.putInt(indicesValue);
-                } else {
-                    short indicesValueShort = (short) indicesValue;
-                    indicesBuffer.putShort(indicesValueShort);
-                }
-            }
-        }
-        if (positionsBuffer != null) {
-            if (globalOptions.isUseQuantization() && unsignedShortsPositions != null) {
-                for (short position : unsignedShortsPositions) {
-                    positionsBuffer.putShort(position);
-                }
-            } else {
-                for (Float position : positions) {
-                    positionsBuffer.putFloat(position);
-                }
-            }
-        }
-        if (normalsBuffer != null) {
-            for (Float normal : normals) {
-                normalsBuffer.putFloat(normal);
-            }
-        }
-        if (colorsBuffer != null) {
-            for (Byte color : colors) {
-                colorsBuffer.put(color);
-            }
-        }
-        if (texcoordsBuffer != null) {
-            for (Float textureCoordinate : texcoords) {
-                texcoordsBuffer.putFloat(textureCoordinate);
-            }
-        }
-        if (batchIdBuffer != null) {
-            for (Float batchId : batchIds) {
-                batchIdBuffer.putFloat(batchId);
-            }
+        putIndices(indicesBuffer, indices, isOverShortVertices);
+        if (globalOptions.isUseQuantization() && unsignedShortsPositions != null) {
+            putShorts(positionsBuffer, unsignedShortsPositions);
+        } else {
+            putFloats(positionsBuffer, positions);
         }
+        putFloats(normalsBuffer, normals);
+        putBytes(colorsBuffer, colors);
+        putFloats(texcoordsBuffer, texcoords);
+        putFloats(batchIdBuffer, batchIds);
 
         if (indicesBufferViewId > -1 && indices.length > 0) {
             if (isOverShortVertices) {
@@ -329,6 +474,40 @@ public class GltfWriter {
         return nodeBuffer;
     }
 
+    protected void putIndices(ByteBuffer buffer, int[] indices, boolean isIntegerIndices) {
+        if (buffer == null) {
+            return;
+        }
+        if (isIntegerIndices) {
+            buffer.asIntBuffer().put(indices);
+        } else {
+            for (int index : indices) {
+                buffer.putShort((short) index);
+            }
+        }
+    }
+
+    /**
+     * Bulk puts the values in the little-endian buffer, without boxing each value.
+     */
+    protected void putFloats(ByteBuffer buffer, float[] values) {
+        if (buffer != null && values != null) {
+            buffer.asFloatBuffer().put(values);
+        }
+    }
+
+    protected void putShorts(ByteBuffer buffer, short[] values) {
+        if (buffer != null && values != null) {
+            buffer.asShortBuffer().put(values);
+        }
+    }
+
+    protected void putBytes(ByteBuffer buffer, byte[] values) {
+        if (buffer != null && values != null) {
+            buffer.put(values);
+        }
+    }
+
     protected int padMultiple4(int value) {
         int remainder = value % 4;
         if (remainder == 0) {
@@ -371,33 +550,27 @@ public class GltfWriter {
 
         nodeBuffer.setTotalByteBufferLength(bodyLength);
         if (indicesCapacity > 0) {
-            ByteBuffer indicesBuffer = ByteBuffer.allocate(indicesCapacity);
-            indicesBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer indicesBuffer = bufferPool.acquireByteBuffer(indicesCapacity);
             nodeBuffer.setIndicesBuffer(indicesBuffer);
         }
         if (positionsCapacity > 0) {
-            ByteBuffer positionsBuffer = ByteBuffer.allocate(positionsCapacity);
-            positionsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer positionsBuffer = bufferPool.acquireByteBuffer(positionsCapacity);
             nodeBuffer.setPositionsBuffer(positionsBuffer);
         }
         if (normalsCapacity > 0) {
-            ByteBuffer normalsBuffer = ByteBuffer.allocate(normalsCapacity);
-            normalsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer normalsBuffer = bufferPool.acquireByteBuffer(normalsCapacity);
             nodeBuffer.setNormalsBuffer(normalsBuffer);
         }
         if (colorsCapacity > 0) {
-            ByteBuffer colorsBuffer = ByteBuffer.allocate(colorsCapacity);
-            colorsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer colorsBuffer = bufferPool.acquireByteBuffer(colorsCapacity);
             nodeBuffer.setColorsBuffer(colorsBuffer);
         }
         if (texcoordCapacity > 0) {
-            ByteBuffer texcoordsBuffer = ByteBuffer.allocate(texcoordCapacity);
-            texcoordsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer texcoordsBuffer = bufferPool.acquireByteBuffer(texcoordCapacity);
             nodeBuffer.setTexcoordsBuffer(texcoordsBuffer);
         }
         if (batchIdCapacity > 0) {
-            ByteBuffer batchIdBuffer = ByteBuffer.allocate(batchIdCapacity);
-            batchIdBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer batchIdBuffer = bufferPool.acquireByteBuffer(batchIdCapacity);
             nodeBuffer.setBatchIdBuffer(batchIdBuffer);
         }
         return nodeBuffer;
@@ -407,8 +580,7 @@ public class GltfWriter {
         Asset asset = new Asset();
         asset.setGenerator("mago-3d-tiler");
         asset.setCopyright("Gaia3D, Inc.");
-        asset.setVersion("1.0");
-        asset.setMinVersion("1.0");
+        asset.setVersion("2.0");
         return asset;
     }
 
@@ -598,28 +770,28 @@ public class GltfWriter {
 
     protected int createImage(GlTF gltf, GltfBinary binary, GaiaTexture gaiaTexture) {
         String extension = FilenameUtils.getExtension(gaiaTexture.getPath());
-        String mimeType = ImageUtils.getMimeTypeByExtension(extension);
+        BufferedImage bufferedImage = resizeToPowerOfTwo(gaiaTexture.getBufferedImage());
+        String mimeType = ImageEncoders.resolveMimeType(globalOptions.getTextureFormat(), ImageUtils.getMimeTypeByExtension(extension), bufferedImage);
+        float quality = globalOptions.getTextureQuality() / 100.0f;
 
         Image image = new Image();
         image.setMimeType(mimeType);
         if (globalOptions.getTilesVersion()
                 .equals("1.0")) {
-            String uri = convertBufferedImageToURI(gaiaTexture.getBufferedImage(), mimeType);
+            String uri = convertBufferedImageToURI(bufferedImage, mimeType, quality);
             image.setUri(uri);
         } else {
-            byte[] imageBytes = convertBufferedImageToBytes(gaiaTexture.getBufferedImage(), mimeType);
-
-            int bufferOffset = binary.calcTotalByteBufferLength() + binary.calcTotalImageByteBufferLength();
-            int bufferViewId = createBufferView(gltf, 0, bufferOffset, imageBytes.length, -1, -1);
+            // the offset and the length of the buffer view are set when the image is encoded, see completeImages
+            BufferView imageBufferView = new BufferView();
+            imageBufferView.setBuffer(0);
+            gltf.addBufferViews(imageBufferView);
+            int bufferViewId = gltf.getBufferViews()
+                    .size() - 1;
 
             List<ImageBuffer> imageBuffers = binary.getImageBuffers();
             ImageBuffer imageBuffer = new ImageBuffer();
-
-            int totalStringLength = imageBytes.length;
-            ByteBuffer byteBuffer = ByteBuffer.allocate(totalStringLength);
-            byteBuffer.put(imageBytes);
-            imageBuffer.setByteBuffer(byteBuffer);
-            imageBuffer.setByteBufferLength(totalStringLength);
+            imageBuffer.setBufferViewId(bufferViewId);
+            imageBuffer.setEncodedImage(ImageEncodingStage.getInstance().submit(bufferedImage, mimeType, quality));
             imageBuffers.add(imageBuffer);
 
             image.setBufferView(bufferViewId);
@@ -629,14 +801,46 @@ public class GltfWriter {
                 .size() - 1;
     }
 
+    /**
+     * Waits for the images being encoded, and places their buffer views after the node buffers.
+     * It is called once the node buffers are created, before the property and instancing buffers are added.
+     */
+    protected void completeImages(GlTF gltf, GltfBinary binary) {
+        int bufferOffset = binary.calcTotalByteBufferLength();
+        for (ImageBuffer imageBuffer : binary.getImageBuffers()) {
+            if (imageBuffer.getEncodedImage() != null) {
+                ByteBuffer imageBytes = ImageEncodingStage.await(imageBuffer.getEncodedImage());
+                imageBuffer.setEncodedImage(null);
+                imageBuffer.setByteBuffer(imageBytes);
+                imageBuffer.setByteBufferLength(imageBytes.remaining());
+                BufferView bufferView = gltf.getBufferViews()
+                        .get(imageBuffer.getBufferViewId());
+                bufferView.setByteOffset(bufferOffset);
+                bufferView.setByteLength(imageBytes.remaining());
+            }
+            bufferOffset += imageBuffer.getByteBufferLength();
+        }
+    }
+
     protected int createTexture(GlTF gltf, GltfBinary binary, GaiaTexture gaiaTexture) {
         gaiaTexture.getBufferedImage();
         int imageSource = createImage(gltf, binary, gaiaTexture);
 
         Texture texture = new Texture();
         texture.setSampler(0);
-        texture.setSource(imageSource);
         texture.setName(gaiaTexture.getName());
+        String mimeType = gltf.getImages()
+                .get(imageSource)
+                .getMimeType();
+        if (Ktx2ImageEncoder.MIME_TYPE.equals(mimeType)) {
+            // the KTX2 image is only referenced by the extension, the clients without the extension can not load the texture
+            addExtension(gltf, ExtensionConstant.TEXTURE_BASISU, true);
+            Map<String, Object> textureBasisu = new HashMap<>();
+            textureBasisu.put("source", imageSource);
+            texture.addExtensions(ExtensionConstant.TEXTURE_BASISU.getExtensionName(), textureBasisu);
+        } else {
+            texture.setSource(imageSource);
+        }
 
         gltf.addTextures(texture);
         return gltf.getTextures()
@@ -650,7 +854,9 @@ public class GltfWriter {
         accessor.setCount(count);
         accessor.setComponentType(componentType);
         accessor.setType(accessorType.name());
-        accessor.setNormalized(normalized);
+        if (normalized) {
+            accessor.setNormalized(true);
+        }
         gltf.addAccessors(accessor);
         return gltf.getAccessors()
                 .size() - 1;
@@ -707,116 +913,31 @@ public class GltfWriter {
                 .size() - 1;
     }
 
-    private byte[] convertBufferedImageToBytes(BufferedImage bufferedImage, String mimeType) {
-        ImageResizer imageResizer = new ImageResizer();
-        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
-        byte[] imageBytes = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            int width = bufferedImage.getWidth();
-            int height = bufferedImage.getHeight();
-            if (!globalOptions.isPhotogrammetry()) {
-                int powerOfTwoWidth = ImageUtils.getNearestPowerOfTwo(width);
-                int powerOfTwoHeight = ImageUtils.getNearestPowerOfTwo(height);
-                if (width != powerOfTwoWidth || height != powerOfTwoHeight) {
-                    bufferedImage = imageResizer.resizeImageGraphic2D(bufferedImage, powerOfTwoWidth, powerOfTwoHeight, true);
-                }
-            }
-            assert formatName != null;
-
-            if (globalOptions.isPhotogrammetry() || mimeType.equals("image/jpeg")) {
-                ImageIO.write(bufferedImage, formatName, baos);
-                imageBytes = baos.toByteArray();
-                bufferedImage.flush();
-            } else {
-                ImageIO.write(bufferedImage, formatName, baos);
-                imageBytes = baos.toByteArray();
-                bufferedImage.flush();
-            }
-        } catch (IOException e) {
-            log.error("[ERROR] :", e);
-            log.error("[ERROR] Error writing image");
+    private BufferedImage resizeToPowerOfTwo(BufferedImage bufferedImage) {
+        if (globalOptions.isPhotogrammetry()) {
+            return bufferedImage;
         }
-        return imageBytes;
-    }
-
-    private String convertBufferedImageToURI(BufferedImage bufferedImage, String mimeType) {
-        ImageResizer imageResizer = new ImageResizer();
-        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
-        String imageString = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            int width = bufferedImage.getWidth();
-            int height = bufferedImage.getHeight();
-            if (!globalOptions.isPhotogrammetry()) {
-                int powerOfTwoWidth = ImageUtils.getNearestPowerOfTwo(width);
-                int powerOfTwoHeight = ImageUtils.getNearestPowerOfTwo(height);
-                if (width != powerOfTwoWidth || height != powerOfTwoHeight) {
-                    bufferedImage = imageResizer.resizeImageGraphic2D(bufferedImage, powerOfTwoWidth, powerOfTwoHeight, true);
-                }
-            }
-            assert formatName != null;
-
-            if (globalOptions.isPhotogrammetry() || mimeType.equals("image/jpeg")) {
-                float quality = 0.75f;
-                imageString = writeJpegImage(bufferedImage, quality);
-            } else {
-                ImageIO.write(bufferedImage, formatName, baos);
-                byte[] bytes = baos.toByteArray();
-                imageString = "data:" + mimeType + ";base64," + Base64.getEncoder()
-                        .encodeToString(bytes);
-                bufferedImage.flush();
-            }
-        } catch (IOException e) {
-            log.error("[ERROR] :", e);
-            log.error("[ERROR] Error writing image");
+        int width = bufferedImage.getWidth();
+        int height = bufferedImage.getHeight();
+        int powerOfTwoWidth = ImageUtils.getNearestPowerOfTwo(width);
+        int powerOfTwoHeight = ImageUtils.getNearestPowerOfTwo(height);
+        if (width != powerOfTwoWidth || height != powerOfTwoHeight) {
+            ImageResizer imageResizer = new ImageResizer();
+            return imageResizer.resizeImageGraphic2D(bufferedImage, powerOfTwoWidth, powerOfTwoHeight, true);
         }
-        return imageString;
+        return bufferedImage;
     }
 
-    private String writeJpegImage(BufferedImage bufferedImage, float quality) {
-        ByteArrayOutputStream baos = null;
-        ImageOutputStream ios = null;
+    private String convertBufferedImageToURI(BufferedImage bufferedImage, String mimeType, float quality) {
         try {
-            baos = new ByteArrayOutputStream();
-            ios = ImageIO.createImageOutputStream(baos);
-
-            // Image compression
-            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
-            ImageWriter writer = writers.next();
-            writer.setOutput(ios);
-            ImageWriteParam param = writer.getDefaultWriteParam();
-            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            param.setCompressionQuality(quality);
-
-            BufferedImage convertedImage = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-            Graphics2D graphics = convertedImage.createGraphics();
-            graphics.drawImage(bufferedImage, 0, 0, null);
-            graphics.dispose();
-            bufferedImage = convertedImage;
-
-            writer.write(null, new IIOImage(bufferedImage, null, null), param); // 5
-            byte[] bytes = baos.toByteArray();
-            String imageString = "data:image/jpeg;base64," + Base64.getEncoder()
+            ByteBuffer imageBytes = ImageEncodingStage.encode(bufferedImage, mimeType, quality);
+            byte[] bytes = new byte[imageBytes.remaining()];
+            imageBytes.get(bytes);
+            return "data:" + mimeType + ";base64," + Base64.getEncoder()
                     .encodeToString(bytes);
-            bufferedImage.flush();
-
-            baos.close();
-            ios.close();
-            return imageString;
         } catch (IOException e) {
             log.error("[ERROR] :", e);
-            log.error("[ERROR] Error writing jpeg image");
-            try {
-                baos.close();
-            } catch (IOException ex) {
-                log.error("[ERROR] :", ex);
-            }
-            if (ios != null) {
-                try {
-                    ios.close();
-                } catch (IOException ex) {
-                    log.error("[ERROR] :", ex);
-                }
-            }
+            log.error("[ERROR] Error writing image");
         }
         return null;
     }
@@ -5,6 +5,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
 
 @Getter
 @Setter
@@ -13,4 +14,6 @@ public class ImageBuffer {
     int imageId = -1;
     int byteBufferLength = -1;
     ByteBuffer byteBuffer = null;
+    int bufferViewId = -1;
+    Future<ByteBuffer> encodedImage = null; // the image being encoded, until the buffer view is placed
 }
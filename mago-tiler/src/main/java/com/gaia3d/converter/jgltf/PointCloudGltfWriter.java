@@ -10,10 +10,6 @@ import com.gaia3d.process.postprocess.instance.GaiaFeatureTable;
 import com.gaia3d.process.postprocess.pointcloud.PointCloudBuffer;
 import de.javagl.jgltf.impl.v2.*;
 import de.javagl.jgltf.model.GltfConstants;
-import de.javagl.jgltf.model.GltfModel;
-import de.javagl.jgltf.model.GltfModels;
-import de.javagl.jgltf.model.io.GltfModelWriter;
-import de.javagl.jgltf.model.io.v2.GltfAssetV2;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
@@ -30,8 +26,8 @@ import java.util.Map;
 
 /**
  * PointCloudGltfWriter is responsible for writing point cloud data to a GLB file format.
- * It converts point cloud buffers, feature tables, and batch tables into a GltfModel,
- * then writes that model to a binary GLB file.
+ * It converts point cloud buffers, feature tables, and batch tables into a glTF json and its binary buffers,
+ * then streams them to a binary GLB file.
  * This class extends GltfWriter and provides specific implementations for point cloud data.
  */
 @Slf4j
@@ -39,18 +35,19 @@ import java.util.Map;
 public class PointCloudGltfWriter extends GltfWriter {
 
     public void writeGlb(PointCloudBuffer pointCloudBuffer, GaiaFeatureTable featureTable, GaiaBatchTable batchTable, File outputPath) {
+        GltfBinary binary = new GltfBinary();
         try {
-            GltfModel gltfModel = convert(pointCloudBuffer, featureTable, batchTable, outputPath);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputPath);
+            GlTF gltf = createGltf(pointCloudBuffer, binary, featureTable, batchTable);
+            GlbWriter.write(gltf, binary, outputPath);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Failed to write glb file.");
+        } finally {
+            binary.release();
         }
     }
 
-    protected GltfModel convert(PointCloudBuffer pointCloudBuffer, GaiaFeatureTable featureTable, GaiaBatchTable batchTable, File outputPath) {
-        GltfBinary binary = new GltfBinary();
+    protected GlTF createGltf(PointCloudBuffer pointCloudBuffer, GltfBinary binary, GaiaFeatureTable featureTable, GaiaBatchTable batchTable) {
         GlTF gltf = new GlTF();
         gltf.setAsset(genAsset());
         gltf.addSamplers(genSampler());
@@ -72,15 +69,10 @@ public class PointCloudGltfWriter extends GltfWriter {
         gltf.setExtensions(extensions);
 
         convertNode(gltf, binary, rootNode, pointCloudBuffer, featureTable, batchTable);
+        compressBuffers(gltf, binary);
 
         applyInstanceFeaturesBinary(gltf, binary, pointCloudBuffer);
-
-        binary.fill();
-        if (binary.getBody() != null) {
-            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
-            return GltfModels.create(asset);
-        }
-        return null;
+        return gltf;
     }
 
     private void applyInstanceFeaturesBinary(GlTF gltf, GltfBinary binary, PointCloudBuffer pointCloudBuffer) {
@@ -222,26 +214,10 @@ public class PointCloudGltfWriter extends GltfWriter {
         int colorsBufferViewId = nodeBuffer.getColorsBufferViewId();
         int batchIdBufferViewId = nodeBuffer.getBatchIdBufferViewId();
 
-        if (positionsBuffer != null) {
-            for (short position : unsignedShortsPositions) {
-                positionsBuffer.putShort(position);
-            }
-        }
-        if (normalsBuffer != null) {
-            for (Short normal : normals) {
-                normalsBuffer.putShort(normal);
-            }
-        }
-        if (colorsBuffer != null) {
-            for (Byte color : colors) {
-                colorsBuffer.put(color);
-            }
-        }
-        if (batchIdBuffer != null) {
-            for (Float batchId : batchIds) {
-                batchIdBuffer.putFloat(batchId);
-            }
-        }
+        putShorts(positionsBuffer, unsignedShortsPositions);
+        putShorts(normalsBuffer, normals);
+        putBytes(colorsBuffer, colors);
+        putFloats(batchIdBuffer, batchIds);
 
         if (positionsBufferViewId > -1 && positions.length > 0) {
             int verticesAccessorId = createAccessor(gltf, positionsBufferViewId, 0, positions.length / 3, GltfConstants.GL_UNSIGNED_SHORT, AccessorType.VEC3, true);
@@ -373,8 +349,7 @@ public class PointCloudGltfWriter extends GltfWriter {
             nodeBuffer.setIndicesBuffer(indicesBuffer);
         }*/
         if (positionsCapacity > 0) {
-            ByteBuffer positionsBuffer = ByteBuffer.allocate(positionsCapacity);
-            positionsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer positionsBuffer = bufferPool.acquireByteBuffer(positionsCapacity);
             nodeBuffer.setPositionsBuffer(positionsBuffer);
         }
         /*if (normalsCapacity > 0) {
@@ -383,8 +358,7 @@ public class PointCloudGltfWriter extends GltfWriter {
             nodeBuffer.setNormalsBuffer(normalsBuffer);
         }*/
         if (colorsCapacity > 0) {
-            ByteBuffer colorsBuffer = ByteBuffer.allocate(colorsCapacity);
-            colorsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer colorsBuffer = bufferPool.acquireByteBuffer(colorsCapacity);
             nodeBuffer.setColorsBuffer(colorsBuffer);
         }
         /*if (texcoordCapacity > 0) {
@@ -21,6 +21,8 @@ public enum ExtensionConstant {
     MESHOPT_COMPRESSION("EXT_meshopt_compression"),
     // KHR_mesh_quantization
     MESH_QUANTIZATION("KHR_mesh_quantization"),
+    // KHR_texture_basisu
+    TEXTURE_BASISU("KHR_texture_basisu"),
     // KHR_materials_unlit
     MATERIAL_UNLIT("KHR_materials_unlit");
 
@@ -0,0 +1,17 @@
+package com.gaia3d.converter.jgltf.image;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * ByteArrayOutputStream that hands over its internal array, the written bytes are not copied.
+ */
+class ByteSliceOutputStream extends ByteArrayOutputStream {
+    ByteSliceOutputStream(int size) {
+        super(size);
+    }
+
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count).slice();
+    }
+}
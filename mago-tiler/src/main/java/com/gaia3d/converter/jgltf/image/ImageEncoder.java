@@ -0,0 +1,30 @@
+package com.gaia3d.converter.jgltf.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder of the texture images of the tiles.
+ * The encoders are registered in {@link ImageEncoders}, additional encoders are loaded with the ServiceLoader
+ * from the META-INF/services/com.gaia3d.converter.jgltf.image.ImageEncoder files of the classpath.
+ * An encoder is called by several threads at the same time.
+ */
+public interface ImageEncoder {
+    String getName();
+
+    boolean supports(String mimeType);
+
+    /**
+     * The encoder with the highest priority is chosen among the encoders supporting a mime type.
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * @param quality the quality from 0 to 1 of the lossy formats
+     * @return the encoded bytes, from the position to the limit of the buffer
+     */
+    ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException;
+}
@@ -0,0 +1,88 @@
+package com.gaia3d.converter.jgltf.image;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the image encoders, the built-in encoders and the encoders of the ServiceLoader.
+ */
+@Slf4j
+public class ImageEncoders {
+    public static final String FORMAT_AUTO = "auto";
+    public static final String FORMAT_PNG = "png";
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_KTX2 = "ktx2";
+
+    private static final List<ImageEncoder> encoders = loadEncoders();
+
+    private static List<ImageEncoder> loadEncoders() {
+        List<ImageEncoder> loadedEncoders = new ArrayList<>();
+        loadedEncoders.add(new PngImageEncoder());
+        loadedEncoders.add(new JpegImageEncoder());
+        loadedEncoders.add(new Ktx2ImageEncoder());
+        loadedEncoders.add(new ImageIoImageEncoder());
+        try {
+            ServiceLoader.load(ImageEncoder.class).forEach(loadedEncoders::add);
+        } catch (ServiceConfigurationError e) {
+            log.error("[ERROR] Failed to load the image encoders.", e);
+        }
+        // stable sort, the built-in encoders come first at the same priority
+        loadedEncoders.sort(Comparator.comparingInt(ImageEncoder::getPriority).reversed());
+        return Collections.unmodifiableList(loadedEncoders);
+    }
+
+    public static List<ImageEncoder> getEncoders() {
+        return encoders;
+    }
+
+    /**
+     * @return the encoder with the highest priority supporting the mime type, or null
+     */
+    public static ImageEncoder select(String mimeType) {
+        for (ImageEncoder encoder : encoders) {
+            if (encoder.supports(mimeType)) {
+                return encoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the encoder registered with the name, or null
+     */
+    public static ImageEncoder get(String name) {
+        for (ImageEncoder encoder : encoders) {
+            if (encoder.getName().equals(name)) {
+                return encoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the mime type of a texture from the texture format option.
+     * The auto format keeps the format of the source texture, the jpeg format keeps the images with an alpha channel as png.
+     * The ktx2 format falls back to png when the KTX2 encoder is not available.
+     */
+    public static String resolveMimeType(String textureFormat, String sourceMimeType, BufferedImage image) {
+        String mimeType = sourceMimeType;
+        if (FORMAT_PNG.equalsIgnoreCase(textureFormat)) {
+            mimeType = "image/png";
+        } else if (FORMAT_JPEG.equalsIgnoreCase(textureFormat) || "jpg".equalsIgnoreCase(textureFormat)) {
+            mimeType = image.getColorModel().hasAlpha() ? "image/png" : "image/jpeg";
+        } else if (FORMAT_KTX2.equalsIgnoreCase(textureFormat)) {
+            mimeType = Ktx2ImageEncoder.MIME_TYPE;
+        }
+        if (mimeType == null || select(mimeType) == null) {
+            mimeType = "image/png";
+        }
+        return mimeType;
+    }
+}
@@ -0,0 +1,90 @@
+package com.gaia3d.converter.jgltf.image;
+
+import com.gaia3d.command.mago.GlobalOptions;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of the texture encoding workers.
+ * The tile writers submit the images and keep building the glTF, the encoded bytes are awaited before the buffer views are placed.
+ * When the queue is full, the image is encoded in the submitting thread.
+ */
+@Slf4j
+public class ImageEncodingStage {
+    private static ImageEncodingStage instance = null;
+
+    @Getter
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    public ImageEncodingStage(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = (runnable) -> {
+            Thread thread = new Thread(runnable, "image-encoder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(this.parallelism, this.parallelism, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(this.parallelism * 2), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized ImageEncodingStage getInstance() {
+        int threadCount = GlobalOptions.getInstance().getMultiThreadCount();
+        if (instance == null || instance.parallelism != Math.max(1, threadCount)) {
+            if (instance != null) {
+                instance.executor.shutdown();
+            }
+            instance = new ImageEncodingStage(threadCount);
+        }
+        return instance;
+    }
+
+    /**
+     * @param quality the quality from 0 to 1 of the lossy formats
+     */
+    public Future<ByteBuffer> submit(BufferedImage image, String mimeType, float quality) {
+        return executor.submit(() -> encode(image, mimeType, quality));
+    }
+
+    /**
+     * Encodes the image with the selected encoder, the ImageIO encoder is the fallback of a failing encoder.
+     */
+    public static ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException {
+        ImageEncoder encoder = ImageEncoders.select(mimeType);
+        if (encoder == null) {
+            throw new IOException("No image encoder for " + mimeType);
+        }
+        try {
+            return encoder.encode(image, mimeType, quality);
+        } catch (IOException | RuntimeException e) {
+            ImageEncoder fallbackEncoder = ImageEncoders.get("imageio");
+            if (fallbackEncoder == null || fallbackEncoder == encoder) {
+                throw e;
+            }
+            log.error("[ERROR] Failed to encode image with the {} encoder, retrying with the {} encoder.", encoder.getName(), fallbackEncoder.getName(), e);
+            return fallbackEncoder.encode(image, mimeType, quality);
+        }
+    }
+
+    /**
+     * Waits for an encoded image.
+     */
+    public static ByteBuffer await(Future<ByteBuffer> encodedImage) {
+        try {
+            return encodedImage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            log.error("[ERROR] Failed to encode image.", e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.gaia3d.converter.jgltf.image;
+
+import com.gaia3d.util.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Baseline encoder of all the formats with an ImageIO writer, with the default parameters of the writer.
+ */
+public class ImageIoImageEncoder implements ImageEncoder {
+    @Override
+    public String getName() {
+        return "imageio";
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
+        return formatName != null && ImageIO.getImageWritersByFormatName(formatName).hasNext();
+    }
+
+    @Override
+    public ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException {
+        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
+        ByteSliceOutputStream outputStream = new ByteSliceOutputStream(image.getWidth() * image.getHeight() + 1024);
+        if (formatName == null || !ImageIO.write(image, formatName, outputStream)) {
+            throw new IOException("No image writer for " + mimeType + " : " + image);
+        }
+        return outputStream.toByteBuffer();
+    }
+}
@@ -0,0 +1,65 @@
+package com.gaia3d.converter.jgltf.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * JPEG encoder with an explicit quality.
+ * The native JPEG writer of ImageIO is kept per thread and writes to a memory stream instead of the file cache,
+ * an image is only redrawn to BGR when it has an alpha channel or a color model the writer does not take.
+ */
+public class JpegImageEncoder implements ImageEncoder {
+    private static final ThreadLocal<ImageWriter> writers = ThreadLocal.withInitial(() -> ImageIO.getImageWritersByFormatName("jpeg").next());
+
+    @Override
+    public String getName() {
+        return "jpeg";
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        return "image/jpeg".equals(mimeType);
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    @Override
+    public ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException {
+        BufferedImage opaqueImage = toOpaqueImage(image);
+        ByteSliceOutputStream outputStream = new ByteSliceOutputStream(image.getWidth() * image.getHeight() / 4 + 1024);
+        ImageWriter writer = writers.get();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.0f, Math.min(1.0f, quality)));
+            writer.write(null, new IIOImage(opaqueImage, null, null), param);
+        } finally {
+            writer.reset();
+        }
+        return outputStream.toByteBuffer();
+    }
+
+    private BufferedImage toOpaqueImage(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_BGR || type == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage convertedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = convertedImage.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return convertedImage;
+    }
+}
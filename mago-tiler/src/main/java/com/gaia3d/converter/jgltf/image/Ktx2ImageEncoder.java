@@ -0,0 +1,190 @@
+package com.gaia3d.converter.jgltf.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.libc.LibCStdlib;
+import org.lwjgl.util.ktx.ktxBasisParams;
+import org.lwjgl.util.ktx.ktxTexture;
+import org.lwjgl.util.ktx.ktxTexture2;
+import org.lwjgl.util.ktx.ktxTextureCreateInfo;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.util.ktx.KTX.*;
+
+/**
+ * KTX2 encoder of the KHR_texture_basisu textures, the images are GPU block compressed to UASTC and supercompressed with zstd.
+ * The mipmap levels are generated with a box filter before the compression, so the clients do not generate them on upload.
+ * The block compression is done by the libktx native library of LWJGL, the encoder does not support any mime type without it.
+ */
+@Slf4j
+public class Ktx2ImageEncoder implements ImageEncoder {
+    public static final String MIME_TYPE = "image/ktx2";
+    private static final int VK_FORMAT_R8G8B8A8_SRGB = 43;
+    private static final int ZSTD_COMPRESSION_LEVEL = 18;
+
+    private static Boolean available = null;
+
+    /**
+     * @return true if the libktx native library is loaded
+     */
+    public static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                getLibrary();
+                available = true;
+            } catch (LinkageError e) {
+                log.warn("[WARN] The libktx native library is not available, the KTX2 textures are written as png. {}", e.getMessage());
+                available = false;
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public String getName() {
+        return "ktx2";
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        return MIME_TYPE.equals(mimeType) && isAvailable();
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    /**
+     * @param quality the UASTC pack level, from the fastest level at 0 to the slower level at 1
+     */
+    @Override
+    public ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[][] levels = createMipmaps(toRgba(image), width, height);
+
+        ktxTexture2 texture;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            ktxTextureCreateInfo createInfo = ktxTextureCreateInfo.calloc(stack)
+                    .vkFormat(VK_FORMAT_R8G8B8A8_SRGB)
+                    .baseWidth(width)
+                    .baseHeight(height)
+                    .baseDepth(1)
+                    .numDimensions(2)
+                    .numLevels(levels.length)
+                    .numLayers(1)
+                    .numFaces(1)
+                    .isArray(false)
+                    .generateMipmaps(false);
+            PointerBuffer texturePointer = stack.mallocPointer(1);
+            check(ktxTexture2_Create(createInfo, KTX_TEXTURE_CREATE_ALLOC_STORAGE, texturePointer), "create");
+            texture = ktxTexture2.create(texturePointer.get(0));
+        }
+
+        ktxTexture baseTexture = ktxTexture.create(texture.address());
+        try {
+            for (int level = 0; level < levels.length; level++) {
+                ByteBuffer levelBuffer = MemoryUtil.memAlloc(levels[level].length);
+                try {
+                    levelBuffer.put(levels[level]).flip();
+                    check(ktxTexture_SetImageFromMemory(baseTexture, level, 0, 0, levelBuffer), "set level " + level);
+                } finally {
+                    MemoryUtil.memFree(levelBuffer);
+                }
+            }
+
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                int packLevel = Math.round(Math.max(0.0f, Math.min(1.0f, quality)) * KTX_PACK_UASTC_LEVEL_SLOWER);
+                ktxBasisParams params = ktxBasisParams.calloc(stack)
+                        .structSize(ktxBasisParams.SIZEOF)
+                        .uastc(true)
+                        .uastcFlags(packLevel)
+                        .threadCount(1); // the images are already encoded in parallel by the encoding stage
+                check(ktxTexture2_CompressBasisEx(texture, params), "compress");
+            }
+            check(ktxTexture2_DeflateZstd(texture, ZSTD_COMPRESSION_LEVEL), "supercompress");
+
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                PointerBuffer data = stack.mallocPointer(1);
+                PointerBuffer size = stack.mallocPointer(1);
+                check(ktxTexture_WriteToMemory(baseTexture, data, size), "write");
+                try {
+                    ByteBuffer nativeBytes = MemoryUtil.memByteBuffer(data.get(0), (int) size.get(0));
+                    ByteBuffer bytes = ByteBuffer.allocate(nativeBytes.remaining());
+                    bytes.put(nativeBytes).flip();
+                    return bytes;
+                } finally {
+                    LibCStdlib.nfree(data.get(0));
+                }
+            }
+        } finally {
+            ktxTexture_Destroy(baseTexture);
+        }
+    }
+
+    private void check(int result, String step) throws IOException {
+        if (result != KTX_SUCCESS) {
+            throw new IOException("Failed to " + step + " the KTX2 texture : " + ktxErrorString(result));
+        }
+    }
+
+    private byte[] toRgba(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        byte[] rgba = new byte[width * height * 4];
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int argb : row) {
+                rgba[index++] = (byte) (argb >> 16);
+                rgba[index++] = (byte) (argb >> 8);
+                rgba[index++] = (byte) argb;
+                rgba[index++] = (byte) (argb >> 24);
+            }
+        }
+        return rgba;
+    }
+
+    /**
+     * Creates the mipmap chain down to 1x1, each level is the 2x2 box filter of the previous level.
+     * The last row and column of an odd sized level are repeated.
+     */
+    static byte[][] createMipmaps(byte[] rgba, int width, int height) {
+        int levelCount = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+        byte[][] levels = new byte[levelCount][];
+        levels[0] = rgba;
+        int levelWidth = width;
+        int levelHeight = height;
+        for (int level = 1; level < levelCount; level++) {
+            byte[] source = levels[level - 1];
+            int sourceWidth = levelWidth;
+            int sourceHeight = levelHeight;
+            levelWidth = Math.max(1, levelWidth / 2);
+            levelHeight = Math.max(1, levelHeight / 2);
+            byte[] target = new byte[levelWidth * levelHeight * 4];
+            for (int y = 0; y < levelHeight; y++) {
+                int y0 = Math.min(y * 2, sourceHeight - 1) * sourceWidth;
+                int y1 = Math.min(y * 2 + 1, sourceHeight - 1) * sourceWidth;
+                for (int x = 0; x < levelWidth; x++) {
+                    int x0 = Math.min(x * 2, sourceWidth - 1);
+                    int x1 = Math.min(x * 2 + 1, sourceWidth - 1);
+                    int targetIndex = (y * levelWidth + x) * 4;
+                    for (int c = 0; c < 4; c++) {
+                        int sum = (source[(y0 + x0) * 4 + c] & 0xFF) + (source[(y0 + x1) * 4 + c] & 0xFF)
+                                + (source[(y1 + x0) * 4 + c] & 0xFF) + (source[(y1 + x1) * 4 + c] & 0xFF);
+                        target[targetIndex + c] = (byte) ((sum + 2) >> 2);
+                    }
+                }
+            }
+            levels[level] = target;
+        }
+        return levels;
+    }
+}
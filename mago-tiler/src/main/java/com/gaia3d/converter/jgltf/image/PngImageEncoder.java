@@ -0,0 +1,174 @@
+package com.gaia3d.converter.jgltf.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Pure-Java PNG encoder of 8 bit RGB and RGBA images.
+ * The rows are filtered with the Paeth filter only, instead of trying the five filters on each row as the ImageIO writer,
+ * and the rows of the common image types are read from the raster without a color conversion per pixel.
+ */
+public class PngImageEncoder implements ImageEncoder {
+    public static final int DEFAULT_COMPRESSION_LEVEL = 2; // faster than the ImageIO png writer, with smaller files
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_PAETH = 4;
+
+    private final int compressionLevel;
+
+    public PngImageEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * @param compressionLevel the deflate level from 0 to 9, the rows are not filtered at level 0
+     */
+    public PngImageEncoder(int compressionLevel) {
+        this.compressionLevel = Math.max(0, Math.min(9, compressionLevel));
+    }
+
+    @Override
+    public String getName() {
+        return "png";
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        return "image/png".equals(mimeType);
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    @Override
+    public ByteBuffer encode(BufferedImage image, String mimeType, float quality) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        int channels = hasAlpha ? 4 : 3;
+        int rowLength = width * channels;
+
+        ByteSliceOutputStream idat = new ByteSliceOutputStream(rowLength * height / 2 + 1024);
+        Deflater deflater = new Deflater(compressionLevel);
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(idat, deflater, 65536)) {
+            byte[] previousRow = new byte[rowLength];
+            byte[] currentRow = new byte[rowLength];
+            byte[] filteredRow = new byte[rowLength + 1];
+            int[] pixels = new int[width];
+            for (int y = 0; y < height; y++) {
+                readRow(image, y, currentRow, pixels, hasAlpha);
+                filterRow(currentRow, previousRow, filteredRow, channels);
+                deflaterOutputStream.write(filteredRow);
+                byte[] swap = previousRow;
+                previousRow = currentRow;
+                currentRow = swap;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width);
+        header.putInt(height);
+        header.put((byte) 8);
+        header.put((byte) (hasAlpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB));
+        header.put((byte) 0); // deflate
+        header.put((byte) 0); // adaptive filtering
+        header.put((byte) 0); // no interlace
+
+        ByteBuffer compressed = idat.toByteBuffer();
+        ByteSliceOutputStream outputStream = new ByteSliceOutputStream(compressed.remaining() + 64);
+        outputStream.write(SIGNATURE);
+        writeChunk(outputStream, "IHDR", header.array(), 0, header.capacity());
+        writeChunk(outputStream, "IDAT", compressed.array(), compressed.arrayOffset(), compressed.remaining());
+        writeChunk(outputStream, "IEND", new byte[0], 0, 0);
+        return outputStream.toByteBuffer();
+    }
+
+    /**
+     * Reads a row as RGB or RGBA bytes.
+     */
+    private void readRow(BufferedImage image, int y, byte[] row, int[] pixels, boolean hasAlpha) {
+        int width = image.getWidth();
+        int type = image.getType();
+        if ((type == BufferedImage.TYPE_3BYTE_BGR && !hasAlpha) || (type == BufferedImage.TYPE_4BYTE_ABGR && hasAlpha)) {
+            // the bands of the raster are in RGB(A) order
+            image.getRaster().getDataElements(0, y, width, 1, row);
+            return;
+        }
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().getDataElements(0, y, width, 1, pixels);
+        } else {
+            image.getRGB(0, y, width, 1, pixels, 0, width);
+        }
+        int index = 0;
+        for (int x = 0; x < width; x++) {
+            int argb = pixels[x];
+            row[index++] = (byte) (argb >> 16);
+            row[index++] = (byte) (argb >> 8);
+            row[index++] = (byte) argb;
+            if (hasAlpha) {
+                row[index++] = (byte) (argb >>> 24);
+            }
+        }
+    }
+
+    private void filterRow(byte[] currentRow, byte[] previousRow, byte[] filteredRow, int channels) {
+        int rowLength = currentRow.length;
+        if (compressionLevel == 0) {
+            filteredRow[0] = FILTER_NONE;
+            System.arraycopy(currentRow, 0, filteredRow, 1, rowLength);
+            return;
+        }
+        filteredRow[0] = FILTER_PAETH;
+        for (int i = 0; i < channels; i++) {
+            filteredRow[i + 1] = (byte) (currentRow[i] - previousRow[i]);
+        }
+        for (int i = channels; i < rowLength; i++) {
+            int left = currentRow[i - channels] & 0xFF;
+            int up = previousRow[i] & 0xFF;
+            int upLeft = previousRow[i - channels] & 0xFF;
+            int estimate = left + up - upLeft;
+            int distanceLeft = Math.abs(estimate - left);
+            int distanceUp = Math.abs(estimate - up);
+            int distanceUpLeft = Math.abs(estimate - upLeft);
+            int predictor;
+            if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+                predictor = left;
+            } else if (distanceUp <= distanceUpLeft) {
+                predictor = up;
+            } else {
+                predictor = upLeft;
+            }
+            filteredRow[i + 1] = (byte) (currentRow[i] - predictor);
+        }
+    }
+
+    private void writeChunk(OutputStream outputStream, String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        writeInt(outputStream, length);
+        outputStream.write(typeBytes);
+        outputStream.write(data, offset, length);
+        writeInt(outputStream, (int) crc.getValue());
+    }
+
+    private void writeInt(OutputStream outputStream, int value) throws IOException {
+        outputStream.write(value >>> 24);
+        outputStream.write(value >>> 16);
+        outputStream.write(value >>> 8);
+        outputStream.write(value);
+    }
+}
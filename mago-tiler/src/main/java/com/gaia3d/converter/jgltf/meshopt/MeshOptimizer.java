@@ -0,0 +1,225 @@
+package com.gaia3d.converter.jgltf.meshopt;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaPrimitive;
+import com.gaia3d.basic.model.GaiaSurface;
+import com.gaia3d.basic.model.GaiaVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reorders the triangles and the vertices of the meshes before the meshopt encoding.
+ * The triangles are ordered for the post-transform vertex cache (Forsyth), then the vertices are ordered by their first use,
+ * so the index codec finds the edges and vertices of the last triangles, and the vertex codec encodes small deltas.
+ */
+public class MeshOptimizer {
+    private static final int CACHE_SIZE = 32;
+    private static final int MAX_VALENCE = 32;
+    private static final float[] CACHE_SCORES = createCacheScores();
+    private static final float[] VALENCE_SCORES = createValenceScores();
+
+    private static float[] createCacheScores() {
+        float[] scores = new float[CACHE_SIZE];
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (i < 3) {
+                // the vertices of the last triangle are not preferred, the triangles sharing them are likely already emitted
+                scores[i] = 0.75f;
+            } else {
+                scores[i] = (float) Math.pow(1.0f - (float) (i - 3) / (CACHE_SIZE - 3), 1.5f);
+            }
+        }
+        return scores;
+    }
+
+    private static float[] createValenceScores() {
+        float[] scores = new float[MAX_VALENCE + 1];
+        for (int i = 1; i <= MAX_VALENCE; i++) {
+            scores[i] = 2.0f / (float) Math.sqrt(i);
+        }
+        return scores;
+    }
+
+    /**
+     * Optimizes the triangles of each surface for the vertex cache, then the vertices of the primitive for the vertex fetch.
+     * The surfaces with non triangular faces are not reordered.
+     */
+    public static void optimize(GaiaPrimitive primitive) {
+        List<GaiaVertex> vertices = primitive.getVertices();
+        int vertexCount = vertices.size();
+        if (vertexCount == 0) {
+            return;
+        }
+        for (GaiaSurface surface : primitive.getSurfaces()) {
+            List<GaiaFace> faces = surface.getFaces();
+            int[] indices = surface.getIndices();
+            if (indices.length != faces.size() * 3) {
+                continue;
+            }
+            int[] order = optimizeVertexCache(indices, vertexCount);
+            List<GaiaFace> orderedFaces = new ArrayList<>(faces.size());
+            for (int triangle : order) {
+                orderedFaces.add(faces.get(triangle));
+            }
+            surface.setFaces(orderedFaces);
+        }
+
+        int[] remap = optimizeVertexFetchRemap(primitive.getIndices(), vertexCount);
+        GaiaVertex[] orderedVertices = new GaiaVertex[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            orderedVertices[remap[i]] = vertices.get(i);
+        }
+        for (GaiaSurface surface : primitive.getSurfaces()) {
+            for (GaiaFace face : surface.getFaces()) {
+                int[] faceIndices = face.getIndices();
+                for (int i = 0; i < faceIndices.length; i++) {
+                    faceIndices[i] = remap[faceIndices[i]];
+                }
+            }
+        }
+        primitive.setVertices(new ArrayList<>(Arrays.asList(orderedVertices)));
+    }
+
+    /**
+     * Orders the triangles with the linear-speed vertex cache optimization of Tom Forsyth.
+     * @return the triangles in the optimized order
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        int[] order = new int[triangleCount];
+        if (triangleCount == 0) {
+            return order;
+        }
+
+        // adjacency of the vertices to the triangles
+        int[] valences = new int[vertexCount];
+        for (int index : indices) {
+            valences[index]++;
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int i = 0; i < vertexCount; i++) {
+            adjacencyOffsets[i + 1] = adjacencyOffsets[i] + valences[i];
+        }
+        int[] adjacency = new int[indices.length];
+        int[] fill = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int i = 0; i < indices.length; i++) {
+            adjacency[fill[indices[i]]++] = i / 3;
+        }
+
+        int[] livingTriangles = valences.clone();
+        int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            vertexScores[i] = vertexScore(-1, livingTriangles[i]);
+        }
+        boolean[] emitted = new boolean[triangleCount];
+
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] nextCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int currentTriangle = 0;
+        int inputCursor = 0;
+        for (int orderIndex = 0; orderIndex < triangleCount; orderIndex++) {
+            if (currentTriangle < 0) {
+                // no triangle in the cache, continues with the next triangle of the input
+                while (emitted[inputCursor]) {
+                    inputCursor++;
+                }
+                currentTriangle = inputCursor;
+            }
+            order[orderIndex] = currentTriangle;
+            emitted[currentTriangle] = true;
+
+            int a = indices[currentTriangle * 3];
+            int b = indices[currentTriangle * 3 + 1];
+            int c = indices[currentTriangle * 3 + 2];
+
+            // the vertices of the triangle move to the front of the cache
+            int nextCacheCount = 0;
+            nextCache[nextCacheCount++] = a;
+            nextCache[nextCacheCount++] = b;
+            nextCache[nextCacheCount++] = c;
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                if (vertex != a && vertex != b && vertex != c) {
+                    nextCache[nextCacheCount++] = vertex;
+                }
+            }
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheCount = nextCacheCount;
+
+            for (int vertex : new int[]{a, b, c}) {
+                removeTriangle(adjacency, adjacencyOffsets[vertex], livingTriangles[vertex], currentTriangle);
+                livingTriangles[vertex]--;
+            }
+
+            // updates the scores of the vertices in the cache, the vertices pushed out of the cache lose their cache score
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                cachePositions[vertex] = i < CACHE_SIZE ? i : -1;
+                vertexScores[vertex] = vertexScore(cachePositions[vertex], livingTriangles[vertex]);
+            }
+
+            // the next triangle is the best triangle of the vertices in the cache
+            int bestTriangle = -1;
+            float bestScore = -1.0f;
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                int start = adjacencyOffsets[vertex];
+                for (int k = 0; k < livingTriangles[vertex]; k++) {
+                    int triangle = adjacency[start + k];
+                    float score = vertexScores[indices[triangle * 3]] + vertexScores[indices[triangle * 3 + 1]] + vertexScores[indices[triangle * 3 + 2]];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTriangle = triangle;
+                    }
+                }
+            }
+            cacheCount = Math.min(cacheCount, CACHE_SIZE);
+            currentTriangle = bestTriangle;
+        }
+        return order;
+    }
+
+    private static void removeTriangle(int[] adjacency, int start, int count, int triangle) {
+        for (int k = 0; k < count; k++) {
+            if (adjacency[start + k] == triangle) {
+                adjacency[start + k] = adjacency[start + count - 1];
+                return;
+            }
+        }
+    }
+
+    private static float vertexScore(int cachePosition, int livingTriangles) {
+        if (livingTriangles == 0) {
+            return -1.0f;
+        }
+        float score = cachePosition < 0 ? 0.0f : CACHE_SCORES[cachePosition];
+        return score + VALENCE_SCORES[Math.min(livingTriangles, MAX_VALENCE)];
+    }
+
+    /**
+     * Numbers the vertices in the order of their first use by the indices, the unused vertices are placed at the end.
+     * @return the new index of each vertex
+     */
+    public static int[] optimizeVertexFetchRemap(int[] indices, int vertexCount) {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int nextVertex = 0;
+        for (int index : indices) {
+            if (remap[index] < 0) {
+                remap[index] = nextVertex++;
+            }
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            if (remap[i] < 0) {
+                remap[i] = nextVertex++;
+            }
+        }
+        return remap;
+    }
+}
@@ -0,0 +1,432 @@
+package com.gaia3d.converter.jgltf.meshopt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Encoder of the EXT_meshopt_compression buffer views, compatible with the meshoptimizer decoders.
+ * The vertex data are encoded with the attribute codec (version 0), the triangle indices with the index codec (version 1).
+ * The encoded data are byte oriented and compress further with the gzip or brotli of the web servers.
+ */
+public class MeshoptEncoder {
+    private static final int VERTEX_HEADER = 0xa0;
+    private static final int INDEX_HEADER = 0xe1;
+    private static final int BYTE_GROUP_SIZE = 16;
+    private static final int VERTEX_BLOCK_SIZE_BYTES = 8192;
+    private static final int VERTEX_BLOCK_MAX_SIZE = 256;
+    private static final int TAIL_MAX_SIZE = 32;
+    private static final int[] GROUP_BITS = {0, 2, 4};
+    private static final int[][] TRIANGLE_INDEX_ORDER = {{0, 1, 2}, {1, 2, 0}, {2, 0, 1}};
+    // the two last entries are not used, the table is written at the end of the encoded indices
+    private static final byte[] CODE_AUX_TABLE = {0x00, 0x76, (byte) 0x87, 0x56, 0x67, 0x78, (byte) 0xa9, (byte) 0x86, 0x65, (byte) 0x89, 0x68, (byte) 0x98, 0x01, 0x69, 0x00, 0x00};
+
+    /**
+     * Encodes the vertices of the ATTRIBUTES mode.
+     * @param data the vertices from the position of the buffer, the buffer position is not changed
+     * @param count the number of vertices
+     * @param stride the size of a vertex in bytes, a multiple of 4 up to 256
+     */
+    public static ByteBuffer encodeVertexBuffer(ByteBuffer data, int count, int stride) {
+        if (stride <= 0 || stride > 256 || stride % 4 != 0) {
+            throw new IllegalArgumentException("Invalid vertex stride: " + stride);
+        }
+        byte[] vertices = new byte[count * stride];
+        data.duplicate().get(vertices);
+
+        int blockSize = Math.min((VERTEX_BLOCK_SIZE_BYTES / stride) & ~(BYTE_GROUP_SIZE - 1), VERTEX_BLOCK_MAX_SIZE);
+        ByteWriter writer = new ByteWriter(vertices.length + vertices.length / 4 + 64);
+        writer.put(VERTEX_HEADER);
+
+        byte[] lastVertex = new byte[stride];
+        if (count > 0) {
+            System.arraycopy(vertices, 0, lastVertex, 0, stride);
+        }
+        byte[] deltas = new byte[VERTEX_BLOCK_MAX_SIZE];
+        for (int blockStart = 0; blockStart < count; blockStart += blockSize) {
+            int blockCount = Math.min(blockSize, count - blockStart);
+            int alignedCount = (blockCount + BYTE_GROUP_SIZE - 1) & ~(BYTE_GROUP_SIZE - 1);
+            for (int k = 0; k < stride; k++) {
+                int previous = lastVertex[k];
+                int offset = blockStart * stride + k;
+                for (int i = 0; i < blockCount; i++) {
+                    int value = vertices[offset];
+                    int delta = (value - previous) & 0xFF;
+                    deltas[i] = (byte) (((byte) delta >> 7) ^ (delta << 1));
+                    previous = value;
+                    offset += stride;
+                }
+                Arrays.fill(deltas, blockCount, alignedCount, (byte) 0);
+                encodeBytes(writer, deltas, alignedCount);
+            }
+            System.arraycopy(vertices, (blockStart + blockCount - 1) * stride, lastVertex, 0, stride);
+        }
+
+        // the first vertex is written at the end, the decoder starts the deltas from it
+        byte[] firstVertex = new byte[stride];
+        if (count > 0) {
+            System.arraycopy(vertices, 0, firstVertex, 0, stride);
+        }
+        for (int i = stride; i < TAIL_MAX_SIZE; i++) {
+            writer.put(0);
+        }
+        writer.put(firstVertex, 0, stride);
+        return writer.toByteBuffer();
+    }
+
+    /**
+     * Encodes each byte group of 16 deltas with 0, 2, 4 or 8 bits, the values over the bits are escaped.
+     */
+    private static void encodeBytes(ByteWriter writer, byte[] buffer, int length) {
+        int groupCount = length / BYTE_GROUP_SIZE;
+        int headerOffset = writer.size();
+        int headerSize = (groupCount + 3) / 4;
+        for (int i = 0; i < headerSize; i++) {
+            writer.put(0);
+        }
+        for (int group = 0; group < groupCount; group++) {
+            int start = group * BYTE_GROUP_SIZE;
+            int bestBits = 8;
+            int bestSize = BYTE_GROUP_SIZE;
+            for (int bits : GROUP_BITS) {
+                int size = measureBytesGroup(buffer, start, bits);
+                if (size < bestSize) {
+                    bestBits = bits;
+                    bestSize = size;
+                }
+            }
+            int bitsLog2 = bestBits == 0 ? 0 : bestBits == 2 ? 1 : bestBits == 4 ? 2 : 3;
+            writer.or(headerOffset + group / 4, bitsLog2 << ((group % 4) * 2));
+            encodeBytesGroup(writer, buffer, start, bestBits);
+        }
+    }
+
+    private static int measureBytesGroup(byte[] buffer, int start, int bits) {
+        if (bits == 0) {
+            for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+                if (buffer[start + i] != 0) {
+                    return Integer.MAX_VALUE;
+                }
+            }
+            return 0;
+        }
+        int sentinel = (1 << bits) - 1;
+        int size = BYTE_GROUP_SIZE * bits / 8;
+        for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+            if ((buffer[start + i] & 0xFF) >= sentinel) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static void encodeBytesGroup(ByteWriter writer, byte[] buffer, int start, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        if (bits == 8) {
+            writer.put(buffer, start, BYTE_GROUP_SIZE);
+            return;
+        }
+        int sentinel = (1 << bits) - 1;
+        int valuesPerByte = 8 / bits;
+        for (int i = 0; i < BYTE_GROUP_SIZE; i += valuesPerByte) {
+            int packed = 0;
+            for (int k = 0; k < valuesPerByte; k++) {
+                int value = buffer[start + i + k] & 0xFF;
+                packed = (packed << bits) | Math.min(value, sentinel);
+            }
+            writer.put(packed);
+        }
+        for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+            int value = buffer[start + i] & 0xFF;
+            if (value >= sentinel) {
+                writer.put(value);
+            }
+        }
+    }
+
+    /**
+     * Encodes the indices of the TRIANGLES mode.
+     * The triangles are coded from the edges and vertices of the last triangles, so the indices optimized for the vertex cache encode best.
+     * @param indices the triangle indices, the number of indices is a multiple of 3
+     */
+    public static ByteBuffer encodeIndexBuffer(int[] indices, int count) {
+        if (count % 3 != 0) {
+            throw new IllegalArgumentException("The number of triangle indices is not a multiple of 3: " + count);
+        }
+        ByteWriter code = new ByteWriter(count / 3 + 1);
+        ByteWriter data = new ByteWriter(count + 16);
+        code.put(INDEX_HEADER);
+
+        int[] edgeFifo = new int[32];
+        int[] vertexFifo = new int[16];
+        Arrays.fill(edgeFifo, -1);
+        Arrays.fill(vertexFifo, -1);
+        int edgeFifoOffset = 0;
+        int vertexFifoOffset = 0;
+        int next = 0;
+        int last = 0;
+        int fecMax = 13;
+
+        for (int i = 0; i < count; i += 3) {
+            int fer = getEdgeFifo(edgeFifo, indices[i], indices[i + 1], indices[i + 2], edgeFifoOffset);
+            if (fer >= 0 && (fer >> 2) < 15) {
+                int[] order = TRIANGLE_INDEX_ORDER[fer & 3];
+                int a = indices[i + order[0]];
+                int b = indices[i + order[1]];
+                int c = indices[i + order[2]];
+
+                int fe = fer >> 2;
+                int fc = getVertexFifo(vertexFifo, c, vertexFifoOffset);
+                int fec;
+                if (fc >= 1 && fc < fecMax) {
+                    fec = fc;
+                } else if (c == next) {
+                    next++;
+                    fec = 0;
+                } else {
+                    fec = 15;
+                }
+                if (fec == 15) {
+                    // the previous and next free indices are coded without extra data, as in the strips
+                    if (c + 1 == last) {
+                        fec = 13;
+                        last = c;
+                    } else if (c == last + 1) {
+                        fec = 14;
+                        last = c;
+                    }
+                }
+                code.put((fe << 4) | fec);
+                if (fec == 15) {
+                    encodeIndex(data, c, last);
+                    last = c;
+                }
+                if (fec == 0 || fec >= fecMax) {
+                    vertexFifoOffset = pushVertexFifo(vertexFifo, c, vertexFifoOffset);
+                }
+                edgeFifoOffset = pushEdgeFifo(edgeFifo, c, b, edgeFifoOffset);
+                edgeFifoOffset = pushEdgeFifo(edgeFifo, a, c, edgeFifoOffset);
+            } else {
+                int b0 = indices[i + 1];
+                int c0 = indices[i + 2];
+                int rotation = b0 == next ? 1 : c0 == next ? 2 : 0;
+                int[] order = TRIANGLE_INDEX_ORDER[rotation];
+                int a = indices[i + order[0]];
+                int b = indices[i + order[1]];
+                int c = indices[i + order[2]];
+
+                int fb = getVertexFifo(vertexFifo, b, vertexFifoOffset);
+                int fc = getVertexFifo(vertexFifo, c, vertexFifoOffset);
+                int fea;
+                if (a == next) {
+                    next++;
+                    fea = 0;
+                } else {
+                    fea = 15;
+                }
+                int feb;
+                if (fb >= 0 && fb < 14) {
+                    feb = fb + 1;
+                } else if (b == next) {
+                    next++;
+                    feb = 0;
+                } else {
+                    feb = 15;
+                }
+                int fec;
+                if (fc >= 0 && fc < 14) {
+                    fec = fc + 1;
+                } else if (c == next) {
+                    next++;
+                    fec = 0;
+                } else {
+                    fec = 15;
+                }
+
+                int codeAux = (feb << 4) | fec;
+                int codeAuxIndex = getCodeAuxIndex(codeAux);
+                if (fea == 0 && codeAuxIndex >= 0 && codeAuxIndex < 14) {
+                    code.put((15 << 4) | codeAuxIndex);
+                } else {
+                    code.put((15 << 4) | 14 | (fea == 15 ? 1 : 0));
+                    data.put(codeAux);
+                }
+                if (fea == 15) {
+                    encodeIndex(data, a, last);
+                    last = a;
+                }
+                if (feb == 15) {
+                    encodeIndex(data, b, last);
+                    last = b;
+                }
+                if (fec == 15) {
+                    encodeIndex(data, c, last);
+                    last = c;
+                }
+                if (fea == 0 || fea == 15) {
+                    vertexFifoOffset = pushVertexFifo(vertexFifo, a, vertexFifoOffset);
+                }
+                if (feb == 0 || feb == 15) {
+                    vertexFifoOffset = pushVertexFifo(vertexFifo, b, vertexFifoOffset);
+                }
+                if (fec == 0 || fec == 15) {
+                    vertexFifoOffset = pushVertexFifo(vertexFifo, c, vertexFifoOffset);
+                }
+                edgeFifoOffset = pushEdgeFifo(edgeFifo, b, a, edgeFifoOffset);
+                edgeFifoOffset = pushEdgeFifo(edgeFifo, c, b, edgeFifoOffset);
+                edgeFifoOffset = pushEdgeFifo(edgeFifo, a, c, edgeFifoOffset);
+            }
+        }
+        // the table is read by the decoder from the end of the data, it is also the padding of the last triangles
+        data.put(CODE_AUX_TABLE, 0, CODE_AUX_TABLE.length);
+
+        ByteWriter writer = new ByteWriter(code.size() + data.size());
+        writer.put(code.array(), 0, code.size());
+        writer.put(data.array(), 0, data.size());
+        return writer.toByteBuffer();
+    }
+
+    private static int getEdgeFifo(int[] fifo, int a, int b, int c, int offset) {
+        for (int i = 0; i < 16; i++) {
+            int index = (offset - 1 - i) & 15;
+            int e0 = fifo[index * 2];
+            int e1 = fifo[index * 2 + 1];
+            if (e0 == a && e1 == b) {
+                return i << 2;
+            }
+            if (e0 == b && e1 == c) {
+                return (i << 2) | 1;
+            }
+            if (e0 == c && e1 == a) {
+                return (i << 2) | 2;
+            }
+        }
+        return -1;
+    }
+
+    private static int pushEdgeFifo(int[] fifo, int a, int b, int offset) {
+        fifo[offset * 2] = a;
+        fifo[offset * 2 + 1] = b;
+        return (offset + 1) & 15;
+    }
+
+    private static int getVertexFifo(int[] fifo, int vertex, int offset) {
+        for (int i = 0; i < 16; i++) {
+            if (fifo[(offset - 1 - i) & 15] == vertex) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int pushVertexFifo(int[] fifo, int vertex, int offset) {
+        fifo[offset] = vertex;
+        return (offset + 1) & 15;
+    }
+
+    private static int getCodeAuxIndex(int codeAux) {
+        for (int i = 0; i < 16; i++) {
+            if ((CODE_AUX_TABLE[i] & 0xFF) == codeAux) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the zigzag delta of the index from the last free index as a variable length integer.
+     */
+    private static void encodeIndex(ByteWriter writer, int index, int last) {
+        int delta = index - last;
+        int value = (delta << 1) ^ (delta >> 31);
+        while (Integer.compareUnsigned(value, 128) >= 0) {
+            writer.put((value & 127) | 128);
+            value >>>= 7;
+        }
+        writer.put(value);
+    }
+
+    /**
+     * Encodes the unit vectors with the OCTAHEDRAL filter to 4 signed bytes, the byte stride of the filtered vectors is 4.
+     * The 4th component of the encoded vectors is 0.
+     * @param vectors the float vectors of 3 components from the position of the buffer
+     */
+    public static ByteBuffer encodeFilterOctahedral(ByteBuffer vectors, int count, int vectorStride) {
+        ByteBuffer source = vectors.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int start = source.position();
+        ByteBuffer encoded = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        int one = quantizeSnorm(1.0f, 8);
+        for (int i = 0; i < count; i++) {
+            int offset = start + i * vectorStride;
+            float nx = source.getFloat(offset);
+            float ny = source.getFloat(offset + 4);
+            float nz = source.getFloat(offset + 8);
+            float length = Math.abs(nx) + Math.abs(ny) + Math.abs(nz);
+            float scale = length == 0.0f ? 0.0f : 1.0f / length;
+            nx *= scale;
+            ny *= scale;
+            float u = nz >= 0.0f ? nx : (1 - Math.abs(ny)) * (nx >= 0.0f ? 1.0f : -1.0f);
+            float v = nz >= 0.0f ? ny : (1 - Math.abs(nx)) * (ny >= 0.0f ? 1.0f : -1.0f);
+            encoded.put((byte) quantizeSnorm(u, 8));
+            encoded.put((byte) quantizeSnorm(v, 8));
+            encoded.put((byte) one);
+            encoded.put((byte) 0);
+        }
+        encoded.flip();
+        return encoded;
+    }
+
+    private static int quantizeSnorm(float value, int bits) {
+        float scale = (1 << (bits - 1)) - 1;
+        float round = value >= 0 ? 0.5f : -0.5f;
+        float clamped = Math.max(-1.0f, Math.min(1.0f, value));
+        return (int) (clamped * scale + round);
+    }
+
+    /**
+     * Growable byte array, the encoded sizes are not known in advance.
+     */
+    private static class ByteWriter {
+        private byte[] bytes;
+        private int size = 0;
+
+        private ByteWriter(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void put(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void put(byte[] values, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(values, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void or(int index, int value) {
+            bytes[index] |= (byte) value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] array() {
+            return bytes;
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, size).slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
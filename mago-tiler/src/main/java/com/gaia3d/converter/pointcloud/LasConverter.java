@@ -2,6 +2,7 @@ package com.gaia3d.converter.pointcloud;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudGridWriter;
 import com.gaia3d.basic.pointcloud.GaiaPointCloudHeader;
 import com.gaia3d.basic.pointcloud.GaiaPointCloudTemp;
 import com.gaia3d.command.mago.GlobalConstants;
@@ -80,6 +81,51 @@ public class LasConverter {
         return GaiaPointCloudHeader.builder().index(-1).uuid(UUID.randomUUID()).size(totalPointRecords).srsBoundingBox(srsBoundingBox).build();
     }
 
+    /**
+     * Reads every n-th point position of the file, to estimate the point density before the temp cells are created.
+     * @return the sampled positions, xyz interleaved
+     */
+    public double[] readSamples(File file, long stride) {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+
+        LASReader reader = new LASReader(file);
+        LASHeader header = reader.getHeader();
+        double xScaleFactor = header.getXScaleFactor();
+        double xOffset = header.getXOffset();
+        double yScaleFactor = header.getYScaleFactor();
+        double yOffset = header.getYOffset();
+        double zScaleFactor = header.getZScaleFactor();
+        double zOffset = header.getZOffset();
+
+        // Apply translation offset
+        Vector3d transform = globalOptions.getTranslateOffset();
+        if (transform != null) {
+            xOffset = xOffset + transform.x;
+            yOffset = yOffset + transform.y;
+            zOffset = zOffset + transform.z;
+        }
+
+        long totalPointsSize = header.getNumberOfPointRecords() + header.getLegacyNumberOfPointRecords();
+        int sampleCount = (int) Math.min(Integer.MAX_VALUE / 3, totalPointsSize / stride + 1);
+        double[] samples = new double[sampleCount * 3];
+        int index = 0;
+        long count = 0;
+        try (CloseablePointIterable pointIterable = reader.getCloseablePoints()) {
+            for (LASPoint point : pointIterable) {
+                if (count++ % stride != 0) {
+                    continue;
+                }
+                if (index >= samples.length) {
+                    break;
+                }
+                samples[index++] = point.getX() * xScaleFactor + xOffset;
+                samples[index++] = point.getY() * yScaleFactor + yOffset;
+                samples[index++] = point.getZ() * zScaleFactor + zOffset;
+            }
+        }
+        return index == samples.length ? samples : Arrays.copyOf(samples, index);
+    }
+
     public void loadToTemp(GaiaPointCloudHeader pointCloudHeader, File file) {
         GlobalOptions globalOptions = GlobalOptions.getInstance();
 
@@ -153,6 +199,7 @@ public class LasConverter {
         }
         int volumeFactor = (int) Math.ceil(100.0 / percentage);
         int count = 0;
+        GaiaPointCloudGridWriter gridWriter = new GaiaPointCloudGridWriter(pointCloudHeader);
         for (LASPoint point : pointIterable) {
             if (count++ % volumeFactor != 0) {
                 continue;
@@ -161,45 +208,29 @@ public class LasConverter {
             double y = point.getY() * yScaleFactor + yOffset;
             double z = point.getZ() * zScaleFactor + zOffset;
 
-            Vector3d position = new Vector3d(x, y, z);
-
-            byte[] rgb;
+            byte red;
+            byte green;
+            byte blue;
             if (hasRgbColor) {
                 if (globalOptions.isForce4ByteRGB()) {
-                    rgb = getColorByByteRGB(point); // only for test
+                    // only for test
+                    red = getColorByByteRGB(point.getRed());
+                    green = getColorByByteRGB(point.getGreen());
+                    blue = getColorByByteRGB(point.getBlue());
                 } else {
-                    rgb = getColorByRGB(point);
+                    red = getColorByRGB(point.getRed());
+                    green = getColorByRGB(point.getGreen());
+                    blue = getColorByRGB(point.getBlue());
                 }
             } else {
-                rgb = new byte[3];
-                rgb[0] = (byte) 128;
-                rgb[1] = (byte) 128;
-                rgb[2] = (byte) 128;
+                red = (byte) 128;
+                green = (byte) 128;
+                blue = (byte) 128;
             }
 
-            int byteLength = 0;
-            byte[] intensity = convertToByteIntensity(point.getIntensity());
-            byte[] classification = convertToByteClassification(point.getClassification());
-            byteLength += 4; // 4 bytes for rgb
-            byteLength += intensity.length;
-            byteLength += classification.length;
-
-            byte[] totalByte = new byte[byteLength];
-            // concatenate byte arrays
-            int index = 0;
-            System.arraycopy(rgb, 0, totalByte, index, rgb.length);
-            index += rgb.length;
-            System.arraycopy(intensity, 0, totalByte, index, intensity.length);
-            index += intensity.length;
-            System.arraycopy(classification, 0, totalByte, index, classification.length);
-
-            GaiaPointCloudTemp tempFile = pointCloudHeader.findTemp(position);
-            if (tempFile == null) {
-                log.error("[ERROR] Failed to find temp file.");
-            } else {
-                tempFile.writePosition(position, totalByte);
-            }
+            gridWriter.write(x, y, z, red, green, blue, point.getIntensity(), point.getClassification());
         }
+        gridWriter.flush();
     }
 
     private List<GaiaPointCloud> convert(File file) {
@@ -227,7 +258,7 @@ public class LasConverter {
 
         GaiaPointCloudTemp readTemp = new GaiaPointCloudTemp(file);
         pointCloud.setMinimized(true);
-        pointCloud.setVertices(null);
+        pointCloud.setPointBuffer(null);
         pointCloud.setGaiaBoundingBox(boundingBox);
         pointCloud.setPointCloudTemp(readTemp);
         pointClouds.add(pointCloud);
@@ -236,46 +267,20 @@ public class LasConverter {
 
     /**
      * Get color by RGB
-     * @param point LASPoint
-     * @return byte[3]
+     * @param color 16-bit color channel of LASPoint
+     * @return 8-bit color channel
      */
-    private byte[] getColorByRGB(LASPoint point) {
-        double red = (double) point.getRed() / 65535;
-        double green = (double) point.getGreen() / 65535;
-        double blue = (double) point.getBlue() / 65535;
-
-        byte[] rgb = new byte[3];
-        rgb[0] = (byte) (red * 255);
-        rgb[1] = (byte) (green * 255);
-        rgb[2] = (byte) (blue * 255);
-        return rgb;
+    private byte getColorByRGB(char color) {
+        double value = (double) color / 65535;
+        return (byte) (value * 255);
     }
 
     /**
      * Get color by RGB
-     * @param point LASPoint
-     * @return byte[3]
+     * @param color 8-bit color channel stored in the 16-bit field of LASPoint
+     * @return 8-bit color channel
      */
-    private byte[] getColorByByteRGB(LASPoint point) {
-        byte[] rgb = new byte[3];
-        rgb[0] = (byte) point.getRed();
-        rgb[1] = (byte) point.getGreen();
-        rgb[2] = (byte) point.getBlue();
-
-        return rgb;
-    }
-
-    private byte[] convertToByteIntensity(char intensity) {
-        byte[] rgb = new byte[2];
-        rgb[0] = (byte) ((intensity >> 8) & 0xFF); // High byte
-        rgb[1] = (byte) (intensity & 0xFF); // Low byte
-        return rgb;
-    }
-
-    private byte[] convertToByteClassification(short classification) {
-        byte[] rgb = new byte[2];
-        rgb[0] = (byte) ((classification >> 8) & 0xFF); // High byte
-        rgb[1] = (byte) (classification & 0xFF); // Low byte
-        return rgb;
+    private byte getColorByByteRGB(char color) {
+        return (byte) color;
     }
 }
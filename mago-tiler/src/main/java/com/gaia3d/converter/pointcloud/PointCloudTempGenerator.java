@@ -2,9 +2,12 @@ package com.gaia3d.converter.pointcloud;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.pointcloud.GaiaPointCloudHeader;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudPartition;
 import com.gaia3d.basic.pointcloud.GaiaPointCloudTemp;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTempWriterPool;
 import com.gaia3d.command.mago.GlobalConstants;
 import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.TaskScheduler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Vector3d;
@@ -13,13 +16,11 @@ import org.locationtech.proj4j.proj.LongLatProjection;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -27,6 +28,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class PointCloudTempGenerator {
     /*private final float HORIZONTAL_GRID_SIZE = 500.0f; // in meters
     private final float VERTICAL_GRID_SIZE = 50.0f; // in meters*/
+    private static final int MINIMUM_BUFFER_POINTS = 1024;
+    private static final int MAXIMUM_BUFFER_POINTS = 16384;
     private final LasConverter converter;
     private GaiaPointCloudHeader combinedHeader;
 
@@ -35,15 +38,11 @@ public class PointCloudTempGenerator {
         combinedHeader = readAllHeaders(fileList);
         GaiaBoundingBox boundingBox = combinedHeader.getSrsBoundingBox();
         Vector3d volume = boundingBox.getVolume();
-        GaiaPointCloudTemp[][] tempGrid = combinedHeader.getTempGrid();
-        int length = tempGrid.length;
-        int width = tempGrid[0].length;
         log.info("[Pre] Total Volume: {}, {}, {}", volume.x, volume.y, volume.z);
         log.info("[Pre] Generating temp files");
         try {
-            tempFiles = createTempGrid(tempPath);
-            generateTempFiles(fileList);
-            //generateTempFilesOnThread(fileList);
+            tempFiles = createTempCells(tempPath);
+            generateTempFilesOnThread(fileList);
             closeAllStreams();
             tempFiles = removeEmptyFiles(tempFiles);
             //tempFiles = shuffleTempFiles(tempFiles);
@@ -54,33 +53,47 @@ public class PointCloudTempGenerator {
         return tempFiles;
     }
 
-    private List<File> createTempGrid(File tempPath) throws FileNotFoundException {
+    private List<File> createTempCells(File tempPath) throws FileNotFoundException {
         List<File> tempFiles = new ArrayList<>();
-        GaiaPointCloudTemp[][] tempGrid = combinedHeader.getTempGrid();
-        Vector3d volume = combinedHeader.getSrsBoundingBox().getVolume();
-        Vector3d offset = combinedHeader.getSrsBoundingBox().getMinPosition();
-        for (int i = 0; i < tempGrid.length; i++) {
-            for (int j = 0; j < tempGrid[i].length; j++) {
-                String tempFileName = String.format("%d/%d.bin", i, j);
-                File tempFile = new File(tempPath, tempFileName);
-                if (!tempFile.getParentFile().exists()) {
-                    tempFile.getParentFile().mkdirs();
-                }
-                GaiaPointCloudTemp temp = new GaiaPointCloudTemp(tempFile);
-                tempGrid[i][j] = temp;
+        GaiaPointCloudPartition partition = combinedHeader.getPartition();
+        GaiaPointCloudTemp[] tempCells = combinedHeader.getTempCells();
+        for (int i = 0; i < tempCells.length; i++) {
+            String tempFileName = String.format("%d.bin", i);
+            File tempFile = new File(tempPath, tempFileName);
+            if (!tempFile.getParentFile().exists()) {
+                tempFile.getParentFile().mkdirs();
+            }
+            GaiaPointCloudTemp temp = new GaiaPointCloudTemp(tempFile);
+            tempCells[i] = temp;
 
-                // Set quantized volume scale and offset
-                temp.getQuantizedVolumeScale()[0] = volume.x;
-                temp.getQuantizedVolumeScale()[1] = volume.y;
-                temp.getQuantizedVolumeScale()[2] = volume.z;
-                temp.getQuantizedVolumeOffset()[0] = offset.x;
-                temp.getQuantizedVolumeOffset()[1] = offset.y;
-                temp.getQuantizedVolumeOffset()[2] = offset.z;
+            // Set quantized volume scale and offset of the cell
+            GaiaBoundingBox cellBoundingBox = partition.getCellBoundingBox(i);
+            Vector3d volume = cellBoundingBox.getVolume();
+            Vector3d offset = cellBoundingBox.getMinPosition();
+            temp.getQuantizedVolumeScale()[0] = volume.x;
+            temp.getQuantizedVolumeScale()[1] = volume.y;
+            temp.getQuantizedVolumeScale()[2] = volume.z;
+            temp.getQuantizedVolumeOffset()[0] = offset.x;
+            temp.getQuantizedVolumeOffset()[1] = offset.y;
+            temp.getQuantizedVolumeOffset()[2] = offset.z;
 
-                temp.writeHeader();
-                tempFiles.add(tempFile);
+            // the points are appended through the writer pool, the header stream is not kept open
+            temp.writeHeader();
+            try {
+                temp.getOutputStream().close();
+            } catch (IOException e) {
+                log.error("[ERROR] :Failed to close temp file header stream", e);
             }
+            tempFiles.add(tempFile);
         }
+
+        // a quarter of the memory budget is shared by the per-cell buffers of every worker
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        long memoryBudget = (long) globalOptions.getMemoryBudget() * 1024 * 1024;
+        long workerBuffers = (long) Math.max(1, globalOptions.getMultiThreadCount()) * tempCells.length;
+        int bufferPoints = (int) Math.max(MINIMUM_BUFFER_POINTS, Math.min(MAXIMUM_BUFFER_POINTS, memoryBudget / 4 / workerBuffers / 20));
+        combinedHeader.setWriterPool(new GaiaPointCloudTempWriterPool(GlobalConstants.POINTSCLOUD_MAXIMUM_OPEN_FILES, bufferPoints));
+        log.info("[Pre] Temp writer pool : {} open files, {} buffered points per cell", GlobalConstants.POINTSCLOUD_MAXIMUM_OPEN_FILES, bufferPoints);
         return tempFiles;
     }
 
@@ -89,14 +102,14 @@ public class PointCloudTempGenerator {
         GlobalOptions globalOptions = GlobalOptions.getInstance();
         CoordinateReferenceSystem crs = globalOptions.getSourceCrs();
 
-        float horizontalGridSize;
-        float verticalGridSize;
+        // compare the axes in meters
+        double[] axisWeights;
         if (crs.getProjection() instanceof LongLatProjection) {
-            horizontalGridSize = GlobalConstants.POINTSCLOUD_HORIZONTAL_ARC;
-            verticalGridSize = GlobalConstants.POINTSCLOUD_VERTICAL_ARC;
+            double horizontalWeight = GlobalConstants.POINTSCLOUD_HORIZONTAL_GRID / GlobalConstants.POINTSCLOUD_HORIZONTAL_ARC;
+            double verticalWeight = GlobalConstants.POINTSCLOUD_VERTICAL_GRID / GlobalConstants.POINTSCLOUD_VERTICAL_ARC;
+            axisWeights = new double[]{horizontalWeight, verticalWeight, 1.0};
         } else {
-            horizontalGridSize = GlobalConstants.POINTSCLOUD_HORIZONTAL_GRID;
-            verticalGridSize = GlobalConstants.POINTSCLOUD_VERTICAL_GRID;
+            axisWeights = new double[]{1.0, 1.0, 1.0};
         }
 
         List<GaiaPointCloudHeader> headers = new ArrayList<>();
@@ -106,53 +119,72 @@ public class PointCloudTempGenerator {
         GaiaPointCloudHeader combinedHeader = GaiaPointCloudHeader.combineHeaders(headers);
         GaiaBoundingBox srsBoundingBox = combinedHeader.getSrsBoundingBox();
         Vector3d volume = srsBoundingBox.getVolume();
-        int gridXCount = (int) Math.ceil(volume.x / horizontalGridSize);
-        int gridYCount = (int) Math.ceil(volume.y / verticalGridSize);
 
-        int limit = 67108864; // (8192 * 8192)
-        int gridVolume = gridXCount * gridYCount;
-        if ((combinedHeader.getSize() / gridVolume) > limit) {
-            log.warn("[WARN] The point density is {} points per grid.", combinedHeader.getSize() / gridVolume);
-            horizontalGridSize = horizontalGridSize / 2;
-            verticalGridSize = verticalGridSize / 2;
-            gridXCount = (int) Math.ceil(volume.x / horizontalGridSize);
-            gridYCount = (int) Math.ceil(volume.y / verticalGridSize);
-        }
+        // a cell is shuffled in a single chunk when it fits in the memory budget of a shuffle task
+        long memoryBudget = (long) globalOptions.getMemoryBudget() * 1024 * 1024 / Math.max(1, globalOptions.getMultiThreadCount());
+        long cellPointLimit = Math.max(1, Math.min(GlobalConstants.POINTSCLOUD_CELL_POINTS, memoryBudget / 20));
 
-        GaiaPointCloudTemp[][] tempGrid = new GaiaPointCloudTemp[gridXCount][gridYCount];
-        combinedHeader.setTempGrid(tempGrid);
+        int percentage = Math.max(1, Math.min(100, globalOptions.getPointRatio()));
+        long totalPoints = combinedHeader.getSize() / (long) Math.ceil(100.0 / percentage);
+        GaiaPointCloudPartition partition;
+        if (totalPoints <= cellPointLimit) {
+            partition = GaiaPointCloudPartition.single(srsBoundingBox);
+        } else {
+            long stride = Math.max(1, combinedHeader.getSize() / GlobalConstants.POINTSCLOUD_SAMPLE_POINTS);
+            List<double[]> samples = readAllSamples(fileList, stride);
+            int sampleCount = samples.stream().mapToInt(sample -> sample.length / 3).sum();
+            double[] allSamples = new double[sampleCount * 3];
+            int position = 0;
+            for (double[] sample : samples) {
+                System.arraycopy(sample, 0, allSamples, position, sample.length);
+                position += sample.length;
+            }
+            partition = GaiaPointCloudPartition.build(srsBoundingBox, allSamples, sampleCount, totalPoints, cellPointLimit, axisWeights);
+        }
+        combinedHeader.setPartition(partition);
+        combinedHeader.setTempCells(new GaiaPointCloudTemp[partition.getCellCount()]);
 
+        log.info("[Pre] Temp cells: {} (maximum {} points per cell)", partition.getCellCount(), cellPointLimit);
         log.debug("[Pre] Combined header: {}", combinedHeader);
-        log.debug("[Pre] Grid size: {}x{}", gridXCount, gridYCount);
         log.debug("[Pre] Volume: {}", volume);
         log.debug("[Pre] Get Points Size: {}", combinedHeader.getSize());
-        log.debug("[Pre] Grid Width: {}", horizontalGridSize);
-        log.debug("[Pre] Grid Height: {}", verticalGridSize);
         return combinedHeader;
     }
 
-    private void generateTempFiles(List<File> fileList) {
-        int fileLength = fileList.size();
-        AtomicInteger fileCount = new AtomicInteger(0);
+    /**
+     * Samples the point positions of all the files in parallel, to estimate the point density.
+     */
+    private List<double[]> readAllSamples(List<File> fileList, long stride) {
+        List<Callable<List<double[]>>> tasks = new ArrayList<>();
         fileList.forEach((originalFile) -> {
-            converter.loadToTemp(combinedHeader, originalFile);
-            log.info("[Pre][{}/{}] Generated temp file for {}", fileCount.incrementAndGet(), fileLength, originalFile.getName());
+            tasks.add(() -> Collections.singletonList(converter.readSamples(originalFile, stride)));
         });
+        log.info("[Pre] Sampling every {} points of all files", stride);
+        try {
+            return TaskScheduler.getInstance().collect("Sample", tasks);
+        } catch (InterruptedException e) {
+            log.error("[ERROR] :Failed to sample the files on thread.", e);
+            throw new RuntimeException(e);
+        }
     }
 
+    /**
+     * Loads the files in parallel, one file per task.
+     * Each task bins its points in its own per-cell buffers and appends them to the shared temp files in blocks.
+     */
     private void generateTempFilesOnThread(List<File> fileList) {
-        GlobalOptions globalOptions = GlobalOptions.getInstance();
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
         List<Runnable> tasks = new ArrayList<>();
+        int fileLength = fileList.size();
+        AtomicInteger fileCount = new AtomicInteger(0);
         fileList.forEach((originalFile) -> {
             Runnable callableTask = () -> {
-                log.info("[Pre] Generated temp file for {}", originalFile.getName());
                 converter.loadToTemp(combinedHeader, originalFile);
+                log.info("[Pre][{}/{}] Generated temp file for {}", fileCount.incrementAndGet(), fileLength, originalFile.getName());
             };
             tasks.add(callableTask);
         });
         try {
-            executeThread(executorService, tasks);
+            TaskScheduler.getInstance().run("Temp", tasks);
         } catch (InterruptedException e) {
             log.error("[ERROR] :Failed to generate temp files on thread.", e);
             throw new RuntimeException(e);
@@ -195,9 +227,7 @@ public class PointCloudTempGenerator {
 
     private List<File> shuffleTempFilesOnThread(List<File> tempFiles) {
         GlobalOptions globalOptions = GlobalOptions.getInstance();
-        List<File> shuffledTempFiles = new ArrayList<>();
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
+        List<Callable<List<File>>> tasks = new ArrayList<>();
         AtomicInteger tempCount = new AtomicInteger(0);
         int fileLength = tempFiles.size();
 
@@ -212,40 +242,28 @@ public class PointCloudTempGenerator {
         log.info("[Pre] Shuffling temp files with limit size: {}", limitSize);*/
 
         //int finalLimitSize = limitSize;
+        // the memory budget is shared by the shuffle tasks running at the same time
+        long memoryBudget = (long) globalOptions.getMemoryBudget() * 1024 * 1024 / Math.max(1, globalOptions.getMultiThreadCount());
         tempFiles.forEach((tempFile) -> {
-            Runnable callableTask = () -> {
+            Callable<List<File>> callableTask = () -> {
                 int count = tempCount.incrementAndGet();
                 log.info("[Pre][{}/{}] Shuffling temp file: {}", count, fileLength, tempFile.getAbsoluteFile());
                 GaiaPointCloudTemp temp = new GaiaPointCloudTemp(tempFile);
-                temp.shuffleTempMoreFast(count, fileLength);
-                shuffledTempFiles.add(temp.getTempFile());
+                temp.shuffleTempExternal(count, fileLength, memoryBudget);
+                return Collections.singletonList(temp.getTempFile());
             };
             tasks.add(callableTask);
         });
         try {
-            executeThread(executorService, tasks);
+            return TaskScheduler.getInstance().collect("Shuffle", tasks);
         } catch (InterruptedException e) {
             log.error("[ERROR] :Failed to shuffle temp files on thread.", e);
             throw new RuntimeException(e);
         }
-        return shuffledTempFiles;
     }
 
     private void closeAllStreams() {
-        GaiaPointCloudTemp[][] tempGridAll = combinedHeader.getTempGrid();
-        for (GaiaPointCloudTemp[] tempGridX : tempGridAll) {
-            for (GaiaPointCloudTemp tempGridY : tempGridX) {
-                OutputStream outputStream = tempGridY.getOutputStream();
-                if (outputStream != null) {
-                    try {
-                        outputStream.flush();
-                        outputStream.close();
-                    } catch (Exception e) {
-                        log.error("[ERROR] :Failed to close input stream", e);
-                    }
-                }
-            }
-        }
+        combinedHeader.getWriterPool().close();
     }
 
     private List<File> removeEmptyFiles(List<File> tempFiles) {
@@ -261,25 +279,4 @@ public class PointCloudTempGenerator {
         });
         return newTempFiles;
     }
-
-    private void executeThread(ExecutorService executorService, List<Runnable> tasks) throws InterruptedException {
-        GlobalOptions globalOptions = GlobalOptions.getInstance();
-        try {
-            for (Runnable task : tasks) {
-                Future<?> future = executorService.submit(task);
-                if (globalOptions.isDebug()) {
-                    future.get();
-                }
-            }
-        } catch (Exception e) {
-            log.error("[ERROR] :Failed to execute thread.", e);
-            throw new RuntimeException(e);
-        }
-        executorService.shutdown();
-        do {
-            if (executorService.isTerminated()) {
-                executorService.shutdownNow();
-            }
-        } while (!executorService.awaitTermination(2, TimeUnit.SECONDS));
-    }
 }
@@ -19,10 +19,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -74,22 +71,21 @@ public class ExtendTilingPipeline implements Pipeline {
 
     private void executePreProcesses(FileLoader fileLoader) throws InterruptedException {
         log.info("[Pre] Start the pre-processing.");
-        tileInfos = new ArrayList<>();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
+        List<Callable<List<TileInfo>>> tasks = new ArrayList<>();
         int fileCount = fileList.size();
         AtomicLong nodeCount = new AtomicLong(0);
         for (int count = 0; count < fileCount; count++) {
             File file = fileList.get(count);
             int finalCount = count;
-            Runnable callableTask = () -> {
+            Callable<List<TileInfo>> callableTask = () -> {
+                List<TileInfo> resultTileInfos = new ArrayList<>();
                 try {
                     List<TileInfo> loadedTileInfos = fileLoader.loadTileInfo(file);
                     log.info("[Pre][{}/{}] Loading file : {}", finalCount + 1, fileCount, file.getName());
                     if (loadedTileInfos == null) {
                         log.warn("[WARN][Pre][{}/{}] Failed to load file : {}.", finalCount + 1, fileCount, file.getName());
-                        return;
+                        return resultTileInfos;
                     }
                     int infoLength = loadedTileInfos.size();
                     nodeCount.addAndGet(infoLength);
@@ -101,17 +97,18 @@ public class ExtendTilingPipeline implements Pipeline {
                             for (PreProcess preProcessors : preProcesses) {
                                 preProcessors.run(tileInfo);
                             }
-                            tileInfos.add(tileInfo);
+                            resultTileInfos.add(tileInfo);
                         }
                     }
                 } catch (RuntimeException e) {
                     log.error("[ERROR][PreProcess] : ", e);
                     globalOptions.getReporter().addReport(e);
                 }
+                return resultTileInfos;
             };
             tasks.add(callableTask);
         }
-        executeThread(executorService, tasks);
+        tileInfos = TaskScheduler.getInstance().collect("Pre", tasks);
 
         log.info("[Pre] Total Node Count {}", nodeCount);
         log.info("[Pre] End the pre-processing.");
@@ -129,15 +126,12 @@ public class ExtendTilingPipeline implements Pipeline {
     private void executePostProcesses() throws InterruptedException {
         log.info("[Post] Start the post-processing.");
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
         contentInfos = tileset.findAllContentInfo();
         AtomicInteger count = new AtomicInteger(1);
         int contentCount = contentInfos.size();
         globalOptions.setTileCount(contentCount);
 
         for (ContentInfo contentInfo : contentInfos) {
-            //Runnable callableTask = () -> {
             try {
                 log.info("[Post][{}/{}] post-process in progress. : {}", count.getAndIncrement(), contentCount, contentInfo.getName());
                 List<TileInfo> tileInfos = contentInfo.getTileInfos();
@@ -162,17 +156,13 @@ public class ExtendTilingPipeline implements Pipeline {
                 log.error("[ERROR][PostProcess] : ", e);
                 globalOptions.getReporter().addReport(e);
             }
-            //};
-            //tasks.add(callableTask);
         }
-        //executeThread(executorService, tasks);
         log.info("[Post] End the post-processing.");
     }
 
     private void executePostProcesses_original() throws InterruptedException {
         log.info("[Post] Start the post-processing.");
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
         List<Runnable> tasks = new ArrayList<>();
         contentInfos = tileset.findAllContentInfo();
         AtomicInteger count = new AtomicInteger(1);
@@ -208,7 +198,7 @@ public class ExtendTilingPipeline implements Pipeline {
             };
             tasks.add(callableTask);
         }
-        executeThread(executorService, tasks);
+        TaskScheduler.getInstance().run("Post", tasks);
         log.info("[Post] End the post-processing.");
     }
 
@@ -232,24 +222,4 @@ public class ExtendTilingPipeline implements Pipeline {
             FileUtils.deleteDirectory(tempFile);
         }
     }
-
-    private void executeThread(ExecutorService executorService, List<Runnable> tasks) throws InterruptedException {
-        try {
-            for (Runnable task : tasks) {
-                Future<?> future = executorService.submit(task);
-                if (globalOptions.isDebug()) {
-                    future.get();
-                }
-            }
-        } catch (Exception e) {
-            log.error("[ERROR] Failed to execute thread.", e);
-            throw new RuntimeException(e);
-        }
-        executorService.shutdown();
-        do {
-            if (executorService.isTerminated()) {
-                executorService.shutdownNow();
-            }
-        } while (!executorService.awaitTermination(2, TimeUnit.SECONDS));
-    }
 }
@@ -0,0 +1,209 @@
+package com.gaia3d.process;
+
+import com.gaia3d.command.mago.GlobalOptions;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared work-stealing executor of the processing phases.
+ * The tasks of a phase run on a single ForkJoinPool sized by the thread count option,
+ * the first task failing with an exception cancels the tasks of its phase that are not started yet.
+ * In debug mode the tasks run one by one in the calling thread.
+ */
+@Slf4j
+public class TaskScheduler {
+    private static TaskScheduler instance = null;
+
+    @Getter
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public TaskScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism);
+    }
+
+    public static synchronized TaskScheduler getInstance() {
+        int threadCount = GlobalOptions.getInstance().getMultiThreadCount();
+        if (instance == null || instance.parallelism != Math.max(1, threadCount)) {
+            if (instance != null) {
+                instance.pool.shutdown();
+            }
+            instance = new TaskScheduler(threadCount);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a phase, the tasks are submitted to the phase and awaited with {@link Phase#await()}.
+     * @param taskCount the expected number of tasks, for the progress log, or -1 if unknown
+     */
+    public Phase start(String name, int taskCount) {
+        return new Phase(name, taskCount);
+    }
+
+    /**
+     * Runs the tasks and waits for all of them.
+     */
+    public void run(String name, List<? extends Runnable> tasks) throws InterruptedException {
+        Phase phase = start(name, tasks.size());
+        tasks.forEach(phase::submit);
+        phase.await();
+    }
+
+    /**
+     * Runs the tasks and collects the results of all of them, in no particular order.
+     */
+    public <T> List<T> collect(String name, List<? extends Callable<? extends Collection<T>>> tasks) throws InterruptedException {
+        Queue<T> results = new ConcurrentLinkedQueue<>();
+        Phase phase = start(name, tasks.size());
+        for (Callable<? extends Collection<T>> task : tasks) {
+            phase.submit(() -> {
+                try {
+                    Collection<T> result = task.call();
+                    if (result != null) {
+                        results.addAll(result);
+                    }
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        phase.await();
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Runs the tasks in the pool and waits for all of them, without the log of a phase,
+     * for the short parallel loops of a task, the last task runs in the calling thread.
+     * @throws RuntimeException if a task failed, with the failure as cause
+     */
+    public void invokeAll(List<? extends Runnable> tasks) {
+        if (GlobalOptions.getInstance().isDebug() || tasks.size() <= 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            futures.add(pool.submit(tasks.get(i)));
+        }
+        tasks.get(tasks.size() - 1).run();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public class Phase {
+        private final String name;
+        private final int taskCount;
+        private final boolean sequential;
+        private final long startTime = System.nanoTime();
+        private final Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger completedCount = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private int nextProgress;
+
+        private Phase(String name, int taskCount) {
+            this.name = name;
+            this.taskCount = taskCount;
+            this.sequential = GlobalOptions.getInstance().isDebug();
+            this.nextProgress = progressStep();
+        }
+
+        public void submit(Runnable task) {
+            if (failure.get() != null) {
+                return;
+            }
+            Runnable wrappedTask = () -> {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    task.run();
+                    logProgress(completedCount.incrementAndGet());
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            };
+            if (sequential) {
+                wrappedTask.run();
+            } else {
+                futures.add(pool.submit(wrappedTask));
+            }
+        }
+
+        /**
+         * Waits for all the submitted tasks.
+         * @throws RuntimeException if a task failed, with the first failure as cause
+         */
+        public void await() throws InterruptedException {
+            Future<?> future;
+            while ((future = futures.poll()) != null) {
+                try {
+                    future.get();
+                } catch (CancellationException e) {
+                    // cancelled after the first failure
+                } catch (ExecutionException e) {
+                    fail(e.getCause());
+                }
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+            int completed = completedCount.get();
+            log.info("[Scheduler][{}] {} tasks in {}ms ({} tasks/s, {} threads)", name, completed, elapsedMillis, String.format("%.2f", completed * 1000.0 / elapsedMillis), parallelism);
+            Throwable cause = failure.get();
+            if (cause != null) {
+                log.error("[ERROR][Scheduler][{}] The phase is cancelled.", name, cause);
+                throw new RuntimeException(cause);
+            }
+        }
+
+        public boolean isFailed() {
+            return failure.get() != null;
+        }
+
+        public int getCompletedCount() {
+            return completedCount.get();
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                futures.forEach(future -> future.cancel(false));
+            }
+        }
+
+        private void logProgress(int completed) {
+            if (taskCount <= 0) {
+                return;
+            }
+            synchronized (this) {
+                if (completed < nextProgress) {
+                    return;
+                }
+                nextProgress = completed + progressStep();
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+            log.info("[Scheduler][{}] {}/{} tasks ({}%), {} tasks/s", name, completed, taskCount, completed * 100 / taskCount, String.format("%.2f", completed * 1000.0 / elapsedMillis));
+        }
+
+        private int progressStep() {
+            return Math.max(1, taskCount / 10);
+        }
+    }
+}
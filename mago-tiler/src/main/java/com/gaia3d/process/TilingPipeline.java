@@ -8,8 +8,10 @@ import com.gaia3d.process.tileprocess.Pipeline;
 import com.gaia3d.process.tileprocess.TilingProcess;
 import com.gaia3d.process.tileprocess.Tiler;
 import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.DefaultTiler;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
+import com.gaia3d.util.GaiaBufferPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -18,13 +20,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,6 +38,7 @@ public class TilingPipeline implements Pipeline {
     private final List<PreProcess> preProcesses;
     private final TilingProcess tilingProcess;
     private final List<PostProcess> postProcesses;
+    private static final int PENDING_CONTENT_FACTOR = 4;
 
     /* global options */
     private final GlobalOptions globalOptions = GlobalOptions.getInstance();
@@ -52,10 +58,15 @@ public class TilingPipeline implements Pipeline {
             /* Pre-process */
             createTemp(fileLoader);
             executePreProcesses(fileLoader);
-            /* Main-process */
-            executeTilingProcess();
-            /* Post-process */
-            executePostProcesses();
+            if (globalOptions.isPipeline() && tilingProcess instanceof DefaultTiler) {
+                /* Main-process and Post-process */
+                executePipelinedProcesses();
+            } else {
+                /* Main-process */
+                executeTilingProcess();
+                /* Post-process */
+                executePostProcesses();
+            }
             /* Delete temp files */
             deleteTemp();
         } catch (InterruptedException e) {
@@ -73,22 +84,21 @@ public class TilingPipeline implements Pipeline {
 
     private void executePreProcesses(FileLoader fileLoader) throws InterruptedException {
         log.info("[Pre] Start the pre-processing.");
-        tileInfos = new ArrayList<>();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
+        List<Callable<List<TileInfo>>> tasks = new ArrayList<>();
         int fileCount = fileList.size();
         AtomicLong nodeCount = new AtomicLong(0);
         for (int count = 0; count < fileCount; count++) {
             File file = fileList.get(count);
             int finalCount = count;
-            Runnable callableTask = () -> {
+            Callable<List<TileInfo>> callableTask = () -> {
+                List<TileInfo> resultTileInfos = new ArrayList<>();
                 try {
                     List<TileInfo> loadedTileInfos = fileLoader.loadTileInfo(file);
                     log.info("[Pre][{}/{}] Loading file : {}", finalCount + 1, fileCount, file.getName());
                     if (loadedTileInfos == null) {
                         log.warn("[WARN][Pre][{}/{}] Failed to load file : {}.", finalCount + 1, fileCount, file.getName());
-                        return;
+                        return resultTileInfos;
                     }
                     int infoLength = loadedTileInfos.size();
                     nodeCount.addAndGet(infoLength);
@@ -100,17 +110,18 @@ public class TilingPipeline implements Pipeline {
                             for (PreProcess preProcessors : preProcesses) {
                                 preProcessors.run(tileInfo);
                             }
-                            tileInfos.add(tileInfo);
+                            resultTileInfos.add(tileInfo);
                         }
                     }
                 } catch (RuntimeException e) {
                     log.error("[ERROR][PreProcess] : ", e);
                     globalOptions.getReporter().addReport(e);
                 }
+                return resultTileInfos;
             };
             tasks.add(callableTask);
         }
-        executeThread(executorService, tasks);
+        tileInfos = TaskScheduler.getInstance().collect("Pre", tasks);
 
         log.info("[Pre] Total Node Count {}", nodeCount);
         log.info("[Pre] End the pre-processing.");
@@ -128,7 +139,6 @@ public class TilingPipeline implements Pipeline {
     private void executePostProcesses() throws InterruptedException {
         log.info("[Post] Start the post-processing.");
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
         List<Runnable> tasks = new ArrayList<>();
         contentInfos = tileset.findAllContentInfo();
         AtomicInteger count = new AtomicInteger(1);
@@ -137,38 +147,111 @@ public class TilingPipeline implements Pipeline {
 
         for (ContentInfo contentInfo : contentInfos) {
             Runnable callableTask = () -> {
-                try {
-                    log.info("[Post][{}/{}] post-process in progress. : {}", count.getAndIncrement(), contentCount, contentInfo.getName());
-                    List<TileInfo> tileInfos = contentInfo.getTileInfos();
-                    List<TileInfo> tileInfosClone = tileInfos.stream()
-                            .map((childTileInfo) -> TileInfo.builder()
-                                    .scene(childTileInfo.getScene())
-                                    .tileTransformInfo(childTileInfo.getTileTransformInfo())
-                                    .scenePath(childTileInfo.getScenePath())
-                                    .tempPath(childTileInfo.getTempPath())
-                                    .transformMatrix(childTileInfo.getTransformMatrix())
-                                    .boundingBox(childTileInfo.getBoundingBox())
-                                    .pointCloud(childTileInfo.getPointCloud())
-                                    .build())
-                            .collect(Collectors.toList());
-                    contentInfo.setTileInfos(tileInfosClone);
-                    for (PostProcess postProcessor : postProcesses) {
-                        postProcessor.run(contentInfo);
-                    }
-                    contentInfo.deleteTexture();
-                    tileInfosClone.clear();
-                } catch (RuntimeException e) {
-                    log.error("[ERROR][PostProcess] : ", e);
-                    globalOptions.getReporter()
-                            .addReport(e);
-                }
+                log.info("[Post][{}/{}] post-process in progress. : {}", count.getAndIncrement(), contentCount, contentInfo.getName());
+                postProcess(contentInfo);
             };
             tasks.add(callableTask);
         }
-        executeThread(executorService, tasks);
+        TaskScheduler.getInstance().run("Post", tasks);
+        GaiaBufferPool.getInstance().logMetrics("Post");
+        log.info("[Post] End the post-processing.");
+    }
+
+    /**
+     * Runs the tiling process and the post-processes at the same time.
+     * The tiler hands over the contents of its finished subtrees, they are post-processed by the scheduler
+     * while the tiling goes on. The number of contents waiting or in progress is bounded,
+     * the tiler waits when the post-processes are behind.
+     * The tiler needs the bounds of all the tile infos, so the pre-processes are still finished before.
+     */
+    private void executePipelinedProcesses() throws InterruptedException, FileNotFoundException {
+        log.info("[Tile] Start the pipelined tiling process.");
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        TaskScheduler.Phase phase = scheduler.start("Post", -1);
+        Semaphore pendingContents = new Semaphore(scheduler.getParallelism() * PENDING_CONTENT_FACTOR);
+        AtomicInteger count = new AtomicInteger(1);
+        Consumer<ContentInfo> submitContent = (contentInfo) -> {
+            acquirePending(phase, pendingContents);
+            phase.submit(() -> {
+                try {
+                    log.info("[Post][{}] post-process in progress. : {}", count.getAndIncrement(), contentInfo.getName());
+                    postProcess(contentInfo);
+                } finally {
+                    pendingContents.release();
+                }
+            });
+        };
+
+        DefaultTiler defaultTiler = (DefaultTiler) tilingProcess;
+        Set<ContentInfo> publishedContents = Collections.newSetFromMap(new IdentityHashMap<>());
+        defaultTiler.setContentConsumer((contentInfo) -> {
+            if (publishedContents.add(contentInfo)) {
+                submitContent.accept(contentInfo);
+            }
+        });
+        try {
+            executeTilingProcess();
+
+            /* the contents the tiler did not hand over */
+            contentInfos = tileset.findAllContentInfo();
+            for (ContentInfo contentInfo : contentInfos) {
+                if (!publishedContents.contains(contentInfo)) {
+                    submitContent.accept(contentInfo);
+                }
+            }
+            globalOptions.setTileCount(contentInfos.size());
+            log.info("[Tile] {} of {} contents were handed over during the tiling.", publishedContents.size(), contentInfos.size());
+        } finally {
+            defaultTiler.setContentConsumer(null);
+            phase.await();
+        }
+        GaiaBufferPool.getInstance().logMetrics("Post");
         log.info("[Post] End the post-processing.");
     }
 
+    /**
+     * Waits until a pending content is done, or stops the tiling when the post-processing failed.
+     */
+    private void acquirePending(TaskScheduler.Phase phase, Semaphore pendingContents) {
+        try {
+            while (!pendingContents.tryAcquire(1, TimeUnit.SECONDS)) {
+                if (phase.isFailed()) {
+                    throw new RuntimeException("The post-processing failed.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void postProcess(ContentInfo contentInfo) {
+        try {
+            List<TileInfo> tileInfos = contentInfo.getTileInfos();
+            List<TileInfo> tileInfosClone = tileInfos.stream()
+                    .map((childTileInfo) -> TileInfo.builder()
+                            .scene(childTileInfo.getScene())
+                            .tileTransformInfo(childTileInfo.getTileTransformInfo())
+                            .scenePath(childTileInfo.getScenePath())
+                            .tempPath(childTileInfo.getTempPath())
+                            .transformMatrix(childTileInfo.getTransformMatrix())
+                            .boundingBox(childTileInfo.getBoundingBox())
+                            .pointCloud(childTileInfo.getPointCloud())
+                            .build())
+                    .collect(Collectors.toList());
+            contentInfo.setTileInfos(tileInfosClone);
+            for (PostProcess postProcessor : postProcesses) {
+                postProcessor.run(contentInfo);
+            }
+            contentInfo.deleteTexture();
+            tileInfosClone.clear();
+        } catch (RuntimeException e) {
+            log.error("[ERROR][PostProcess] : ", e);
+            globalOptions.getReporter()
+                    .addReport(e);
+        }
+    }
+
     private void createTemp(FileLoader fileLoader) {
         /* create temp directory */
         File tempFile = new File(globalOptions.getOutputPath(), "temp");
@@ -189,24 +272,4 @@ public class TilingPipeline implements Pipeline {
             FileUtils.deleteDirectory(tempFile);
         }
     }
-
-    private void executeThread(ExecutorService executorService, List<Runnable> tasks) throws InterruptedException {
-        try {
-            for (Runnable task : tasks) {
-                Future<?> future = executorService.submit(task);
-                if (globalOptions.isDebug()) {
-                    future.get();
-                }
-            }
-        } catch (Exception e) {
-            log.error("[ERROR] Failed to execute thread.", e);
-            throw new RuntimeException(e);
-        }
-        executorService.shutdown();
-        do {
-            if (executorService.isTerminated()) {
-                executorService.shutdownNow();
-            }
-        } while (!executorService.awaitTermination(2, TimeUnit.SECONDS));
-    }
 }
@@ -42,7 +42,6 @@ public class Batched3DModelV2 implements ContentModel {
 
         GaiaBatcher gaiaBatcher = new GaiaBatcher();
         GaiaSet batchedSet = gaiaBatcher.runBatching(contentInfo.getTileInfos(), contentInfo.getNodeCode(), contentInfo.getLod());
-        String nodeCode = contentInfo.getNodeCode();
 
         List<TileInfo> tileInfos = contentInfo.getTileInfos();
         int batchLength = tileInfos.size();
@@ -123,7 +122,7 @@ public class Batched3DModelV2 implements ContentModel {
             });
         });
 
-        String glbFileName = nodeCode + "." + MAGIC;
+        String glbFileName = contentInfo.getContentName() + "." + MAGIC;
         File glbOutputFile = outputRoot.resolve(glbFileName).toFile();
         this.gltfWriter.writeGlb(scene, glbOutputFile, featureTable, batchTableMap);
         return contentInfo;
@@ -31,40 +31,57 @@ public class GaiaBatcher {
     private final List<GaiaBufferDataSet> batchedDataSets = new ArrayList<>();
     private final List<GaiaMaterial> batchedMaterials = new ArrayList<>();
 
+    /**
+     * Gives the dataSets with equal materials the id of the first of these materials.
+     * The materials are grouped by content hash, only the materials with the same hash are compared.
+     */
     private void reassignMaterialsToGaiaBufferDataSetWithSameMaterial(List<GaiaBufferDataSet> dataSets, LevelOfDetail lod) {
-        int datasetsCount = dataSets.size();
-        Map<GaiaBufferDataSet, Boolean> visitedMap = new HashMap<>();
-        for (int i = 0; i < datasetsCount; i++) {
-            GaiaBufferDataSet dataSet = dataSets.get(i);
-            if (visitedMap.containsKey(dataSet)) {
-                continue;
-            }
-
+        float scaleFactor = lod.getTextureScale();
+        Map<Long, List<GaiaMaterial>> materialIndex = new HashMap<>();
+        Map<GaiaMaterial, GaiaMaterial> uniqueMaterials = new IdentityHashMap<>();
+        for (GaiaBufferDataSet dataSet : dataSets) {
             int materialId = dataSet.getMaterialId();
             if (materialId < 0 || materialId >= batchedMaterials.size()) {
                 log.error("[ERROR] MaterialId is out of range");
                 continue;
             }
-            GaiaMaterial material = batchedMaterials.get(dataSet.getMaterialId());
-            for (int  j= i + 1; j < datasetsCount; j++) {
-                GaiaBufferDataSet dataSet2 = dataSets.get(j);
-                GaiaMaterial material2 = batchedMaterials.get(dataSet2.getMaterialId());
-                if (visitedMap.containsKey(dataSet2)) {
-                    continue;
-                }
-                if (dataSet == dataSet2) continue;
-                if (material2 == material) {
-                    visitedMap.put(dataSet2, true); // set visited
-                    continue;
-                }
-                if (areEqualMaterials(material2, material, lod.getTextureScale())) {
-                    dataSet2.setMaterialId(material.getId());
-                    visitedMap.put(dataSet2, true); // set visited
+            GaiaMaterial material = batchedMaterials.get(materialId);
+            GaiaMaterial uniqueMaterial = uniqueMaterials.get(material);
+            if (uniqueMaterial == null) {
+                List<GaiaMaterial> candidates = materialIndex.computeIfAbsent(getMaterialHash(material, scaleFactor), (key) -> new ArrayList<>());
+                uniqueMaterial = candidates.stream()
+                        .filter((candidate) -> areEqualMaterials(candidate, material, scaleFactor))
+                        .findFirst()
+                        .orElse(null);
+                if (uniqueMaterial == null) {
+                    candidates.add(material);
+                    uniqueMaterial = material;
                 }
+                uniqueMaterials.put(material, uniqueMaterial);
+            }
+            if (uniqueMaterial != material) {
+                dataSet.setMaterialId(uniqueMaterial.getId());
             }
         }
     }
 
+    /**
+     * The hash of the diffuse textures contents, or of the diffuse color without texture.
+     */
+    private long getMaterialHash(GaiaMaterial material, float scaleFactor) {
+        Map<TextureType, List<GaiaTexture>> textureMap = material.getTextures();
+        long hash = textureMap.size();
+        List<GaiaTexture> diffuseTextures = textureMap.get(TextureType.DIFFUSE);
+        if (diffuseTextures == null || diffuseTextures.isEmpty()) {
+            return hash * 31 + material.getDiffuseColor().hashCode();
+        }
+        TextureHashCache textureHashCache = TextureHashCache.getInstance();
+        for (GaiaTexture texture : diffuseTextures) {
+            hash = hash * 31 + textureHashCache.getContentHash(texture, scaleFactor);
+        }
+        return hash;
+    }
+
     /**
      * compare two materials
      */
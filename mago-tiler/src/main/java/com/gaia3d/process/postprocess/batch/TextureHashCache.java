@@ -0,0 +1,48 @@
+package com.gaia3d.process.postprocess.batch;
+
+import com.gaia3d.basic.model.GaiaTexture;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content hashes of the texture files, shared by all tiles of a run.
+ * A texture file used by many tiles is decoded and hashed once per texture scale, the later lookups skip the decoding.
+ */
+public class TextureHashCache {
+    private static final TextureHashCache instance = new TextureHashCache();
+
+    private final Map<String, Long> hashes = new ConcurrentHashMap<>();
+
+    public static TextureHashCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * The content hash of the texture image loaded with the scale factor.
+     * A texture with an image already decoded, or without file, is hashed from its image.
+     */
+    public long getContentHash(GaiaTexture texture, float scaleFactor) {
+        if (texture.hasBufferedImage() || texture.getPath() == null || texture.getParentPath() == null) {
+            return texture.getContentHash();
+        }
+        File file = new File(texture.getFullPath());
+        String key = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":" + scaleFactor;
+        Long hash = hashes.get(key);
+        if (hash == null) {
+            texture.getBufferedImage(scaleFactor);
+            hash = texture.getContentHash();
+            hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    public int size() {
+        return hashes.size();
+    }
+
+    public void clear() {
+        hashes.clear();
+    }
+}
@@ -0,0 +1,30 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+
+import java.util.List;
+
+/**
+ * Places the images of a texture atlas.
+ * The atlas size is the bounding rectangle of the placed images, starting at (0, 0).
+ */
+public interface AtlasPacker {
+    String MAX_RECTS = "maxrects";
+    String SKYLINE = "skyline";
+    String CORNER = "corner";
+
+    /**
+     * Sets the batched boundary of every image, the images never overlap.
+     * @param images the images sorted by area in descending order, with their origin boundary
+     */
+    void pack(List<GaiaBatchImage> images);
+
+    static AtlasPacker create(String name) {
+        return switch (name.toLowerCase()) {
+            case MAX_RECTS -> new MaxRectsAtlasPacker();
+            case SKYLINE -> new SkylineAtlasPacker();
+            case CORNER -> new CornerAtlasPacker();
+            default -> throw new IllegalArgumentException("Invalid atlas packer: " + name);
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+
+import java.util.List;
+
+/**
+ * Packs the images into a bin of fixed size, starting with the total image area.
+ * When the images do not fit, the bin area grows by 3% and the packing starts again.
+ */
+public abstract class BinAtlasPacker implements AtlasPacker {
+    private static final double[] RATIOS = {1.0, 2.0, 0.5};
+
+    @Override
+    public void pack(List<GaiaBatchImage> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        long totalArea = 0;
+        int maxWidth = 0;
+        int maxHeight = 0;
+        for (GaiaBatchImage image : images) {
+            int width = image.getOriginBoundary().getWidthInt();
+            int height = image.getOriginBoundary().getHeightInt();
+            totalArea += (long) width * height;
+            maxWidth = Math.max(maxWidth, width);
+            maxHeight = Math.max(maxHeight, height);
+        }
+
+        // the square and the half and double widths of the same area, the first one fitting is kept
+        double area = totalArea;
+        while (true) {
+            for (double ratio : RATIOS) {
+                int binWidth = Math.max((int) Math.ceil(Math.sqrt(area * ratio)), maxWidth);
+                int binHeight = Math.max((int) Math.ceil(area / binWidth), maxHeight);
+                if (packInBin(images, binWidth, binHeight)) {
+                    return;
+                }
+            }
+            area *= 1.03;
+        }
+    }
+
+    /**
+     * Places every image inside the bin.
+     * @return false if an image did not fit, the batched boundaries are then overwritten by the next attempt
+     */
+    protected abstract boolean packInBin(List<GaiaBatchImage> images, int binWidth, int binHeight);
+
+    protected void setBatchedBoundary(GaiaBatchImage image, int x, int y, int width, int height) {
+        GaiaRectangle boundary = image.getBatchedBoundary();
+        if (boundary == null || boundary == image.getOriginBoundary()) {
+            boundary = new GaiaRectangle();
+            image.setBatchedBoundary(boundary);
+        }
+        boundary.setSize(x, y, x + width, y + height);
+    }
+}
@@ -0,0 +1,130 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+import org.joml.Vector2d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The reference packer, tries the leftUp and rightDown corners of every placed image and keeps the position
+ * with the smallest atlas perimeter. Every candidate is checked against all placed images, O(n^3) in total.
+ */
+public class CornerAtlasPacker implements AtlasPacker {
+
+    @Override
+    public void pack(List<GaiaBatchImage> images) {
+        List<GaiaBatchImage> listProcessSplitDatas = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            GaiaBatchImage splittedImage = images.get(i);
+            GaiaRectangle originBoundary = splittedImage.getOriginBoundary();
+
+            if (i == 0) {
+                splittedImage.setBatchedBoundary(originBoundary);
+            } else {
+                // 1rst, find the best position for image into atlas
+                Vector2d bestPosition = this.getBestPositionMosaicInAtlas(listProcessSplitDatas, splittedImage);
+                splittedImage.getBatchedBoundary().setMinX(bestPosition.x);
+                splittedImage.getBatchedBoundary().setMinY(bestPosition.y);
+                splittedImage.getBatchedBoundary().setMaxX(bestPosition.x + originBoundary.getWidth());
+                splittedImage.getBatchedBoundary().setMaxY(bestPosition.y + originBoundary.getHeight());
+            }
+            listProcessSplitDatas.add(splittedImage);
+        }
+    }
+
+    private boolean intersectsRectangleAtlasingProcess(List<GaiaRectangle> listRectangles, GaiaRectangle rectangle) {
+        // this function returns true if the rectangle intersects with any existent rectangle of the listRectangles
+        boolean intersects = false;
+        double error = 10E-5;
+        for (GaiaRectangle existentRectangle : listRectangles) {
+            if (existentRectangle == rectangle) {
+                continue;
+            }
+            if (existentRectangle.intersects(rectangle, error)) {
+                intersects = true;
+                break;
+            }
+        }
+        return intersects;
+    }
+
+    private Vector2d getBestPositionMosaicInAtlas(List<GaiaBatchImage> listProcessSplitDataList, GaiaBatchImage splitDataToPutInMosaic) {
+        Vector2d resultVec = new Vector2d();
+
+        double currPosX, currPosY;
+        double candidatePosX = 0.0, candidatePosY = 0.0;
+        double currMosaicPerimeter, candidateMosaicPerimeter;
+        candidateMosaicPerimeter = -1.0;
+
+        // make existent rectangles list using listProcessSplitDataList
+        List<GaiaRectangle> listRectangles = new ArrayList<>();
+        GaiaRectangle beforeMosaicRectangle = new GaiaRectangle(0.0, 0.0, 0.0, 0.0);
+        int existentSplitDatasCount = listProcessSplitDataList.size();
+        for (int i = 0; i < existentSplitDatasCount; i++) {
+            GaiaBatchImage existentSplitData = listProcessSplitDataList.get(i);
+            GaiaRectangle batchedBoundary = existentSplitData.getBatchedBoundary();
+            if (i == 0) {
+                beforeMosaicRectangle.copyFrom(batchedBoundary);
+            } else {
+                beforeMosaicRectangle.addBoundingRectangle(batchedBoundary);
+            }
+            listRectangles.add(batchedBoundary);
+        }
+
+        if (splitDataToPutInMosaic.getBatchedBoundary() == null) {
+            splitDataToPutInMosaic.setBatchedBoundary(new GaiaRectangle(0.0, 0.0, 0.0, 0.0));
+        }
+        GaiaRectangle boundary = splitDataToPutInMosaic.getBatchedBoundary();
+        double width = splitDataToPutInMosaic.getOriginBoundary().getWidth();
+        double height = splitDataToPutInMosaic.getOriginBoundary().getHeight();
+
+        // Now, try to find the best positions to put our rectangle
+        for (int i = 0; i < existentSplitDatasCount; i++) {
+            GaiaRectangle currRect = listProcessSplitDataList.get(i).getBatchedBoundary();
+
+            // for each existent rectangles, there are 2 possibles positions: leftUp & rightDown
+            // in this 2 possibles positions we put our leftDownCorner of rectangle of "splitDataToPutInMosaic"
+
+            // If in some of two positions our rectangle intersects with any other rectangle, then discard
+            // If no intersects with others rectangles, then calculate the mosaic-perimeter.
+            // We choose the minor perimeter of the mosaic
+            for (int corner = 0; corner < 2; corner++) {
+                if (corner == 0) {
+                    // 1- leftUp corner
+                    currPosX = currRect.getMinX();
+                    currPosY = currRect.getMaxY();
+                } else {
+                    // 2- rightDown corner
+                    currPosX = currRect.getMaxX();
+                    currPosY = currRect.getMinY();
+                }
+
+                // setup our rectangle
+                boundary.setMinX(currPosX);
+                boundary.setMinY(currPosY);
+                boundary.setMaxX(currPosX + width);
+                boundary.setMaxY(currPosY + height);
+
+                // put our rectangle into mosaic & check that no intersects with another rectangles
+                if (!this.intersectsRectangleAtlasingProcess(listRectangles, boundary)) {
+                    GaiaRectangle afterMosaicRectangle = new GaiaRectangle(0.0, 0.0, 0.0, 0.0);
+                    afterMosaicRectangle.copyFrom(beforeMosaicRectangle);
+                    afterMosaicRectangle.addBoundingRectangle(boundary);
+
+                    // calculate the perimeter of the mosaic
+                    currMosaicPerimeter = afterMosaicRectangle.getPerimeter();
+                    if (candidateMosaicPerimeter < 0.0 || candidateMosaicPerimeter > currMosaicPerimeter) {
+                        candidateMosaicPerimeter = currMosaicPerimeter;
+                        candidatePosX = currPosX;
+                        candidatePosY = currPosY;
+                    }
+                }
+            }
+        }
+
+        resultVec.set(candidatePosX, candidatePosY);
+        return resultVec;
+    }
+}
@@ -0,0 +1,138 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The maximal free rectangles of a bin, they may overlap each other but none contains another.
+ */
+class FreeRectangles {
+    private final List<Rectangle> rectangles = new ArrayList<>();
+    private final List<Rectangle> created = new ArrayList<>();
+
+    void add(int x, int y, int width, int height) {
+        if (width > 0 && height > 0) {
+            rectangles.add(new Rectangle(x, y, width, height));
+        }
+    }
+
+    boolean isEmpty() {
+        return rectangles.isEmpty();
+    }
+
+    /**
+     * Finds the free rectangle leaving the shortest leftover side, ties are broken by the longest leftover side.
+     * @return the position at the bottom left of the free rectangle, or null if the size fits nowhere
+     */
+    Rectangle findBestShortSideFit(int width, int height) {
+        Rectangle best = null;
+        int bestShortSide = Integer.MAX_VALUE;
+        int bestLongSide = Integer.MAX_VALUE;
+        for (Rectangle free : rectangles) {
+            if (free.width < width || free.height < height) {
+                continue;
+            }
+            int leftoverX = free.width - width;
+            int leftoverY = free.height - height;
+            int shortSide = Math.min(leftoverX, leftoverY);
+            int longSide = Math.max(leftoverX, leftoverY);
+            if (shortSide < bestShortSide || (shortSide == bestShortSide && longSide < bestLongSide)) {
+                best = free;
+                bestShortSide = shortSide;
+                bestLongSide = longSide;
+            }
+        }
+        return best == null ? null : new Rectangle(best.x, best.y, width, height);
+    }
+
+    /**
+     * Removes the used rectangle from the free space, splitting every free rectangle it overlaps.
+     */
+    void place(Rectangle used) {
+        created.clear();
+        int size = rectangles.size();
+        for (int i = size - 1; i >= 0; i--) {
+            Rectangle free = rectangles.get(i);
+            if (!free.intersects(used)) {
+                continue;
+            }
+            // swap remove, the order of the free rectangles does not matter
+            rectangles.set(i, rectangles.get(rectangles.size() - 1));
+            rectangles.remove(rectangles.size() - 1);
+            split(free, used);
+        }
+
+        // a split part is smaller than its source, so it never contains an untouched free rectangle
+        for (int i = 0; i < created.size(); i++) {
+            Rectangle candidate = created.get(i);
+            if (isContained(candidate, i)) {
+                continue;
+            }
+            rectangles.add(candidate);
+        }
+    }
+
+    private void split(Rectangle free, Rectangle used) {
+        if (used.x > free.x) {
+            created.add(new Rectangle(free.x, free.y, used.x - free.x, free.height));
+        }
+        if (used.right() < free.right()) {
+            created.add(new Rectangle(used.right(), free.y, free.right() - used.right(), free.height));
+        }
+        if (used.y > free.y) {
+            created.add(new Rectangle(free.x, free.y, free.width, used.y - free.y));
+        }
+        if (used.top() < free.top()) {
+            created.add(new Rectangle(free.x, used.top(), free.width, free.top() - used.top()));
+        }
+    }
+
+    private boolean isContained(Rectangle candidate, int index) {
+        for (Rectangle free : rectangles) {
+            if (free.contains(candidate)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < created.size(); i++) {
+            Rectangle other = created.get(i);
+            if (i == index || !other.contains(candidate)) {
+                continue;
+            }
+            // of two equal rectangles only the first is kept
+            if (!candidate.contains(other) || i < index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class Rectangle {
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Rectangle(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        int right() {
+            return x + width;
+        }
+
+        int top() {
+            return y + height;
+        }
+
+        boolean intersects(Rectangle other) {
+            return x < other.right() && other.x < right() && y < other.top() && other.y < top();
+        }
+
+        boolean contains(Rectangle other) {
+            return x <= other.x && y <= other.y && right() >= other.right() && top() >= other.top();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+
+import java.util.List;
+
+/**
+ * MaxRects packer, every image goes to the free rectangle with the best short side fit.
+ */
+public class MaxRectsAtlasPacker extends BinAtlasPacker {
+
+    @Override
+    protected boolean packInBin(List<GaiaBatchImage> images, int binWidth, int binHeight) {
+        FreeRectangles freeRectangles = new FreeRectangles();
+        freeRectangles.add(0, 0, binWidth, binHeight);
+        for (GaiaBatchImage image : images) {
+            int width = image.getOriginBoundary().getWidthInt();
+            int height = image.getOriginBoundary().getHeightInt();
+            FreeRectangles.Rectangle position = freeRectangles.findBestShortSideFit(width, height);
+            if (position == null) {
+                return false;
+            }
+            freeRectangles.place(position);
+            setBatchedBoundary(image, position.x, position.y, width, height);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skyline packer, every image goes to the bottom-left position on the skyline.
+ * The gaps left below the skyline are kept as free rectangles and filled first with the best short side fit.
+ */
+public class SkylineAtlasPacker extends BinAtlasPacker {
+
+    @Override
+    protected boolean packInBin(List<GaiaBatchImage> images, int binWidth, int binHeight) {
+        // segments of {x, y, width}, sorted by x and covering the bin width
+        List<int[]> skyline = new ArrayList<>();
+        skyline.add(new int[]{0, 0, binWidth});
+        FreeRectangles waste = new FreeRectangles();
+
+        for (GaiaBatchImage image : images) {
+            int width = image.getOriginBoundary().getWidthInt();
+            int height = image.getOriginBoundary().getHeightInt();
+
+            FreeRectangles.Rectangle position = waste.isEmpty() ? null : waste.findBestShortSideFit(width, height);
+            if (position != null) {
+                waste.place(position);
+                setBatchedBoundary(image, position.x, position.y, width, height);
+                continue;
+            }
+
+            int bestIndex = -1;
+            int bestY = 0;
+            int bestTop = Integer.MAX_VALUE;
+            int bestSegmentWidth = Integer.MAX_VALUE;
+            for (int i = 0; i < skyline.size(); i++) {
+                int[] segment = skyline.get(i);
+                if (segment[0] + width > binWidth) {
+                    break;
+                }
+                int y = findY(skyline, i, width);
+                int top = y + height;
+                if (top > binHeight) {
+                    continue;
+                }
+                if (top < bestTop || (top == bestTop && segment[2] < bestSegmentWidth)) {
+                    bestIndex = i;
+                    bestY = y;
+                    bestTop = top;
+                    bestSegmentWidth = segment[2];
+                }
+            }
+            if (bestIndex < 0) {
+                return false;
+            }
+
+            int x = skyline.get(bestIndex)[0];
+            addWaste(waste, skyline, bestIndex, x, bestY, width);
+            addSegment(skyline, bestIndex, x, bestTop, width);
+            setBatchedBoundary(image, x, bestY, width, height);
+        }
+        return true;
+    }
+
+    /**
+     * The height of the skyline under the span starting at the segment.
+     */
+    private int findY(List<int[]> skyline, int index, int width) {
+        int right = skyline.get(index)[0] + width;
+        int y = 0;
+        for (int i = index; i < skyline.size(); i++) {
+            int[] segment = skyline.get(i);
+            if (segment[0] >= right) {
+                break;
+            }
+            y = Math.max(y, segment[1]);
+        }
+        return y;
+    }
+
+    private void addWaste(FreeRectangles waste, List<int[]> skyline, int index, int x, int y, int width) {
+        int right = x + width;
+        for (int i = index; i < skyline.size(); i++) {
+            int[] segment = skyline.get(i);
+            if (segment[0] >= right) {
+                break;
+            }
+            int segmentRight = Math.min(segment[0] + segment[2], right);
+            waste.add(segment[0], segment[1], segmentRight - segment[0], y - segment[1]);
+        }
+    }
+
+    private void addSegment(List<int[]> skyline, int index, int x, int y, int width) {
+        int right = x + width;
+        skyline.add(index, new int[]{x, y, width});
+        // shrink or remove the segments now under the new one
+        int next = index + 1;
+        while (next < skyline.size()) {
+            int[] segment = skyline.get(next);
+            if (segment[0] >= right) {
+                break;
+            }
+            int segmentRight = segment[0] + segment[2];
+            if (segmentRight <= right) {
+                skyline.remove(next);
+            } else {
+                segment[0] = right;
+                segment[2] = segmentRight - right;
+                break;
+            }
+        }
+        // merge the neighbours of the same height
+        if (next < skyline.size() && skyline.get(next)[1] == y) {
+            skyline.get(index)[2] += skyline.remove(next)[2];
+        }
+        if (index > 0 && skyline.get(index - 1)[1] == y) {
+            skyline.get(index - 1)[2] += skyline.remove(index)[2];
+        }
+    }
+}
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
-import com.gaia3d.basic.model.GaiaVertex;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.basic.pointcloud.PointBuffer;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.process.postprocess.ComponentType;
 import com.gaia3d.process.postprocess.DataType;
@@ -14,6 +14,7 @@ import com.gaia3d.process.postprocess.batch.GaiaBatchTable;
 import com.gaia3d.process.postprocess.instance.GaiaFeatureTable;
 import com.gaia3d.process.tileprocess.tile.ContentInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
+import com.gaia3d.util.CoordinateTransformEngine;
 import com.gaia3d.util.GlobeUtils;
 import com.gaia3d.util.StringUtils;
 import lombok.RequiredArgsConstructor;
@@ -21,9 +22,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix3d;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
-import org.locationtech.proj4j.BasicCoordinateTransform;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
-import org.locationtech.proj4j.InvalidValueException;
 import org.locationtech.proj4j.ProjCoordinate;
 
 import java.io.File;
@@ -59,11 +58,10 @@ public class PointCloudModel implements ContentModel {
         Vector3d originalMinPosition = boundingBox.getMinPosition();
         Vector3d originalMaxPosition = boundingBox.getMaxPosition();
         CoordinateReferenceSystem source = globalOptions.getSourceCrs();
-        BasicCoordinateTransform transformer = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
 
-        ProjCoordinate transformedMinCoordinate = transformer.transform(new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMinCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z));
         Vector3d minPosition = new Vector3d(transformedMinCoordinate.x, transformedMinCoordinate.y, originalMinPosition.z);
-        ProjCoordinate transformedMaxCoordinate = transformer.transform(new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMaxCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z));
         Vector3d maxPosition = new Vector3d(transformedMaxCoordinate.x, transformedMaxCoordinate.y, originalMaxPosition.z);
         GaiaBoundingBox wgs84BoundingBox = new GaiaBoundingBox();
         wgs84BoundingBox.addPoint(minPosition);
@@ -87,6 +85,8 @@ public class PointCloudModel implements ContentModel {
         xRotationMatrix3d.rotateX(Math.toRadians(-90));
         xRotationMatrix3d.mul(rotationMatrix3d, rotationMatrix3d);
         Matrix4d rotationMatrix4d = new Matrix4d(rotationMatrix3d);
+        Matrix4d worldToLocalMatrix = rotationMatrix4d.mul(transformMatrixInv, new Matrix4d());
+        double[] sourcePositions = new double[vertexLength * 3];
 
         GaiaBoundingBox quantizedVolume = new GaiaBoundingBox();
         AtomicInteger mainIndex = new AtomicInteger();
@@ -95,47 +95,42 @@ public class PointCloudModel implements ContentModel {
         tileInfos.forEach((tileInfo) -> {
             GaiaPointCloud pointCloud = tileInfo.getPointCloud();
             pointCloud.maximize();
-            List<GaiaVertex> gaiaVertex = pointCloud.getVertices();
-            gaiaVertex.forEach((vertex) -> {
+            PointBuffer pointBuffer = pointCloud.getPointBuffer();
+            int pointCount = pointBuffer.size();
+            for (int i = 0; i < pointCount; i++) {
                 int index = mainIndex.getAndIncrement();
-                if (index > vertexLength) {
+                if (index >= vertexLength) {
                     log.error("[ERROR] Index out of bound");
-                    return;
+                    break;
                 }
 
-                Vector3d position = vertex.getPosition();
-                Vector3d wgs84Position = new Vector3d();
-                try {
-                    ProjCoordinate transformedCoordinate = transformer.transform(new ProjCoordinate(position.x, position.y, position.z), new ProjCoordinate());
-                    wgs84Position = new Vector3d(transformedCoordinate.x, transformedCoordinate.y, position.z);
-                } catch (InvalidValueException e) {
-                    log.debug("Invalid value exception", e);
-                }
-
-                Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(wgs84Position);
-                Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv, new Vector3d());
-                localPosition.mulPosition(rotationMatrix4d, localPosition);
-
-                float x = (float) localPosition.x;
-                float y = (float) -localPosition.z;
-                float z = (float) localPosition.y;
-                quantizedVolume.addPoint(new Vector3d(x, y, z));
-
-                positions[positionIndex.getAndIncrement()] = x;
-                positions[positionIndex.getAndIncrement()] = y;
-                positions[positionIndex.getAndIncrement()] = z;
+                sourcePositions[positionIndex.getAndIncrement()] = pointBuffer.getX(i);
+                sourcePositions[positionIndex.getAndIncrement()] = pointBuffer.getY(i);
+                sourcePositions[positionIndex.getAndIncrement()] = pointBuffer.getZ(i);
 
-                byte[] color = vertex.getColor();
-                colors[colorIndex.getAndIncrement()] = color[0];
-                colors[colorIndex.getAndIncrement()] = color[1];
-                colors[colorIndex.getAndIncrement()] = color[2];
+                colors[colorIndex.getAndIncrement()] = pointBuffer.getRed(i);
+                colors[colorIndex.getAndIncrement()] = pointBuffer.getGreen(i);
+                colors[colorIndex.getAndIncrement()] = pointBuffer.getBlue(i);
 
-                intensity[index] = vertex.getIntensity();
-                classification[index] = vertex.getClassification();
-            });
+                intensity[index] = pointBuffer.getIntensity(i);
+                classification[index] = pointBuffer.getClassification(i);
+            }
             pointCloud.minimizeTemp();
         });
 
+        // source CRS to the local frame of the tile, in bulk, the points that can not be transformed are placed at longitude 0 and latitude 0 as before
+        CoordinateTransformEngine.transformToLocalParallel(source, sourcePositions, 0, vertexLength, worldToLocalMatrix, true);
+        for (int i = 0; i < sourcePositions.length; i += 3) {
+            float x = (float) sourcePositions[i];
+            float y = (float) -sourcePositions[i + 2];
+            float z = (float) sourcePositions[i + 1];
+            quantizedVolume.addPoint(x, y, z);
+
+            positions[i] = x;
+            positions[i + 1] = y;
+            positions[i + 2] = z;
+        }
+
         // quantization
         Vector3d quantizationScale = calcQuantizedVolumeScale(quantizedVolume);
         Vector3d quantizationOffset = calcQuantizedVolumeOffset(quantizedVolume);
@@ -1,8 +1,9 @@
 package com.gaia3d.process.postprocess.pointcloud;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
-import com.gaia3d.basic.model.GaiaVertex;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTempReader;
+import com.gaia3d.basic.pointcloud.PointBuffer;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.jgltf.PointCloudGltfWriter;
 import com.gaia3d.process.postprocess.ContentModel;
@@ -10,18 +11,19 @@ import com.gaia3d.process.postprocess.batch.GaiaBatchTable;
 import com.gaia3d.process.postprocess.instance.GaiaFeatureTable;
 import com.gaia3d.process.tileprocess.tile.ContentInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
+import com.gaia3d.util.CoordinateTransformEngine;
+import com.gaia3d.util.GaiaBufferPool;
 import com.gaia3d.util.GlobeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix3d;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
-import org.locationtech.proj4j.BasicCoordinateTransform;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
-import org.locationtech.proj4j.InvalidValueException;
 import org.locationtech.proj4j.ProjCoordinate;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -59,11 +61,10 @@ public class PointCloudModelV2 implements ContentModel {
         Vector3d originalMinPosition = boundingBox.getMinPosition();
         Vector3d originalMaxPosition = boundingBox.getMaxPosition();
         CoordinateReferenceSystem source = globalOptions.getSourceCrs();
-        BasicCoordinateTransform transformer = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
 
-        ProjCoordinate transformedMinCoordinate = transformer.transform(new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMinCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z));
         Vector3d minPosition = new Vector3d(transformedMinCoordinate.x, transformedMinCoordinate.y, originalMinPosition.z);
-        ProjCoordinate transformedMaxCoordinate = transformer.transform(new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMaxCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z));
         Vector3d maxPosition = new Vector3d(transformedMaxCoordinate.x, transformedMaxCoordinate.y, originalMaxPosition.z);
         GaiaBoundingBox wgs84BoundingBox = new GaiaBoundingBox();
         wgs84BoundingBox.addPoint(minPosition);
@@ -72,7 +73,6 @@ public class PointCloudModelV2 implements ContentModel {
         int vertexLength = vertexCount.get();
         float[] batchIds = new float[vertexLength];
         float[] positions = new float[vertexLength * 3];
-        int[] quantizedPositions = new int[vertexLength * 3];
         byte[] colors = new byte[vertexLength * 4];
         char[] intensity = new char[vertexLength];
         short[] classification = new short[vertexLength];
@@ -88,64 +88,68 @@ public class PointCloudModelV2 implements ContentModel {
         xRotationMatrix3d.rotateX(Math.toRadians(-90));
         xRotationMatrix3d.mul(rotationMatrix3d, rotationMatrix3d);
         Matrix4d rotationMatrix4d = new Matrix4d(rotationMatrix3d);
+        Matrix4d worldToLocalMatrix = rotationMatrix4d.mul(transformMatrixInv, new Matrix4d());
+        // the source positions only live until the transform, the array is borrowed from the buffer pool
+        GaiaBufferPool bufferPool = GaiaBufferPool.getInstance();
+        double[] sourcePositions = bufferPool.acquireDoubles(vertexLength * 3);
 
         //GaiaBoundingBox quantizedVolume = new GaiaBoundingBox();
         AtomicInteger mainIndex = new AtomicInteger();
         AtomicInteger positionIndex = new AtomicInteger();
         AtomicInteger colorIndex = new AtomicInteger();
 
+        PointConsumer pointConsumer = (x, y, z, red, green, blue, pointIntensity, pointClassification) -> {
+            int index = mainIndex.getAndIncrement();
+            if (index >= vertexLength) {
+                log.error("[ERROR] Index out of bound");
+                return;
+            }
+
+            batchIds[index] = index;
+
+            sourcePositions[positionIndex.getAndIncrement()] = x;
+            sourcePositions[positionIndex.getAndIncrement()] = y;
+            sourcePositions[positionIndex.getAndIncrement()] = z;
+
+            colors[colorIndex.getAndIncrement()] = (byte) srgbToLinearByte(signedByteToUnsignedByte(red));
+            colors[colorIndex.getAndIncrement()] = (byte) srgbToLinearByte(signedByteToUnsignedByte(green));
+            colors[colorIndex.getAndIncrement()] = (byte) srgbToLinearByte(signedByteToUnsignedByte(blue));
+            colors[colorIndex.getAndIncrement()] = -1;
+
+            intensity[index] = pointIntensity;
+            classification[index] = pointClassification;
+        };
+
         tileInfos.forEach((tileInfo) -> {
             GaiaPointCloud pointCloud = tileInfo.getPointCloud();
-            pointCloud.maximize();
-            List<GaiaVertex> gaiaVertex = pointCloud.getVertices();
-            gaiaVertex.forEach((vertex) -> {
-                int index = mainIndex.getAndIncrement();
-                if (index > vertexLength) {
-                    log.error("[ERROR] Index out of bound");
-                    return;
+            if (pointCloud.isMinimized()) {
+                // walk the mapped temp file directly instead of loading it as vertices
+                try (GaiaPointCloudTempReader reader = pointCloud.openTempReader()) {
+                    long pointCount = reader.getPointCount();
+                    for (long i = 0; i < pointCount; i++) {
+                        pointConsumer.accept(reader.getX(i), reader.getY(i), reader.getZ(i), reader.getRed(i), reader.getGreen(i), reader.getBlue(i), reader.getIntensity(i), reader.getClassification(i));
+                    }
+                } catch (IOException e) {
+                    log.error("[ERROR] Failed to read point cloud temp file.", e);
+                    throw new RuntimeException(e);
                 }
-
-                batchIds[index] = index;
-
-                Vector3d position = vertex.getPosition();
-                Vector3d wgs84Position = new Vector3d();
-                try {
-                    ProjCoordinate transformedCoordinate = transformer.transform(new ProjCoordinate(position.x, position.y, position.z), new ProjCoordinate());
-                    wgs84Position = new Vector3d(transformedCoordinate.x, transformedCoordinate.y, position.z);
-                } catch (InvalidValueException e) {
-                    log.debug("Invalid value exception", e);
+            } else {
+                PointBuffer pointBuffer = pointCloud.getPointBuffer();
+                int pointCount = pointBuffer.size();
+                for (int i = 0; i < pointCount; i++) {
+                    pointConsumer.accept(pointBuffer.getX(i), pointBuffer.getY(i), pointBuffer.getZ(i), pointBuffer.getRed(i), pointBuffer.getGreen(i), pointBuffer.getBlue(i), pointBuffer.getIntensity(i), pointBuffer.getClassification(i));
                 }
-
-                Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(wgs84Position);
-                Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv, new Vector3d());
-                localPosition.mulPosition(rotationMatrix4d, localPosition);
-
-                float x = (float) localPosition.x;
-                float y = (float) localPosition.y;
-                float z = (float) localPosition.z;
-                //float y = (float) -localPosition.z;
-                //float z = (float) localPosition.y;
-                //quantizedVolume.addPoint(new Vector3d(x, y, z));
-
-                positions[positionIndex.getAndIncrement()] = x;
-                positions[positionIndex.getAndIncrement()] = y;
-                positions[positionIndex.getAndIncrement()] = z;
-
-                byte[] color = vertex.getColor();
-                color[0] = (byte) srgbToLinearByte(signedByteToUnsignedByte(color[0]));
-                color[1] = (byte) srgbToLinearByte(signedByteToUnsignedByte(color[1]));
-                color[2] = (byte) srgbToLinearByte(signedByteToUnsignedByte(color[2]));
-                colors[colorIndex.getAndIncrement()] = color[0];
-                colors[colorIndex.getAndIncrement()] = color[1];
-                colors[colorIndex.getAndIncrement()] = color[2];
-                colors[colorIndex.getAndIncrement()] = -1;
-
-                intensity[index] = vertex.getIntensity();
-                classification[index] = vertex.getClassification();
-            });
+            }
             pointCloud.minimizeTemp();
         });
 
+        // source CRS to the local frame of the tile, in bulk, the points that can not be transformed are placed at longitude 0 and latitude 0 as before
+        CoordinateTransformEngine.transformToLocalParallel(source, sourcePositions, 0, vertexLength, worldToLocalMatrix, true);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (float) sourcePositions[i];
+        }
+        bufferPool.release(sourcePositions);
+
         // quantization
         /*Vector3d quantizationScale = calcQuantizedVolumeScale(quantizedVolume);
         Vector3d quantizationOffset = calcQuantizedVolumeOffset(quantizedVolume);
@@ -245,8 +249,7 @@ public class PointCloudModelV2 implements ContentModel {
         //batchTable.setIntensity(new ByteAddress(0, ComponentType.UNSIGNED_SHORT, DataType.SCALAR));
         //atchTable.setClassification(new ByteAddress(intensityBytes.length, ComponentType.UNSIGNED_SHORT, DataType.SCALAR));
 
-        String nodeCode = contentInfo.getNodeCode();
-        String glbFileName = nodeCode + "." + MAGIC;
+        String glbFileName = contentInfo.getContentName() + "." + MAGIC;
         File glbOutputFile = outputRoot.resolve(glbFileName).toFile();
         this.gltfWriter.writeGlb(pointCloudBuffer, featureTable, batchTable, glbOutputFile);
 
@@ -282,4 +285,9 @@ public class PointCloudModelV2 implements ContentModel {
         // Java의 byte는 -128 ~ 127 범위이므로, 이를 0 ~ 255 범위로 변환
         return signedByte < 0 ? signedByte + 256 : signedByte;
     }
+
+    @FunctionalInterface
+    private interface PointConsumer {
+        void accept(double x, double y, double z, byte red, byte green, byte blue, char intensity, short classification);
+    }
 }
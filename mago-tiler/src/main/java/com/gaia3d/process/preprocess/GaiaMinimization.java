@@ -1,9 +1,11 @@
 package com.gaia3d.process.preprocess;
 
 import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.exchangable.GaiaSetWriter;
 import com.gaia3d.basic.model.GaiaAttribute;
 import com.gaia3d.basic.model.GaiaScene;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,8 +29,10 @@ public class GaiaMinimization implements PreProcess {
 
     private void minimizeGaiaScene(TileInfo tileInfo, GaiaScene scene) {
         if (scene != null) {
+            GlobalOptions globalOptions = GlobalOptions.getInstance();
+            GaiaSetWriter writer = new GaiaSetWriter(globalOptions.isTempCompression());
             GaiaSet tempSet = GaiaSet.fromGaiaScene(scene);
-            Path tempPath = tempSet.writeFile(tileInfo.getTempPath(), tileInfo.getSerial(), tempSet.getAttribute());
+            Path tempPath = tempSet.writeFile(tileInfo.getTempPath(), tileInfo.getSerial(), writer);
             tileInfo.setTempPath(tempPath);
             tempSet.clear();
             tempSet = null;
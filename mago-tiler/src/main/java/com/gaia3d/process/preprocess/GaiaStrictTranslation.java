@@ -6,6 +6,7 @@ import com.gaia3d.basic.types.FormatType;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.kml.TileTransformInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
+import com.gaia3d.util.CoordinateTransformEngine;
 import com.gaia3d.util.GlobeUtils;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -147,24 +148,27 @@ public class GaiaStrictTranslation implements PreProcess {
                     for (GaiaPrimitive primitive : primitives) {
                         List<GaiaVertex> vertices = primitive.getVertices();
                         if (vertices != null && !vertices.isEmpty()) {
-                            for (GaiaVertex vertex : vertices) {
-                                Vector3d pos = new Vector3d(vertex.getPosition());
+                            int vertexCount = vertices.size();
+                            double[] coordinates = new double[vertexCount * 3];
+                            Vector3d pos = new Vector3d();
+                            for (int i = 0; i < vertexCount; i++) {
+                                pos.set(vertices.get(i).getPosition());
                                 pos.add(offset);
                                 transformMatrix.transformPosition(pos); // CRS coords
+                                coordinates[i * 3] = pos.x;
+                                coordinates[i * 3 + 1] = pos.y;
+                                coordinates[i * 3 + 2] = pos.z;
+                            }
 
-                                // calculate the geoCoords of the "pos"
-                                ProjCoordinate vertexSource = new ProjCoordinate(pos.x, pos.y, pos.z);
-                                ProjCoordinate vertexWgs84 = GlobeUtils.transform(crs, vertexSource);
-
-                                // calculate the posWC of the "vertexWgs84"
-                                double[] posWC = GlobeUtils.geographicToCartesianWgs84(vertexWgs84.x, vertexWgs84.y, vertexSource.z);
-                                Vector3d posWCVector = new Vector3d(posWC[0], posWC[1], posWC[2]);
-                                Vector3d posLC = globalTMatrixInv.transformPosition(posWCVector);
+                            // CRS coords to the geoCoords, the posWC and the posLC in a single batch
+                            CoordinateTransformEngine.transformToLocal(crs, coordinates, 0, vertexCount, globalTMatrixInv);
 
+                            for (int i = 0; i < vertexCount; i++) {
+                                Vector3d posLC = new Vector3d(coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
                                 resultBBoxLC.addPoint(posLC);
 
                                 // finally set the position of the vertex
-                                vertex.setPosition(posLC);
+                                vertices.get(i).setPosition(posLC);
                             }
                         }
                     }
@@ -1,7 +1,9 @@
 package com.gaia3d.process.preprocess;
 
 import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.exchangable.GaiaSetWriter;
 import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,8 +38,9 @@ public class PhotogrammetryMinimization implements PreProcess {
 
             log.info("[Pre][Photogrammetry] Minimize GaiaScene LOD 0 , Path : {}", tileInfo.getTempPath());
 
+            GaiaSetWriter writer = new GaiaSetWriter(GlobalOptions.getInstance().isTempCompression());
             GaiaSet tempSetLod0 = GaiaSet.fromGaiaScene(scene);
-            Path tempPathLod0 = tempSetLod0.writeFile(tileInfo.getTempPath(), tileInfo.getSerial(), tempSetLod0.getAttribute());
+            Path tempPathLod0 = tempSetLod0.writeFile(tileInfo.getTempPath(), tileInfo.getSerial(), writer);
             tileInfo.setTempPath(tempPathLod0);
             tempSetLod0.clear();
             tempSetLod0 = null;
@@ -1,9 +1,12 @@
 package com.gaia3d.process.tileprocess;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.tileprocess.tile.TilesetStreamWriter;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.AssetV1;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.AssetV2;
@@ -73,7 +76,8 @@ public class TileMerger {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
 
         try {
-            objectMapper.writeValue(tilesetPath, tileset);
+            TilesetStreamWriter tilesetStreamWriter = new TilesetStreamWriter(objectMapper, globalOptions.getShardDepth());
+            tilesetStreamWriter.write(tileset, tilesetPath);
             log.info("[Merge] Tileset.json is written to {}", tilesetPath);
         } catch (IOException e) {
             log.error("[ERROR] Failed to write tileset.json.", e);
@@ -86,14 +90,9 @@ public class TileMerger {
         Map<File, Tileset> tilesetMap = new HashMap<>();
 
         ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-
         for (File tilesetJson : tilesetJsons) {
             try {
-                Tileset tileset = objectMapper.readValue(tilesetJson, Tileset.class);
+                Tileset tileset = readTilesetRoot(objectMapper, tilesetJson);
                 tilesetMap.put(tilesetJson, tileset);
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -102,6 +101,49 @@ public class TileMerger {
         return tilesetMap;
     }
 
+    /**
+     * Reads the geometric error and the root tile of a tileset.json with a streaming parser.
+     * The children are skipped without being bound, so the external tilesets they reference are never opened.
+     */
+    private Tileset readTilesetRoot(ObjectMapper objectMapper, File tilesetJson) throws IOException {
+        Tileset tileset = new Tileset();
+        try (JsonParser parser = objectMapper.getFactory().createParser(tilesetJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid tileset.json : " + tilesetJson);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if (fieldName.equals("geometricError")) {
+                    tileset.setGeometricError(parser.getDoubleValue());
+                } else if (fieldName.equals("root")) {
+                    tileset.setRoot(readRootNode(objectMapper, parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return tileset;
+    }
+
+    private Node readRootNode(ObjectMapper objectMapper, JsonParser parser) throws IOException {
+        Node root = new Node();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (fieldName.equals("boundingVolume")) {
+                root.setBoundingVolume(objectMapper.readValue(parser, BoundingVolume.class));
+            } else if (fieldName.equals("transform")) {
+                root.setTransform(objectMapper.readValue(parser, float[].class));
+            } else if (fieldName.equals("geometricError")) {
+                root.setGeometricError(parser.getDoubleValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return root;
+    }
+
     private Tileset mergeTilesets(Map<File, Tileset> tilesetMap) {
         File inputPath = new File(globalOptions.getInputPath());
 
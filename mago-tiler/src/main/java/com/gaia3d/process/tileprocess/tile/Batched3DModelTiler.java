@@ -21,9 +21,7 @@ import org.joml.Matrix4d;
 import org.joml.Vector3d;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -112,11 +110,11 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        try {
+            TilesetStreamWriter tilesetStreamWriter = new TilesetStreamWriter(objectMapper, globalOptions.getShardDepth());
+            long tilesetSize = tilesetStreamWriter.write(tileset, tilesetFile);
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            globalOptions.setTilesetSize(result.length());
+            globalOptions.setTilesetSize(tilesetSize);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
@@ -137,6 +135,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
             Node childNode = createContentNode(parentNode, tileInfos, 0);
             if (childNode != null) {
                 parentNode.getChildren().add(childNode);
+                publishContent(childNode);
             }
             return;
         }
@@ -146,6 +145,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
             if (childNode != null) {
                 parentNode.getChildren().add(childNode);
                 createNode(childNode, tileInfos, nodeDepth + 1);
+                publishContent(childNode);
             }
         } else if (totalTriangleCount > triangleLimit) {
             List<List<TileInfo>> childrenScenes = squareBoundingVolume.distributeScene(tileInfos);
@@ -164,6 +164,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
                 if (childNode != null) {
                     parentNode.getChildren().add(childNode);
                     createNode(childNode, childTileInfos, nodeDepth + 1);
+                    publishContent(childNode);
                 }
             }
         } else if (totalTriangleCount > 1) {
@@ -181,6 +182,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
                     } else {
                         createNode(childNode, childTileInfos, nodeDepth + 1);
                     }
+                    publishContent(childNode);
                 }
             }
         } else {
@@ -188,6 +190,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
             if (childNode != null) {
                 parentNode.getChildren().add(childNode);
                 createNode(childNode, tileInfos, nodeDepth + 1);
+                publishContent(childNode);
             }
         }
     }
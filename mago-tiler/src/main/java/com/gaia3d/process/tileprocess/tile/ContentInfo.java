@@ -15,6 +15,8 @@ import java.util.List;
 public class ContentInfo {
     private String name;
     private String nodeCode;
+    // output file name relative to the data directory, nodeCode when not set
+    private String contentPath;
     private LevelOfDetail lod;
     private List<TileInfo> tileInfos;
     private List<TileInfo> remainTileInfos;
@@ -22,6 +24,10 @@ public class ContentInfo {
     private GaiaSet batchedSet;
     private Matrix4d transformMatrix;
 
+    public String getContentName() {
+        return contentPath != null ? contentPath : nodeCode;
+    }
+
     public void deleteTexture() {
         for (TileInfo tileInfo : tileInfos) {
             GaiaSet set = tileInfo.getSet();
@@ -15,16 +15,33 @@ import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 public abstract class DefaultTiler {
+    private Consumer<ContentInfo> contentConsumer = null;
+
+    /**
+     * Receives the contents of the finished nodes while the tiling is in progress.
+     */
+    public void setContentConsumer(Consumer<ContentInfo> contentConsumer) {
+        this.contentConsumer = contentConsumer;
+    }
+
+    /**
+     * Hands the content of a node to the content consumer, once the subtree of the node is finished.
+     */
+    protected void publishContent(Node node) {
+        if (contentConsumer == null || node.getContent() == null || node.getContent().getContentInfo() == null) {
+            return;
+        }
+        contentConsumer.accept(node.getContent().getContentInfo());
+    }
 
     protected double calcGeometricError(List<TileInfo> tileInfos) {
         GlobalOptions globalOptions = GlobalOptions.getInstance();
@@ -123,11 +140,10 @@ public abstract class DefaultTiler {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        try {
+            TilesetStreamWriter tilesetStreamWriter = new TilesetStreamWriter(objectMapper, GlobalOptions.getInstance().getShardDepth());
+            tilesetStreamWriter.write(tileset, tilesetFile);
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            //globalOptions.setTilesetSize(result.length());
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
@@ -0,0 +1,504 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.ImplicitTiling;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Maps an explicit tile tree onto 3D Tiles 1.1 implicit tiling.
+ * Every content node is placed in the deepest cell of the uniform subdivision of the root region that contains it,
+ * the availability of the cells is written to binary subtree files and the contents are renamed to the template paths.
+ * The tileset.json then only holds the implicit root tile, whatever the size of the tree.
+ */
+@Slf4j
+public class ImplicitTilesetWriter {
+    private static final int MAXIMUM_LEVEL = 20;
+    private static final int MAXIMUM_CONTENT_LAYERS = 16;
+    // region values are cut to 1e-8, cells accept that much overhang
+    private static final double ROUNDING_EPSILON = 2e-8;
+    private static final int SUBTREE_MAGIC = 0x74627573; // "subt"
+    private static final int SUBTREE_VERSION = 1;
+    private static final String CONTENT_DIRECTORY = "data";
+    private static final String SUBTREE_DIRECTORY = "subtrees";
+
+    private final ImplicitTiling.SubdivisionScheme subdivisionScheme;
+    private final int subtreeLevels;
+    private final int bitsPerLevel;
+
+    private double[] rootRegion;
+
+    public ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme subdivisionScheme, int subtreeLevels) {
+        this.subdivisionScheme = subdivisionScheme;
+        this.bitsPerLevel = subdivisionScheme == ImplicitTiling.SubdivisionScheme.OCTREE ? 3 : 2;
+        if (subtreeLevels < 1 || subtreeLevels * bitsPerLevel > 30) {
+            throw new IllegalArgumentException("Invalid subtree levels : " + subtreeLevels);
+        }
+        this.subtreeLevels = subtreeLevels;
+    }
+
+    /**
+     * Writes the subtree files, renames the contents to the template paths and returns the implicit root tile.
+     * Returns null without touching anything when the tree can not be mapped, the tileset is then written explicitly.
+     */
+    public Node createImplicitRoot(Node root, File outputPath) throws IOException {
+        rootRegion = root.getBoundingVolume() != null ? root.getBoundingVolume().getRegion() : null;
+        if (rootRegion == null) {
+            log.warn("[WARN] Implicit tiling needs a region bounding volume on the root, writing explicit tileset.");
+            return null;
+        }
+
+        Placement placement = new Placement();
+        if (!place(root, true, -1, 0, placement, new CellSet())) {
+            return null;
+        }
+        if (placement.cells.isEmpty()) {
+            log.warn("[WARN] Implicit tiling found no content, writing explicit tileset.");
+            return null;
+        }
+
+        int maximumLevel = placement.cells.size() - 1;
+        List<Set<Long>> availableTiles = new ArrayList<>();
+        for (int level = 0; level <= maximumLevel; level++) {
+            availableTiles.add(new HashSet<>());
+        }
+        double rootGeometricError = 0.0d;
+        for (int level = 0; level <= maximumLevel; level++) {
+            for (Map.Entry<Long, List<Node>> entry : placement.cells.get(level).entrySet()) {
+                long morton = entry.getKey();
+                for (int parentLevel = level; parentLevel >= 0; parentLevel--) {
+                    if (!availableTiles.get(parentLevel).add(morton >> (long) bitsPerLevel * (level - parentLevel))) {
+                        break;
+                    }
+                }
+                List<Node> nodes = entry.getValue();
+                for (int layer = 0; layer < nodes.size(); layer++) {
+                    Node node = nodes.get(layer);
+                    rootGeometricError = Math.max(rootGeometricError, node.getGeometricError() * (1L << level));
+                    String contentPath = cellPath(level, morton) + (layer > 0 ? "_" + layer : "");
+                    node.getContent().getContentInfo().setContentPath(contentPath);
+                    node.getContent().setUri(CONTENT_DIRECTORY + "/" + contentPath + placement.extension);
+                }
+            }
+        }
+        if (rootGeometricError <= 0.0d) {
+            rootGeometricError = root.getGeometricError();
+        }
+
+        createContentDirectories(outputPath, availableTiles);
+        int subtreeCount = writeSubtrees(outputPath, placement, availableTiles);
+        log.info("[Tile][Tileset] implicit tiling : {} levels, {} content layers, {} subtree files.", maximumLevel + 1, placement.layers, subtreeCount);
+
+        Node implicitRoot = new Node();
+        implicitRoot.setBoundingVolume(root.getBoundingVolume());
+        implicitRoot.setGeometricError(rootGeometricError);
+        implicitRoot.setRefine(placement.refine);
+        implicitRoot.setTransform(root.getTransform());
+        if (placement.layers == 1) {
+            implicitRoot.setContent(createTemplateContent(0, placement.extension));
+        } else {
+            List<Content> contents = new ArrayList<>();
+            for (int layer = 0; layer < placement.layers; layer++) {
+                contents.add(createTemplateContent(layer, placement.extension));
+            }
+            implicitRoot.setContents(contents);
+        }
+
+        ImplicitTiling implicitTiling = new ImplicitTiling();
+        implicitTiling.setSubdivisionScheme(subdivisionScheme);
+        implicitTiling.setSubtreeLevels(subtreeLevels);
+        implicitTiling.setAvailableLevels(maximumLevel + 1);
+        ImplicitTiling.Subtrees subtrees = new ImplicitTiling.Subtrees();
+        subtrees.setUri(SUBTREE_DIRECTORY + "/" + templatePath() + ".subtree");
+        implicitTiling.setSubtrees(subtrees);
+        implicitRoot.setImplicitTiling(implicitTiling);
+        return implicitRoot;
+    }
+
+    /**
+     * Places the contents of the subtree of the node, the cells of its contents are added to the placed cells.
+     */
+    private boolean place(Node node, boolean isRoot, int parentLevel, long parentMorton, Placement placement, CellSet placedCells) {
+        if (!isRoot && node.getTransform() != null) {
+            log.warn("[WARN] Implicit tiling does not support tile transforms, writing explicit tileset.");
+            return false;
+        }
+
+        int level = parentLevel;
+        long morton = parentMorton;
+        Content content = node.getContent();
+        if (content != null) {
+            if (content.getContentInfo() == null || content.getUri() == null) {
+                log.warn("[WARN] Implicit tiling needs the content info of every content, writing explicit tileset.");
+                return false;
+            }
+            double[] region = node.getBoundingVolume() != null ? node.getBoundingVolume().getRegion() : null;
+            int cellLevel = region != null ? findLevel(region) : -1;
+            if (cellLevel < 0) {
+                log.warn("[WARN] Implicit tiling found a content outside of the root region ({}), writing explicit tileset.", node.getNodeCode());
+                return false;
+            }
+            long cellMorton = morton(region, cellLevel);
+
+            if (placement.refine == null) {
+                placement.refine = node.getRefine();
+            } else if (placement.refine != node.getRefine()) {
+                log.warn("[WARN] Implicit tiling does not support mixed refinement, writing explicit tileset.");
+                return false;
+            }
+
+            // a replaced content must be refined by cells strictly below its own cell
+            boolean belowParent = cellLevel > parentLevel && (cellMorton >> (long) bitsPerLevel * (cellLevel - parentLevel)) == parentMorton;
+            if (parentLevel >= 0 && placement.refine == Node.RefineType.REPLACE && !belowParent) {
+                log.warn("[WARN] Implicit tiling can not place the replacement of ({}), writing explicit tileset.", node.getNodeCode());
+                return false;
+            }
+
+            String uri = content.getUri();
+            String extension = uri.substring(uri.lastIndexOf('.'));
+            if (placement.extension == null) {
+                placement.extension = extension;
+            } else if (!placement.extension.equals(extension)) {
+                log.warn("[WARN] Implicit tiling does not support mixed content formats, writing explicit tileset.");
+                return false;
+            }
+
+            while (placement.cells.size() <= cellLevel) {
+                placement.cells.add(new HashMap<>());
+            }
+            List<Node> cellNodes = placement.cells.get(cellLevel).computeIfAbsent(cellMorton, k -> new ArrayList<>());
+            cellNodes.add(node);
+            placement.layers = Math.max(placement.layers, cellNodes.size());
+            if (placement.layers > MAXIMUM_CONTENT_LAYERS) {
+                log.warn("[WARN] Implicit tiling needs more than {} content layers, writing explicit tileset.", MAXIMUM_CONTENT_LAYERS);
+                return false;
+            }
+            level = cellLevel;
+            morton = cellMorton;
+            placedCells.add(cellLevel, cellMorton, bitsPerLevel);
+        }
+
+        List<Node> children = node.getChildren();
+        if (children != null) {
+            CellSet siblingCells = new CellSet();
+            for (Node child : children) {
+                CellSet childCells = new CellSet();
+                if (!place(child, false, level, morton, placement, childCells)) {
+                    return false;
+                }
+                // siblings are shown together, a sibling in a parent cell of another one would hide it until it refines
+                if (placement.refine == Node.RefineType.REPLACE && siblingCells.isNested(childCells, bitsPerLevel)) {
+                    log.warn("[WARN] Implicit tiling can not place the siblings of ({}) in separate cells, writing explicit tileset.", child.getNodeCode());
+                    return false;
+                }
+                siblingCells.addAll(childCells);
+            }
+            placedCells.addAll(siblingCells);
+        }
+        return true;
+    }
+
+    private int findLevel(double[] region) {
+        int result = -1;
+        for (int level = 0; level <= MAXIMUM_LEVEL; level++) {
+            for (int axis = 0; axis < 3; axis++) {
+                // a quadtree keeps the height range of the root on every level
+                int axisLevel = (axis == 2 && bitsPerLevel == 2) ? 0 : level;
+                if (!fits(region, axis, axisLevel)) {
+                    return result;
+                }
+            }
+            result = level;
+        }
+        return result;
+    }
+
+    private boolean fits(double[] region, int axis, int level) {
+        int minimumIndex = axis < 2 ? axis : 4;
+        int maximumIndex = axis < 2 ? axis + 2 : 5;
+        double minimum = rootRegion[minimumIndex];
+        double cellSize = (rootRegion[maximumIndex] - minimum) / (1L << level);
+        double tolerance = Math.min(cellSize / 8, ROUNDING_EPSILON);
+        if (cellSize <= 0) {
+            tolerance = ROUNDING_EPSILON;
+        }
+        long index = cellIndex(region, axis, level);
+        double cellMinimum = minimum + index * cellSize;
+        double cellMaximum = cellMinimum + cellSize;
+        return region[minimumIndex] >= cellMinimum - tolerance && region[maximumIndex] <= cellMaximum + tolerance;
+    }
+
+    private long cellIndex(double[] region, int axis, int level) {
+        int minimumIndex = axis < 2 ? axis : 4;
+        int maximumIndex = axis < 2 ? axis + 2 : 5;
+        double extent = rootRegion[maximumIndex] - rootRegion[minimumIndex];
+        if (extent <= 0) {
+            return 0;
+        }
+        long cellCount = 1L << level;
+        double center = (region[minimumIndex] + region[maximumIndex]) / 2;
+        long index = (long) Math.floor((center - rootRegion[minimumIndex]) / extent * cellCount);
+        return Math.max(0, Math.min(cellCount - 1, index));
+    }
+
+    private long morton(double[] region, int level) {
+        long morton = 0;
+        for (int axis = 0; axis < bitsPerLevel; axis++) {
+            long index = cellIndex(region, axis, level);
+            for (int bit = 0; bit < level; bit++) {
+                morton |= ((index >> bit) & 1L) << ((long) bit * bitsPerLevel + axis);
+            }
+        }
+        return morton;
+    }
+
+    private long[] coordinates(long morton, int level) {
+        long[] coordinates = new long[bitsPerLevel];
+        for (int axis = 0; axis < bitsPerLevel; axis++) {
+            for (int bit = 0; bit < level; bit++) {
+                coordinates[axis] |= ((morton >> ((long) bit * bitsPerLevel + axis)) & 1L) << bit;
+            }
+        }
+        return coordinates;
+    }
+
+    private String cellPath(int level, long morton) {
+        StringBuilder path = new StringBuilder().append(level);
+        for (long coordinate : coordinates(morton, level)) {
+            path.append('/').append(coordinate);
+        }
+        return path.toString();
+    }
+
+    private String templatePath() {
+        return bitsPerLevel == 3 ? "{level}/{x}/{y}/{z}" : "{level}/{x}/{y}";
+    }
+
+    private Content createTemplateContent(int layer, String extension) {
+        Content content = new Content();
+        content.setUri(CONTENT_DIRECTORY + "/" + templatePath() + (layer > 0 ? "_" + layer : "") + extension);
+        return content;
+    }
+
+    private void createContentDirectories(File outputPath, List<Set<Long>> availableTiles) throws IOException {
+        Path contentPath = outputPath.toPath().resolve(CONTENT_DIRECTORY);
+        Set<String> directories = new HashSet<>();
+        for (int level = 0; level < availableTiles.size(); level++) {
+            for (long morton : availableTiles.get(level)) {
+                String cellPath = cellPath(level, morton);
+                directories.add(cellPath.substring(0, cellPath.lastIndexOf('/')));
+            }
+        }
+        for (String directory : directories) {
+            Files.createDirectories(contentPath.resolve(directory));
+        }
+    }
+
+    private int writeSubtrees(File outputPath, Placement placement, List<Set<Long>> availableTiles) throws IOException {
+        int tileBitCount = levelOffset(subtreeLevels);
+        int childBitCount = 1 << (subtreeLevels * bitsPerLevel);
+
+        // subtrees keyed by the level and morton code of their root tile
+        List<Map<Long, Subtree>> subtrees = new ArrayList<>();
+        for (int level = 0; level < availableTiles.size(); level += subtreeLevels) {
+            Map<Long, Subtree> levelSubtrees = new HashMap<>();
+            for (long morton : availableTiles.get(level)) {
+                levelSubtrees.put(morton, new Subtree(tileBitCount, childBitCount, placement.layers));
+            }
+            subtrees.add(levelSubtrees);
+        }
+        for (int level = 0; level < availableTiles.size(); level++) {
+            int subtreeIndex = level / subtreeLevels;
+            int relativeLevel = level - subtreeIndex * subtreeLevels;
+            Map<Long, List<Node>> cells = level < placement.cells.size() ? placement.cells.get(level) : Collections.emptyMap();
+            for (long morton : availableTiles.get(level)) {
+                long localMorton = morton & ((1L << (long) bitsPerLevel * relativeLevel) - 1);
+                Subtree subtree = subtrees.get(subtreeIndex).get(morton >> (long) bitsPerLevel * relativeLevel);
+                int bitIndex = levelOffset(relativeLevel) + (int) localMorton;
+                subtree.tiles.set(bitIndex);
+                List<Node> nodes = cells.getOrDefault(morton, Collections.emptyList());
+                for (int layer = 0; layer < nodes.size(); layer++) {
+                    subtree.contents[layer].set(bitIndex);
+                }
+                if (relativeLevel == 0 && subtreeIndex > 0) {
+                    long parentLocalMorton = morton & ((long) childBitCount - 1);
+                    Subtree parent = subtrees.get(subtreeIndex - 1).get(morton >> (long) bitsPerLevel * subtreeLevels);
+                    parent.children.set((int) parentLocalMorton);
+                }
+            }
+        }
+
+        int count = 0;
+        Path subtreePath = outputPath.toPath().resolve(SUBTREE_DIRECTORY);
+        for (int subtreeIndex = 0; subtreeIndex < subtrees.size(); subtreeIndex++) {
+            int level = subtreeIndex * subtreeLevels;
+            for (Map.Entry<Long, Subtree> entry : subtrees.get(subtreeIndex).entrySet()) {
+                Path file = subtreePath.resolve(cellPath(level, entry.getKey()) + ".subtree");
+                Files.createDirectories(file.getParent());
+                Files.write(file, entry.getValue().toBinary(tileBitCount, childBitCount));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int levelOffset(int level) {
+        // (N^level - 1) / (N - 1) tiles above the level
+        int branching = 1 << bitsPerLevel;
+        return ((1 << (level * bitsPerLevel)) - 1) / (branching - 1);
+    }
+
+    private static class Placement {
+        private final List<Map<Long, List<Node>>> cells = new ArrayList<>();
+        private Node.RefineType refine;
+        private String extension;
+        private int layers = 0;
+    }
+
+    /**
+     * The cells of placed contents by level, with the cells above them.
+     */
+    private static class CellSet {
+        private final List<Set<Long>> cells = new ArrayList<>();
+        private final List<Set<Long>> parentCells = new ArrayList<>();
+
+        private void add(int level, long morton, int bitsPerLevel) {
+            levelSet(cells, level).add(morton);
+            for (int parentLevel = level - 1; parentLevel >= 0; parentLevel--) {
+                if (!levelSet(parentCells, parentLevel).add(morton >> (long) bitsPerLevel * (level - parentLevel))) {
+                    break;
+                }
+            }
+        }
+
+        private void addAll(CellSet other) {
+            for (int level = 0; level < other.cells.size(); level++) {
+                levelSet(cells, level).addAll(other.cells.get(level));
+            }
+            for (int level = 0; level < other.parentCells.size(); level++) {
+                levelSet(parentCells, level).addAll(other.parentCells.get(level));
+            }
+        }
+
+        /**
+         * Whether a cell of the other set is strictly above or below a cell of this set, the same cell is a content layer.
+         */
+        private boolean isNested(CellSet other, int bitsPerLevel) {
+            for (int level = 0; level < other.cells.size(); level++) {
+                for (long morton : other.cells.get(level)) {
+                    if (level < parentCells.size() && parentCells.get(level).contains(morton)) {
+                        return true;
+                    }
+                    for (int parentLevel = level - 1; parentLevel >= 0; parentLevel--) {
+                        long parentMorton = morton >> (long) bitsPerLevel * (level - parentLevel);
+                        if (parentLevel < cells.size() && cells.get(parentLevel).contains(parentMorton)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static Set<Long> levelSet(List<Set<Long>> sets, int level) {
+            while (sets.size() <= level) {
+                sets.add(new HashSet<>());
+            }
+            return sets.get(level);
+        }
+    }
+
+    private static class Subtree {
+        private final BitSet tiles;
+        private final BitSet[] contents;
+        private final BitSet children;
+
+        private Subtree(int tileBitCount, int childBitCount, int layers) {
+            this.tiles = new BitSet(tileBitCount);
+            this.contents = new BitSet[layers];
+            for (int layer = 0; layer < layers; layer++) {
+                this.contents[layer] = new BitSet(tileBitCount);
+            }
+            this.children = new BitSet(childBitCount);
+        }
+
+        private byte[] toBinary(int tileBitCount, int childBitCount) throws IOException {
+            ObjectMapper objectMapper = new ObjectMapper();
+            ObjectNode json = objectMapper.createObjectNode();
+            ArrayNode bufferViews = objectMapper.createArrayNode();
+            List<byte[]> bitstreams = new ArrayList<>();
+
+            json.set("tileAvailability", availability(objectMapper, tiles, tileBitCount, bufferViews, bitstreams));
+            ArrayNode contentAvailability = json.putArray("contentAvailability");
+            for (BitSet content : contents) {
+                contentAvailability.add(availability(objectMapper, content, tileBitCount, bufferViews, bitstreams));
+            }
+            json.set("childSubtreeAvailability", availability(objectMapper, children, childBitCount, bufferViews, bitstreams));
+
+            int binaryLength = 0;
+            for (byte[] bitstream : bitstreams) {
+                binaryLength += padding8(bitstream.length);
+            }
+            if (binaryLength > 0) {
+                json.putArray("buffers").addObject().put("byteLength", binaryLength);
+                json.set("bufferViews", bufferViews);
+            }
+
+            byte[] jsonBytes = objectMapper.writeValueAsString(json).getBytes(StandardCharsets.UTF_8);
+            int jsonLength = padding8(jsonBytes.length);
+            ByteBuffer buffer = ByteBuffer.allocate(24 + jsonLength + binaryLength).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(SUBTREE_MAGIC);
+            buffer.putInt(SUBTREE_VERSION);
+            buffer.putLong(jsonLength);
+            buffer.putLong(binaryLength);
+            buffer.put(jsonBytes);
+            for (int i = jsonBytes.length; i < jsonLength; i++) {
+                buffer.put((byte) ' ');
+            }
+            for (byte[] bitstream : bitstreams) {
+                buffer.put(bitstream);
+                buffer.position(buffer.position() + padding8(bitstream.length) - bitstream.length);
+            }
+            return buffer.array();
+        }
+
+        private ObjectNode availability(ObjectMapper objectMapper, BitSet bits, int bitCount, ArrayNode bufferViews, List<byte[]> bitstreams) {
+            ObjectNode availability = objectMapper.createObjectNode();
+            int cardinality = bits.cardinality();
+            if (cardinality == 0 || cardinality == bitCount) {
+                availability.put("constant", cardinality == 0 ? 0 : 1);
+                return availability;
+            }
+            int byteOffset = 0;
+            for (byte[] bitstream : bitstreams) {
+                byteOffset += padding8(bitstream.length);
+            }
+            // BitSet.toByteArray is little endian, bit i is bit (i % 8) of byte (i / 8)
+            byte[] bitstream = Arrays.copyOf(bits.toByteArray(), (bitCount + 7) / 8);
+            bufferViews.addObject()
+                    .put("buffer", 0)
+                    .put("byteOffset", byteOffset)
+                    .put("byteLength", bitstream.length);
+            availability.put("bitstream", bitstreams.size());
+            availability.put("availableCount", cardinality);
+            bitstreams.add(bitstream);
+            return availability;
+        }
+
+        private static int padding8(int length) {
+            return (length + 7) & ~7;
+        }
+    }
+}
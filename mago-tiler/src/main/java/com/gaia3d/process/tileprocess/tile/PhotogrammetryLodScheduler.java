@@ -0,0 +1,235 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.process.TaskScheduler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the levels of detail of the photogrammetry tiles on the task scheduler.
+ * A unit is one tile at one level of detail, the units of a tile run in the order of the levels,
+ * the next level of a tile starts as soon as the previous one is written, while the other tiles go on.
+ * The results are kept in the order of the tiles, as a sequential run.
+ * The units of a stage in tile order run one after the other in the order of the tiles,
+ * the units of a stage on the calling thread run in the thread of {@link #run()}, for the OpenGL context.
+ */
+@Slf4j
+public class PhotogrammetryLodScheduler {
+    private final TaskScheduler scheduler;
+    private final List<LodStage> stages = new ArrayList<>();
+    private final BlockingQueue<Runnable> callingThreadUnits = new LinkedBlockingQueue<>();
+    private final AtomicInteger completedUnits = new AtomicInteger();
+    private final AtomicReference<RuntimeException> callingThreadFailure = new AtomicReference<>();
+
+    public PhotogrammetryLodScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Processes one tile at one level of detail, and returns the tiles written for it.
+     */
+    @FunctionalInterface
+    public interface LodUnit {
+        List<TileInfo> process(TileInfo tileInfo) throws IOException;
+    }
+
+    /**
+     * Adds the next level of detail, with the tiles of this level in the same order as the other levels.
+     */
+    public void addStage(int lod, List<TileInfo> tileInfos, LodUnit unit) {
+        addStage(lod, tileInfos, false, false, unit);
+    }
+
+    /**
+     * Adds the next level of detail.
+     * @param inTileOrder whether the units of this level run one by one in the order of the tiles, when they share a state
+     * @param onCallingThread whether the units of this level run in the thread of {@link #run()}
+     */
+    public void addStage(int lod, List<TileInfo> tileInfos, boolean inTileOrder, boolean onCallingThread, LodUnit unit) {
+        if (!stages.isEmpty() && stages.get(0).tileInfos.size() != tileInfos.size()) {
+            throw new IllegalArgumentException("The stages must have the same tiles count.");
+        }
+        stages.add(new LodStage(lod, tileInfos, inTileOrder, onCallingThread, unit));
+    }
+
+    /**
+     * Runs all the units and waits for them.
+     * @return the tiles written by each stage, in the order of the stages
+     */
+    public List<List<TileInfo>> run() throws InterruptedException {
+        List<List<TileInfo>> results = new ArrayList<>();
+        if (stages.isEmpty()) {
+            return results;
+        }
+        int tileCount = stages.get(0).tileInfos.size();
+        int unitCount = stages.size() * tileCount;
+        TaskScheduler.Phase phase = scheduler.start("Photogrammetry", unitCount);
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+            readyUnit(phase, 0, tileIndex);
+        }
+        // the calling thread runs its units until all the units are done or a unit failed
+        while (completedUnits.get() < unitCount && !phase.isFailed() && callingThreadFailure.get() == null) {
+            Runnable callingThreadUnit = callingThreadUnits.poll(100, TimeUnit.MILLISECONDS);
+            if (callingThreadUnit != null) {
+                callingThreadUnit.run();
+            }
+        }
+        phase.await();
+        RuntimeException failure = callingThreadFailure.get();
+        if (failure != null) {
+            log.error("[ERROR][Scheduler][Photogrammetry] The phase is cancelled.", failure);
+            throw new RuntimeException(failure);
+        }
+
+        for (LodStage stage : stages) {
+            List<TileInfo> stageResult = new ArrayList<>();
+            for (List<TileInfo> tileResult : stage.results) {
+                if (tileResult != null) {
+                    stageResult.addAll(tileResult);
+                }
+            }
+            logTimings(stage);
+            results.add(stageResult);
+        }
+        return results;
+    }
+
+    /**
+     * The previous level of the tile is done, the unit starts now or after the previous tiles of a stage in tile order.
+     */
+    private void readyUnit(TaskScheduler.Phase phase, int stageIndex, int tileIndex) {
+        LodStage stage = stages.get(stageIndex);
+        if (!stage.inTileOrder) {
+            submitUnit(phase, stageIndex, tileIndex);
+            return;
+        }
+        synchronized (stage) {
+            stage.readyTiles[tileIndex] = true;
+        }
+        submitNextInTileOrder(phase, stageIndex);
+    }
+
+    private void submitNextInTileOrder(TaskScheduler.Phase phase, int stageIndex) {
+        LodStage stage = stages.get(stageIndex);
+        int tileIndex;
+        synchronized (stage) {
+            tileIndex = stage.nextTileIndex;
+            if (stage.running || tileIndex >= stage.readyTiles.length || !stage.readyTiles[tileIndex]) {
+                return;
+            }
+            stage.running = true;
+        }
+        submitUnit(phase, stageIndex, tileIndex);
+    }
+
+    private void submitUnit(TaskScheduler.Phase phase, int stageIndex, int tileIndex) {
+        LodStage stage = stages.get(stageIndex);
+        if (!stage.onCallingThread) {
+            phase.submit(() -> processUnit(phase, stageIndex, tileIndex));
+            return;
+        }
+        callingThreadUnits.add(() -> {
+            try {
+                processUnit(phase, stageIndex, tileIndex);
+            } catch (RuntimeException e) {
+                callingThreadFailure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void processUnit(TaskScheduler.Phase phase, int stageIndex, int tileIndex) {
+        LodStage stage = stages.get(stageIndex);
+        TileInfo tileInfo = stage.tileInfos.get(tileIndex);
+        long startTime = System.nanoTime();
+        List<TileInfo> result;
+        try {
+            result = stage.unit.process(tileInfo);
+        } catch (IOException e) {
+            log.error("[ERROR] :", e);
+            throw new RuntimeException(e);
+        }
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+        stage.results.set(tileIndex, result);
+        stage.elapsedMillis[tileIndex] = elapsedMillis;
+        completedUnits.incrementAndGet();
+        log.info("[Tile][Photogrammetry][lod{}][{}/{}] {} cut tiles in {}ms : {}", stage.lod, tileIndex + 1, stage.tileInfos.size(), result.size(), elapsedMillis, getTileName(tileInfo));
+        if (phase.isFailed() || callingThreadFailure.get() != null) {
+            return;
+        }
+
+        // the next level of this tile can start, its input does not depend on the other tiles
+        if (stageIndex + 1 < stages.size()) {
+            readyUnit(phase, stageIndex + 1, tileIndex);
+        }
+        if (stage.inTileOrder) {
+            synchronized (stage) {
+                stage.running = false;
+                stage.nextTileIndex = tileIndex + 1;
+            }
+            submitNextInTileOrder(phase, stageIndex);
+        }
+    }
+
+    /**
+     * Logs the time spent by the units of a level, the slowest unit shows the load imbalance.
+     */
+    private void logTimings(LodStage stage) {
+        int tileCount = stage.elapsedMillis.length;
+        if (tileCount == 0) {
+            return;
+        }
+        long totalMillis = 0;
+        long minMillis = Long.MAX_VALUE;
+        int slowestIndex = 0;
+        for (int i = 0; i < tileCount; i++) {
+            long elapsedMillis = stage.elapsedMillis[i];
+            totalMillis += elapsedMillis;
+            minMillis = Math.min(minMillis, elapsedMillis);
+            if (elapsedMillis > stage.elapsedMillis[slowestIndex]) {
+                slowestIndex = i;
+            }
+        }
+        log.info("[Tile][Photogrammetry][lod{}] {} units, total {}ms, min {}ms, avg {}ms, max {}ms : {}", stage.lod, tileCount, totalMillis, minMillis,
+                totalMillis / tileCount, stage.elapsedMillis[slowestIndex], getTileName(stage.tileInfos.get(slowestIndex)));
+    }
+
+    private String getTileName(TileInfo tileInfo) {
+        Path tempPath = tileInfo.getTempPath();
+        return tempPath != null ? tempPath.getFileName().toString() : "";
+    }
+
+    private static class LodStage {
+        private final int lod;
+        private final List<TileInfo> tileInfos;
+        private final boolean inTileOrder;
+        private final boolean onCallingThread;
+        private final LodUnit unit;
+        private final List<List<TileInfo>> results;
+        private final long[] elapsedMillis;
+        private final boolean[] readyTiles;
+        private int nextTileIndex = 0;
+        private boolean running = false;
+
+        private LodStage(int lod, List<TileInfo> tileInfos, boolean inTileOrder, boolean onCallingThread, LodUnit unit) {
+            this.lod = lod;
+            this.tileInfos = tileInfos;
+            this.inTileOrder = inTileOrder;
+            this.onCallingThread = onCallingThread;
+            this.unit = unit;
+            this.results = new ArrayList<>();
+            for (int i = 0; i < tileInfos.size(); i++) {
+                this.results.add(null);
+            }
+            this.elapsedMillis = new long[tileInfos.size()];
+            this.readyTiles = new boolean[tileInfos.size()];
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.gaia3d.process.tileprocess.tile;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.ExtensionModuleFrame;
 import com.gaia3d.TilerExtensionModule;
 import com.gaia3d.basic.exception.TileProcessingException;
 import com.gaia3d.basic.exchangable.GaiaSet;
@@ -21,13 +22,17 @@ import com.gaia3d.basic.types.TextureType;
 import com.gaia3d.command.mago.GlobalConstants;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.kml.TileTransformInfo;
+import com.gaia3d.process.TaskScheduler;
+import com.gaia3d.process.postprocess.batch.atlas.AtlasPacker;
 import com.gaia3d.process.tileprocess.Tiler;
+import com.gaia3d.process.tileprocess.tile.software.SoftwareExtensionModule;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
 import com.gaia3d.process.tileprocess.tile.tileset.TilesetV2;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.AssetV1;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.AssetV2;
 import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.ImplicitTiling;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
 import com.gaia3d.util.DecimalUtils;
 import com.gaia3d.util.GaiaSceneUtils;
@@ -46,14 +51,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @NoArgsConstructor
 public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
     public final GlobalOptions globalOptions = GlobalOptions.getInstance();
+    private int rendererThreadCount = 1;
 
     @Override
     public Tileset run(List<TileInfo> tileInfos) throws FileNotFoundException {
@@ -108,28 +114,20 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         root.setBoundingVolume(new BoundingVolume(globalBoundingBox, BoundingVolume.BoundingVolumeType.REGION));
         root.setTransformMatrix(transformMatrix, globalOptions.isClassicTransformMatrix());
 
-        /* Start lod 0 processes */
-        int lod = 0;
-        List<TileInfo> tileInfosCopy = this.getTileInfosCopy(tileInfos, lod, null);
-
-        int currDepth = projectMaxDepthIdx - lod;
-        Map<Node, List<TileInfo>> nodeTileInfoMap = new HashMap<>();
+        // the levels of detail of each tile are units of the scheduler, sized by the thread count
+        // the OpenGL window can only be created in this thread, so the OpenGL levels run here one by one
+        boolean openGlOnCallingThread = !globalOptions.getRenderer().equals("cpu");
+        TaskScheduler taskScheduler = TaskScheduler.getInstance();
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(taskScheduler);
+        rendererThreadCount = Math.max(1, taskScheduler.getParallelism() / Math.max(1, Math.min(taskScheduler.getParallelism(), tileInfos.size())));
 
-        List<TileInfo> cuttedTileInfos = new ArrayList<>();
-        cuttingAndScissorProcessST(tileInfosCopy, lod, root, cuttedTileInfos, projectMaxDepthIdx);
-
-        // distribute contents to node in the correspondent depth
-        // After a process "cutRectangleCake", in tileInfosCopy there are tileInfos that are cut by the boundary planes of the nodes
-        distributeContentsToNodesOctTree(root, cuttedTileInfos, currDepth, nodeTileInfoMap);
-        makeContentsForNodes(nodeTileInfoMap, lod);
+        /* Start lod 0 processes */
+        lodScheduler.addStage(0, this.getTileInfosCopy(tileInfos, 0, null), (tileInfo) -> cutTile(tileInfo, 0, root, projectMaxDepthIdx));
         /* End lod 0 processes */
 
-        DecimateParameters decimateParameters = new DecimateParameters();
         for (int d = 1; d <= projectMaxDepthIdx; d++) {
-            lod = d;
-            tileInfosCopy.clear();
-            nodeTileInfoMap.clear();
-            tileInfosCopy = this.getTileInfosCopy(tileInfos, lod, tileInfosCopy);
+            int lod = d;
+            DecimateParameters decimateParameters = new DecimateParameters();
             double screenPixelsForMeterLod1 = 22.0;
             double screenPixelsForMeter = 0.0;
             if (d == 1) {
@@ -155,10 +153,9 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
             }
 
             // decimate and cut scenes
-            currDepth = projectMaxDepthIdx - lod;
-            decimateAndCutScenes(tileInfosCopy, lod, root, projectMaxDepthIdx, decimateParameters, screenPixelsForMeter);
-            distributeContentsToNodesOctTree(root, tileInfosCopy, currDepth, nodeTileInfoMap);
-            makeContentsForNodes(nodeTileInfoMap, lod);
+            double lodScreenPixelsForMeter = screenPixelsForMeter;
+            lodScheduler.addStage(lod, this.getTileInfosCopy(tileInfos, lod, null), false, openGlOnCallingThread,
+                    (tileInfo) -> decimateAndCutScene(tileInfo, lod, root, projectMaxDepthIdx, decimateParameters, lodScreenPixelsForMeter));
 
             if (d >= 2) {
                 break;
@@ -167,15 +164,13 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
 
         // net surfaces with boxTextures
         for (int d = 3; d <= projectMaxDepthIdx; d++) {
-            lod = d;
-            currDepth = projectMaxDepthIdx - lod;
+            int lod = d;
+            int currDepth = projectMaxDepthIdx - lod;
             double boxSizeForCurrDepth = desiredDistanceBetweenLat / Math.pow(2, (currDepth + 1));
             double pixelsForMeter = 80.0 / boxSizeForCurrDepth;
-            tileInfosCopy.clear();
-            nodeTileInfoMap.clear();
-            tileInfosCopy = this.getTileInfosCopy(tileInfos, lod, tileInfosCopy);
             double screenPixelsForMeterLod1 = 22.0;
             double screenPixelsForMeter = 0.0;
+            DecimateParameters decimateParameters = new DecimateParameters();
             // public void setBasicValues(double maxDiffAngDegrees, double hedgeMinLength, double frontierMaxDiffAngDeg, double maxAspectRatio, int maxCollapsesCount)
             decimateParameters.setBasicValues(10.0, 0.5, 1.0, 6.0, 1000000, 1, 1.8);
             decimateParameters.setLod(3);
@@ -194,27 +189,45 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
             }
 
             // make netSurfaces and decimate and cut scenes
-            currDepth = projectMaxDepthIdx - lod;
-            reMeshAndCutScenes(tileInfosCopy, lod, root, projectMaxDepthIdx, decimateParameters, pixelsForMeter, screenPixelsForMeter);
-            distributeContentsToNodesOctTree(root, tileInfosCopy, currDepth, nodeTileInfoMap);
-            makeContentsForNodes(nodeTileInfoMap, lod);
+            // the tiles of a lod share the cell average positions, the first tile in order sets them as in a sequential run
+            double lodScreenPixelsForMeter = screenPixelsForMeter;
+            ReMeshParameters lodReMeshParams = createReMeshParameters(lod, root, projectMaxDepthIdx);
+            lodScheduler.addStage(lod, this.getTileInfosCopy(tileInfos, lod, null), true, openGlOnCallingThread,
+                    (tileInfo) -> reMeshAndCutScene(tileInfo, lod, root, projectMaxDepthIdx, lodReMeshParams, pixelsForMeter, lodScreenPixelsForMeter));
 
             if (d >= 5) {
                 break;
             }
         }
 
+        List<List<TileInfo>> lodTileInfos;
+        try {
+            lodTileInfos = lodScheduler.run();
+        } catch (InterruptedException e) {
+            log.error("[ERROR] :", e);
+            throw new RuntimeException(e);
+        }
+
+        // distribute contents to node in the correspondent depth, the stages are the levels of detail in order
+        // After a process "cutRectangleCake", in tileInfosCopy there are tileInfos that are cut by the boundary planes of the nodes
+        for (int lod = 0; lod < lodTileInfos.size(); lod++) {
+            Map<Node, List<TileInfo>> nodeTileInfoMap = new HashMap<>();
+            distributeContentsToNodesOctTree(root, lodTileInfos.get(lod), projectMaxDepthIdx - lod, nodeTileInfoMap);
+            makeContentsForNodes(nodeTileInfoMap, lod);
+        }
+
         // Check if is necessary netSurfaces nodes
         double maxDiffAngDeg = 20.0;
         double hedgeMinLength = 1.5;
         hedgeMinLength = 0.1;
         double frontierMaxDiffAngDeg = 1.0;
         double maxAspectRatio = 15.0;
+        DecimateParameters decimateParameters = new DecimateParameters();
         decimateParameters.setBasicValues(maxDiffAngDeg, hedgeMinLength, frontierMaxDiffAngDeg, maxAspectRatio, 1000000, 20, 1.8);
-        lod = 6;
+        decimateParameters.setLod(3);
+        int lod = 6;
         for (int depth = projectMaxDepthIdx - lod; depth >= 0; depth--) {
-            tileInfosCopy.clear();
-            tileInfosCopy = this.getTileInfosCopy(tileInfos, 0, tileInfosCopy);
+            List<TileInfo> tileInfosCopy = this.getTileInfosCopy(tileInfos, 0, null);
             createNetSurfaceNodes(root, tileInfosCopy, depth, projectMaxDepthIdx, decimateParameters);
         }
 
@@ -239,89 +252,21 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         return tileset;
     }
 
-    private void cuttingAndScissorProcessST(List<TileInfo> tileInfos, int lod, Node rootNode, List<TileInfo> resultTileInfos, int maxDepth) {
-        // Single-threading
-        List<TileInfo> finalTileInfosCopy = new ArrayList<>();
-        Map<Integer, List<TileInfo>> tileInfoListMap = new ConcurrentHashMap<>();
-        log.info("Cutting and Scissor process is started. Total tileInfos : {}", tileInfos.size());
-
-        int counter = 0;
-        for (TileInfo tileInfo : tileInfos) {
-            log.info("CutRectangleCake : " + counter + " / " + tileInfos.size());
-            BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
-            BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
-
-            List<TileInfo> singleTileInfoList = new ArrayList<>();
-            singleTileInfoList.add(tileInfo);
-            String tileInfoName = tileInfo.getTempPath().getFileName().toString();
-            log.info("[Tile][PhotoRealistic][{}/{}] - Cut RectangleCake one shoot... : {}", tileInfos.size(), tileInfoName);
-
-            List<TileInfo> resultTileInfoList = new ArrayList<>();
-            try {
-                cutRectangleCakeOneShoot(singleTileInfoList, lod, rootNodeBoundingVolumeCopy, maxDepth, resultTileInfoList);
-            } catch (Exception e) {
-                log.error("[ERROR] :", e);
-                throw new RuntimeException(e);
-            }
-
-            resultTileInfos.addAll(resultTileInfoList);
-            counter++;
-        }
-    }
-
-    private void cuttingAndScissorProcessMT(List<TileInfo> tileInfos, int lod, Node rootNode, List<TileInfo> resultTileInfos, int maxDepth) {
-        // multi-threading
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
-        List<TileInfo> finalTileInfosCopy = new ArrayList<>();
-        List<List<TileInfo>> tileInfoListList = new ArrayList<>();
-
-        // make an asynchronous arrayList
-        Map<Integer, List<TileInfo>> tileInfoListMap = new ConcurrentHashMap<>();
-
-        log.info("Cutting and Scissor process is started. Total tileInfos : {}", tileInfos.size());
-
-        int tileInfosCount = tileInfos.size();
-        AtomicInteger atomicProcessCount = new AtomicInteger(0);
-        int counter = 0;
-        for (TileInfo tileInfo : tileInfos) {
-            List<TileInfo> resultTileInfoList = tileInfoListMap.computeIfAbsent(counter, k -> new ArrayList<>());
-            BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
-            BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
-            counter++;
-
-            Runnable callableTask = () -> {
-                try {
-                    List<TileInfo> singleTileInfoList = new ArrayList<>();
-                    singleTileInfoList.add(tileInfo);
-                    String tileInfoName = tileInfo.getTempPath().getFileName().toString();
-
-                    int processCount = atomicProcessCount.incrementAndGet();
-                    log.info("[Tile][PhotoRealistic][{}/{}] Generating tile : {}", processCount, tileInfosCount, tileInfoName);
-                    log.info("[Tile][PhotoRealistic][{}/{}] - Cut RectangleCake one shoot... : {}", processCount, tileInfosCount, tileInfoName);
-                    cutRectangleCakeOneShoot(singleTileInfoList, lod, rootNodeBoundingVolumeCopy, maxDepth, resultTileInfoList);
-
-                    //tileInfoListList.add(cuttedTileInfoList);
-                } catch (IOException e) {
-                    log.error("[ERROR] ", e);
-                    throw new RuntimeException(e);
-                }
-            };
-            tasks.add(callableTask);
-        }
-
-        try {
-            executeThread(executorService, tasks);
-        } catch (InterruptedException e) {
-            log.error("[ERROR] ", e);
-            throw new RuntimeException(e);
-        }
-
-        // use map.
-        tileInfoListMap.forEach((k, v) -> {
-            finalTileInfosCopy.addAll(v);
-        });
-
+    /**
+     * Cuts and scissors one tile by the nodes of the lod, the unit of the lod 0.
+     */
+    private List<TileInfo> cutTile(TileInfo tileInfo, int lod, Node rootNode, int maxDepth) throws FileNotFoundException {
+        BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
+        BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
+
+        List<TileInfo> singleTileInfoList = new ArrayList<>();
+        singleTileInfoList.add(tileInfo);
+        String tileInfoName = tileInfo.getTempPath().getFileName().toString();
+        log.info("[Tile][PhotoRealistic] - Cut RectangleCake one shoot... : {}", tileInfoName);
+
+        List<TileInfo> resultTileInfoList = new ArrayList<>();
+        cutRectangleCakeOneShoot(singleTileInfoList, lod, rootNodeBoundingVolumeCopy, maxDepth, resultTileInfoList);
+        return resultTileInfoList;
     }
 
     private void setGeometryErrorToNodeManual(Node node, int maxDepth) {
@@ -376,25 +321,13 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         }
     }
 
-    public void reMeshAndCutScenes(List<TileInfo> tileInfos, int lod, Node rootNode, int maxDepth, DecimateParameters decimateParameters,
-                                   double pixelsForMeter, double screenPixelsForMeter) {
-        log.info("ReMeshing and cutting scenes for lod : " + lod);
-        TilerExtensionModule tilerExtensionModule = new TilerExtensionModule();
-        List<GaiaScene> gaiaSceneList = new ArrayList<>();
-        List<HalfEdgeScene> resultReMeshedScenes = new ArrayList<>();
-
-        List<TileInfo> newTileInfos = new ArrayList<>();
-
-        double voxelSizeMeter = 1.0;
-        double texturePixelSize = 1.0;
-        double texturePixelsForMeter = 4.0;
-
+    /**
+     * The settings of the vertex clustering for a lod, the cell average positions are shared by the tiles of the lod,
+     * so the tiles are welded at their borders, the tiles of the lod are re-meshed in the order of the tiles.
+     */
+    private ReMeshParameters createReMeshParameters(int lod, Node rootNode, int maxDepth) {
         // dcLibrary scale 0.01 settings.***
         GaiaBoundingBox nodeBBoxLC = rootNode.calculateLocalBoundingBox();
-        Matrix4d rootTransformMatrix = getNodeTransformMatrix(rootNode);
-        Matrix4d rootTransformMatrixInverse = new Matrix4d(rootTransformMatrix);
-        rootTransformMatrixInverse.invert();
-
         double maxSize = nodeBBoxLC.getMaxSize();
         // the maxSize is for rootNode that has maxDepth.***
         // so, the maxSize rof lod is maxSize / Math.pow(2, maxDepth - lod);
@@ -403,9 +336,9 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         }
 
         // ifc round bridge settings.***
-        voxelSizeMeter = maxSize / 40.0;
-        texturePixelSize = maxSize / 512.0;
-        texturePixelsForMeter = 1.0 / texturePixelSize;
+        double voxelSizeMeter = maxSize / 40.0;
+        double texturePixelSize = maxSize / 512.0;
+        double texturePixelsForMeter = 1.0 / texturePixelSize;
 
         // Re mesh by vertex clustering.***************************************************************************
         Vector3d cellGridOrigin = new Vector3d();
@@ -414,161 +347,191 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         ReMeshParameters reMeshParams = new ReMeshParameters();
         reMeshParams.setTexturePixelsForMeter(texturePixelsForMeter);
         reMeshParams.setCellGrid(cellGrid);
+        reMeshParams.setCellAveragePositions(new ConcurrentHashMap<>());
+        return reMeshParams;
+    }
 
-        int totalTexturesSaved = 0;
+    /**
+     * Re-meshes one tile and cuts it by the nodes of the lod, the unit of the lods with net surfaces.
+     */
+    public List<TileInfo> reMeshAndCutScene(TileInfo tileInfo, int lod, Node rootNode, int maxDepth, ReMeshParameters lodReMeshParams,
+                                            double pixelsForMeter, double screenPixelsForMeter) {
+        List<TileInfo> newTileInfos = new ArrayList<>();
+        Path tempPath = tileInfo.getTempPath();
+        GaiaBoundingBox cartographicBBox = tileInfo.getCartographicBBox();
+        if (cartographicBBox == null) {
+            log.error("[ERROR] cartographicBBox is null.");
+            return newTileInfos;
+        }
 
-        int tileInfosCount = tileInfos.size();
-        for (int i = 0; i < tileInfosCount; i++) {
-            log.info("ReMeshing and cutting scene : " + i + " of " + tileInfosCount + " for lod : " + lod);
-            TileInfo tileInfo = tileInfos.get(i);
-            Path tempPath = tileInfo.getTempPath();
-            Path tempFolder = tempPath.getParent();
-            GaiaBoundingBox cartographicBBox = tileInfo.getCartographicBBox();
-            if (cartographicBBox == null) {
-                log.error("[ERROR] cartographicBBox is null.");
-                continue;
-            }
+        Matrix4d rootTransformMatrix = getNodeTransformMatrix(rootNode);
+        Matrix4d rootTransformMatrixInverse = new Matrix4d(rootTransformMatrix);
+        rootTransformMatrixInverse.invert();
 
-            //Vector3d geoCoordCenter = tileInfo.getKmlInfo().getPosition(); // original.***
-            Vector3d geoCoordCenter = tileInfo.getTileTransformInfo().getPosition(); // use TileTransformInfo position instead of KmlInfo position
-            Vector3d scenePosWC = GlobeUtils.geographicToCartesianWgs84(geoCoordCenter);
-            Vector4d scenePosLC4d = new Vector4d(scenePosWC.x, scenePosWC.y, scenePosWC.z, 1.0);
-            scenePosLC4d = rootTransformMatrixInverse.transform(scenePosLC4d);
-            Vector3d scenePosLC = new Vector3d(scenePosLC4d.x, scenePosLC4d.y, scenePosLC4d.z);
-            reMeshParams.setScenePositionRelToCellGrid(scenePosLC);
+        //Vector3d geoCoordCenter = tileInfo.getKmlInfo().getPosition(); // original.***
+        Vector3d geoCoordCenter = tileInfo.getTileTransformInfo().getPosition(); // use TileTransformInfo position instead of KmlInfo position
+        Vector3d scenePosWC = GlobeUtils.geographicToCartesianWgs84(geoCoordCenter);
+        Vector4d scenePosLC4d = new Vector4d(scenePosWC.x, scenePosWC.y, scenePosWC.z, 1.0);
+        scenePosLC4d = rootTransformMatrixInverse.transform(scenePosLC4d);
+        Vector3d scenePosLC = new Vector3d(scenePosLC4d.x, scenePosLC4d.y, scenePosLC4d.z);
 
-            // load the file
-            GaiaSet gaiaSet;
-            try {
-                gaiaSet = GaiaSet.readFile(tempPath);
-                if (gaiaSet == null) {
-                    log.error("[ERROR] gaiaSet is null. path : " + tempPath);
-                    continue;
-                }
-            } catch (IOException e) {
-                log.error("[ERROR] :", e);
-                throw new RuntimeException(e);
+        // the scene position is of this tile, the cell grid and the cell average positions are of the lod
+        ReMeshParameters reMeshParams = new ReMeshParameters();
+        reMeshParams.setTexturePixelsForMeter(lodReMeshParams.getTexturePixelsForMeter());
+        reMeshParams.setCellGrid(lodReMeshParams.getCellGrid());
+        reMeshParams.setCellAveragePositions(lodReMeshParams.getCellAveragePositions());
+        reMeshParams.setScenePositionRelToCellGrid(scenePosLC);
+
+        // load the file
+        GaiaSet gaiaSet;
+        try {
+            gaiaSet = GaiaSet.readFile(tempPath);
+            if (gaiaSet == null) {
+                log.error("[ERROR] gaiaSet is null. path : " + tempPath);
+                return newTileInfos;
             }
-            GaiaScene scene = new GaiaScene(gaiaSet);
-            scene.setOriginalPath(tileInfo.getTempPath());
-            scene.makeTriangleFaces();
+        } catch (IOException e) {
+            log.error("[ERROR] :", e);
+            throw new RuntimeException(e);
+        }
+        GaiaScene scene = new GaiaScene(gaiaSet);
+        scene.setOriginalPath(tileInfo.getTempPath());
+        scene.makeTriangleFaces();
 
-            gaiaSceneList.clear();
-            gaiaSceneList.add(scene);
-            resultReMeshedScenes.clear();
+        List<GaiaScene> gaiaSceneList = new ArrayList<>();
+        gaiaSceneList.add(scene);
+        List<HalfEdgeScene> resultReMeshedScenes = new ArrayList<>();
 
-            List<GaiaAAPlane> cuttingPlanes = new ArrayList<>();
-            Matrix4d transformMatrix = new Matrix4d();
-            HalfEdgeOctree halfEdgeOctree = null;
-            try {
-                BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
-                halfEdgeOctree = this.getCuttingPlanesAndHalfEdgeOctree(tileInfo, lod, rootNodeBoundingVolume, maxDepth, cuttingPlanes, transformMatrix);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException(e);
-            }
+        List<GaiaAAPlane> cuttingPlanes = new ArrayList<>();
+        Matrix4d transformMatrix = new Matrix4d();
+        HalfEdgeOctree halfEdgeOctree = null;
+        try {
+            BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
+            BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
+            halfEdgeOctree = this.getCuttingPlanesAndHalfEdgeOctree(tileInfo, lod, rootNodeBoundingVolumeCopy, maxDepth, cuttingPlanes, transformMatrix);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
 
-            GaiaBoundingBox motherBBoxLC = new GaiaBoundingBox();
-            GaiaBoundingBox motherCartographicBoundingBox = this.calculateCartographicBoundingBox(scene, transformMatrix, motherBBoxLC);
+        GaiaBoundingBox motherBBoxLC = new GaiaBoundingBox();
+        GaiaBoundingBox motherCartographicBoundingBox = this.calculateCartographicBoundingBox(scene, transformMatrix, motherBBoxLC);
 
-            boolean makeSkirt = GlobalConstants.MAKE_SKIRT;
-            tilerExtensionModule.reMeshAndCutByObliqueCamera(gaiaSceneList, resultReMeshedScenes, reMeshParams, halfEdgeOctree, cuttingPlanes,
-                    pixelsForMeter, screenPixelsForMeter, makeSkirt);
+        boolean makeSkirt = GlobalConstants.MAKE_SKIRT;
+        HalfEdgeOctree finalHalfEdgeOctree = halfEdgeOctree;
+        runExtensionModule((tilerExtensionModule) -> tilerExtensionModule.reMeshAndCutByObliqueCamera(gaiaSceneList, resultReMeshedScenes, reMeshParams,
+                finalHalfEdgeOctree, cuttingPlanes, pixelsForMeter, screenPixelsForMeter, makeSkirt));
 
-            if (resultReMeshedScenes.isEmpty()) {
-                log.error("[ERROR] resultReMeshedScenes is empty." + tempPath);
-                continue;
-            }
+        if (resultReMeshedScenes.isEmpty()) {
+            log.error("[ERROR] resultReMeshedScenes is empty." + tempPath);
+            return newTileInfos;
+        }
 
-            // create tileInfos for the cut scenes
-            String outputPathString = globalOptions.getOutputPath();
-            String cutTempPathString = outputPathString + File.separator + "temp" + File.separator + "cutTemp";
-            Path cutTempPath = Paths.get(cutTempPathString);
-            // create directory if not exists
-            if (!cutTempPath.toFile().exists() && cutTempPath.toFile().mkdirs()) {
-                log.debug("cutTemp folder created.");
-            }
+        writeCutScenes(resultReMeshedScenes, tileInfo, lod, transformMatrix, motherCartographicBoundingBox, newTileInfos);
+        return newTileInfos;
+    }
 
-            Path cutTempLodPath = cutTempPath.resolve("lod" + lod);
-            if (!cutTempLodPath.toFile().exists() && cutTempLodPath.toFile().mkdirs()) {
-                log.debug("cutTempLod folder created.");
-            }
+    /**
+     * Writes the cut scenes of a tile and their atlas textures into the cutTemp folder of the lod.
+     * @param motherCartographicBoundingBox the bounds the cut scenes must be in, or null to skip the check
+     */
+    private void writeCutScenes(List<HalfEdgeScene> cutScenes, TileInfo motherTileInfo, int lod, Matrix4d transformMatrix,
+                                GaiaBoundingBox motherCartographicBoundingBox, List<TileInfo> resultTileInfos) {
+        // create tileInfos for the cut scenes
+        String outputPathString = globalOptions.getOutputPath();
+        String cutTempPathString = outputPathString + File.separator + "temp" + File.separator + "cutTemp";
+        Path cutTempPath = Paths.get(cutTempPathString);
+        // create directory if not exists
+        if (!cutTempPath.toFile().exists() && cutTempPath.toFile().mkdirs()) {
+            log.debug("cutTemp folder created.");
+        }
 
+        Path cutTempLodPath = cutTempPath.resolve("lod" + lod);
+        if (!cutTempLodPath.toFile().exists() && cutTempLodPath.toFile().mkdirs()) {
+            log.debug("cutTempLod folder created.");
+        }
 
-            int resultDecimatedScenesCount = resultReMeshedScenes.size();
-            for (int j = 0; j < resultDecimatedScenesCount; j++) {
-                HalfEdgeScene halfEdgeSceneLod = resultReMeshedScenes.get(j);
-                GaiaBoundingBox boundingBoxCutLC = new GaiaBoundingBox();
-                GaiaScene gaiaSceneCut = HalfEdgeUtils.gaiaSceneFromHalfEdgeScene(halfEdgeSceneLod);
-                GaiaBoundingBox cartographicBoundingBox = this.calculateCartographicBoundingBox(gaiaSceneCut, transformMatrix, boundingBoxCutLC);
+        for (HalfEdgeScene halfEdgeSceneLod : cutScenes) {
+            int halfEdgeFacesCount = halfEdgeSceneLod.getFacesCount();
 
-                if (motherCartographicBoundingBox.getMaxZ() < cartographicBoundingBox.getMaxZ()) {
-                    log.error("[ERROR] motherCartographicBoundingBox does not intersect with cartographicBoundingBox.");
-                }
+            GaiaBoundingBox boundingBoxCutLC = new GaiaBoundingBox();
+            GaiaScene gaiaSceneCut = HalfEdgeUtils.gaiaSceneFromHalfEdgeScene(halfEdgeSceneLod);
 
-                GaiaSet gaiaSetCut = GaiaSet.fromGaiaScene(gaiaSceneCut);
+            int gaiaSceneFacesCount = gaiaSceneCut.getFacesCount();
 
-                LevelOfDetail levelOfDetail = LevelOfDetail.getByLevel(lod);
-                float scale = levelOfDetail.getTextureScale();
+            if (halfEdgeFacesCount != gaiaSceneFacesCount) {
+                log.error("[ERROR] halfEdgeFacesCount is different from gaiaSceneFacesCount.");
+            }
 
-                Path cutScenePath = Paths.get("");
-                gaiaSceneCut.setOriginalPath(cutScenePath);
+            GaiaBoundingBox cartographicBoundingBox = this.calculateCartographicBoundingBox(gaiaSceneCut, transformMatrix, boundingBoxCutLC);
+            if (motherCartographicBoundingBox != null && motherCartographicBoundingBox.getMaxZ() < cartographicBoundingBox.getMaxZ()) {
+                log.error("[ERROR] motherCartographicBoundingBox does not intersect with cartographicBoundingBox.");
+            }
+            GaiaSet gaiaSetCut = GaiaSet.fromGaiaScene(gaiaSceneCut);
 
-                UUID identifier = UUID.randomUUID();
-                Path gaiaSetCutFolderPath = cutTempLodPath.resolve(identifier.toString());
-                if (!gaiaSetCutFolderPath.toFile().exists() && gaiaSetCutFolderPath.toFile().mkdirs()) {
-                    log.debug("gaiaSetCut folder created.");
-                }
-                boolean copyTexturesToNewPath = false;
-                Path tempPathLod = gaiaSetCut.writeFileForPR(gaiaSetCutFolderPath, copyTexturesToNewPath);
-
-                // save material atlas textures
-                Path parentPath = gaiaSetCutFolderPath;
-                Path imagesPath = parentPath.resolve("images");
-                // make directories if not exists
-                File imagesFolder = imagesPath.toFile();
-                if (!imagesFolder.exists() && imagesFolder.mkdirs()) {
-                    log.debug("images folder created.");
-                }
-                List<GaiaMaterial> materials = halfEdgeSceneLod.getMaterials();
-                for (GaiaMaterial material : materials) {
-                    List<GaiaTexture> textures = material.getTextures().get(TextureType.DIFFUSE);
-                    for (GaiaTexture texture : textures) {
-                        // check if exist bufferedImage of the texture
-
-                        if (texture.getBufferedImage() == null) {
-                            int hola = 0;
-                        }
-
-                        texture.setParentPath(imagesPath.toString());
-                        texture.saveImage(texture.getFullPath());
-                        totalTexturesSaved++;
-                    }
+            Path cutScenePath = Paths.get("");
+            gaiaSceneCut.setOriginalPath(cutScenePath);
+
+            UUID identifier = UUID.randomUUID();
+            Path gaiaSetCutFolderPath = cutTempLodPath.resolve(identifier.toString());
+            if (!gaiaSetCutFolderPath.toFile().exists() && gaiaSetCutFolderPath.toFile().mkdirs()) {
+                log.debug("gaiaSetCut folder created.");
+            }
+            boolean copyTexturesToNewPath = false;
+            Path tempPathLod = gaiaSetCut.writeFileForPR(gaiaSetCutFolderPath, copyTexturesToNewPath);
+
+            // save material atlas textures
+            Path parentPath = gaiaSetCutFolderPath;
+            Path imagesPath = parentPath.resolve("images");
+            // make directories if not exists
+            File imagesFolder = imagesPath.toFile();
+            if (!imagesFolder.exists() && imagesFolder.mkdirs()) {
+                log.debug("images folder created.");
+            }
+            List<GaiaMaterial> materials = halfEdgeSceneLod.getMaterials();
+            for (GaiaMaterial material : materials) {
+                List<GaiaTexture> textures = material.getTextures().get(TextureType.DIFFUSE);
+                for (GaiaTexture texture : textures) {
+                    texture.setParentPath(imagesPath.toString());
+                    texture.saveImage(texture.getFullPath());
                 }
+            }
 
-                // now can delete the halfEdgeScene
-                halfEdgeSceneLod.deleteObjects();
+            // now can delete the halfEdgeScene
+            halfEdgeSceneLod.deleteObjects();
 
-                // delete the contents of the gaiaSceneCut*********************************************
-                gaiaSceneCut.getNodes().forEach(GaiaNode::clear);
-                // end delete the contents of the gaiaSceneCut.--------------------------------------------
+            // delete the contents of the gaiaSceneCut*********************************************
+            gaiaSceneCut.getNodes().forEach(GaiaNode::clear);
+            // end delete the contents of the gaiaSceneCut.--------------------------------------------
 
-                TileInfo newTileInfo = TileInfo.builder().scene(gaiaSceneCut).outputPath(tempPathLod).build();
-                newTileInfo.setTransformMatrix(new Matrix4d(transformMatrix));
-                newTileInfo.setBoundingBox(boundingBoxCutLC);
-                newTileInfo.setCartographicBBox(cartographicBoundingBox);
+            TileInfo newTileInfo = TileInfo.builder().scene(gaiaSceneCut).outputPath(tempPathLod).build();
+            newTileInfo.setTransformMatrix(new Matrix4d(transformMatrix));
+            newTileInfo.setBoundingBox(boundingBoxCutLC);
+            newTileInfo.setCartographicBBox(cartographicBoundingBox);
 
-                TileTransformInfo kmlInfoCut = TileTransformInfo.builder().position(tileInfo.getTileTransformInfo().getPosition()).build();
-                newTileInfo.setTileTransformInfo(kmlInfoCut);
+            TileTransformInfo tileTransformInfoCut = TileTransformInfo.builder().position(motherTileInfo.getTileTransformInfo().getPosition()).build();
+            newTileInfo.setTileTransformInfo(tileTransformInfoCut);
 
-                newTileInfo.setTempPath(tempPathLod);
-                newTileInfos.add(newTileInfo);
-            }
+            newTileInfo.setTempPath(tempPathLod);
+            resultTileInfos.add(newTileInfo);
         }
+    }
 
-        log.info("Total textures saved: " + totalTexturesSaved);
+    /**
+     * The OpenGL extension module, or the software renderer when the cpu renderer is selected.
+     */
+    private ExtensionModuleFrame createExtensionModule(int threadCount) {
+        if (globalOptions.getRenderer().equals("cpu")) {
+            return new SoftwareExtensionModule(threadCount, AtlasPacker.create(globalOptions.getAtlasPacker()));
+        }
+        return new TilerExtensionModule();
+    }
 
-        tileInfos.clear();
-        tileInfos.addAll(newTileInfos);
+    /**
+     * Runs an operation of a new extension module for a unit of the lod scheduler.
+     * The OpenGL units run in the thread of the lod scheduler caller, the software renderer units in the pool.
+     */
+    private void runExtensionModule(Consumer<ExtensionModuleFrame> operation) {
+        operation.accept(createExtensionModule(rendererThreadCount));
     }
 
     private Matrix4d getNodeTransformMatrix(Node node) {
@@ -582,148 +545,56 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         return nodeTMatrix;
     }
 
-    public void decimateAndCutScenes(List<TileInfo> tileInfos, int lod, Node rootNode, int maxDepth, DecimateParameters decimateParameters, double screenPixelsForMeter) {
-        log.info("Decimating and cutting scenes for lod : " + lod);
-        TilerExtensionModule tilerExtensionModule = new TilerExtensionModule();
-        List<GaiaScene> gaiaSceneList = new ArrayList<>();
-        List<HalfEdgeScene> resultDecimatedScenes = new ArrayList<>();
-
+    /**
+     * Decimates one tile and cuts it by the nodes of the lod, the unit of the decimated lods.
+     */
+    public List<TileInfo> decimateAndCutScene(TileInfo tileInfo, int lod, Node rootNode, int maxDepth, DecimateParameters decimateParameters, double screenPixelsForMeter) {
         List<TileInfo> newTileInfos = new ArrayList<>();
+        Path tempPath = tileInfo.getTempPath();
 
-        int tileInfosCount = tileInfos.size();
-        for (int i = 0; i < tileInfosCount; i++) {
-            log.info("Decimating and cutting scene : " + (i + 1) + " of " + tileInfosCount + " for lod : " + lod);
-            TileInfo tileInfo = tileInfos.get(i);
-            Path tempPath = tileInfo.getTempPath();
-            Path tempFolder = tempPath.getParent();
-
-            // load the file
-            GaiaSet gaiaSet;
-            try {
-                gaiaSet = GaiaSet.readFile(tempPath);
-                if (gaiaSet == null) {
-                    log.error("[ERROR] gaiaSet is null. pth : " + tempPath);
-                    continue;
-                }
-            } catch (IOException e) {
-                log.error("[ERROR] :", e);
-                throw new RuntimeException(e);
-            }
-            GaiaScene scene = new GaiaScene(gaiaSet);
-            scene.setOriginalPath(tileInfo.getTempPath());
-            scene.makeTriangleFaces();
-
-            gaiaSceneList.clear();
-            resultDecimatedScenes.clear();
-            gaiaSceneList.add(scene);
-
-            List<GaiaAAPlane> cuttingPlanes = new ArrayList<>();
-            Matrix4d transformMatrix = new Matrix4d();
-            HalfEdgeOctree halfEdgeOctree = null;
-            try {
-                BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
-                BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
-                halfEdgeOctree = this.getCuttingPlanesAndHalfEdgeOctree(tileInfo, lod, rootNodeBoundingVolumeCopy, maxDepth, cuttingPlanes, transformMatrix);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException(e);
-            }
-
-            boolean makeSkirt = GlobalConstants.MAKE_SKIRT;
-            tilerExtensionModule.decimateAndCutByObliqueCamera(gaiaSceneList, resultDecimatedScenes, decimateParameters, halfEdgeOctree, cuttingPlanes, screenPixelsForMeter, makeSkirt);
-
-            if (resultDecimatedScenes.isEmpty()) {
-                log.error("[ERROR] resultDecimatedScenes is empty." + tempPath);
-                continue;
-            }
-
-            // create tileInfos for the cut scenes
-            String outputPathString = globalOptions.getOutputPath();
-            String cutTempPathString = outputPathString + File.separator + "temp" + File.separator + "cutTemp";
-            Path cutTempPath = Paths.get(cutTempPathString);
-            // create directory if not exists
-            if (!cutTempPath.toFile().exists() && cutTempPath.toFile().mkdirs()) {
-                log.debug("cutTemp folder created.");
-            }
-
-            Path cutTempLodPath = cutTempPath.resolve("lod" + lod);
-            if (!cutTempLodPath.toFile().exists() && cutTempLodPath.toFile().mkdirs()) {
-                log.debug("cutTempLod folder created.");
+        // load the file
+        GaiaSet gaiaSet;
+        try {
+            gaiaSet = GaiaSet.readFile(tempPath);
+            if (gaiaSet == null) {
+                log.error("[ERROR] gaiaSet is null. pth : " + tempPath);
+                return newTileInfos;
             }
+        } catch (IOException e) {
+            log.error("[ERROR] :", e);
+            throw new RuntimeException(e);
+        }
+        GaiaScene scene = new GaiaScene(gaiaSet);
+        scene.setOriginalPath(tileInfo.getTempPath());
+        scene.makeTriangleFaces();
 
-            int resultDecimatedScenesCount = resultDecimatedScenes.size();
-            for (int j = 0; j < resultDecimatedScenesCount; j++) {
-                HalfEdgeScene halfEdgeSceneLod = resultDecimatedScenes.get(j);
-
-                int halfEdgeFacesCount = halfEdgeSceneLod.getFacesCount();
-
-                GaiaBoundingBox boundingBoxCutLC = new GaiaBoundingBox();
-                GaiaScene gaiaSceneCut = HalfEdgeUtils.gaiaSceneFromHalfEdgeScene(halfEdgeSceneLod);
-
-                int gaiaSceneFacesCount = gaiaSceneCut.getFacesCount();
-
-                if (halfEdgeFacesCount != gaiaSceneFacesCount) {
-                    log.error("[ERROR] halfEdgeFacesCount is different from gaiaSceneFacesCount.");
-                }
-
-                GaiaBoundingBox cartographicBoundingBox = this.calculateCartographicBoundingBox(gaiaSceneCut, transformMatrix, boundingBoxCutLC);
-                GaiaSet gaiaSetCut = GaiaSet.fromGaiaScene(gaiaSceneCut);
-
-                Path cutScenePath = Paths.get("");
-                gaiaSceneCut.setOriginalPath(cutScenePath);
-
-                UUID identifier = UUID.randomUUID();
-                Path gaiaSetCutFolderPath = cutTempLodPath.resolve(identifier.toString());
-                if (!gaiaSetCutFolderPath.toFile().exists() && gaiaSetCutFolderPath.toFile().mkdirs()) {
-                    log.debug("gaiaSetCut folder created.");
-                }
-                boolean copyTexturesToNewPath = false;
-                Path tempPathLod = gaiaSetCut.writeFileForPR(gaiaSetCutFolderPath, copyTexturesToNewPath);
-
-                // save material atlas textures
-                Path parentPath = gaiaSetCutFolderPath;
-                Path imagesPath = parentPath.resolve("images");
-                // make directories if not exists
-                File imagesFolder = imagesPath.toFile();
-                if (!imagesFolder.exists() && imagesFolder.mkdirs()) {
-                    log.debug("images folder created.");
-                }
-                List<GaiaMaterial> materials = halfEdgeSceneLod.getMaterials();
-                for (GaiaMaterial material : materials) {
-                    List<GaiaTexture> textures = material.getTextures().get(TextureType.DIFFUSE);
-                    for (GaiaTexture texture : textures) {
-                        // check if exist bufferedImage of the texture
-
-                        if (texture.getBufferedImage() == null) {
-
-                        }
-
-                        texture.setParentPath(imagesPath.toString());
-                        texture.saveImage(texture.getFullPath());
-                    }
-                }
-
-                // now can delete the halfEdgeScene
-                halfEdgeSceneLod.deleteObjects();
-
-                // delete the contents of the gaiaSceneCut*********************************************
-                gaiaSceneCut.getNodes().forEach(GaiaNode::clear);
-                // end delete the contents of the gaiaSceneCut.--------------------------------------------
+        List<GaiaScene> gaiaSceneList = new ArrayList<>();
+        gaiaSceneList.add(scene);
+        List<HalfEdgeScene> resultDecimatedScenes = new ArrayList<>();
 
-                TileInfo newTileInfo = TileInfo.builder().scene(gaiaSceneCut).outputPath(tempPathLod).build();
-                newTileInfo.setTransformMatrix(new Matrix4d(transformMatrix));
-                newTileInfo.setBoundingBox(boundingBoxCutLC);
-                newTileInfo.setCartographicBBox(cartographicBoundingBox);
+        List<GaiaAAPlane> cuttingPlanes = new ArrayList<>();
+        Matrix4d transformMatrix = new Matrix4d();
+        HalfEdgeOctree halfEdgeOctree = null;
+        try {
+            BoundingVolume rootNodeBoundingVolume = rootNode.getBoundingVolume();
+            BoundingVolume rootNodeBoundingVolumeCopy = new BoundingVolume(rootNodeBoundingVolume);
+            halfEdgeOctree = this.getCuttingPlanesAndHalfEdgeOctree(tileInfo, lod, rootNodeBoundingVolumeCopy, maxDepth, cuttingPlanes, transformMatrix);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
 
-                TileTransformInfo tileTransformInfoCut = TileTransformInfo.builder().position(tileInfo.getTileTransformInfo().getPosition()).build();
-                newTileInfo.setTileTransformInfo(tileTransformInfoCut);
+        boolean makeSkirt = GlobalConstants.MAKE_SKIRT;
+        HalfEdgeOctree finalHalfEdgeOctree = halfEdgeOctree;
+        runExtensionModule((tilerExtensionModule) -> tilerExtensionModule.decimateAndCutByObliqueCamera(gaiaSceneList, resultDecimatedScenes, decimateParameters,
+                finalHalfEdgeOctree, cuttingPlanes, screenPixelsForMeter, makeSkirt));
 
-                newTileInfo.setTempPath(tempPathLod);
-                newTileInfos.add(newTileInfo);
-            }
+        if (resultDecimatedScenes.isEmpty()) {
+            log.error("[ERROR] resultDecimatedScenes is empty." + tempPath);
+            return newTileInfos;
         }
 
-        tileInfos.clear();
-        tileInfos.addAll(newTileInfos);
+        writeCutScenes(resultDecimatedScenes, tileInfo, lod, transformMatrix, null, newTileInfos);
+        return newTileInfos;
     }
 
     private void createNetSurfaceNodes(Node rootNode, List<TileInfo> tileInfos, int nodeDepth, int maxDepth, DecimateParameters decimateParameters) {
@@ -733,7 +604,7 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         List<Node> intersectedNodes = new ArrayList<>();
 
         List<TileInfo> tileInfosOfNode = new ArrayList<>();
-        TilerExtensionModule tilerExtensionModule = new TilerExtensionModule();
+        ExtensionModuleFrame tilerExtensionModule = createExtensionModule(globalOptions.getMultiThreadCount());
         boolean makeVerticalSkirt = true;
 
         Map<Node, List<TileInfo>> nodeTileInfosMap = new HashMap<>();
@@ -1297,7 +1168,6 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         halfEdgeScene.deleteObjects();
         gaiaSet.clear();
         scene.clear();
-        System.gc();
     }
 
     public List<TileInfo> cutHalfEdgeSceneByGaiaAAPlanesAndSaveTileInfos(HalfEdgeScene halfEdgeScene, List<GaiaAAPlane> planes, HalfEdgeOctree resultOctree,
@@ -1468,14 +1338,24 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         //objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         //objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        try {
+            if (globalOptions.isImplicitTiling()) {
+                ImplicitTilesetWriter implicitTilesetWriter = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.OCTREE, GlobalConstants.DEFAULT_IMPLICIT_SUBTREE_LEVELS);
+                Node implicitRoot = implicitTilesetWriter.createImplicitRoot(rootNode, outputPath.toFile());
+                if (implicitRoot != null) {
+                    tileset.setRoot(implicitRoot);
+                }
+            }
+            TilesetStreamWriter tilesetStreamWriter = new TilesetStreamWriter(objectMapper, globalOptions.getShardDepth());
+            long tilesetSize = tilesetStreamWriter.write(tileset, tilesetFile);
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            globalOptions.setTilesetSize(result.length());
+            globalOptions.setTilesetSize(tilesetSize);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
+        } finally {
+            // the post-processes find the contents in the explicit tree
+            tileset.setRoot(rootNode);
         }
     }
 
@@ -1722,26 +1602,4 @@ public class PhotogrammetryTiler extends DefaultTiler implements Tiler {
             return maxLod;
         }
     }
-
-
-    // for multi-threading
-    private void executeThread(ExecutorService executorService, List<Runnable> tasks) throws InterruptedException {
-        try {
-            for (Runnable task : tasks) {
-                Future<?> future = executorService.submit(task);
-                /*if (globalOptions.isDebug()) {
-                    future.get();
-                }*/
-            }
-        } catch (Exception e) {
-            log.error("[ERROR] Failed to execute thread.", e);
-            throw new RuntimeException(e);
-        }
-        executorService.shutdown();
-        do {
-            if (executorService.isTerminated()) {
-                executorService.shutdownNow();
-            }
-        } while (!executorService.awaitTermination(2, TimeUnit.SECONDS));
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTempReader;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the point cloud octree of a shuffled temp file without loading the whole file.
+ * The file is read in batches, and every point is routed from the root to the first node that is not full yet.
+ * Since the temp file is shuffled, the points kept by a node are a uniform sample of its region (LOD order).
+ * The node buffers are flushed to the node temp files and released before they exceed the memory budget.
+ */
+@Slf4j
+public class PointCloudOctree {
+    private static final int HEADER_SIZE = 52;
+    private static final int BLOCK_SIZE = 20;
+    private static final int BATCH_POINTS = 200000;
+
+    private final File tempPath;
+    private final int maximumDepth;
+    private final int maximumPointPerTile;
+    private final long memoryBudget;
+    private final List<PointCloudOctreeNode> nodes = new ArrayList<>();
+    private long residentBytes = 0;
+    @Getter
+    private long peakResidentBytes = 0;
+    @Getter
+    private long droppedCount = 0;
+
+    public PointCloudOctree(File tempPath, int maximumDepth, int maximumPointPerTile, long memoryBudget) {
+        this.tempPath = tempPath;
+        this.maximumDepth = maximumDepth;
+        this.maximumPointPerTile = maximumPointPerTile;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public PointCloudOctreeNode build(File sourceFile, String rootCode, int rootPointLimit) throws IOException {
+        GaiaBoundingBox boundingBox = calcBoundingBox(sourceFile);
+        double[] regionMin = new double[]{boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ()};
+        double[] regionMax = new double[]{boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ()};
+
+        double[] scale = new double[3];
+        double[] offset = new double[3];
+        byte[] header = new byte[HEADER_SIZE];
+        byte[] batch = new byte[BATCH_POINTS * BLOCK_SIZE];
+        PointCloudOctreeNode root;
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(sourceFile)))) {
+            inputStream.readFully(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            headerBuffer.position(4);
+            for (int i = 0; i < 3; i++) {
+                scale[i] = headerBuffer.getDouble();
+            }
+            for (int i = 0; i < 3; i++) {
+                offset[i] = headerBuffer.getDouble();
+            }
+
+            root = new PointCloudOctreeNode(rootCode, 0, rootPointLimit, regionMin, regionMax, createTempFile(), header);
+            nodes.add(root);
+            ByteBuffer batchBuffer = ByteBuffer.wrap(batch);
+            int length;
+            while ((length = readBatch(inputStream, batch)) > 0) {
+                for (int recordOffset = 0; recordOffset + BLOCK_SIZE <= length; recordOffset += BLOCK_SIZE) {
+                    double x = batchBuffer.getFloat(recordOffset) * scale[0] + offset[0];
+                    double y = batchBuffer.getFloat(recordOffset + 4) * scale[1] + offset[1];
+                    double z = batchBuffer.getFloat(recordOffset + 8) * scale[2] + offset[2];
+                    route(root, batch, recordOffset, x, y, z);
+                }
+            }
+        }
+        flushAll();
+        if (droppedCount > 0) {
+            log.info("[Tile][DepthLimit] {} points are over the maximum depth {}", droppedCount, maximumDepth);
+        }
+        return root;
+    }
+
+    private void route(PointCloudOctreeNode root, byte[] batch, int recordOffset, double x, double y, double z) throws IOException {
+        PointCloudOctreeNode node = root;
+        while (true) {
+            node.getBoundingBox().addPoint(x, y, z);
+            if (!node.isFull()) {
+                int growth = node.getBufferGrowth(BLOCK_SIZE);
+                if (growth > 0 && residentBytes + growth > memoryBudget) {
+                    flushAll();
+                }
+                residentBytes += node.add(batch, recordOffset, BLOCK_SIZE);
+                peakResidentBytes = Math.max(peakResidentBytes, residentBytes);
+                return;
+            }
+            if (node.getDepth() + 1 >= maximumDepth) {
+                droppedCount++;
+                return;
+            }
+            node = findChild(node, x, y, z);
+        }
+    }
+
+    private PointCloudOctreeNode findChild(PointCloudOctreeNode node, double x, double y, double z) {
+        int index = node.findChildIndex(x, y, z);
+        PointCloudOctreeNode child = node.getChild(index);
+        if (child == null) {
+            int childPointLimit = (int) (node.getPointLimit() * 1.75d);
+            if (childPointLimit > maximumPointPerTile) {
+                childPointLimit = maximumPointPerTile;
+            }
+            child = node.createChild(index, childPointLimit, createTempFile());
+            nodes.add(child);
+        }
+        return child;
+    }
+
+    private void flushAll() throws IOException {
+        for (PointCloudOctreeNode node : nodes) {
+            residentBytes -= node.flush();
+        }
+    }
+
+    private File createTempFile() {
+        return new File(tempPath, UUID.randomUUID().toString());
+    }
+
+    private int readBatch(DataInputStream inputStream, byte[] batch) throws IOException {
+        int length = 0;
+        while (length < batch.length) {
+            int read = inputStream.read(batch, length, batch.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private GaiaBoundingBox calcBoundingBox(File sourceFile) throws IOException {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(sourceFile)) {
+            long pointCount = reader.getPointCount();
+            for (long i = 0; i < pointCount; i++) {
+                boundingBox.addPoint(reader.getX(i), reader.getY(i), reader.getZ(i));
+            }
+        }
+        return boundingBox;
+    }
+}
@@ -0,0 +1,204 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A node of the streaming point cloud octree.
+ * The node keeps the first points routed to it, up to its limit, and appends them to its own temp file.
+ * The buffer of the node grows with its points, and is released when it is flushed by the memory budget.
+ * Depending on the shape of its region, a node splits in 2, 4 or 8 children, like GaiaPointCloud.distribute().
+ */
+@Getter
+public class PointCloudOctreeNode {
+    private static final int INITIAL_BUFFER_POINTS = 256;
+    private static final int MAXIMUM_BUFFER_POINTS = 4096;
+
+    private final String code;
+    private final int depth;
+    private final int pointLimit;
+    private final double[] regionMin;
+    private final double[] regionMax;
+    private final GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+    private final File tempFile;
+    private final byte[] header;
+    private PointCloudOctreeNode[] children = null;
+    private SplitType splitType = null;
+    private long pointCount = 0;
+    private ByteBuffer buffer = null;
+    private boolean headerWritten = false;
+
+    public PointCloudOctreeNode(String code, int depth, int pointLimit, double[] regionMin, double[] regionMax, File tempFile, byte[] header) {
+        this.code = code;
+        this.depth = depth;
+        this.pointLimit = pointLimit;
+        this.regionMin = regionMin;
+        this.regionMax = regionMax;
+        this.tempFile = tempFile;
+        this.header = header;
+    }
+
+    public boolean isFull() {
+        return pointCount >= pointLimit;
+    }
+
+    /**
+     * Returns the number of bytes the next record allocates, when the buffer is missing or must grow.
+     */
+    public int getBufferGrowth(int blockSize) {
+        if (buffer == null) {
+            return Math.min(pointLimit, INITIAL_BUFFER_POINTS) * blockSize;
+        } else if (buffer.hasRemaining()) {
+            return 0;
+        }
+        return Math.max(0, getGrownCapacity(blockSize) - buffer.capacity());
+    }
+
+    /**
+     * Appends a record to the node buffer, the full buffer grows up to its maximum, then is written and reused.
+     * @return the number of bytes allocated for the buffer, to be added to the resident total
+     */
+    public int add(byte[] records, int offset, int blockSize) throws IOException {
+        int allocated = getBufferGrowth(blockSize);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(allocated);
+        } else if (allocated > 0) {
+            ByteBuffer grownBuffer = ByteBuffer.allocate(buffer.capacity() + allocated);
+            grownBuffer.put(buffer.array(), 0, buffer.position());
+            buffer = grownBuffer;
+        } else if (!buffer.hasRemaining()) {
+            write();
+        }
+        buffer.put(records, offset, blockSize);
+        pointCount++;
+        return allocated;
+    }
+
+    /**
+     * Appends the buffered records to the temp file and releases the buffer.
+     * @return the number of bytes released, to be removed from the resident total
+     */
+    public int flush() throws IOException {
+        if (buffer == null) {
+            return 0;
+        }
+        write();
+        int released = buffer.capacity();
+        buffer = null;
+        return released;
+    }
+
+    /**
+     * The number of bytes held by the buffer of the node.
+     */
+    public int getResidentBytes() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    /**
+     * Appends the buffered records to the temp file, the file is only open during the write.
+     */
+    private void write() throws IOException {
+        int length = buffer.position();
+        if (length == 0) {
+            return;
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile, headerWritten)) {
+            if (!headerWritten) {
+                outputStream.write(header);
+                headerWritten = true;
+            }
+            outputStream.write(buffer.array(), 0, length);
+        }
+        buffer.clear();
+    }
+
+    private int getGrownCapacity(int blockSize) {
+        return Math.min(buffer.capacity() * 2, Math.min(pointLimit, MAXIMUM_BUFFER_POINTS) * blockSize);
+    }
+
+    /**
+     * Returns the index of the child region containing the position.
+     */
+    public int findChildIndex(double x, double y, double z) {
+        if (splitType == null) {
+            splitType = SplitType.of(regionMax[0] - regionMin[0], regionMax[1] - regionMin[1], regionMax[2] - regionMin[2]);
+            children = new PointCloudOctreeNode[splitType.childCount];
+        }
+        boolean upperX = (regionMin[0] + regionMax[0]) / 2 < x;
+        boolean upperY = (regionMin[1] + regionMax[1]) / 2 < y;
+        boolean upperZ = (regionMin[2] + regionMax[2]) / 2 < z;
+        if (splitType == SplitType.HALF_X) {
+            return upperX ? 1 : 0;
+        } else if (splitType == SplitType.HALF_Y) {
+            return upperY ? 1 : 0;
+        }
+        // A : (-x, -y), B : (+x, -y), C : (+x, +y), D : (-x, +y), E-H : same below the middle of z
+        int quadrant = upperX ? (upperY ? 2 : 1) : (upperY ? 3 : 0);
+        return (splitType == SplitType.OCT && !upperZ) ? quadrant + 4 : quadrant;
+    }
+
+    public PointCloudOctreeNode getChild(int index) {
+        return children[index];
+    }
+
+    public PointCloudOctreeNode createChild(int index, int childPointLimit, File childTempFile) {
+        double[] childMin = regionMin.clone();
+        double[] childMax = regionMax.clone();
+        if (splitType == SplitType.HALF_X) {
+            splitAxis(childMin, childMax, 0, index == 1);
+        } else if (splitType == SplitType.HALF_Y) {
+            splitAxis(childMin, childMax, 1, index == 1);
+        } else {
+            int quadrant = index % 4;
+            splitAxis(childMin, childMax, 0, quadrant == 1 || quadrant == 2);
+            splitAxis(childMin, childMax, 1, quadrant == 2 || quadrant == 3);
+            if (splitType == SplitType.OCT) {
+                splitAxis(childMin, childMax, 2, index < 4);
+            }
+        }
+        String childCode = String.valueOf((char) ('A' + index));
+        PointCloudOctreeNode child = new PointCloudOctreeNode(childCode, depth + 1, childPointLimit, childMin, childMax, childTempFile, header);
+        children[index] = child;
+        return child;
+    }
+
+    private void splitAxis(double[] min, double[] max, int axis, boolean upper) {
+        double middle = (min[axis] + max[axis]) / 2;
+        if (upper) {
+            min[axis] = middle;
+        } else {
+            max[axis] = middle;
+        }
+    }
+
+    /**
+     * Same split rule as GaiaPointCloud.distribute()
+     */
+    private enum SplitType {
+        HALF_X(2), HALF_Y(2), QUAD(4), OCT(8);
+
+        private final int childCount;
+
+        SplitType(int childCount) {
+            this.childCount = childCount;
+        }
+
+        static SplitType of(double offsetX, double offsetY, double offsetZ) {
+            if (offsetX / 2 > offsetY) {
+                return HALF_X;
+            } else if (offsetY / 2 > offsetX) {
+                return HALF_Y;
+            } else if (offsetZ < offsetX || offsetZ < offsetY) {
+                return QUAD;
+            } else {
+                return OCT;
+            }
+        }
+    }
+}
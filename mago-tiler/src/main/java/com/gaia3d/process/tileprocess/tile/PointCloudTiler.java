@@ -6,6 +6,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.basic.exception.TileProcessingException;
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTemp;
+import com.gaia3d.command.mago.GlobalConstants;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.process.tileprocess.Tiler;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
@@ -13,24 +15,21 @@ import com.gaia3d.process.tileprocess.tile.tileset.TilesetV2;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.*;
 import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.ImplicitTiling;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import com.gaia3d.util.CoordinateTransformEngine;
 import com.gaia3d.util.GlobeUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
-import org.locationtech.proj4j.BasicCoordinateTransform;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
 import org.locationtech.proj4j.ProjCoordinate;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -49,10 +48,9 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         Vector3d originalMinPosition = globalBoundingBox.getMinPosition();
         Vector3d originalMaxPosition = globalBoundingBox.getMaxPosition();
 
-        BasicCoordinateTransform transformer = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
-        ProjCoordinate transformedMinCoordinate = transformer.transform(new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMinCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z));
         Vector3d minPosition = new Vector3d(transformedMinCoordinate.x, transformedMinCoordinate.y, originalMinPosition.z);
-        ProjCoordinate transformedMaxCoordinate = transformer.transform(new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMaxCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z));
         Vector3d maxPosition = new Vector3d(transformedMaxCoordinate.x, transformedMaxCoordinate.y, originalMaxPosition.z);
 
         GaiaBoundingBox transformedBoundingBox = new GaiaBoundingBox();
@@ -130,14 +128,24 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        try {
+            if (globalOptions.isImplicitTiling()) {
+                ImplicitTilesetWriter implicitTilesetWriter = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.OCTREE, GlobalConstants.DEFAULT_IMPLICIT_SUBTREE_LEVELS);
+                Node implicitRoot = implicitTilesetWriter.createImplicitRoot(rootNode, outputPath);
+                if (implicitRoot != null) {
+                    tileset.setRoot(implicitRoot);
+                }
+            }
+            TilesetStreamWriter tilesetStreamWriter = new TilesetStreamWriter(objectMapper, globalOptions.getShardDepth());
+            long tilesetSize = tilesetStreamWriter.write(tileset, tilesetFile);
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            globalOptions.setTilesetSize(result.length());
+            globalOptions.setTilesetSize(tilesetSize);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
+        } finally {
+            // the post-processes find the contents in the explicit tree
+            tileset.setRoot(rootNode);
         }
     }
 
@@ -183,37 +191,32 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         List<GaiaPointCloud> pointClouds = tileInfos.stream()
                 .map(TileInfo::getPointCloud)
                 .collect(Collectors.toList());
+        File tempPath = new File(globalOptions.getOutputPath(), "temp");
+        long memoryBudget = (long) globalOptions.getMemoryBudget() * 1024 * 1024;
         int index = 0;
         int maximumIndex = pointClouds.size();
         int rootPointLimit = globalOptions.getMaximumPointPerTile() / 16;
         for (GaiaPointCloud pointCloud : pointClouds) {
-            pointCloud.setCode((index++) + "");
-            pointCloud.maximize();
-            List<GaiaPointCloud> allPointClouds = new ArrayList<>();
-            createNode(allPointClouds, index, maximumIndex, parentNode, pointCloud, rootPointLimit, 0);
-            minimizeAllPointCloud(index, maximumIndex, allPointClouds);
+            String code = (index++) + "";
+            pointCloud.setCode(code);
+            printJvmMemory();
+            PointCloudOctree octree = new PointCloudOctree(tempPath, MAXIMUM_DEPTH, globalOptions.getMaximumPointPerTile(), memoryBudget);
+            PointCloudOctreeNode octreeRoot = octree.build(pointCloud.getPointCloudTemp().getTempFile(), code, rootPointLimit);
+            createNode(index, maximumIndex, parentNode, octreeRoot);
         }
     }
 
-    private void createNode(List<GaiaPointCloud> allPointClouds, int index, int maximumIndex, Node parentNode, GaiaPointCloud pointCloud, int pointLimit, int depth) {
+    private void createNode(int index, int maximumIndex, Node parentNode, PointCloudOctreeNode octreeNode) {
         GlobalOptions globalOptions = GlobalOptions.getInstance();
 
-        allPointClouds.add(pointCloud);
-        int vertexLength = pointCloud.getVertices().size();
-        List<GaiaPointCloud> divided = pointCloud.divideChunkSize(pointLimit);
-        GaiaPointCloud selfPointCloud = divided.get(0);
-        allPointClouds.add(selfPointCloud);
-        GaiaPointCloud remainPointCloud = divided.get(1);
-
-        GaiaBoundingBox childBoundingBox = selfPointCloud.getGaiaBoundingBox();
+        GaiaBoundingBox childBoundingBox = octreeNode.getBoundingBox();
         Vector3d originalMinPosition = childBoundingBox.getMinPosition();
         Vector3d originalMaxPosition = childBoundingBox.getMaxPosition();
 
         CoordinateReferenceSystem source = globalOptions.getSourceCrs();
-        BasicCoordinateTransform transformer = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
-        ProjCoordinate transformedMinCoordinate = transformer.transform(new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMinCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMinPosition.x, originalMinPosition.y, originalMinPosition.z));
         Vector3d minPosition = new Vector3d(transformedMinCoordinate.x, transformedMinCoordinate.y, originalMinPosition.z);
-        ProjCoordinate transformedMaxCoordinate = transformer.transform(new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z), new ProjCoordinate());
+        ProjCoordinate transformedMaxCoordinate = CoordinateTransformEngine.transformToWgs84(source, new ProjCoordinate(originalMaxPosition.x, originalMaxPosition.y, originalMaxPosition.z));
         Vector3d maxPosition = new Vector3d(transformedMaxCoordinate.x, transformedMaxCoordinate.y, originalMaxPosition.z);
 
         GaiaBoundingBox transformedBoundingBox = new GaiaBoundingBox();
@@ -224,6 +227,7 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         rotateX90(transformMatrix);
         BoundingVolume boundingVolume = new BoundingVolume(transformedBoundingBox, BoundingVolume.BoundingVolumeType.REGION);
 
+        int depth = octreeNode.getDepth();
         int attenuation;
         if (depth < 2) {
             attenuation = 48;
@@ -260,9 +264,18 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         childNode.setBoundingVolume(boundingVolume);
         childNode.setRefine(Node.RefineType.ADD);
         childNode.setChildren(new ArrayList<>());
-        childNode.setNodeCode(parentNode.getNodeCode() + pointCloud.getCode());
+        childNode.setNodeCode(parentNode.getNodeCode() + octreeNode.getCode());
         childNode.setGeometricError(calculatedGeometricError);
 
+        // the node points are already written in the node temp file
+        GaiaPointCloud selfPointCloud = new GaiaPointCloud();
+        selfPointCloud.setCode(octreeNode.getCode());
+        selfPointCloud.setGaiaBoundingBox(childBoundingBox);
+        selfPointCloud.setVertexCount((int) octreeNode.getPointCount());
+        selfPointCloud.setPointCloudTemp(new GaiaPointCloudTemp(octreeNode.getTempFile()));
+        selfPointCloud.setMinimizedFile(octreeNode.getTempFile());
+        selfPointCloud.setMinimized(true);
+
         TileInfo selfTileInfo = TileInfo.builder()
                 .pointCloud(selfPointCloud)
                 .boundingBox(childBoundingBox)
@@ -289,37 +302,15 @@ public class PointCloudTiler extends DefaultTiler implements Tiler {
         parentNode.getChildren().add(childNode);
         log.info("[Tile][{}/{}][ContentNode][{}]", index, maximumIndex, childNode.getNodeCode());
 
-        if (vertexLength > 0) {
-            List<GaiaPointCloud> distributes = remainPointCloud.distribute();
-            distributes.forEach(distribute -> {
-                if (!distribute.getVertices().isEmpty()) {
-                    int newPointLimit = (int) (pointLimit * 1.75d); // (/3)
-                    if (newPointLimit > globalOptions.getMaximumPointPerTile()) {
-                        newPointLimit = globalOptions.getMaximumPointPerTile();
-                    }
-
-                    int newDepth = depth + 1;
-                    if (newDepth < MAXIMUM_DEPTH) {
-                        createNode(allPointClouds, index, maximumIndex, childNode, distribute, newPointLimit, newDepth);
-                    } else {
-                        log.info("[Tile][{}/{}][DepthLimit][{}]", index, maximumIndex, newDepth);
-                    }
+        PointCloudOctreeNode[] children = octreeNode.getChildren();
+        if (children != null) {
+            for (PointCloudOctreeNode child : children) {
+                if (child != null) {
+                    createNode(index, maximumIndex, childNode, child);
                 }
-            });
+            }
         }
-    }
-
-    private void minimizeAllPointCloud(int index, int maximumIndex, List<GaiaPointCloud> allPointClouds) {
-        int size = allPointClouds.size();
-        AtomicInteger atomicInteger = new AtomicInteger(1);
-        printJvmMemory();
-        allPointClouds.forEach(pointCloud -> {
-            File tempPath = new File(GlobalOptions.getInstance().getOutputPath(), "temp");
-            File tempFile = new File(tempPath, UUID.randomUUID().toString());
-            pointCloud.minimize(tempFile);
-            log.info("[Tile][{}/{}][Minimize][{}/{}] Write temp file : {}", index, maximumIndex, atomicInteger.getAndIncrement(), size, tempFile.getName());
-        });
-        //System.gc();
+        publishContent(childNode);
     }
 
     private void printJvmMemory() {
@@ -0,0 +1,236 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
+import com.gaia3d.process.tileprocess.tile.tileset.TilesetV2;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a tileset with a streaming JsonGenerator straight to the file, instead of building the whole json in memory.
+ * With a shard depth, the subtrees starting at every multiple of that depth are written to external tilesets in the
+ * 'tilesets' directory and referenced by a content uri, each file is closed as soon as its subtree is written.
+ */
+@Slf4j
+public class TilesetStreamWriter {
+    private static final String SHARD_DIRECTORY = "tilesets";
+
+    private final int shardDepth;
+    // serializes a tile without its children, for the tiles above an external tileset
+    private final ObjectMapper tileMapper;
+    // serializes a whole subtree, for the tiles without external tilesets below
+    private final ObjectMapper subtreeMapper;
+    // the same inside the external tilesets, the content uris are relative to the 'tilesets' directory
+    private final ObjectMapper shardTileMapper;
+    private final ObjectMapper shardSubtreeMapper;
+    private final Set<String> shardNames = new HashSet<>();
+
+    private ObjectNode header;
+    private File shardPath;
+    private long writtenSize = 0;
+
+    /**
+     * @param objectMapper the configured mapper of the tiler, its inclusion rules apply to every tile
+     * @param shardDepth the tile depth between the external tilesets, 0 writes a single tileset.json
+     */
+    public TilesetStreamWriter(ObjectMapper objectMapper, int shardDepth) {
+        this.shardDepth = Math.max(0, shardDepth);
+        this.subtreeMapper = objectMapper.copy();
+        this.tileMapper = objectMapper.copy()
+                .addMixIn(Tileset.class, TilesetMixIn.class)
+                .addMixIn(TilesetV2.class, TilesetMixIn.class)
+                .addMixIn(Node.class, NodeMixIn.class);
+        this.shardSubtreeMapper = objectMapper.copy()
+                .addMixIn(Content.class, ShardContentMixIn.class);
+        this.shardTileMapper = tileMapper.copy()
+                .addMixIn(Content.class, ShardContentMixIn.class);
+    }
+
+    /**
+     * Writes the tileset and its external tilesets, returns the total size of the written json files.
+     */
+    public long write(Tileset tileset, File tilesetFile) throws IOException {
+        header = tileMapper.valueToTree(tileset);
+        shardPath = new File(tilesetFile.getParentFile(), SHARD_DIRECTORY);
+        shardNames.clear();
+        writtenSize = 0;
+        Node root = tileset.getRoot();
+        ObjectNode rootTile = root != null ? tileMapper.valueToTree(root) : null;
+        writeTileset(tilesetFile, root, rootTile, null, false);
+        return writtenSize;
+    }
+
+    private void writeTileset(File file, Node root, ObjectNode rootTile, JsonNode geometricError, boolean isShard) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+             JsonGenerator generator = tileMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = header.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                if (field.getKey().equals("geometricError") && geometricError != null) {
+                    generator.writeTree(geometricError);
+                } else {
+                    generator.writeTree(field.getValue());
+                }
+            }
+            if (rootTile != null) {
+                generator.writeFieldName("root");
+                writeTile(generator, rootTile, root, 0, isShard);
+            }
+            generator.writeEndObject();
+        }
+        writtenSize += file.length();
+    }
+
+    private void writeNode(JsonGenerator generator, Node node, int depth, boolean isShard) throws IOException {
+        if (shardDepth == 0) {
+            subtreeMapper.writeValue(generator, node);
+            return;
+        }
+
+        int distance = shardDepth - depth % shardDepth;
+        if (distance == shardDepth && hasChildren(node)) {
+            writeShard(generator, node, isShard);
+        } else if (!reaches(node, distance + 1)) {
+            ObjectMapper mapper = isShard ? shardSubtreeMapper : subtreeMapper;
+            mapper.writeValue(generator, node);
+        } else {
+            ObjectMapper mapper = isShard ? shardTileMapper : tileMapper;
+            writeTile(generator, mapper.valueToTree(node), node, depth, isShard);
+        }
+    }
+
+    private void writeShard(JsonGenerator generator, Node node, boolean isShard) throws IOException {
+        String shardName = createShardName(node);
+        if (!shardPath.exists() && !shardPath.mkdirs()) {
+            throw new IOException("Failed to create the directory : " + shardPath);
+        }
+
+        // the external root keeps the tile, the referencing tile carries its transform
+        ObjectNode tile = shardTileMapper.valueToTree(node);
+        JsonNode transform = tile.remove("transform");
+        ObjectNode reference = tileMapper.createObjectNode();
+        copyField(tile, reference, "boundingVolume");
+        copyField(tile, reference, "refine");
+        copyField(tile, reference, "geometricError");
+        if (transform != null) {
+            reference.set("transform", transform);
+        }
+        reference.putObject("content").put("uri", isShard ? shardName : SHARD_DIRECTORY + "/" + shardName);
+        generator.writeTree(reference);
+
+        log.debug("[Tile][Tileset] write '{}' external tileset.", shardName);
+        writeTileset(new File(shardPath, shardName), node, tile, tile.get("geometricError"), true);
+    }
+
+    private void writeTile(JsonGenerator generator, ObjectNode tile, Node node, int depth, boolean isShard) throws IOException {
+        generator.writeStartObject();
+        Iterator<Map.Entry<String, JsonNode>> fields = tile.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            generator.writeFieldName(field.getKey());
+            generator.writeTree(field.getValue());
+        }
+        if (hasChildren(node)) {
+            generator.writeArrayFieldStart("children");
+            for (Node child : node.getChildren()) {
+                writeNode(generator, child, depth + 1, isShard);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Whether the subtree of the node is at least the given number of levels deep.
+     */
+    private boolean reaches(Node node, int levels) {
+        if (levels <= 0) {
+            return true;
+        }
+        if (!hasChildren(node)) {
+            return false;
+        }
+        for (Node child : node.getChildren()) {
+            if (reaches(child, levels - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasChildren(Node node) {
+        List<Node> children = node.getChildren();
+        return children != null && !children.isEmpty();
+    }
+
+    private void copyField(ObjectNode source, ObjectNode target, String name) {
+        JsonNode value = source.get(name);
+        if (value != null) {
+            target.set(name, value);
+        }
+    }
+
+    private String createShardName(Node node) {
+        // never "tileset.json", the merger searches the inputs for that name
+        String name = node.getNodeCode() != null ? node.getNodeCode() : "shard";
+        String shardName = name + ".json";
+        int index = 1;
+        while (!shardNames.add(shardName)) {
+            shardName = name + "_" + (index++) + ".json";
+        }
+        return shardName;
+    }
+
+    @JsonIgnoreProperties({"root"})
+    private abstract static class TilesetMixIn {
+    }
+
+    @JsonIgnoreProperties({"children"})
+    private abstract static class NodeMixIn {
+    }
+
+    private abstract static class ShardContentMixIn {
+        @JsonSerialize(using = ShardUriSerializer.class)
+        private String uri;
+    }
+
+    /**
+     * The external tilesets are one directory below the tileset.json.
+     */
+    private static class ShardUriSerializer extends StdSerializer<String> {
+        private ShardUriSerializer() {
+            super(String.class);
+        }
+
+        @Override
+        public void serialize(String uri, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (uri.contains("://") || uri.startsWith("/")) {
+                generator.writeString(uri);
+            } else {
+                generator.writeString("../" + uri);
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.basic.halfedge.*;
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+import com.gaia3d.process.postprocess.batch.atlas.AtlasPacker;
+import com.gaia3d.util.GaiaTextureUtils;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.*;
+
+/**
+ * Textures the cut half-edge scenes by projecting the original textured scenes from oblique cameras, as Engine.makeBoxTexturesByObliqueCamera.
+ * Every face takes the camera that sees most of its pixels, and the camera images are packed into a single atlas texture.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ObliqueCameraTexturer {
+    private static final CameraDirectionType[] OBLIQUE_DIRECTIONS = {
+            CameraDirectionType.CAMERA_DIRECTION_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_YPOS_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_XNEG_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_YNEG_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_XPOS_ZNEG
+    };
+    private static final int BACKGROUND_COLOR = 0x00FF00FF; // transparent magenta
+    private static final int BACKGROUND_FILL_DISTANCE = 100; // 10 passes of the 10 pixels window of the OpenGL shader
+    private static final double TEXCOORD_ERROR = 0.0025;
+
+    private final SoftwareRasterizer rasterizer;
+    private final AtlasPacker atlasPacker;
+    private final List<RasterMesh> sourceMeshes;
+
+    public void makeBoxTextures(HalfEdgeScene halfEdgeScene, double screenPixelsForMeter, int bufferImageType) {
+        Map<Integer, List<HalfEdgeFace>> facesClassificationMap = new HashMap<>();
+        for (HalfEdgeSurface surface : halfEdgeScene.extractSurfaces(null)) {
+            for (HalfEdgeFace face : surface.getFaces()) {
+                facesClassificationMap.computeIfAbsent(face.getClassifyId(), k -> new ArrayList<>()).add(face);
+            }
+        }
+
+        List<AtlasImage> atlasImages = new ArrayList<>();
+        Map<Integer, Map<CameraDirectionType, CameraProjection>> projections = new HashMap<>();
+        for (Map.Entry<Integer, List<HalfEdgeFace>> entry : facesClassificationMap.entrySet()) {
+            int classifyId = entry.getKey();
+            List<HalfEdgeFace> faces = entry.getValue();
+
+            Map<GaiaFace, HalfEdgeFace> mapGaiaFaceToHalfEdgeFace = new HashMap<>();
+            GaiaScene groupScene = HalfEdgeUtils.gaiaSceneFromHalfEdgeFaces(faces, mapGaiaFaceToHalfEdgeFace);
+            List<GaiaFace> groupFaces = new ArrayList<>();
+            for (GaiaPrimitive primitive : groupScene.extractPrimitives(null)) {
+                for (GaiaSurface surface : primitive.getSurfaces()) {
+                    groupFaces.addAll(surface.getFaces());
+                }
+            }
+            for (int i = 0; i < groupFaces.size(); i++) {
+                groupFaces.get(i).setId(i);
+            }
+            RasterMesh groupMesh = RasterMesh.fromScene(groupScene);
+            List<Vector3d> groupPositions = new ArrayList<>();
+            for (GaiaPrimitive primitive : groupScene.extractPrimitives(null)) {
+                for (GaiaVertex vertex : primitive.getVertices()) {
+                    groupPositions.add(vertex.getPosition());
+                }
+            }
+
+            GaiaBoundingBox bbox = groupScene.updateBoundingBox();
+            double ratioHW = bbox.getSizeZ() / bbox.getMaxSize();
+            int directionsCount = ratioHW > 0.06 ? OBLIQUE_DIRECTIONS.length : 1;
+
+            Map<CameraDirectionType, CameraProjection> groupProjections = projections.computeIfAbsent(classifyId, k -> new EnumMap<>(CameraDirectionType.class));
+            Map<CameraDirectionType, int[]> pixelCounts = new EnumMap<>(CameraDirectionType.class);
+            for (int i = 0; i < directionsCount; i++) {
+                CameraDirectionType cameraDirectionType = OBLIQUE_DIRECTIONS[i];
+                int[] facePixelCounts = new int[groupFaces.size()];
+                BufferedImage image = renderByCameraDirection(bbox, groupPositions, groupMesh, cameraDirectionType, screenPixelsForMeter, bufferImageType, groupProjections, facePixelCounts);
+                pixelCounts.put(cameraDirectionType, facePixelCounts);
+                atlasImages.add(new AtlasImage(classifyId, cameraDirectionType, image));
+            }
+
+            // the faces not seen by any camera keep the vertical camera
+            for (int i = 0; i < groupFaces.size(); i++) {
+                CameraDirectionType bestCameraDirectionType = CameraDirectionType.CAMERA_DIRECTION_ZNEG;
+                int maxPixelCount = 0;
+                for (Map.Entry<CameraDirectionType, int[]> countEntry : pixelCounts.entrySet()) {
+                    int pixelCount = countEntry.getValue()[i];
+                    if (pixelCount > maxPixelCount) {
+                        maxPixelCount = pixelCount;
+                        bestCameraDirectionType = countEntry.getKey();
+                    }
+                }
+                mapGaiaFaceToHalfEdgeFace.get(groupFaces.get(i)).setCameraDirectionType(bestCameraDirectionType);
+            }
+        }
+
+        halfEdgeScene.splitFacesByBestObliqueCameraDirectionToProject();
+
+        Map<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> faceGroups = new HashMap<>();
+        List<HalfEdgeVertex> surfaceVertices = new ArrayList<>();
+        for (HalfEdgeSurface surface : halfEdgeScene.extractSurfaces(null)) {
+            surface.getMapClassifyIdToCameraDirectionTypeToFaces(faceGroups);
+            surfaceVertices.clear();
+            HalfEdgeUtils.getVerticesOfFaces(surface.getFaces(), surfaceVertices);
+            for (HalfEdgeVertex vertex : surfaceVertices) {
+                if (vertex.getTexcoords() == null) {
+                    vertex.setTexcoords(new Vector2d(0.0, 0.0));
+                }
+            }
+        }
+        calculateTexCoords(faceGroups, projections);
+
+        atlasImages.sort(Comparator.comparingDouble(AtlasImage::getArea).reversed());
+        List<GaiaBatchImage> batchImages = new ArrayList<>(atlasImages);
+        atlasPacker.pack(batchImages);
+        int maxWidth = atlasImages.stream().mapToInt(atlasImage -> (int) atlasImage.getBatchedBoundary().getMaxX()).max().orElse(0);
+        int maxHeight = atlasImages.stream().mapToInt(atlasImage -> (int) atlasImage.getBatchedBoundary().getMaxY()).max().orElse(0);
+        if (maxWidth == 0 || maxHeight == 0) {
+            log.error("[ERROR] makeBoxTextures() : maxWidth or maxHeight is 0.");
+            return;
+        }
+        recalculateTexCoordsAfterAtlasing(atlasImages, faceGroups, maxWidth, maxHeight);
+
+        GaiaTexture atlasTexture = new GaiaTexture();
+        atlasTexture.createImage(maxWidth, maxHeight, bufferImageType);
+        Graphics2D graphics = atlasTexture.getBufferedImage().createGraphics();
+        for (AtlasImage atlasImage : atlasImages) {
+            GaiaRectangle batchedBoundary = atlasImage.getBatchedBoundary();
+            graphics.drawImage(atlasImage.getImage(), (int) batchedBoundary.getMinX(), (int) batchedBoundary.getMinY(), null);
+        }
+        graphics.dispose();
+
+        String originalPath = halfEdgeScene.getOriginalPath().toString();
+        String originalProjectName = originalPath.substring(originalPath.lastIndexOf(File.separator) + 1);
+        String rawProjectName = originalProjectName.contains(".") ? originalProjectName.substring(0, originalProjectName.lastIndexOf(".")) : originalProjectName;
+        atlasTexture.setPath(rawProjectName + "_AtlasB.png");
+
+        GaiaMaterial material = new GaiaMaterial();
+        material.setName("atlasTexturesMaterial");
+        Map<TextureType, List<GaiaTexture>> textures = new HashMap<>();
+        List<GaiaTexture> atlasTextures = new ArrayList<>();
+        atlasTextures.add(atlasTexture);
+        textures.put(TextureType.DIFFUSE, atlasTextures);
+        material.setTextures(textures);
+
+        int materialsCount = halfEdgeScene.getMaterials().size();
+        material.setId(materialsCount);
+        halfEdgeScene.getMaterials().add(material);
+        for (HalfEdgePrimitive primitive : halfEdgeScene.extractPrimitives(null)) {
+            primitive.setMaterialId(materialsCount);
+        }
+    }
+
+    /**
+     * Renders the source scenes and the face ids of the group from the camera direction.
+     * The camera projection is kept to calculate the texture coordinates of the faces.
+     */
+    private BufferedImage renderByCameraDirection(GaiaBoundingBox bbox, List<Vector3d> groupPositions, RasterMesh groupMesh, CameraDirectionType cameraDirectionType,
+                                                  double screenPixelsForMeter, int bufferImageType, Map<CameraDirectionType, CameraProjection> groupProjections, int[] facePixelCounts) {
+        GaiaBoundingBox expandedBBox = bbox.clone();
+        expandedBBox.expand(expandedBBox.getMaxSize() * 0.02);
+
+        Vector3d cameraDirection = CameraDirectionType.getCameraDirection(cameraDirectionType);
+        Vector3d up = RasterView.calculateUpVector(cameraDirection);
+        RasterView view = RasterView.lookAlong(bbox.getCenter(), cameraDirection, up);
+        Matrix4d modelViewMatrix = view.getModelViewMatrix();
+
+        List<Vector3d> transformedPositions = new ArrayList<>();
+        for (Vector3d position : groupPositions) {
+            transformedPositions.add(modelViewMatrix.transformPosition(position, new Vector3d()));
+        }
+        GaiaBoundingBox bboxTransformed = new GaiaBoundingBox();
+        bboxTransformed.setFromPoints(transformedPositions);
+        groupProjections.put(cameraDirectionType, new CameraProjection(new Matrix4d(modelViewMatrix), bboxTransformed));
+
+        double xLength = bboxTransformed.getSizeX();
+        double yLength = bboxTransformed.getSizeY();
+        double zOffset = Math.max(Math.max(xLength, yLength) * 0.001, 0.4);
+        view.setOrthographic(bboxTransformed.getMinX(), bboxTransformed.getMaxX(), bboxTransformed.getMinY(), bboxTransformed.getMaxY(),
+                -bboxTransformed.getMaxZ() - zOffset, -bboxTransformed.getMinZ() + zOffset);
+
+        int width = Math.max((int) (xLength * screenPixelsForMeter), 1);
+        int height = Math.max((int) (yLength * screenPixelsForMeter), 1);
+
+        rasterizer.setClipBox(expandedBBox);
+        rasterizer.setCullBackFaces(true);
+
+        RasterFrame colorFrame = new RasterFrame(width, height, true, false);
+        colorFrame.clear(BACKGROUND_COLOR);
+        rasterizer.setBlend(true);
+        rasterizer.render(sourceMeshes, view, colorFrame);
+        colorFrame.fillBackground(BACKGROUND_COLOR, BACKGROUND_FILL_DISTANCE);
+
+        RasterFrame idFrame = new RasterFrame(width, height, false, true);
+        rasterizer.setBlend(false);
+        rasterizer.render(Collections.singletonList(groupMesh), view, idFrame);
+        idFrame.countIds(facePixelCounts);
+
+        rasterizer.setClipBox(null);
+        rasterizer.setCullBackFaces(false);
+        return colorFrame.getColorImage(bufferImageType);
+    }
+
+    private void calculateTexCoords(Map<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> faceGroups, Map<Integer, Map<CameraDirectionType, CameraProjection>> projections) {
+        Set<HalfEdgeVertex> visitedVertices = new HashSet<>();
+        List<HalfEdgeVertex> faceVertices = new ArrayList<>();
+        Vector3d transformed = new Vector3d();
+        for (Map.Entry<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> entry : faceGroups.entrySet()) {
+            Map<CameraDirectionType, CameraProjection> groupProjections = projections.get(entry.getKey());
+            for (Map.Entry<CameraDirectionType, List<HalfEdgeFace>> groupEntry : entry.getValue().entrySet()) {
+                CameraProjection projection = groupProjections == null ? null : groupProjections.get(groupEntry.getKey());
+                if (projection == null) {
+                    log.info("calculateTexCoords() : modelViewMatrix is null. camDirType = " + groupEntry.getKey());
+                    continue;
+                }
+                GaiaBoundingBox bbox = projection.bboxTransformed;
+                for (HalfEdgeFace face : groupEntry.getValue()) {
+                    faceVertices.clear();
+                    face.getVertices(faceVertices);
+                    for (HalfEdgeVertex vertex : faceVertices) {
+                        if (!visitedVertices.add(vertex)) {
+                            continue;
+                        }
+                        projection.modelViewMatrix.transformPosition(vertex.getPosition(), transformed);
+                        double texCoordX = (transformed.x - bbox.getMinX()) / bbox.getSizeX();
+                        double texCoordY = 1.0 - (transformed.y - bbox.getMinY()) / bbox.getSizeY();
+                        Vector2d texCoord = new Vector2d(texCoordX, texCoordY);
+                        GaiaTextureUtils.clampTextureCoordinate(texCoord, TEXCOORD_ERROR);
+                        vertex.setTexcoords(texCoord);
+                    }
+                }
+            }
+        }
+    }
+
+    private void recalculateTexCoordsAfterAtlasing(List<AtlasImage> atlasImages, Map<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> faceGroups, int maxWidth, int maxHeight) {
+        Set<HalfEdgeVertex> groupVertices = new LinkedHashSet<>();
+        List<HalfEdgeVertex> faceVertices = new ArrayList<>();
+        for (AtlasImage atlasImage : atlasImages) {
+            Map<CameraDirectionType, List<HalfEdgeFace>> classifyGroups = faceGroups.get(atlasImage.getClassifyId());
+            List<HalfEdgeFace> faceGroup = classifyGroups == null ? null : classifyGroups.get(atlasImage.getCameraDirectionType());
+            if (faceGroup == null) {
+                continue;
+            }
+
+            GaiaRectangle originBoundary = atlasImage.getOriginBoundary();
+            GaiaRectangle batchedBoundary = atlasImage.getBatchedBoundary();
+            double texWidth = atlasImage.getImage().getWidth();
+            double texHeight = atlasImage.getImage().getHeight();
+            double xPixelSize = 1.0 / texWidth;
+            double yPixelSize = 1.0 / texHeight;
+
+            groupVertices.clear();
+            for (HalfEdgeFace face : faceGroup) {
+                faceVertices.clear();
+                groupVertices.addAll(face.getVertices(faceVertices));
+            }
+            for (HalfEdgeVertex vertex : groupVertices) {
+                Vector2d texCoord = vertex.getTexcoords();
+                double xRel = (texCoord.x * texWidth - originBoundary.getMinX()) / originBoundary.getWidth();
+                double yRel = (texCoord.y * texHeight - originBoundary.getMinY()) / originBoundary.getHeight();
+                xRel = Math.max(xPixelSize, Math.min(1.0 - xPixelSize, xRel));
+                yRel = Math.max(yPixelSize, Math.min(1.0 - yPixelSize, yRel));
+
+                double xAtlas = (batchedBoundary.getMinX() + xRel * batchedBoundary.getWidth()) / maxWidth;
+                double yAtlas = (batchedBoundary.getMinY() + yRel * batchedBoundary.getHeight()) / maxHeight;
+                Vector2d texCoordFinal = new Vector2d(xAtlas, yAtlas);
+                GaiaTextureUtils.clampTextureCoordinate(texCoordFinal, TEXCOORD_ERROR);
+                vertex.setTexcoords(texCoordFinal);
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class CameraProjection {
+        private final Matrix4d modelViewMatrix;
+        private final GaiaBoundingBox bboxTransformed;
+    }
+
+    /**
+     * Image of a camera direction of a face group, placed into the atlas.
+     */
+    @Getter
+    private static class AtlasImage extends GaiaBatchImage {
+        private final int classifyId;
+        private final CameraDirectionType cameraDirectionType;
+        private final BufferedImage image;
+
+        private AtlasImage(int classifyId, CameraDirectionType cameraDirectionType, BufferedImage image) {
+            this.classifyId = classifyId;
+            this.cameraDirectionType = cameraDirectionType;
+            this.image = image;
+            setOriginBoundary(new GaiaRectangle(0, 0, image.getWidth(), image.getHeight()));
+        }
+
+        private double getArea() {
+            return (double) image.getWidth() * image.getHeight();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Frame buffer of the software rasterizer, the row 0 is the top of the screen.
+ * The depth buffer is always present, the color and face id buffers only when requested.
+ */
+@Getter
+public class RasterFrame {
+    public static final int NO_ID = -1;
+
+    private final int width;
+    private final int height;
+    private final float[] depths;
+    private final int[] colors;
+    private final int[] ids;
+
+    public RasterFrame(int width, int height, boolean withColors, boolean withIds) {
+        this.width = Math.max(width, 1);
+        this.height = Math.max(height, 1);
+        int pixelCount = this.width * this.height;
+        this.depths = new float[pixelCount];
+        this.colors = withColors ? new int[pixelCount] : null;
+        this.ids = withIds ? new int[pixelCount] : null;
+        clear(0);
+    }
+
+    /**
+     * Clears the depths to the far plane, the colors to the ARGB clear color and the ids to {@link #NO_ID}.
+     */
+    public void clear(int clearColor) {
+        Arrays.fill(depths, 1.0f);
+        if (colors != null) {
+            Arrays.fill(colors, clearColor);
+        }
+        if (ids != null) {
+            Arrays.fill(ids, NO_ID);
+        }
+    }
+
+    public BufferedImage getColorImage(int bufferedImageType) {
+        BufferedImage image = new BufferedImage(width, height, bufferedImageType);
+        image.setRGB(0, 0, width, height, colors, 0, width);
+        return image;
+    }
+
+    /**
+     * The depths packed into the RGBA channels like the OpenGL depth shader, read back with unpackDepth32.
+     * The background keeps the white clear color.
+     */
+    public BufferedImage getDepthImage() {
+        int[] pixels = new int[depths.length];
+        for (int i = 0; i < depths.length; i++) {
+            pixels[i] = packDepth(depths[i]);
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Number of pixels showing each face id, the ids out of the array are ignored.
+     */
+    public void countIds(int[] pixelCounts) {
+        for (int id : ids) {
+            if (id >= 0 && id < pixelCounts.length) {
+                pixelCounts[id]++;
+            }
+        }
+    }
+
+    /**
+     * Replaces the background pixels by the color of the nearest drawn pixel, up to the distance in pixels.
+     * The texture filtering near the borders of the projected faces then reads the face colors instead of the background.
+     */
+    public void fillBackground(int backgroundColor, int maxDistance) {
+        int backgroundRgb = backgroundColor & 0x00FFFFFF;
+        int pixelCount = width * height;
+        int[] distances = new int[pixelCount];
+        int[] queue = new int[pixelCount];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < pixelCount; i++) {
+            if ((colors[i] & 0x00FFFFFF) == backgroundRgb) {
+                distances[i] = -1;
+            } else {
+                queue[tail++] = i;
+            }
+        }
+        if (tail == 0) {
+            return;
+        }
+
+        // breadth first growth of the drawn pixels, 8-connected like the square search window of the OpenGL shader
+        while (head < tail) {
+            int index = queue[head++];
+            int distance = distances[index];
+            if (distance >= maxDistance) {
+                continue;
+            }
+            int x = index % width;
+            int y = index / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                int ny = y + dy;
+                if (ny < 0 || ny >= height) {
+                    continue;
+                }
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    if (nx < 0 || nx >= width) {
+                        continue;
+                    }
+                    int neighbor = ny * width + nx;
+                    if (distances[neighbor] == -1) {
+                        distances[neighbor] = distance + 1;
+                        colors[neighbor] = colors[index];
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+    }
+
+    static int packDepth(float depth) {
+        if (depth >= 1.0f) {
+            return 0xFFFFFFFF;
+        }
+        // PackDepth32 of the depth shader, the channels are stored as normalized bytes
+        double value = depth * (16777216.0 - 1.0) / 16777216.0;
+        double encodeX = fract(value);
+        double encodeY = fract(value * 256.0);
+        double encodeZ = fract(value * 65536.0);
+        double encodeW = fract(value * 16777216.0);
+        int r = toByte(encodeX - encodeY / 256.0 + 1.0 / 512.0);
+        int g = toByte(encodeY - encodeZ / 256.0 + 1.0 / 512.0);
+        int b = toByte(encodeZ - encodeW / 256.0 + 1.0 / 512.0);
+        int a = toByte(encodeW + 1.0 / 512.0);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static double fract(double value) {
+        return value - Math.floor(value);
+    }
+
+    private static int toByte(double value) {
+        return (int) Math.round(Math.max(0.0, Math.min(1.0, value)) * 255.0);
+    }
+}
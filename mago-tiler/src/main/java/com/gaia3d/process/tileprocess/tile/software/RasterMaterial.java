@@ -0,0 +1,103 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.TextureType;
+import org.joml.Vector4d;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Diffuse texture or color of the rasterized faces, the texture is sampled bilinearly with repeat wrapping like the OpenGL scene shader.
+ */
+public class RasterMaterial {
+    /* color of the primitives without material, as the OpenGL renderer */
+    public static final RasterMaterial DEFAULT = new RasterMaterial(toArgb(new Vector4d(0.2, 0.95, 0.2, 1.0)));
+
+    private final int color;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    public RasterMaterial(int color) {
+        this.color = color;
+        this.pixels = null;
+        this.width = 0;
+        this.height = 0;
+    }
+
+    public RasterMaterial(BufferedImage image) {
+        this.color = 0xFFFFFFFF;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.pixels = image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /**
+     * The first diffuse texture of the material, or its diffuse color when the texture image can not be loaded.
+     */
+    public static RasterMaterial fromMaterial(GaiaMaterial material) {
+        if (material == null) {
+            return DEFAULT;
+        }
+        List<GaiaTexture> diffuseTextures = material.getTextures().get(TextureType.DIFFUSE);
+        if (diffuseTextures != null && !diffuseTextures.isEmpty()) {
+            GaiaTexture texture = diffuseTextures.get(0);
+            if (texture.getBufferedImage() == null) {
+                texture.loadImage();
+            }
+            BufferedImage image = texture.getBufferedImage();
+            if (image != null) {
+                return new RasterMaterial(image);
+            }
+        }
+        return new RasterMaterial(toArgb(material.getDiffuseColor()));
+    }
+
+    /**
+     * The ARGB color at the texture coordinates, the texel centers are at half pixels.
+     */
+    public int sample(double u, double v) {
+        if (pixels == null) {
+            return color;
+        }
+        double x = u * width - 0.5;
+        double y = v * height - 0.5;
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        double fx = x - x0;
+        double fy = y - y0;
+        int c00 = texel(x0, y0);
+        int c10 = texel(x0 + 1, y0);
+        int c01 = texel(x0, y0 + 1);
+        int c11 = texel(x0 + 1, y0 + 1);
+
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            double top = ((c00 >>> shift) & 0xFF) * (1.0 - fx) + ((c10 >>> shift) & 0xFF) * fx;
+            double bottom = ((c01 >>> shift) & 0xFF) * (1.0 - fx) + ((c11 >>> shift) & 0xFF) * fx;
+            int channel = (int) Math.round(top * (1.0 - fy) + bottom * fy);
+            result |= channel << shift;
+        }
+        return result;
+    }
+
+    private int texel(int x, int y) {
+        x = Math.floorMod(x, width);
+        y = Math.floorMod(y, height);
+        return pixels[y * width + x];
+    }
+
+    static int toArgb(Vector4d color) {
+        int a = toChannel(color.w);
+        int r = toChannel(color.x);
+        int g = toChannel(color.y);
+        int b = toChannel(color.z);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static int toChannel(double value) {
+        return (int) Math.round(Math.max(0.0, Math.min(1.0, value)) * 255.0);
+    }
+}
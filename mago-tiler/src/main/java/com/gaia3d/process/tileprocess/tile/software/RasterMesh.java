@@ -0,0 +1,127 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.model.*;
+import lombok.Getter;
+import org.joml.Matrix4d;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flat triangle arrays of a scene for the software rasterizer.
+ * The positions have the node transforms applied, every triangle keeps the id of its face and the material of its primitive.
+ */
+@Getter
+public class RasterMesh {
+    private final double[] positions;
+    private final double[] texcoords;
+    private final int[] indices;
+    private final int[] triangleIds;
+    private final RasterMaterial[] triangleMaterials;
+
+    private RasterMesh(int vertexCount, int triangleCount) {
+        this.positions = new double[vertexCount * 3];
+        this.texcoords = new double[vertexCount * 2];
+        this.indices = new int[triangleCount * 3];
+        this.triangleIds = new int[triangleCount];
+        this.triangleMaterials = new RasterMaterial[triangleCount];
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getTriangleCount() {
+        return triangleIds.length;
+    }
+
+    /**
+     * The triangles of the scene, the polygonal faces are split as fans.
+     * The diffuse textures are read once per material.
+     */
+    public static RasterMesh fromScene(GaiaScene scene) {
+        List<GaiaPrimitive> primitives = new ArrayList<>();
+        List<Matrix4d> matrices = new ArrayList<>();
+        for (GaiaNode node : scene.getNodes()) {
+            collectPrimitives(node, null, primitives, matrices);
+        }
+
+        int vertexCount = 0;
+        int triangleCount = 0;
+        for (GaiaPrimitive primitive : primitives) {
+            vertexCount += primitive.getVertices().size();
+            for (GaiaSurface surface : primitive.getSurfaces()) {
+                for (GaiaFace face : surface.getFaces()) {
+                    triangleCount += Math.max(0, face.getIndices().length - 2);
+                }
+            }
+        }
+
+        RasterMesh mesh = new RasterMesh(vertexCount, triangleCount);
+        Map<GaiaMaterial, RasterMaterial> materials = new IdentityHashMap<>();
+        Vector3d position = new Vector3d();
+        int vertexOffset = 0;
+        int triangleIndex = 0;
+        for (int i = 0; i < primitives.size(); i++) {
+            GaiaPrimitive primitive = primitives.get(i);
+            Matrix4d matrix = matrices.get(i);
+            List<GaiaVertex> vertices = primitive.getVertices();
+            for (int j = 0; j < vertices.size(); j++) {
+                GaiaVertex vertex = vertices.get(j);
+                matrix.transformPosition(vertex.getPosition(), position);
+                int index = vertexOffset + j;
+                mesh.positions[index * 3] = position.x;
+                mesh.positions[index * 3 + 1] = position.y;
+                mesh.positions[index * 3 + 2] = position.z;
+                Vector2d texcoords = vertex.getTexcoords();
+                if (texcoords != null) {
+                    mesh.texcoords[index * 2] = texcoords.x;
+                    mesh.texcoords[index * 2 + 1] = texcoords.y;
+                }
+            }
+
+            RasterMaterial material = RasterMaterial.DEFAULT;
+            int materialIndex = primitive.getMaterialIndex();
+            if (materialIndex >= 0 && materialIndex < scene.getMaterials().size()) {
+                GaiaMaterial gaiaMaterial = scene.getMaterials().get(materialIndex);
+                material = materials.computeIfAbsent(gaiaMaterial, RasterMaterial::fromMaterial);
+            }
+
+            for (GaiaSurface surface : primitive.getSurfaces()) {
+                for (GaiaFace face : surface.getFaces()) {
+                    int[] faceIndices = face.getIndices();
+                    for (int k = 1; k < faceIndices.length - 1; k++) {
+                        mesh.indices[triangleIndex * 3] = vertexOffset + faceIndices[0];
+                        mesh.indices[triangleIndex * 3 + 1] = vertexOffset + faceIndices[k];
+                        mesh.indices[triangleIndex * 3 + 2] = vertexOffset + faceIndices[k + 1];
+                        mesh.triangleIds[triangleIndex] = face.getId();
+                        mesh.triangleMaterials[triangleIndex] = material;
+                        triangleIndex++;
+                    }
+                }
+            }
+            vertexOffset += vertices.size();
+        }
+        return mesh;
+    }
+
+    private static void collectPrimitives(GaiaNode node, Matrix4d parentMatrix, List<GaiaPrimitive> primitives, List<Matrix4d> matrices) {
+        Matrix4d matrix = new Matrix4d(node.getTransformMatrix());
+        if (parentMatrix != null) {
+            parentMatrix.mul(matrix, matrix);
+        }
+        for (GaiaMesh mesh : node.getMeshes()) {
+            for (GaiaPrimitive primitive : mesh.getPrimitives()) {
+                primitives.add(primitive);
+                matrices.add(matrix);
+            }
+        }
+        for (GaiaNode child : node.getChildren()) {
+            collectPrimitives(child, matrix, primitives, matrices);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import lombok.Getter;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+
+/**
+ * Orthographic camera of the software rasterizer.
+ * The eye looks along -Z of the view space and the depth goes from 0 at the near plane to 1 at the far plane, like the OpenGL camera.
+ */
+@Getter
+public class RasterView {
+    private final Matrix4d modelViewMatrix;
+    private double left;
+    private double right;
+    private double bottom;
+    private double top;
+    private double near;
+    private double far;
+
+    public RasterView(Matrix4d modelViewMatrix) {
+        this.modelViewMatrix = modelViewMatrix;
+    }
+
+    /**
+     * The camera at the position looking along the direction, with the same matrix as the OpenGL camera.
+     */
+    public static RasterView lookAlong(Vector3d position, Vector3d direction, Vector3d up) {
+        Vector3d right = new Vector3d(direction).cross(up);
+        Matrix4d transformMatrix = new Matrix4d(right.x, right.y, right.z, 0, up.x, up.y, up.z, 0, -direction.x, -direction.y, -direction.z, 0, position.x, position.y, position.z, 1);
+        return new RasterView(transformMatrix.invert());
+    }
+
+    /**
+     * The up vector of a camera looking along the direction, the world Z axis stays vertical on the screen.
+     */
+    public static Vector3d calculateUpVector(Vector3d direction) {
+        Vector3d zAxis = new Vector3d(0, 0, 1);
+        if (Math.abs(direction.dot(zAxis)) > 0.9999) {
+            return new Vector3d(0, 1, 0);
+        }
+        Vector3d right = new Vector3d(direction).cross(zAxis).normalize();
+        return right.cross(direction).normalize();
+    }
+
+    public void setOrthographic(double left, double right, double bottom, double top, double near, double far) {
+        this.left = left;
+        this.right = right;
+        this.bottom = bottom;
+        this.top = top;
+        this.near = near;
+        this.far = far;
+    }
+}
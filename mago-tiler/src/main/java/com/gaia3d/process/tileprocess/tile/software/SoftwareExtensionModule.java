@@ -0,0 +1,307 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.ExtensionModuleFrame;
+import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.exchangable.SceneInfo;
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.entities.GaiaAAPlane;
+import com.gaia3d.basic.geometry.octree.HalfEdgeOctree;
+import com.gaia3d.basic.geometry.voxel.VoxelGrid3D;
+import com.gaia3d.basic.geometry.voxel.VoxelizeParameters;
+import com.gaia3d.basic.halfedge.DecimateParameters;
+import com.gaia3d.basic.halfedge.HalfEdgeCutter;
+import com.gaia3d.basic.halfedge.HalfEdgeScene;
+import com.gaia3d.basic.halfedge.HalfEdgeUtils;
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.remesher.ReMeshParameters;
+import com.gaia3d.basic.remesher.ReMesherVertexCluster;
+import com.gaia3d.process.postprocess.batch.atlas.AtlasPacker;
+import com.gaia3d.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure-Java extension module, for the servers without OpenGL.
+ * The decimation, remeshing and cutting are the same as the OpenGL module, the renders are done by the software rasterizer.
+ */
+@Slf4j
+public class SoftwareExtensionModule implements ExtensionModuleFrame {
+    private final int threadCount;
+    private final AtlasPacker atlasPacker;
+    private SoftwareRasterizer rasterizer;
+
+    public SoftwareExtensionModule(int threadCount, AtlasPacker atlasPacker) {
+        this.threadCount = threadCount;
+        this.atlasPacker = atlasPacker;
+    }
+
+    @Override
+    public String getName() {
+        return "Software Renderer";
+    }
+
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public void executePhotogrammetry(GaiaScene gaiaScene, Map<String, Object> options) {
+        log.info("+ Software renderer has been applied.");
+        log.info("----------------------------------------");
+    }
+
+    @Override
+    public void getColorAndDepthRender(List<SceneInfo> sceneInfos, int bufferedImageType, List<BufferedImage> resultImages, GaiaBoundingBox nodeBBox, Matrix4d nodeTMatrix, int maxScreenSize, int maxDepthScreenSize) {
+        log.info("Rendering the scene...getColorAndDepthRender");
+        RasterView view = createTopView(nodeBBox);
+        RasterFrame colorFrame = createTopFrame(nodeBBox, maxScreenSize, true);
+        RasterFrame depthFrame = createTopFrame(nodeBBox, maxDepthScreenSize, false);
+        colorFrame.clear(0xFF808080);
+
+        Matrix4d nodeMatrixInv = new Matrix4d(nodeTMatrix).invert();
+        SoftwareRasterizer rasterizer = getRasterizer();
+        int scenesCount = sceneInfos.size();
+        for (int i = 0; i < scenesCount; i++) {
+            SceneInfo sceneInfo = sceneInfos.get(i);
+            Matrix4d sceneTMat = sceneInfo.getTransformMatrix();
+
+            // the local position of the scene relative to the node
+            Vector3d scenePosWC = new Vector3d(sceneTMat.m30(), sceneTMat.m31(), sceneTMat.m32());
+            Vector3d scenePosLC = nodeMatrixInv.transformPosition(scenePosWC, new Vector3d());
+            Matrix4d sceneTMatLC = new Matrix4d().translation(scenePosLC);
+
+            GaiaSet gaiaSet = null;
+            GaiaScene gaiaScene = null;
+            try {
+                gaiaSet = GaiaSet.readFile(Paths.get(sceneInfo.getScenePath()));
+                gaiaScene = new GaiaScene(gaiaSet);
+                GaiaNode gaiaNode = gaiaScene.getNodes().get(0);
+                gaiaNode.setTransformMatrix(sceneTMatLC);
+                gaiaNode.setPreMultipliedTransformMatrix(sceneTMatLC);
+
+                List<RasterMesh> meshes = Collections.singletonList(RasterMesh.fromScene(gaiaScene));
+                log.info("Rendering the scene : " + i + " of scenesCount : " + scenesCount);
+                rasterizer.render(meshes, view, colorFrame);
+                rasterizer.render(meshes, view, depthFrame);
+            } catch (Exception e) {
+                log.error("[ERROR] reading the file: ", e);
+            }
+
+            if (gaiaSet != null) {
+                gaiaSet.clear();
+            }
+            if (gaiaScene != null) {
+                gaiaScene.clear();
+            }
+        }
+
+        resultImages.add(colorFrame.getColorImage(bufferedImageType));
+        resultImages.add(depthFrame.getDepthImage());
+        deleteObjects();
+    }
+
+    @Override
+    public void decimateAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters, HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double screenPixelsForMeter, boolean makeHorizontalSkirt) {
+        // Note : There are only one scene in the scenes list
+        List<RasterMesh> sourceMeshes = new ArrayList<>();
+        List<HalfEdgeScene> halfEdgeScenes = new ArrayList<>();
+        double weldError = 1e-5;
+
+        log.info("SoftwareExtensionModule : Decimating the scene...");
+        for (GaiaScene gaiaScene : scenes) {
+            GaiaScene gaiaSceneCopy = gaiaScene.clone();
+
+            // 1rst, keep the textured triangles to render
+            sourceMeshes.add(RasterMesh.fromScene(gaiaSceneCopy));
+
+            // 2nd, make the halfEdgeScene
+            gaiaSceneCopy.joinAllSurfaces();
+            gaiaSceneCopy.weldVertices(weldError, false, false, false, false);
+            gaiaSceneCopy.deleteDegeneratedFaces();
+            clearMaterials(gaiaSceneCopy);
+
+            halfEdgeScenes.add(HalfEdgeUtils.halfEdgeSceneFromGaiaScene(gaiaSceneCopy));
+        }
+
+        HalfEdgeScene halfEdgeScene = halfEdgeScenes.get(0); // only one scene
+        halfEdgeScene.decimate(decimateParameters);
+        int gridDivisions = decimateParameters.getLod() == 1 ? 5 : 3;
+        cutAndTexture(halfEdgeScene, sourceMeshes, resultHalfEdgeScenes, octree, cuttingPlanes, gridDivisions, screenPixelsForMeter, makeHorizontalSkirt);
+
+        for (HalfEdgeScene halfEdgeSceneToDelete : halfEdgeScenes) {
+            halfEdgeSceneToDelete.deleteObjects();
+        }
+        deleteObjects();
+    }
+
+    @Override
+    public void decimateNetSurfaceAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters, HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double depthTexPixelsForMeter, double screenPixelsForMeter, boolean makeHorizontalSkirt) {
+        // Note : There are only one scene in the scenes list
+        List<RasterMesh> sourceMeshes = new ArrayList<>();
+        HalfEdgeScene netSurfaceHalfEdgeScene = null;
+        for (GaiaScene gaiaScene : scenes) {
+            GaiaBoundingBox gaiaSceneBbox = gaiaScene.updateBoundingBox();
+            int maxDepthScreenSize = (int) Math.ceil(depthTexPixelsForMeter * gaiaSceneBbox.getMaxSize());
+            maxDepthScreenSize = Math.max(8, Math.min(1024, maxDepthScreenSize));
+            log.info("SoftwareExtensionModule.makeNetSurfaces() : maxDepthScreenSize = " + maxDepthScreenSize);
+
+            RasterMesh sourceMesh = RasterMesh.fromScene(gaiaScene);
+            sourceMeshes.add(sourceMesh);
+            BufferedImage depthImage = getDepthRender(sourceMesh, gaiaSceneBbox, maxDepthScreenSize);
+
+            // make the netSurface by using the depth image
+            float[][] depthValues = ImageUtils.bufferedImageToFloatMatrix(depthImage);
+            netSurfaceHalfEdgeScene = HalfEdgeUtils.getHalfEdgeSceneRectangularNet(depthImage.getWidth(), depthImage.getHeight(), depthValues, gaiaSceneBbox, true);
+            if (netSurfaceHalfEdgeScene == null) {
+                deleteObjects();
+                return;
+            }
+            netSurfaceHalfEdgeScene.setOriginalPath(gaiaScene.getOriginalPath());
+            netSurfaceHalfEdgeScene.decimate(decimateParameters);
+        }
+        if (netSurfaceHalfEdgeScene == null) {
+            deleteObjects();
+            return;
+        }
+
+        netSurfaceHalfEdgeScene.decimate(decimateParameters);
+        cutAndTexture(netSurfaceHalfEdgeScene, sourceMeshes, resultHalfEdgeScenes, octree, cuttingPlanes, 3, screenPixelsForMeter, makeHorizontalSkirt);
+        deleteObjects();
+    }
+
+    @Override
+    public void reMeshAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, ReMeshParameters reMeshParams, HalfEdgeOctree octree,
+                                            List<GaiaAAPlane> cuttingPlanes, double depthTexPixelsForMeter, double screenPixelsForMeter, boolean makeHorizontalSkirt) {
+        // Note: There are only one scene in the scenes list
+        List<RasterMesh> sourceMeshes = new ArrayList<>();
+        List<GaiaScene> resultGaiaScenes = new ArrayList<>();
+        Vector3d scenePositionRelToCellGrid = reMeshParams.getScenePositionRelToCellGrid();
+        Vector3d scenePosRelToCellGridNegative = new Vector3d(scenePositionRelToCellGrid).negate();
+
+        for (GaiaScene gaiaScene : scenes) {
+            // 1rst, keep the textured triangles to render
+            sourceMeshes.add(RasterMesh.fromScene(gaiaScene.clone()));
+
+            // to reMesh the scene, it must spend its transform matrix, join all surfaces and weld vertices
+            gaiaScene.makeTriangularFaces();
+            gaiaScene.spendTranformMatrix();
+            gaiaScene.joinAllSurfaces();
+            gaiaScene.weldVertices(1e-6, false, false, false, false);
+            gaiaScene.deleteDegeneratedFaces();
+            clearMaterials(gaiaScene);
+
+            translateScene(gaiaScene, scenePositionRelToCellGrid); // translate the scene to the cell grid position
+            ReMesherVertexCluster.reMeshScene(gaiaScene, reMeshParams, new HashMap<>());
+            translateScene(gaiaScene, scenePosRelToCellGridNegative); // translate the scene back to the original position
+            resultGaiaScenes.add(gaiaScene);
+        }
+
+        HalfEdgeScene halfEdgeScene = HalfEdgeUtils.halfEdgeSceneFromGaiaScene(resultGaiaScenes.get(0)); // only one scene
+        cutAndTexture(halfEdgeScene, sourceMeshes, resultHalfEdgeScenes, octree, cuttingPlanes, 3, screenPixelsForMeter, makeHorizontalSkirt);
+        deleteObjects();
+    }
+
+    @Override
+    public void voxelize(List<GaiaScene> scenes, List<VoxelGrid3D> resultVoxelGrids, List<GaiaScene> resultGaiaScenes, VoxelizeParameters voxelizeParameters) {
+        log.warn("[WARN] Voxelization is not supported by the software renderer.");
+    }
+
+    @Override
+    public void deleteObjects() {
+        rasterizer = null;
+    }
+
+    /**
+     * Vertical orthographic depth render of the scene, as the OpenGL depth pass.
+     */
+    public BufferedImage getDepthRender(RasterMesh mesh, GaiaBoundingBox bbox, int maxDepthScreenSize) {
+        log.info("Rendering the scene...getDepthRender");
+        RasterFrame depthFrame = createTopFrame(bbox, maxDepthScreenSize, false);
+        getRasterizer().render(Collections.singletonList(mesh), createTopView(bbox), depthFrame);
+        return depthFrame.getDepthImage();
+    }
+
+    private void cutAndTexture(HalfEdgeScene halfEdgeScene, List<RasterMesh> sourceMeshes, List<HalfEdgeScene> resultHalfEdgeScenes, HalfEdgeOctree octree,
+                               List<GaiaAAPlane> cuttingPlanes, int gridDivisions, double screenPixelsForMeter, boolean makeHorizontalSkirt) {
+        List<HalfEdgeScene> resultCutHalfEdgeScenes = HalfEdgeCutter.cutHalfEdgeSceneByGaiaAAPlanes(halfEdgeScene, cuttingPlanes, octree, false, false);
+        ObliqueCameraTexturer texturer = new ObliqueCameraTexturer(getRasterizer(), atlasPacker, sourceMeshes);
+        int cutScenesCount = resultCutHalfEdgeScenes.size();
+        int i = 0;
+        for (HalfEdgeScene cutHalfEdgeScene : resultCutHalfEdgeScenes) {
+            log.info("makeBoxTexturesByObliqueCamera. cutScene : " + (i + 1) + " / " + cutScenesCount);
+            double gridSpacing = cutHalfEdgeScene.getBoundingBox().getMaxSize() / gridDivisions;
+            HalfEdgeScene cuttedScene = HalfEdgeCutter.cutHalfEdgeSceneGridXYZ(cutHalfEdgeScene, gridSpacing, new HalfEdgeOctree(null));
+            if (makeHorizontalSkirt) {
+                cuttedScene.makeHorizontalSkirt();
+            }
+
+            texturer.makeBoxTextures(cuttedScene, screenPixelsForMeter, BufferedImage.TYPE_INT_RGB);
+            cuttedScene.scissorTextures();
+            resultHalfEdgeScenes.add(cuttedScene);
+            i++;
+        }
+    }
+
+    private SoftwareRasterizer getRasterizer() {
+        if (rasterizer == null) {
+            rasterizer = new SoftwareRasterizer(threadCount);
+        }
+        return rasterizer;
+    }
+
+    /**
+     * Camera at the center of the box looking down, with the box as view volume.
+     */
+    private RasterView createTopView(GaiaBoundingBox bbox) {
+        RasterView view = RasterView.lookAlong(bbox.getCenter(), new Vector3d(0, 0, -1), new Vector3d(0, 1, 0));
+        double xLength = bbox.getSizeX();
+        double yLength = bbox.getSizeY();
+        double zLength = bbox.getSizeZ();
+        view.setOrthographic(-xLength / 2.0, xLength / 2.0, -yLength / 2.0, yLength / 2.0, -zLength / 2.0, zLength / 2.0);
+        return view;
+    }
+
+    /**
+     * Frame with the longest side of the box at the max screen size.
+     */
+    private RasterFrame createTopFrame(GaiaBoundingBox bbox, int maxScreenSize, boolean withColors) {
+        float xLength = (float) bbox.getSizeX();
+        float yLength = (float) bbox.getSizeY();
+        int width;
+        int height;
+        if (xLength > yLength) {
+            width = maxScreenSize;
+            height = (int) (maxScreenSize * yLength / xLength);
+        } else {
+            width = (int) (maxScreenSize * xLength / yLength);
+            height = maxScreenSize;
+        }
+        return new RasterFrame(width, height, withColors, false);
+    }
+
+    private void clearMaterials(GaiaScene gaiaScene) {
+        // the surfaces are joined into one surface, so the materials are no longer valid
+        for (GaiaMaterial material : gaiaScene.getMaterials()) {
+            material.clear();
+        }
+        gaiaScene.getMaterials().clear();
+    }
+
+    private void translateScene(GaiaScene gaiaScene, Vector3d translation) {
+        for (GaiaPrimitive primitive : gaiaScene.extractPrimitives(null)) {
+            for (GaiaVertex vertex : primitive.getVertices()) {
+                vertex.getPosition().add(translation);
+            }
+        }
+    }
+}
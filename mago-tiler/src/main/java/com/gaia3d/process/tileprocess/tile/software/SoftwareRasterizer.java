@@ -0,0 +1,322 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.process.TaskScheduler;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tiled software rasterizer of the orthographic frame buffers, the CPU counterpart of the OpenGL renderer.
+ * The triangles are binned into square screen tiles and the tiles are rasterized in parallel on the pool of the task scheduler, every pixel being written by a single thread.
+ * The triangles of a tile are drawn in submission order with the top-left fill rule, so the frame does not depend on the thread count.
+ */
+@Slf4j
+@Getter
+public class SoftwareRasterizer {
+    private static final int TILE_SIZE = 64;
+
+    @Getter(AccessLevel.NONE)
+    private final TaskScheduler scheduler;
+    private final int threadCount; // the number of tile workers of a render
+
+    @Setter
+    private GaiaBoundingBox clipBox = null; // the fragments out of the box are discarded, as the delimited shaders
+    @Setter
+    private boolean cullBackFaces = false; // the counter-clockwise faces are the front faces
+    @Setter
+    private boolean blend = false; // the colors are blended with their alpha over the frame colors
+
+    public SoftwareRasterizer(int threadCount) {
+        this(TaskScheduler.getInstance(), threadCount);
+    }
+
+    public SoftwareRasterizer(TaskScheduler scheduler, int threadCount) {
+        this.scheduler = scheduler;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Draws the meshes into the frame, with a depth test against the depths already in the frame.
+     */
+    public void render(List<RasterMesh> meshes, RasterView view, RasterFrame frame) {
+        int tilesX = (frame.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (frame.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        List<ScreenMesh> screenMeshes = new ArrayList<>();
+        TileBins bins = new TileBins(tilesX * tilesY);
+        for (int m = 0; m < meshes.size(); m++) {
+            ScreenMesh screenMesh = new ScreenMesh(meshes.get(m), view, frame);
+            screenMeshes.add(screenMesh);
+            binTriangles(m, screenMesh, frame.getWidth(), frame.getHeight(), bins);
+        }
+
+        int tileCount = tilesX * tilesY;
+        int workerCount = Math.min(threadCount, tileCount);
+        AtomicInteger nextTile = new AtomicInteger();
+        Runnable worker = () -> {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < tileCount) {
+                int tileX = tile % tilesX;
+                int tileY = tile / tilesX;
+                int minX = tileX * TILE_SIZE;
+                int minY = tileY * TILE_SIZE;
+                int maxX = Math.min(minX + TILE_SIZE, frame.getWidth());
+                int maxY = Math.min(minY + TILE_SIZE, frame.getHeight());
+                int[] bin = bins.entries[tile];
+                int binSize = bins.sizes[tile];
+                for (int i = 0; i < binSize; i += 2) {
+                    rasterizeTriangle(screenMeshes.get(bin[i]), bin[i + 1], frame, minX, minY, maxX, maxY);
+                }
+            }
+        };
+
+        if (workerCount <= 1) {
+            worker.run();
+            return;
+        }
+        scheduler.invokeAll(Collections.nCopies(workerCount, worker));
+    }
+
+    private void binTriangles(int meshIndex, ScreenMesh screenMesh, int width, int height, TileBins bins) {
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        RasterMesh mesh = screenMesh.mesh;
+        int[] indices = mesh.getIndices();
+        double[] positions = mesh.getPositions();
+        double[] xs = screenMesh.xs;
+        double[] ys = screenMesh.ys;
+        double[] zs = screenMesh.zs;
+        for (int t = 0; t < mesh.getTriangleCount(); t++) {
+            int i0 = indices[t * 3];
+            int i1 = indices[t * 3 + 1];
+            int i2 = indices[t * 3 + 2];
+
+            double area = (xs[i1] - xs[i0]) * (ys[i2] - ys[i0]) - (ys[i1] - ys[i0]) * (xs[i2] - xs[i0]);
+            // the screen rows go down, so the counter-clockwise faces have a negative area
+            if (area == 0.0 || (cullBackFaces && area > 0.0)) {
+                continue;
+            }
+            if (Math.max(zs[i0], Math.max(zs[i1], zs[i2])) < 0.0 || Math.min(zs[i0], Math.min(zs[i1], zs[i2])) > 1.0) {
+                continue;
+            }
+            if (clipBox != null && !intersectsClipBox(positions, i0, i1, i2)) {
+                continue;
+            }
+
+            double minX = Math.min(xs[i0], Math.min(xs[i1], xs[i2]));
+            double minY = Math.min(ys[i0], Math.min(ys[i1], ys[i2]));
+            double maxX = Math.max(xs[i0], Math.max(xs[i1], xs[i2]));
+            double maxY = Math.max(ys[i0], Math.max(ys[i1], ys[i2]));
+            if (maxX < 0.0 || maxY < 0.0 || minX > width || minY > height) {
+                continue;
+            }
+            int minTileX = Math.max(0, (int) Math.floor(minX) / TILE_SIZE);
+            int minTileY = Math.max(0, (int) Math.floor(minY) / TILE_SIZE);
+            int maxTileX = Math.min(tilesX - 1, (int) Math.floor(maxX) / TILE_SIZE);
+            int maxTileY = Math.min(tilesY - 1, (int) Math.floor(maxY) / TILE_SIZE);
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    bins.add(tileY * tilesX + tileX, meshIndex, t);
+                }
+            }
+        }
+    }
+
+    private boolean intersectsClipBox(double[] positions, int i0, int i1, int i2) {
+        for (int axis = 0; axis < 3; axis++) {
+            double p0 = positions[i0 * 3 + axis];
+            double p1 = positions[i1 * 3 + axis];
+            double p2 = positions[i2 * 3 + axis];
+            double min = Math.min(p0, Math.min(p1, p2));
+            double max = Math.max(p0, Math.max(p1, p2));
+            double boxMin = axis == 0 ? clipBox.getMinX() : axis == 1 ? clipBox.getMinY() : clipBox.getMinZ();
+            double boxMax = axis == 0 ? clipBox.getMaxX() : axis == 1 ? clipBox.getMaxY() : clipBox.getMaxZ();
+            if (max < boxMin || min > boxMax) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rasterizeTriangle(ScreenMesh screenMesh, int triangle, RasterFrame frame, int tileMinX, int tileMinY, int tileMaxX, int tileMaxY) {
+        RasterMesh mesh = screenMesh.mesh;
+        int[] indices = mesh.getIndices();
+        int i0 = indices[triangle * 3];
+        int i1 = indices[triangle * 3 + 1];
+        int i2 = indices[triangle * 3 + 2];
+        double[] xs = screenMesh.xs;
+        double[] ys = screenMesh.ys;
+
+        double area = (xs[i1] - xs[i0]) * (ys[i2] - ys[i0]) - (ys[i1] - ys[i0]) * (xs[i2] - xs[i0]);
+        if (area < 0.0) {
+            // make the edge functions positive inside the triangle
+            int swap = i1;
+            i1 = i2;
+            i2 = swap;
+            area = -area;
+        }
+        double x0 = xs[i0], y0 = ys[i0];
+        double x1 = xs[i1], y1 = ys[i1];
+        double x2 = xs[i2], y2 = ys[i2];
+
+        int minX = Math.max(tileMinX, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+        int minY = Math.max(tileMinY, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+        int maxX = Math.min(tileMaxX - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+        int maxY = Math.min(tileMaxY - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        boolean topLeft0 = isTopLeft(x2 - x1, y2 - y1);
+        boolean topLeft1 = isTopLeft(x0 - x2, y0 - y2);
+        boolean topLeft2 = isTopLeft(x1 - x0, y1 - y0);
+
+        double[] zs = screenMesh.zs;
+        double z0 = zs[i0], z1 = zs[i1], z2 = zs[i2];
+        double[] positions = mesh.getPositions();
+        double[] texcoords = mesh.getTexcoords();
+        int id = mesh.getTriangleIds()[triangle];
+        RasterMaterial material = mesh.getTriangleMaterials()[triangle];
+
+        int width = frame.getWidth();
+        float[] depths = frame.getDepths();
+        int[] colors = frame.getColors();
+        int[] ids = frame.getIds();
+        for (int py = minY; py <= maxY; py++) {
+            double cy = py + 0.5;
+            for (int px = minX; px <= maxX; px++) {
+                double cx = px + 0.5;
+                double w0 = (x2 - x1) * (cy - y1) - (y2 - y1) * (cx - x1);
+                double w1 = (x0 - x2) * (cy - y2) - (y0 - y2) * (cx - x2);
+                double w2 = (x1 - x0) * (cy - y0) - (y1 - y0) * (cx - x0);
+                if (w0 < 0.0 || w1 < 0.0 || w2 < 0.0) {
+                    continue;
+                }
+                if ((w0 == 0.0 && !topLeft0) || (w1 == 0.0 && !topLeft1) || (w2 == 0.0 && !topLeft2)) {
+                    continue;
+                }
+                w0 /= area;
+                w1 /= area;
+                w2 /= area;
+
+                double z = w0 * z0 + w1 * z1 + w2 * z2;
+                int pixel = py * width + px;
+                if (z < 0.0 || z > 1.0 || z >= depths[pixel]) {
+                    continue;
+                }
+                if (clipBox != null && !containsFragment(positions, i0, i1, i2, w0, w1, w2)) {
+                    continue;
+                }
+                depths[pixel] = (float) z;
+                if (ids != null) {
+                    ids[pixel] = id;
+                }
+                if (colors != null) {
+                    double u = w0 * texcoords[i0 * 2] + w1 * texcoords[i1 * 2] + w2 * texcoords[i2 * 2];
+                    double v = w0 * texcoords[i0 * 2 + 1] + w1 * texcoords[i1 * 2 + 1] + w2 * texcoords[i2 * 2 + 1];
+                    int color = material.sample(u, v);
+                    colors[pixel] = blend ? blendColor(color, colors[pixel]) : color;
+                }
+            }
+        }
+    }
+
+    private boolean containsFragment(double[] positions, int i0, int i1, int i2, double w0, double w1, double w2) {
+        double x = w0 * positions[i0 * 3] + w1 * positions[i1 * 3] + w2 * positions[i2 * 3];
+        double y = w0 * positions[i0 * 3 + 1] + w1 * positions[i1 * 3 + 1] + w2 * positions[i2 * 3 + 1];
+        double z = w0 * positions[i0 * 3 + 2] + w1 * positions[i1 * 3 + 2] + w2 * positions[i2 * 3 + 2];
+        return x >= clipBox.getMinX() && x <= clipBox.getMaxX() && y >= clipBox.getMinY() && y <= clipBox.getMaxY() && z >= clipBox.getMinZ() && z <= clipBox.getMaxZ();
+    }
+
+    /**
+     * An edge shared by two triangles is drawn by only one of them, they go through it in opposite directions.
+     */
+    private boolean isTopLeft(double dx, double dy) {
+        return dy < 0.0 || (dy == 0.0 && dx > 0.0);
+    }
+
+    private int blendColor(int source, int destination) {
+        int alpha = source >>> 24;
+        if (alpha == 255) {
+            return source;
+        }
+        // GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA
+        double sourceFactor = alpha / 255.0;
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            double channel = ((source >>> shift) & 0xFF) * sourceFactor + ((destination >>> shift) & 0xFF) * (1.0 - sourceFactor);
+            result |= (int) Math.round(channel) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Screen positions of the mesh vertices, x and y in pixels from the top-left corner and z as depth.
+     */
+    private static class ScreenMesh {
+        private final RasterMesh mesh;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] zs;
+
+        private ScreenMesh(RasterMesh mesh, RasterView view, RasterFrame frame) {
+            this.mesh = mesh;
+            int vertexCount = mesh.getVertexCount();
+            this.xs = new double[vertexCount];
+            this.ys = new double[vertexCount];
+            this.zs = new double[vertexCount];
+
+            Matrix4d matrix = view.getModelViewMatrix();
+            double scaleX = frame.getWidth() / (view.getRight() - view.getLeft());
+            double scaleY = frame.getHeight() / (view.getTop() - view.getBottom());
+            double depthRange = view.getFar() - view.getNear();
+            double[] positions = mesh.getPositions();
+            for (int i = 0; i < vertexCount; i++) {
+                double x = positions[i * 3];
+                double y = positions[i * 3 + 1];
+                double z = positions[i * 3 + 2];
+                double eyeX = matrix.m00() * x + matrix.m10() * y + matrix.m20() * z + matrix.m30();
+                double eyeY = matrix.m01() * x + matrix.m11() * y + matrix.m21() * z + matrix.m31();
+                double eyeZ = matrix.m02() * x + matrix.m12() * y + matrix.m22() * z + matrix.m32();
+                xs[i] = (eyeX - view.getLeft()) * scaleX;
+                ys[i] = (view.getTop() - eyeY) * scaleY;
+                zs[i] = (-eyeZ - view.getNear()) / depthRange;
+            }
+        }
+    }
+
+    /**
+     * Triangles overlapping each tile, as pairs of mesh index and triangle index.
+     */
+    private static class TileBins {
+        private final int[][] entries;
+        private final int[] sizes;
+
+        private TileBins(int tileCount) {
+            this.entries = new int[tileCount][];
+            this.sizes = new int[tileCount];
+        }
+
+        private void add(int tile, int meshIndex, int triangle) {
+            int[] bin = entries[tile];
+            int size = sizes[tile];
+            if (bin == null) {
+                bin = new int[32];
+            } else if (size + 2 > bin.length) {
+                bin = Arrays.copyOf(bin, bin.length * 2);
+            }
+            bin[size] = meshIndex;
+            bin[size + 1] = triangle;
+            entries[tile] = bin;
+            sizes[tile] = size + 2;
+        }
+    }
+}
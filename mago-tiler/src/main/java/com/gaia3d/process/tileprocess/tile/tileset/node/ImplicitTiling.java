@@ -0,0 +1,27 @@
+package com.gaia3d.process.tileprocess.tile.tileset.node;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 3D Tiles 1.1 implicit tiling of a tile, the tree below it is described by subtree files.
+ */
+@Getter
+@Setter
+public class ImplicitTiling {
+
+    public enum SubdivisionScheme {
+        QUADTREE, OCTREE,
+    }
+
+    private SubdivisionScheme subdivisionScheme;
+    private int subtreeLevels;
+    private int availableLevels;
+    private Subtrees subtrees;
+
+    @Getter
+    @Setter
+    public static class Subtrees {
+        private String uri;
+    }
+}
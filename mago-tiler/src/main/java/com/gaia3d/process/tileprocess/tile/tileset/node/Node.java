@@ -47,6 +47,8 @@ public class Node {
     private float[] transform;
     private List<Node> children;
     private Content content;
+    private List<Content> contents;
+    private ImplicitTiling implicitTiling;
 
     public void setTransformMatrix(Matrix4d transformMatrixAux, boolean useTransform) {
         this.transformMatrixAux = transformMatrixAux;
@@ -0,0 +1,223 @@
+package com.gaia3d.basic.exchangable;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.model.GaiaAttribute;
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.AccessorType;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaSetWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeAndRead() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaSet original = createSampleSet(3, 100);
+
+        File file = tempDir.resolve("sample.mgb").toFile();
+        new GaiaSetWriter().write(original, file);
+        GaiaSet loaded = new GaiaSetReader().read(file);
+        assertSameSet(original, loaded);
+    }
+
+    @Test
+    void writeAndReadCompressed() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaSet original = createSampleSet(3, 100);
+
+        File file = tempDir.resolve("sample.mgb").toFile();
+        new GaiaSetWriter(true).write(original, file);
+        GaiaSet loaded = new GaiaSetReader().read(file);
+        assertSameSet(original, loaded);
+    }
+
+    @Test
+    void readLegacySerializedFile() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaSet original = createSampleSet(2, 50);
+
+        File file = tempDir.resolve("legacy.mgb").toFile();
+        writeLegacy(original, file);
+        GaiaSet loaded = new GaiaSetReader().read(file);
+        assertSameSet(original, loaded);
+    }
+
+    /**
+     * Compares bytes-on-disk and read/write throughput of the java serialization and the binary temp format.
+     */
+    @Test
+    void benchmark() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaSet gaiaSet = createSampleSet(2000, 1000);
+        int iterations = 5;
+
+        File legacyFile = tempDir.resolve("legacy.mgb").toFile();
+        File binaryFile = tempDir.resolve("binary.mgb").toFile();
+        File compressedFile = tempDir.resolve("compressed.mgb").toFile();
+
+        long legacyWrite = 0, legacyRead = 0, binaryWrite = 0, binaryRead = 0, compressedWrite = 0, compressedRead = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            writeLegacy(gaiaSet, legacyFile);
+            legacyWrite += System.nanoTime() - start;
+            start = System.nanoTime();
+            readLegacy(legacyFile);
+            legacyRead += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new GaiaSetWriter().write(gaiaSet, binaryFile);
+            binaryWrite += System.nanoTime() - start;
+            start = System.nanoTime();
+            new GaiaSetReader().read(binaryFile);
+            binaryRead += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new GaiaSetWriter(true).write(gaiaSet, compressedFile);
+            compressedWrite += System.nanoTime() - start;
+            start = System.nanoTime();
+            new GaiaSetReader().read(compressedFile);
+            compressedRead += System.nanoTime() - start;
+        }
+
+        logResult("java serialization", legacyFile.length(), legacyWrite / iterations, legacyRead / iterations);
+        logResult("binary", binaryFile.length(), binaryWrite / iterations, binaryRead / iterations);
+        logResult("binary (deflate)", compressedFile.length(), compressedWrite / iterations, compressedRead / iterations);
+        assertTrue(binaryFile.length() <= legacyFile.length());
+    }
+
+    private void logResult(String name, long bytes, long writeNanos, long readNanos) {
+        double megaBytes = bytes / 1024.0 / 1024.0;
+        log.info("[{}] size : {} bytes, write : {} MB/s, read : {} MB/s", name, bytes,
+                String.format("%.1f", megaBytes / (writeNanos / 1e9)),
+                String.format("%.1f", megaBytes / (readNanos / 1e9)));
+    }
+
+    private void writeLegacy(GaiaSet gaiaSet, File file) throws IOException {
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            outputStream.writeObject(gaiaSet);
+        }
+    }
+
+    private GaiaSet readLegacy(File file) throws IOException {
+        try (ObjectInputStream inputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (GaiaSet) inputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private GaiaSet createSampleSet(int bufferDataCount, int vertexCount) {
+        Random random = new Random(2620);
+        GaiaSet gaiaSet = new GaiaSet();
+        gaiaSet.setProjectName("sample");
+        gaiaSet.setFilePath("sample.obj");
+
+        GaiaAttribute attribute = new GaiaAttribute();
+        attribute.setNodeName("node");
+        attribute.getAttributes().put("name", "building");
+        gaiaSet.setAttribute(attribute);
+
+        GaiaMaterial material = new GaiaMaterial();
+        material.setId(0);
+        material.setName("material");
+        GaiaTexture texture = new GaiaTexture();
+        texture.setParentPath("/input");
+        texture.setPath("texture.png");
+        texture.setType(TextureType.DIFFUSE);
+        List<GaiaTexture> textures = new ArrayList<>();
+        textures.add(texture);
+        material.getTextures().put(TextureType.DIFFUSE, textures);
+        List<GaiaMaterial> materials = new ArrayList<>();
+        materials.add(material);
+        gaiaSet.setMaterials(materials);
+
+        List<GaiaBufferDataSet> bufferDataList = new ArrayList<>();
+        for (int i = 0; i < bufferDataCount; i++) {
+            GaiaBufferDataSet bufferDataSet = new GaiaBufferDataSet();
+            bufferDataSet.setId(i);
+            bufferDataSet.setMaterialId(0);
+            bufferDataSet.setTransformMatrix(new Matrix4d().translate(i, i, i));
+            GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+            boundingBox.addPoint(0, 0, 0);
+            boundingBox.addPoint(i, i, i);
+            bufferDataSet.setBoundingBox(boundingBox);
+
+            float[] positions = new float[vertexCount * 3];
+            for (int j = 0; j < positions.length; j++) {
+                positions[j] = random.nextFloat() * 100.0f;
+            }
+            int[] indices = new int[vertexCount * 3];
+            for (int j = 0; j < indices.length; j++) {
+                indices[j] = random.nextInt(vertexCount);
+            }
+            bufferDataSet.getBuffers().put(AttributeType.POSITION, createBuffer(AttributeType.POSITION, AccessorType.VEC3, positions, null));
+            bufferDataSet.getBuffers().put(AttributeType.INDICE, createBuffer(AttributeType.INDICE, AccessorType.SCALAR, null, indices));
+            bufferDataList.add(bufferDataSet);
+        }
+        gaiaSet.setBufferDataList(bufferDataList);
+        return gaiaSet;
+    }
+
+    private GaiaBuffer createBuffer(AttributeType attributeType, AccessorType accessorType, float[] floats, int[] ints) {
+        GaiaBuffer buffer = new GaiaBuffer();
+        buffer.setAttributeType(attributeType);
+        buffer.setAccessorType(accessorType);
+        buffer.setGlDimension((byte) (accessorType == AccessorType.VEC3 ? 3 : 1));
+        buffer.setFloats(floats);
+        buffer.setInts(ints);
+        buffer.setElementsCount(floats != null ? floats.length / 3 : ints.length);
+        return buffer;
+    }
+
+    private void assertSameSet(GaiaSet expected, GaiaSet actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getProjectName(), actual.getProjectName());
+        assertEquals(expected.getFilePath(), actual.getFilePath());
+        assertEquals(expected.getAttribute().getIdentifier(), actual.getAttribute().getIdentifier());
+        assertEquals(expected.getAttribute().getAttributes(), actual.getAttribute().getAttributes());
+
+        assertEquals(expected.getMaterials().size(), actual.getMaterials().size());
+        GaiaMaterial expectedMaterial = expected.getMaterials().get(0);
+        GaiaMaterial actualMaterial = actual.getMaterials().get(0);
+        assertEquals(expectedMaterial.getName(), actualMaterial.getName());
+        assertEquals(expectedMaterial.getDiffuseColor(), actualMaterial.getDiffuseColor());
+        GaiaTexture expectedTexture = expectedMaterial.getTextures().get(TextureType.DIFFUSE).get(0);
+        GaiaTexture actualTexture = actualMaterial.getTextures().get(TextureType.DIFFUSE).get(0);
+        assertEquals(expectedTexture.getPath(), actualTexture.getPath());
+        assertEquals(expectedTexture.getParentPath(), actualTexture.getParentPath());
+
+        assertEquals(expected.getBufferDataList().size(), actual.getBufferDataList().size());
+        for (int i = 0; i < expected.getBufferDataList().size(); i++) {
+            GaiaBufferDataSet expectedData = expected.getBufferDataList().get(i);
+            GaiaBufferDataSet actualData = actual.getBufferDataList().get(i);
+            assertEquals(expectedData.getId(), actualData.getId());
+            assertEquals(expectedData.getTransformMatrix(), actualData.getTransformMatrix());
+            assertEquals(expectedData.getBoundingBox().getMaxX(), actualData.getBoundingBox().getMaxX());
+            assertNull(actualData.getPreMultipliedTransformMatrix());
+            GaiaBuffer expectedPositions = expectedData.getBuffers().get(AttributeType.POSITION);
+            GaiaBuffer actualPositions = actualData.getBuffers().get(AttributeType.POSITION);
+            assertEquals(expectedPositions.getAccessorType(), actualPositions.getAccessorType());
+            assertEquals(expectedPositions.getElementsCount(), actualPositions.getElementsCount());
+            assertArrayEquals(expectedPositions.getFloats(), actualPositions.getFloats());
+            assertArrayEquals(expectedData.getBuffers().get(AttributeType.INDICE).getInts(), actualData.getBuffers().get(AttributeType.INDICE).getInts());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.gaia3d.basic.geometry;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaPrimitive;
+import com.gaia3d.basic.model.GaiaSurface;
+import com.gaia3d.basic.model.GaiaVertex;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+class GaiaVertexWelderTest {
+
+    @Test
+    void weldGrid() {
+        Configuration.initConsoleLogger();
+        int size = 20;
+        GaiaPrimitive primitive = createUnweldedGrid(size, 1.0e-5);
+        assertEquals(size * size * 6, primitive.getVertices().size());
+
+        primitive.weldVertices(1.0e-4, false, false, false, false);
+        assertEquals((size + 1) * (size + 1), primitive.getVertices().size());
+        assertEquals(size * size * 2, primitive.getSurfaces().get(0).getFaces().size());
+        for (GaiaFace face : primitive.getSurfaces().get(0).getFaces()) {
+            for (int index : face.getIndices()) {
+                assertEquals(true, index < primitive.getVertices().size());
+            }
+        }
+    }
+
+    @Test
+    void removeCollapsedFaces() {
+        Configuration.initConsoleLogger();
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        GaiaSurface surface = new GaiaSurface();
+        primitive.getSurfaces().add(surface);
+        addTriangle(primitive, surface, new Vector3d(0, 0, 0), new Vector3d(1, 0, 0), new Vector3d(0, 1, 0));
+        addTriangle(primitive, surface, new Vector3d(0, 0, 0), new Vector3d(0.00001, 0, 0), new Vector3d(0, 1, 0));
+
+        primitive.weldVertices(0.001, false, false, false, false);
+        assertEquals(3, primitive.getVertices().size());
+        assertEquals(1, surface.getFaces().size());
+    }
+
+    @Test
+    void honorPredicates() {
+        Configuration.initConsoleLogger();
+        List<GaiaVertex> vertices = new ArrayList<>();
+        vertices.add(createVertex(new Vector3d(0, 0, 0), new Vector2d(0, 0), 0));
+        vertices.add(createVertex(new Vector3d(0, 0, 0), new Vector2d(0, 0), 1));
+        vertices.add(createVertex(new Vector3d(0, 0, 0), new Vector2d(0.5, 0), 0));
+        vertices.add(createVertex(new Vector3d(0.0005, 0, 0), new Vector2d(0, 0), 1));
+
+        int[] masters = GaiaVertexWelder.weld(vertices, 0.001, true, false, false, true);
+        assertEquals(0, masters[0]);
+        assertEquals(1, masters[1]);
+        assertEquals(2, masters[2]);
+        assertEquals(1, masters[3]);
+
+        masters = GaiaVertexWelder.weld(vertices, 0.001, false, false, false, false);
+        assertEquals(0, masters[1]);
+        assertEquals(0, masters[2]);
+        assertEquals(0, masters[3]);
+        assertEquals(0, GaiaVertexWelder.compact(masters)[3]);
+    }
+
+    @Disabled
+    @Test
+    void weldMillionVertices() {
+        Configuration.initConsoleLogger();
+        int size = 420;
+        GaiaPrimitive primitive = createUnweldedGrid(size, 1.0e-5);
+        int vertexCount = primitive.getVertices().size();
+
+        long startTime = System.nanoTime();
+        primitive.weldVertices(1.0e-4, false, false, false, false);
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+        log.info("Welded {} vertices to {} in {}ms ({} vertices/s)", vertexCount, primitive.getVertices().size(), elapsedMillis, vertexCount * 1000L / elapsedMillis);
+        assertEquals((size + 1) * (size + 1), primitive.getVertices().size());
+    }
+
+    private GaiaPrimitive createUnweldedGrid(int size, double noise) {
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        GaiaSurface surface = new GaiaSurface();
+        primitive.getSurfaces().add(surface);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Vector3d p00 = new Vector3d(x, y, 0);
+                Vector3d p10 = new Vector3d(x + 1, y, 0);
+                Vector3d p01 = new Vector3d(x, y + 1, 0);
+                Vector3d p11 = new Vector3d(x + 1, y + 1, 0);
+                addTriangle(primitive, surface, jitter(p00, noise, x), jitter(p10, noise, y), jitter(p11, noise, x + y));
+                addTriangle(primitive, surface, jitter(p00, noise, y), jitter(p11, noise, x), jitter(p01, noise, x * y));
+            }
+        }
+        return primitive;
+    }
+
+    private Vector3d jitter(Vector3d position, double noise, int seed) {
+        double offset = (seed % 3 - 1) * noise;
+        return position.add(offset, -offset, offset);
+    }
+
+    private void addTriangle(GaiaPrimitive primitive, GaiaSurface surface, Vector3d a, Vector3d b, Vector3d c) {
+        List<GaiaVertex> vertices = primitive.getVertices();
+        int first = vertices.size();
+        vertices.add(createVertex(new Vector3d(a), null, 0));
+        vertices.add(createVertex(new Vector3d(b), null, 0));
+        vertices.add(createVertex(new Vector3d(c), null, 0));
+        GaiaFace face = new GaiaFace();
+        face.setIndices(new int[]{first, first + 1, first + 2});
+        surface.getFaces().add(face);
+    }
+
+    private GaiaVertex createVertex(Vector3d position, Vector2d texcoords, float batchId) {
+        GaiaVertex vertex = new GaiaVertex();
+        vertex.setPosition(position);
+        vertex.setTexcoords(texcoords);
+        vertex.setBatchId(batchId);
+        return vertex;
+    }
+}
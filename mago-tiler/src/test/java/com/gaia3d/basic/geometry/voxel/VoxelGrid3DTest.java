@@ -0,0 +1,112 @@
+package com.gaia3d.basic.geometry.voxel;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.marchingcube.MarchingCube;
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class VoxelGrid3DTest {
+
+    @Test
+    void keepMostOpaqueColor() {
+        Configuration.initConsoleLogger();
+        VoxelGrid3D voxelGrid = new VoxelGrid3D(10, 12, 14, createBoundingBox());
+
+        byte[] xyBuffer = new byte[10 * 12 * 4];
+        setPixel(xyBuffer, 3 + 5 * 10, 10, 20, 30, 100);
+        voxelGrid.setVoxelsByAlphaXY(7, xyBuffer);
+
+        byte[] xzBuffer = new byte[10 * 14 * 4];
+        setPixel(xzBuffer, 3 + 7 * 10, 40, 50, 60, 50);
+        voxelGrid.setVoxelsByAlphaXZ(5, xzBuffer);
+
+        // the YZ buffer rows are ordered from the last y to the first y
+        byte[] yzBuffer = new byte[12 * 14 * 4];
+        setPixel(yzBuffer, (12 - 1 - 5) + 7 * 12, 70, 80, 90, 200);
+        voxelGrid.setVoxelsByAlphaYZ(3, yzBuffer);
+
+        Voxel voxel = voxelGrid.getVoxel(3, 5, 7);
+        assertEquals(70, voxel.getColor().getR() & 0xFF);
+        assertEquals(200, voxel.getAlphaInt());
+        assertEquals(VoxelGrid3D.packRgba((byte) 70, (byte) 80, (byte) 90, (byte) 200), voxelGrid.getRgba(3, 5, 7));
+        assertEquals(0, voxelGrid.getVoxelAlphaInt(4, 5, 7));
+        assertEquals(1, voxelGrid.getAllocatedBricksCount());
+
+        voxelGrid.expand(1);
+        assertEquals(12, voxelGrid.getGridsCountX());
+        assertEquals(200, voxelGrid.getVoxelAlphaInt(4, 6, 8));
+        assertEquals(0, voxelGrid.getVoxelAlphaInt(3, 5, 7));
+        assertEquals(1, voxelGrid.getAllocatedBricksCount());
+    }
+
+    @Test
+    void marchingCubeSphere() {
+        Configuration.initConsoleLogger();
+        int size = 40;
+        VoxelGrid3D voxelGrid = createSphere(size, 12);
+        assertTrue(voxelGrid.getAllocatedBricksCount() < 5 * 5 * 5);
+
+        GaiaScene gaiaScene = MarchingCube.makeGaiaScene(voxelGrid, 0.5f);
+        long triangleCount = gaiaScene.calcTriangleCount();
+        log.info("Sphere of {} voxels, {} triangles", size, triangleCount);
+        assertTrue(triangleCount > 0);
+        GaiaBoundingBox sceneBoundingBox = gaiaScene.updateBoundingBox();
+        assertTrue(sceneBoundingBox.getSizeX() > 0.5 && sceneBoundingBox.getSizeX() < 0.7);
+    }
+
+    @Disabled
+    @Test
+    void largeSparseGrid() {
+        Configuration.initConsoleLogger();
+        int size = 512;
+        long startTime = System.nanoTime();
+        VoxelGrid3D voxelGrid = createSphere(size, 64);
+        log.info("Voxelized {}^3 in {}ms, {} bricks", size, (System.nanoTime() - startTime) / 1000000, voxelGrid.getAllocatedBricksCount());
+
+        startTime = System.nanoTime();
+        GaiaScene gaiaScene = MarchingCube.makeGaiaScene(voxelGrid, 0.5f);
+        log.info("Marching cubes {}^3 in {}ms, {} triangles", size, (System.nanoTime() - startTime) / 1000000, gaiaScene.calcTriangleCount());
+    }
+
+    private VoxelGrid3D createSphere(int size, int radius) {
+        VoxelGrid3D voxelGrid = new VoxelGrid3D(size, size, size, createBoundingBox());
+        double center = size / 2.0;
+        byte[] buffer = new byte[size * size * 4];
+        for (int z = 0; z < size; z++) {
+            Arrays.fill(buffer, (byte) 0);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    double distance = Math.sqrt((x - center) * (x - center) + (y - center) * (y - center) + (z - center) * (z - center));
+                    if (distance < radius) {
+                        setPixel(buffer, y * size + x, 255, 255, 255, 255);
+                    }
+                }
+            }
+            voxelGrid.setVoxelsByAlphaXY(z, buffer);
+        }
+        return voxelGrid;
+    }
+
+    private GaiaBoundingBox createBoundingBox() {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(0, 0, 0);
+        boundingBox.addPoint(1, 1, 1);
+        return boundingBox;
+    }
+
+    private void setPixel(byte[] buffer, int pixel, int r, int g, int b, int a) {
+        buffer[pixel * 4] = (byte) r;
+        buffer[pixel * 4 + 1] = (byte) g;
+        buffer[pixel * 4 + 2] = (byte) b;
+        buffer[pixel * 4 + 3] = (byte) a;
+    }
+}
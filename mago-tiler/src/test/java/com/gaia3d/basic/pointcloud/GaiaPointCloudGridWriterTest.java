@@ -0,0 +1,93 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaPointCloudGridWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeFromSeveralWorkers() throws Exception {
+        Configuration.initConsoleLogger();
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(0, 0, 0);
+        boundingBox.addPoint(100, 100, 10);
+        // two cells split at x = 50
+        double[] samples = new double[]{25, 50, 5, 50, 50, 5};
+        GaiaPointCloudPartition partition = GaiaPointCloudPartition.build(boundingBox, samples, 2, 2, 1, new double[]{1, 1, 1});
+        assertEquals(2, partition.getCellCount());
+        GaiaPointCloudHeader header = GaiaPointCloudHeader.builder()
+                .uuid(UUID.randomUUID())
+                .srsBoundingBox(boundingBox)
+                .partition(partition)
+                .tempCells(new GaiaPointCloudTemp[2])
+                .writerPool(new GaiaPointCloudTempWriterPool(1, 1024))
+                .build();
+        GaiaPointCloudTemp[] tempCells = header.getTempCells();
+        for (int i = 0; i < 2; i++) {
+            GaiaPointCloudTemp temp = new GaiaPointCloudTemp(new File(tempDir.toFile(), i + ".bin"));
+            temp.getQuantizedVolumeScale()[0] = 100;
+            temp.getQuantizedVolumeScale()[1] = 100;
+            temp.getQuantizedVolumeScale()[2] = 10;
+            temp.writeHeader();
+            temp.getOutputStream().close();
+            tempCells[i] = temp;
+        }
+
+        int workers = 4;
+        int pointsPerWorker = 25000;
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            int seed = worker;
+            futures.add(executorService.submit(() -> {
+                Random random = new Random(seed);
+                GaiaPointCloudGridWriter gridWriter = new GaiaPointCloudGridWriter(header);
+                for (int i = 0; i < pointsPerWorker; i++) {
+                    // x < 50 goes to the first cell, the classification records the expected cell
+                    double x = random.nextDouble() * 99.9;
+                    double y = random.nextDouble() * 99.9;
+                    gridWriter.write(x, y, 5.0, (byte) 1, (byte) 2, (byte) 3, (char) seed, (short) (x < 50 ? 0 : 1));
+                }
+                gridWriter.flush();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+        header.getWriterPool().close();
+        assertTrue(header.getWriterPool().getEvictCount() > 0);
+
+        long total = 0;
+        for (int i = 0; i < 2; i++) {
+            try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(tempCells[i].getTempFile())) {
+                for (long k = 0; k < reader.getPointCount(); k++) {
+                    assertEquals(i, reader.getClassification(k));
+                    assertEquals(3, reader.getBlue(k));
+                }
+                total += reader.getPointCount();
+            }
+        }
+        assertEquals((long) workers * pointsPerWorker, total);
+    }
+}
@@ -0,0 +1,71 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaPointCloudPartitionTest {
+
+    @Test
+    void splitDenseTower() {
+        Configuration.initConsoleLogger();
+        // a 1km x 1km flat area with a 10m x 10m x 300m dense tower in the middle
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(0, 0, 0);
+        boundingBox.addPoint(1000, 1000, 300);
+        int sampleCount = 100000;
+        double[] samples = new double[sampleCount * 3];
+        Random random = new Random(42);
+        for (int i = 0; i < sampleCount; i++) {
+            boolean tower = i % 2 == 0;
+            samples[i * 3] = tower ? 495 + random.nextDouble() * 10 : random.nextDouble() * 1000;
+            samples[i * 3 + 1] = tower ? 495 + random.nextDouble() * 10 : random.nextDouble() * 1000;
+            samples[i * 3 + 2] = tower ? random.nextDouble() * 300 : random.nextDouble();
+        }
+
+        long totalPoints = 100_000_000L;
+        long cellPointLimit = 4_000_000L;
+        GaiaPointCloudPartition partition = GaiaPointCloudPartition.build(boundingBox, samples, sampleCount, totalPoints, cellPointLimit, new double[]{1, 1, 1});
+
+        int[] counts = new int[partition.getCellCount()];
+        boolean splitInHeight = false;
+        for (int i = 0; i < sampleCount; i++) {
+            double x = samples[i * 3];
+            double y = samples[i * 3 + 1];
+            double z = samples[i * 3 + 2];
+            int cell = partition.findCell(x, y, z);
+            assertTrue(cell >= 0);
+            GaiaBoundingBox cellBoundingBox = partition.getCellBoundingBox(cell);
+            assertTrue(x >= cellBoundingBox.getMinX() && x <= cellBoundingBox.getMaxX());
+            assertTrue(y >= cellBoundingBox.getMinY() && y <= cellBoundingBox.getMaxY());
+            assertTrue(z >= cellBoundingBox.getMinZ() && z <= cellBoundingBox.getMaxZ());
+            splitInHeight |= cellBoundingBox.getMaxZ() - cellBoundingBox.getMinZ() < 300;
+            counts[cell]++;
+        }
+
+        double pointsPerSample = (double) totalPoints / sampleCount;
+        for (int count : counts) {
+            assertTrue(count * pointsPerSample <= cellPointLimit);
+        }
+        assertTrue(splitInHeight);
+        assertEquals(-1, partition.findCell(1001, 0, 0));
+        assertTrue(partition.findCell(1000, 1000, 300) >= 0);
+        log.info("{} cells", partition.getCellCount());
+    }
+
+    @Test
+    void singleCell() {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(0, 0, 0);
+        boundingBox.addPoint(10, 10, 10);
+        GaiaPointCloudPartition partition = GaiaPointCloudPartition.single(boundingBox);
+        assertEquals(1, partition.getCellCount());
+        assertEquals(0, partition.findCell(5, 5, 5));
+    }
+}
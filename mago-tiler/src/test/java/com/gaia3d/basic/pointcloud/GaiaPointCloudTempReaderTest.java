@@ -0,0 +1,96 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaPointCloudTempReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readMappedPoints() throws IOException {
+        Configuration.initConsoleLogger();
+        PointBuffer points = createPoints(1000);
+        File tempFile = writeTemp(points);
+
+        try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(tempFile)) {
+            assertEquals(points.size(), reader.getPointCount());
+            Vector3d position = new Vector3d();
+            byte[] color = new byte[3];
+            for (int i = 0; i < points.size(); i++) {
+                reader.getPosition(i, position);
+                assertEquals(points.getX(i), position.x, 1.0E-3);
+                assertEquals(points.getY(i), position.y, 1.0E-3);
+                assertEquals(points.getZ(i), position.z, 1.0E-3);
+                assertArrayEquals(new byte[]{points.getRed(i), points.getGreen(i), points.getBlue(i)}, reader.getColor(i, color));
+                assertEquals(points.getIntensity(i), reader.getIntensity(i));
+                assertEquals(points.getClassification(i), reader.getClassification(i));
+            }
+        }
+    }
+
+    @Test
+    void maximizeFromMappedTemp() {
+        Configuration.initConsoleLogger();
+        PointBuffer points = createPoints(500);
+        GaiaPointCloud pointCloud = new GaiaPointCloud();
+        pointCloud.setGaiaBoundingBox(points.calcBoundingBox());
+        pointCloud.setPointBuffer(points);
+        pointCloud.minimize(tempDir.resolve("minimized.bin").toFile());
+        assertNull(pointCloud.getPointBuffer());
+
+        pointCloud.maximize();
+        PointBuffer loaded = pointCloud.getPointBuffer();
+        assertEquals(points.size(), loaded.size());
+        assertEquals(points.size(), pointCloud.getVertexCount());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.getQuantizedX(i), loaded.getQuantizedX(i));
+            assertEquals(points.getClassification(i), loaded.getClassification(i));
+        }
+    }
+
+    @Test
+    void rejectInvalidHeader() throws IOException {
+        Configuration.initConsoleLogger();
+        File invalidFile = tempDir.resolve("invalid.bin").toFile();
+        Files.write(invalidFile.toPath(), new byte[60]);
+        assertThrows(IOException.class, () -> new GaiaPointCloudTempReader(invalidFile));
+    }
+
+    private File writeTemp(PointBuffer points) throws IOException {
+        File tempFile = tempDir.resolve("points.bin").toFile();
+        GaiaPointCloudTemp temp = new GaiaPointCloudTemp(tempFile);
+        System.arraycopy(points.getQuantizedVolumeScale(), 0, temp.getQuantizedVolumeScale(), 0, 3);
+        System.arraycopy(points.getQuantizedVolumeOffset(), 0, temp.getQuantizedVolumeOffset(), 0, 3);
+        temp.writeHeader();
+        temp.writePoints(points);
+        temp.getOutputStream().close();
+        return tempFile;
+    }
+
+    static PointBuffer createPoints(int count) {
+        Random random = new Random(42);
+        double[] scale = new double[]{100.0, 100.0, 10.0};
+        double[] offset = new double[]{200000.0, 500000.0, 0.0};
+        PointBuffer points = new PointBuffer(count, scale, offset);
+        for (int i = 0; i < count; i++) {
+            points.set(i, random.nextFloat(), random.nextFloat(), random.nextFloat(),
+                    (byte) random.nextInt(256), (byte) random.nextInt(256), (byte) random.nextInt(256),
+                    (char) random.nextInt(65536), (short) random.nextInt(32));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,107 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaPointCloudTempShuffleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shuffleInMemory() throws IOException {
+        Configuration.initConsoleLogger();
+        File file = createSyntheticCell(tempDir.resolve("cell.bin").toFile(), 10000);
+        GaiaPointCloudTemp temp = new GaiaPointCloudTemp(file);
+        temp.shuffleTempExternal(1, 1, 64L * 1024 * 1024);
+        assertShuffled(temp.getTempFile(), 10000);
+    }
+
+    @Test
+    void shuffleWithRuns() throws IOException {
+        Configuration.initConsoleLogger();
+        File file = createSyntheticCell(tempDir.resolve("cell.bin").toFile(), 100000);
+        GaiaPointCloudTemp temp = new GaiaPointCloudTemp(file);
+        // 8000 records per run, 13 runs
+        temp.shuffleTempExternal(1, 1, 8000 * 20);
+        assertShuffled(temp.getTempFile(), 100000);
+        assertEquals(1, tempDir.toFile().listFiles().length);
+    }
+
+    /**
+     * Compares the seek based shuffle with the external shuffle on a synthetic 100M-point cell (2GB).
+     */
+    @Disabled
+    @Test
+    void benchmark() throws IOException {
+        Configuration.initConsoleLogger();
+        int pointCount = 100_000_000;
+        long memoryBudget = 512L * 1024 * 1024;
+
+        File seekFile = createSyntheticCell(tempDir.resolve("seek.bin").toFile(), pointCount);
+        long start = System.nanoTime();
+        GaiaPointCloudTemp seekTemp = new GaiaPointCloudTemp(seekFile);
+        seekTemp.shuffleTempMoreFast(1, 1);
+        long seekNanos = System.nanoTime() - start;
+        seekTemp.getTempFile().delete();
+
+        File externalFile = createSyntheticCell(tempDir.resolve("external.bin").toFile(), pointCount);
+        start = System.nanoTime();
+        GaiaPointCloudTemp externalTemp = new GaiaPointCloudTemp(externalFile);
+        externalTemp.shuffleTempExternal(1, 1, memoryBudget);
+        long externalNanos = System.nanoTime() - start;
+        assertShuffled(externalTemp.getTempFile(), pointCount);
+
+        log.info("[seek] {} points : {} ms", pointCount, seekNanos / 1000000);
+        log.info("[external] {} points : {} ms (budget {}MB)", pointCount, externalNanos / 1000000, memoryBudget / 1024 / 1024);
+    }
+
+    private File createSyntheticCell(File file, int pointCount) throws IOException {
+        GaiaPointCloudTemp temp = new GaiaPointCloudTemp(file);
+        temp.getQuantizedVolumeScale()[0] = 1.0;
+        temp.getQuantizedVolumeScale()[1] = 1.0;
+        temp.getQuantizedVolumeScale()[2] = 1.0;
+        temp.writeHeader();
+        ByteBuffer buffer = ByteBuffer.allocate(20 * 4096);
+        for (int i = 0; i < pointCount; i++) {
+            if (!buffer.hasRemaining()) {
+                temp.writeBlock(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            // the point index is stored in the intensity and classification fields
+            temp.putPoint(buffer, i % 1000 / 1000.0, i / 1000 % 1000 / 1000.0, 0.5, (byte) 0, (byte) 0, (byte) 0, (char) (i >>> 16), (short) i);
+        }
+        temp.writeBlock(buffer.array(), 0, buffer.position());
+        temp.getOutputStream().close();
+        return file;
+    }
+
+    private void assertShuffled(File file, int pointCount) throws IOException {
+        BitSet seen = new BitSet(pointCount);
+        int inPlace = 0;
+        try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(file)) {
+            assertEquals(pointCount, reader.getPointCount());
+            for (int i = 0; i < pointCount; i++) {
+                int index = (reader.getIntensity(i) << 16) | (reader.getClassification(i) & 0xFFFF);
+                assertFalse(seen.get(index));
+                seen.set(index);
+                if (index == i) {
+                    inPlace++;
+                }
+            }
+        }
+        assertEquals(pointCount, seen.cardinality());
+        assertTrue(inPlace < pointCount / 100);
+    }
+}
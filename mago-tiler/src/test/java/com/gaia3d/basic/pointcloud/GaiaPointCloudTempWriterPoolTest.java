@@ -0,0 +1,64 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaPointCloudTempWriterPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reopenEvictedFiles() throws IOException {
+        Configuration.initConsoleLogger();
+        int fileCount = 16;
+        int blockCount = 10;
+        GaiaPointCloudTemp[] temps = new GaiaPointCloudTemp[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            temps[i] = new GaiaPointCloudTemp(new File(tempDir.toFile(), i + ".bin"));
+            temps[i].getQuantizedVolumeScale()[0] = 1;
+            temps[i].getQuantizedVolumeScale()[1] = 1;
+            temps[i].getQuantizedVolumeScale()[2] = 1;
+            temps[i].writeHeader();
+            temps[i].getOutputStream().close();
+        }
+
+        GaiaPointCloudTempWriterPool writerPool = new GaiaPointCloudTempWriterPool(4, 1024);
+        ByteBuffer buffer = ByteBuffer.allocate(20 * 8);
+        for (int block = 0; block < blockCount; block++) {
+            for (int i = 0; i < fileCount; i++) {
+                buffer.clear();
+                for (int k = 0; k < 8; k++) {
+                    temps[i].putPoint(buffer, 0.5, 0.5, 0.5, (byte) 0, (byte) 0, (byte) 0, (char) block, (short) i);
+                }
+                writerPool.write(temps[i], buffer.array(), 0, buffer.position());
+                assertTrue(writerPool.getOpenFileCount() <= 4);
+            }
+        }
+        writerPool.close();
+
+        assertEquals(0, writerPool.getOpenFileCount());
+        assertEquals((long) fileCount * blockCount, writerPool.getFlushCount());
+        assertTrue(writerPool.getEvictCount() > 0);
+        assertEquals(writerPool.getOpenCount(), writerPool.getEvictCount() + 4);
+        for (int i = 0; i < fileCount; i++) {
+            try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(temps[i].getTempFile())) {
+                assertEquals(blockCount * 8, reader.getPointCount());
+                for (long k = 0; k < reader.getPointCount(); k++) {
+                    assertEquals(i, reader.getClassification(k));
+                    assertEquals(k / 8, reader.getIntensity(k));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.gaia3d.basic.pointcloud;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class PointBufferTest {
+
+    @Test
+    void partitionByBucket() {
+        Configuration.initConsoleLogger();
+        PointBuffer points = GaiaPointCloudTempReaderTest.createPoints(1000);
+        Set<Character> intensities = intensitySet(points);
+
+        int[] bounds = points.partition(4, (index) -> points.getClassification(index) % 4);
+        assertEquals(0, bounds[0]);
+        assertEquals(points.size(), bounds[4]);
+        for (int bucket = 0; bucket < 4; bucket++) {
+            for (int i = bounds[bucket]; i < bounds[bucket + 1]; i++) {
+                assertEquals(bucket, points.getClassification(i) % 4);
+            }
+        }
+        // every point is kept, only reordered
+        assertEquals(intensities, intensitySet(points));
+    }
+
+    @Test
+    void distributeOctInPlace() {
+        Configuration.initConsoleLogger();
+        PointBuffer points = GaiaPointCloudTempReaderTest.createPoints(5000);
+        GaiaPointCloud pointCloud = new GaiaPointCloud();
+        GaiaBoundingBox boundingBox = points.calcBoundingBox();
+        pointCloud.setGaiaBoundingBox(boundingBox);
+        pointCloud.setPointBuffer(points);
+
+        List<GaiaPointCloud> divided = pointCloud.divideChunkSize(1000);
+        assertEquals(1000, divided.get(0).getPointBuffer().size());
+        assertEquals(4000, divided.get(1).getPointBuffer().size());
+
+        List<GaiaPointCloud> children = divided.get(1).distributeOct();
+        assertEquals(8, children.size());
+        double midZ = (boundingBox.getMinZ() + boundingBox.getMaxZ()) / 2;
+        int total = 0;
+        for (int i = 0; i < children.size(); i++) {
+            GaiaPointCloud child = children.get(i);
+            PointBuffer childBuffer = child.getPointBuffer();
+            assertSame(points.getPositions(), childBuffer.getPositions());
+            assertEquals(String.valueOf((char) ('A' + i)), child.getCode());
+            for (int j = 0; j < childBuffer.size(); j++) {
+                assertEquals(i < 4, childBuffer.getZ(j) > midZ);
+                assertTrue(child.getGaiaBoundingBox().getMaxX() >= childBuffer.getX(j));
+            }
+            total += childBuffer.size();
+        }
+        assertEquals(4000, total);
+    }
+
+    private Set<Character> intensitySet(PointBuffer points) {
+        Set<Character> intensities = new HashSet<>();
+        for (int i = 0; i < points.size(); i++) {
+            intensities.add(points.getIntensity(i));
+        }
+        return intensities;
+    }
+}
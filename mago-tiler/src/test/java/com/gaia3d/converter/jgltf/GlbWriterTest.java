@@ -0,0 +1,379 @@
+package com.gaia3d.converter.jgltf;
+
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.postprocess.batch.GaiaBatchTable;
+import com.gaia3d.process.postprocess.batch.GaiaBatchTableMap;
+import com.gaia3d.process.postprocess.instance.GaiaFeatureTable;
+import com.gaia3d.process.postprocess.pointcloud.PointCloudBuffer;
+import de.javagl.jgltf.impl.v2.Accessor;
+import de.javagl.jgltf.impl.v2.BufferView;
+import de.javagl.jgltf.impl.v2.GlTF;
+import de.javagl.jgltf.model.AccessorModel;
+import de.javagl.jgltf.model.GltfConstants;
+import de.javagl.jgltf.model.GltfModel;
+import de.javagl.jgltf.model.ImageModel;
+import de.javagl.jgltf.model.io.GltfModelReader;
+import de.javagl.jgltf.model.io.GltfModelWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class GlbWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void batchedGlbMatchesGltfModel() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaScene scene = createGridScene(64);
+        BatchedModelGltfWriter writer = new BatchedModelGltfWriter();
+
+        File streamedFile = tempDir.resolve("streamed.glb").toFile();
+        writer.writeGlb(scene, streamedFile, new GaiaFeatureTable(), createBatchTableMap());
+
+        File modelFile = tempDir.resolve("model.glb").toFile();
+        GltfBinary binary = new GltfBinary();
+        GlTF gltf = writer.createGltf(scene, binary, new GaiaFeatureTable(), createBatchTableMap());
+        new GltfModelWriter().writeBinary(writer.toGltfModel(gltf, binary), modelFile);
+
+        assertSameAccessors(modelFile, streamedFile);
+    }
+
+    @Test
+    void pointCloudGlbMatchesGltfModel() throws IOException {
+        Configuration.initConsoleLogger();
+        PointCloudBuffer pointCloudBuffer = createPointCloudBuffer(10000);
+        PointCloudGltfWriter writer = new PointCloudGltfWriter();
+
+        File streamedFile = tempDir.resolve("streamed.glb").toFile();
+        writer.writeGlb(pointCloudBuffer, new GaiaFeatureTable(), new GaiaBatchTable(), streamedFile);
+
+        File modelFile = tempDir.resolve("model.glb").toFile();
+        GltfBinary binary = new GltfBinary();
+        GlTF gltf = writer.createGltf(pointCloudBuffer, binary, new GaiaFeatureTable(), new GaiaBatchTable());
+        new GltfModelWriter().writeBinary(writer.toGltfModel(gltf, binary), modelFile);
+
+        assertSameAccessors(modelFile, streamedFile);
+    }
+
+    @Test
+    void texturedGlbImages() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaScene scene = createGridScene(16);
+        List<GaiaTexture> textures = scene.getMaterials().get(0).getTextures().get(TextureType.DIFFUSE);
+        for (String path : new String[]{"first.png", "second.jpg"}) {
+            GaiaTexture texture = new GaiaTexture();
+            texture.setPath(path);
+            texture.setBufferedImage(new BufferedImage(64, 32, BufferedImage.TYPE_3BYTE_BGR));
+            textures.add(texture);
+        }
+        GaiaMaterial secondMaterial = new GaiaMaterial();
+        secondMaterial.getTextures().put(TextureType.DIFFUSE, new ArrayList<>(textures.subList(1, 2)));
+        textures.remove(1);
+        scene.getMaterials().add(secondMaterial);
+
+        File streamedFile = tempDir.resolve("textured.glb").toFile();
+        new BatchedModelGltfWriter().writeGlb(scene, streamedFile, new GaiaFeatureTable(), createBatchTableMap());
+
+        GltfModel model = new GltfModelReader().read(streamedFile.toPath());
+        List<ImageModel> imageModels = model.getImageModels();
+        assertEquals(2, imageModels.size());
+        assertEquals("image/png", imageModels.get(0).getMimeType());
+        assertEquals("image/jpeg", imageModels.get(1).getMimeType());
+        for (ImageModel imageModel : imageModels) {
+            ByteBuffer imageData = imageModel.getImageData();
+            byte[] bytes = new byte[imageData.remaining()];
+            imageData.get(bytes);
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+            assertEquals(64, image.getWidth());
+            assertEquals(32, image.getHeight());
+        }
+    }
+
+    @Test
+    void meshoptCompressedGlb() throws IOException {
+        Configuration.initConsoleLogger();
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        BatchedModelGltfWriter writer = new BatchedModelGltfWriter();
+        File rawFile = tempDir.resolve("raw.glb").toFile();
+        writer.writeGlb(createGridScene(64), rawFile, new GaiaFeatureTable(), createBatchTableMap());
+
+        File compressedFile = tempDir.resolve("compressed.glb").toFile();
+        GlTF gltf;
+        try {
+            globalOptions.setUseMeshCompression(true);
+            writer.writeGlb(createGridScene(64), compressedFile, new GaiaFeatureTable(), createBatchTableMap());
+            GltfBinary binary = new GltfBinary();
+            gltf = writer.createGltf(createGridScene(64), binary, new GaiaFeatureTable(), createBatchTableMap());
+            binary.release();
+        } finally {
+            globalOptions.setUseMeshCompression(false);
+        }
+
+        assertTrue(gltf.getExtensionsRequired().contains("EXT_meshopt_compression"));
+        assertEquals(2, gltf.getBuffers().size());
+        int compressedViews = 0;
+        for (BufferView bufferView : gltf.getBufferViews()) {
+            if (bufferView.getExtensions() != null && bufferView.getExtensions().containsKey("EXT_meshopt_compression")) {
+                assertEquals(1, bufferView.getBuffer());
+                compressedViews++;
+            }
+        }
+        assertEquals(4, compressedViews);
+        log.info("Batched glb : raw {} bytes, meshopt {} bytes", rawFile.length(), compressedFile.length());
+        assertTrue(compressedFile.length() < rawFile.length());
+    }
+
+    @Test
+    void accessorBoundsAfterEmptyBuffer() {
+        Configuration.initConsoleLogger();
+        // the empty node buffer shares the offset of the positions
+        ByteBuffer indices = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        indices.putInt(0).putInt(1).putInt(2).flip();
+        ByteBuffer positions = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        positions.putFloat(-1.0f).putFloat(2.0f).putFloat(0.5f).putFloat(3.0f).putFloat(-4.0f).putFloat(1.5f).flip();
+        List<ByteBuffer> bodyBuffers = List.of(indices, ByteBuffer.allocate(0), positions);
+
+        GlTF gltf = new GlTF();
+        gltf.addBufferViews(createBufferView(0, 12));
+        gltf.addBufferViews(createBufferView(12, 24));
+        gltf.addAccessors(createAccessor(0, GltfConstants.GL_UNSIGNED_INT, 3, "SCALAR"));
+        gltf.addAccessors(createAccessor(1, GltfConstants.GL_FLOAT, 2, "VEC3"));
+        GlbWriter.updateAccessorBounds(gltf, bodyBuffers);
+
+        Accessor indexAccessor = gltf.getAccessors().get(0);
+        assertArrayEquals(new Number[]{0L}, indexAccessor.getMin());
+        assertArrayEquals(new Number[]{2L}, indexAccessor.getMax());
+        Accessor positionAccessor = gltf.getAccessors().get(1);
+        assertArrayEquals(new Number[]{-1.0f, -4.0f, 0.5f}, positionAccessor.getMin());
+        assertArrayEquals(new Number[]{3.0f, 2.0f, 1.5f}, positionAccessor.getMax());
+    }
+
+    @Disabled
+    @Test
+    void compareMeshoptCompression() throws IOException {
+        Configuration.initConsoleLogger();
+        int iterations = 20;
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        BatchedModelGltfWriter batchedWriter = new BatchedModelGltfWriter();
+        PointCloudGltfWriter pointCloudWriter = new PointCloudGltfWriter();
+        PointCloudBuffer pointCloudBuffer = createPointCloudBuffer(500000);
+        File file = tempDir.resolve("tile.glb").toFile();
+
+        for (int pass = 0; pass < 2; pass++) {
+            long[] rawLengths = new long[2];
+            long[] compressedLengths = new long[2];
+            long[] rawTimes = new long[2];
+            long[] compressedTimes = new long[2];
+            try {
+                for (int compression = 0; compression < 2; compression++) {
+                    globalOptions.setUseMeshCompression(compression == 1);
+                    long batchedTime = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        GaiaScene scene = createGridScene(256);
+                        long startTime = System.nanoTime();
+                        batchedWriter.writeGlb(scene, file, new GaiaFeatureTable(), createBatchTableMap());
+                        batchedTime += System.nanoTime() - startTime;
+                    }
+                    long batchedLength = file.length();
+                    long startTime = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) {
+                        pointCloudWriter.writeGlb(pointCloudBuffer, new GaiaFeatureTable(), new GaiaBatchTable(), file);
+                    }
+                    long pointCloudTime = System.nanoTime() - startTime;
+                    long pointCloudLength = file.length();
+                    if (compression == 0) {
+                        rawLengths = new long[]{batchedLength, pointCloudLength};
+                        rawTimes = new long[]{batchedTime, pointCloudTime};
+                    } else {
+                        compressedLengths = new long[]{batchedLength, pointCloudLength};
+                        compressedTimes = new long[]{batchedTime, pointCloudTime};
+                    }
+                }
+            } finally {
+                globalOptions.setUseMeshCompression(false);
+            }
+            String[] tileTypes = {"Batched", "PointCloud"};
+            for (int type = 0; type < tileTypes.length; type++) {
+                double ratio = (double) rawLengths[type] / compressedLengths[type];
+                // the encode time is the additional time of the compressed writes, over the raw tile bytes
+                double encodeSeconds = Math.max(1, compressedTimes[type] - rawTimes[type]) / 1e9;
+                double megabytesPerSecond = rawLengths[type] * (double) iterations / (1024 * 1024) / encodeSeconds;
+                log.info("[{}] raw {}KB, meshopt {}KB, ratio {}, encode {} MB/s", tileTypes[type], rawLengths[type] / 1024, compressedLengths[type] / 1024, String.format("%.2f", ratio), String.format("%.1f", megabytesPerSecond));
+            }
+        }
+    }
+
+    @Disabled
+    @Test
+    void compareThroughput() throws IOException {
+        Configuration.initConsoleLogger();
+        int iterations = 50;
+        GaiaScene scene = createGridScene(256);
+        PointCloudBuffer pointCloudBuffer = createPointCloudBuffer(500000);
+        BatchedModelGltfWriter batchedWriter = new BatchedModelGltfWriter();
+        PointCloudGltfWriter pointCloudWriter = new PointCloudGltfWriter();
+        File file = tempDir.resolve("tile.glb").toFile();
+
+        for (int pass = 0; pass < 2; pass++) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                GltfBinary binary = new GltfBinary();
+                GlTF gltf = batchedWriter.createGltf(scene, binary, new GaiaFeatureTable(), createBatchTableMap());
+                new GltfModelWriter().writeBinary(batchedWriter.toGltfModel(gltf, binary), file);
+            }
+            long modelTime = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                batchedWriter.writeGlb(scene, file, new GaiaFeatureTable(), createBatchTableMap());
+            }
+            long streamedTime = System.nanoTime() - startTime;
+            log.info("[Batched] {} tiles of {}KB : GltfModel {}ms, streamed {}ms", iterations, file.length() / 1024, modelTime / 1000000, streamedTime / 1000000);
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                GltfBinary binary = new GltfBinary();
+                GlTF gltf = pointCloudWriter.createGltf(pointCloudBuffer, binary, new GaiaFeatureTable(), new GaiaBatchTable());
+                new GltfModelWriter().writeBinary(pointCloudWriter.toGltfModel(gltf, binary), file);
+            }
+            modelTime = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                pointCloudWriter.writeGlb(pointCloudBuffer, new GaiaFeatureTable(), new GaiaBatchTable(), file);
+            }
+            streamedTime = System.nanoTime() - startTime;
+            log.info("[PointCloud] {} tiles of {}KB : GltfModel {}ms, streamed {}ms", iterations, file.length() / 1024, modelTime / 1000000, streamedTime / 1000000);
+        }
+    }
+
+    private BufferView createBufferView(int byteOffset, int byteLength) {
+        BufferView bufferView = new BufferView();
+        bufferView.setBuffer(0);
+        bufferView.setByteOffset(byteOffset);
+        bufferView.setByteLength(byteLength);
+        return bufferView;
+    }
+
+    private Accessor createAccessor(int bufferView, int componentType, int count, String type) {
+        Accessor accessor = new Accessor();
+        accessor.setBufferView(bufferView);
+        accessor.setComponentType(componentType);
+        accessor.setCount(count);
+        accessor.setType(type);
+        return accessor;
+    }
+
+    private void assertSameAccessors(File expectedFile, File actualFile) throws IOException {
+        GltfModelReader reader = new GltfModelReader();
+        GltfModel expected = reader.read(expectedFile.toPath());
+        GltfModel actual = reader.read(actualFile.toPath());
+        List<AccessorModel> expectedAccessors = expected.getAccessorModels();
+        List<AccessorModel> actualAccessors = actual.getAccessorModels();
+        assertEquals(expectedAccessors.size(), actualAccessors.size());
+        for (int i = 0; i < expectedAccessors.size(); i++) {
+            assertEquals(expectedAccessors.get(i).getCount(), actualAccessors.get(i).getCount());
+            assertEquals(expectedAccessors.get(i).getAccessorData().createByteBuffer(), actualAccessors.get(i).getAccessorData().createByteBuffer());
+        }
+        assertEquals(expected.getBufferViewModels().size(), actual.getBufferViewModels().size());
+        assertEquals(expected.getMeshModels().size(), actual.getMeshModels().size());
+    }
+
+    private GaiaScene createGridScene(int size) {
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        List<GaiaVertex> vertices = primitive.getVertices();
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                GaiaVertex vertex = new GaiaVertex();
+                vertex.setPosition(new Vector3d(x, y, (x * y) % 7));
+                vertex.setNormal(new Vector3d(0, 0, 1));
+                vertex.setBatchId(x % 4);
+                vertices.add(vertex);
+            }
+        }
+        GaiaSurface surface = new GaiaSurface();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int index = y * (size + 1) + x;
+                GaiaFace lowerFace = new GaiaFace();
+                lowerFace.setIndices(new int[]{index, index + 1, index + size + 2});
+                surface.getFaces().add(lowerFace);
+                GaiaFace upperFace = new GaiaFace();
+                upperFace.setIndices(new int[]{index, index + size + 2, index + size + 1});
+                surface.getFaces().add(upperFace);
+            }
+        }
+        primitive.getSurfaces().add(surface);
+        primitive.setMaterialIndex(0);
+
+        GaiaMesh mesh = new GaiaMesh();
+        mesh.getPrimitives().add(primitive);
+        GaiaNode node = new GaiaNode();
+        node.getMeshes().add(mesh);
+        GaiaScene scene = new GaiaScene();
+        scene.getNodes().add(node);
+
+        GaiaMaterial material = new GaiaMaterial();
+        material.getTextures().put(TextureType.DIFFUSE, new ArrayList<>());
+        scene.getMaterials().add(material);
+        return scene;
+    }
+
+    private GaiaBatchTableMap<String, List<String>> createBatchTableMap() {
+        GaiaBatchTableMap<String, List<String>> batchTableMap = new GaiaBatchTableMap<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            names.add("feature-" + i);
+        }
+        batchTableMap.put("NodeName", names);
+        return batchTableMap;
+    }
+
+    private PointCloudBuffer createPointCloudBuffer(int pointCount) {
+        Random random = new Random(42);
+        float[] positions = new float[pointCount * 3];
+        byte[] colors = new byte[pointCount * 4];
+        float[] batchIds = new float[pointCount];
+        char[] intensities = new char[pointCount];
+        short[] classifications = new short[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            positions[i * 3] = random.nextFloat() * 100;
+            positions[i * 3 + 1] = random.nextFloat() * 100;
+            positions[i * 3 + 2] = random.nextFloat() * 10;
+            colors[i * 4] = (byte) random.nextInt(256);
+            colors[i * 4 + 1] = (byte) random.nextInt(256);
+            colors[i * 4 + 2] = (byte) random.nextInt(256);
+            colors[i * 4 + 3] = (byte) 255;
+            intensities[i] = (char) random.nextInt(65536);
+            classifications[i] = (short) random.nextInt(32);
+        }
+        PointCloudBuffer pointCloudBuffer = new PointCloudBuffer();
+        pointCloudBuffer.setPositions(positions);
+        pointCloudBuffer.setColors(colors);
+        pointCloudBuffer.setBatchIds(batchIds);
+        pointCloudBuffer.setIntensities(intensities);
+        pointCloudBuffer.setClassifications(classifications);
+        return pointCloudBuffer;
+    }
+}
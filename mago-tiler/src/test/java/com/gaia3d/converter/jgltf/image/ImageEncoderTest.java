@@ -0,0 +1,212 @@
+package com.gaia3d.converter.jgltf.image;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@Slf4j
+class ImageEncoderTest {
+
+    @Test
+    void pngRoundTrip() throws IOException {
+        Configuration.initConsoleLogger();
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY};
+        for (int type : types) {
+            BufferedImage image = createImage(67, 45, type);
+            for (int compressionLevel : new int[]{0, 4, 9}) {
+                ByteBuffer encoded = new PngImageEncoder(compressionLevel).encode(image, "image/png", 1.0f);
+                BufferedImage decoded = read(encoded);
+                assertEquals(image.getColorModel().hasAlpha(), decoded.getColorModel().hasAlpha());
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        assertEquals(image.getRGB(x, y), decoded.getRGB(x, y), "type " + type + " at " + x + ", " + y);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void jpegWithAlphaChannel() throws IOException {
+        Configuration.initConsoleLogger();
+        BufferedImage image = createImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        ByteBuffer encoded = ImageEncodingStage.encode(image, "image/jpeg", 0.75f);
+        BufferedImage decoded = read(encoded);
+        assertEquals(64, decoded.getWidth());
+        assertEquals(32, decoded.getHeight());
+        assertEquals("jpeg", ImageEncoders.select("image/jpeg").getName());
+        assertEquals("imageio", ImageEncoders.select("image/bmp").getName());
+    }
+
+    @Test
+    void resolveMimeType() {
+        Configuration.initConsoleLogger();
+        BufferedImage opaqueImage = new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage alphaImage = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        assertEquals("image/jpeg", ImageEncoders.resolveMimeType("auto", "image/jpeg", opaqueImage));
+        assertEquals("image/png", ImageEncoders.resolveMimeType("png", "image/jpeg", opaqueImage));
+        assertEquals("image/jpeg", ImageEncoders.resolveMimeType("jpeg", "image/png", opaqueImage));
+        assertEquals("image/png", ImageEncoders.resolveMimeType("jpg", "image/png", alphaImage));
+        assertEquals("image/png", ImageEncoders.resolveMimeType("auto", "image/svg+xml", opaqueImage));
+    }
+
+    @Test
+    void ktx2Mipmaps() {
+        Configuration.initConsoleLogger();
+        int width = 5;
+        int height = 2;
+        byte[] rgba = new byte[width * height * 4];
+        for (int i = 0; i < width * height; i++) {
+            rgba[i * 4] = (byte) (i * 20);
+            rgba[i * 4 + 3] = (byte) 255;
+        }
+        byte[][] levels = Ktx2ImageEncoder.createMipmaps(rgba, width, height);
+        assertEquals(3, levels.length);
+        assertEquals(2 * 1 * 4, levels[1].length);
+        assertEquals(4, levels[2].length);
+        // average of the pixels 0, 1, 5, 6
+        assertEquals(60, levels[1][0] & 0xFF);
+        assertEquals(255, levels[1][3] & 0xFF);
+        // average of the pixels 2, 3, 7, 8
+        assertEquals(100, levels[1][4] & 0xFF);
+        assertEquals(80, levels[2][0] & 0xFF);
+    }
+
+    @Test
+    void ktx2Texture() throws IOException {
+        Configuration.initConsoleLogger();
+        BufferedImage image = createImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        String mimeType = ImageEncoders.resolveMimeType("ktx2", "image/jpeg", image);
+        if (!Ktx2ImageEncoder.isAvailable()) {
+            assertEquals("image/png", mimeType);
+        }
+        assumeTrue(Ktx2ImageEncoder.isAvailable(), "libktx is not available");
+        assertEquals(Ktx2ImageEncoder.MIME_TYPE, mimeType);
+
+        ByteBuffer encoded = ImageEncodingStage.encode(image, mimeType, 0.75f);
+        byte[] identifier = new byte[12];
+        encoded.duplicate().get(identifier);
+        assertArrayEquals(new byte[]{(byte) 0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte) 0xBB, '\r', '\n', 0x1A, '\n'}, identifier);
+        ByteBuffer header = encoded.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(64, header.getInt(20));
+        assertEquals(32, header.getInt(24));
+        // level count and zstd supercompression scheme
+        assertEquals(7, header.getInt(40));
+        assertEquals(2, header.getInt(44));
+    }
+
+    @Disabled
+    @Test
+    void compareThroughput() throws Exception {
+        Configuration.initConsoleLogger();
+        int count = 32;
+        BufferedImage image = createImage(2048, 2048, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage opaqueImage = createImage(2048, 2048, BufferedImage.TYPE_3BYTE_BGR);
+
+        for (int pass = 0; pass < 2; pass++) {
+            long startTime = System.nanoTime();
+            long size = 0;
+            for (int i = 0; i < count; i++) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", outputStream);
+                size += outputStream.size();
+            }
+            log.info("[PNG] ImageIO : {}ms, {}KB", (System.nanoTime() - startTime) / 1000000, size / count / 1024);
+
+            startTime = System.nanoTime();
+            size = 0;
+            for (int i = 0; i < count; i++) {
+                size += new PngImageEncoder().encode(image, "image/png", 1.0f).remaining();
+            }
+            log.info("[PNG] PngImageEncoder : {}ms, {}KB", (System.nanoTime() - startTime) / 1000000, size / count / 1024);
+
+            startTime = System.nanoTime();
+            size = 0;
+            for (int i = 0; i < count; i++) {
+                size += writeJpegWithRedraw(opaqueImage, 0.75f).length;
+            }
+            log.info("[JPEG] ImageIO with redraw : {}ms, {}KB", (System.nanoTime() - startTime) / 1000000, size / count / 1024);
+
+            startTime = System.nanoTime();
+            size = 0;
+            for (int i = 0; i < count; i++) {
+                size += new JpegImageEncoder().encode(opaqueImage, "image/jpeg", 0.75f).remaining();
+            }
+            log.info("[JPEG] JpegImageEncoder : {}ms, {}KB", (System.nanoTime() - startTime) / 1000000, size / count / 1024);
+
+            startTime = System.nanoTime();
+            ImageEncodingStage stage = new ImageEncodingStage(4);
+            List<Future<ByteBuffer>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                futures.add(stage.submit(image, "image/png", 1.0f));
+            }
+            futures.forEach(ImageEncodingStage::await);
+            log.info("[PNG] ImageEncodingStage of 4 threads : {}ms", (System.nanoTime() - startTime) / 1000000);
+        }
+    }
+
+    private byte[] writeJpegWithRedraw(BufferedImage bufferedImage, float quality) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        writer.setOutput(imageOutputStream);
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        BufferedImage convertedImage = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = convertedImage.createGraphics();
+        graphics.drawImage(bufferedImage, 0, 0, null);
+        graphics.dispose();
+        writer.write(null, new IIOImage(convertedImage, null, null), param);
+        imageOutputStream.close();
+        writer.dispose();
+        return outputStream.toByteArray();
+    }
+
+    private BufferedImage read(ByteBuffer encoded) throws IOException {
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.duplicate().get(bytes);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertNotNull(image);
+        return image;
+    }
+
+    /**
+     * Smooth gradients with noise, as the textures of the photogrammetry models.
+     */
+    private BufferedImage createImage(int width, int height, int type) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * 255 / width + random.nextInt(8)) & 0xFF;
+                int green = (y * 255 / height + random.nextInt(8)) & 0xFF;
+                int blue = ((x + y) * 127 / (width + height) + random.nextInt(8)) & 0xFF;
+                int alpha = (x + y) % 3 == 0 ? 128 : 255;
+                image.setRGB(x, y, alpha << 24 | red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,401 @@
+package com.gaia3d.converter.jgltf.meshopt;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaPrimitive;
+import com.gaia3d.basic.model.GaiaSurface;
+import com.gaia3d.basic.model.GaiaVertex;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MeshoptEncoderTest {
+
+    @Test
+    void vertexBufferRoundTrip() {
+        Configuration.initConsoleLogger();
+        Random random = new Random(7);
+        // more vertices than a block, and a count which is not a multiple of the byte group
+        int count = 1000;
+        int stride = 16;
+        ByteBuffer vertices = ByteBuffer.allocate(count * stride).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            vertices.putFloat(i * 0.5f);
+            vertices.putFloat((float) Math.sin(i * 0.01));
+            vertices.putFloat(random.nextFloat());
+            vertices.putInt(i % 4);
+        }
+        vertices.flip();
+
+        ByteBuffer encoded = MeshoptEncoder.encodeVertexBuffer(vertices, count, stride);
+        assertEquals(0, vertices.position());
+        assertArrayEquals(toBytes(vertices), decodeVertexBuffer(encoded, count, stride));
+
+        ByteBuffer constant = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            constant.putFloat(1.0f);
+        }
+        constant.flip();
+        ByteBuffer encodedConstant = MeshoptEncoder.encodeVertexBuffer(constant, count, 4);
+        assertArrayEquals(toBytes(constant), decodeVertexBuffer(encodedConstant, count, 4));
+        assertTrue(encodedConstant.remaining() < count / 4);
+    }
+
+    @Test
+    void indexBufferRoundTrip() {
+        Configuration.initConsoleLogger();
+        int size = 32;
+        int[] indices = createGridIndices(size);
+        ByteBuffer encoded = MeshoptEncoder.encodeIndexBuffer(indices, indices.length);
+        assertSameTriangles(indices, decodeIndexBuffer(encoded, indices.length));
+
+        // shuffled triangles use the explicit indices of the codec
+        Random random = new Random(11);
+        int[] shuffled = indices.clone();
+        for (int i = shuffled.length / 3 - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            for (int k = 0; k < 3; k++) {
+                int swap = shuffled[i * 3 + k];
+                shuffled[i * 3 + k] = shuffled[j * 3 + k];
+                shuffled[j * 3 + k] = swap;
+            }
+        }
+        ByteBuffer encodedShuffled = MeshoptEncoder.encodeIndexBuffer(shuffled, shuffled.length);
+        assertSameTriangles(shuffled, decodeIndexBuffer(encodedShuffled, shuffled.length));
+        assertTrue(encoded.remaining() < encodedShuffled.remaining());
+    }
+
+    /**
+     * The mesh of the meshoptimizer codec tests, the encoded bytes are the ones of the meshoptimizer encoders.
+     * The index stream is the meshoptimizer version 0 stream with the version 1 header,
+     * the version 1 only adds the codes of the explicit indices next to the last one, not used by this mesh.
+     */
+    @Test
+    void referenceEncodedBytes() {
+        Configuration.initConsoleLogger();
+        // the 6 of the 4 6 5 triangle is explicit, the next index stays at 6 and the 7 8 9 triangle uses explicit indices
+        int[] indices = {0, 1, 2, 2, 1, 3, 4, 6, 5, 7, 8, 9};
+        int[] expectedIndexData = {
+                0xe1, 0xf0, 0x10, 0xfe, 0xff, 0xf0, 0x0c, 0xff, 0x02, 0x02, 0x02, 0x00, 0x76, 0x87, 0x56, 0x67,
+                0x78, 0xa9, 0x86, 0x65, 0x89, 0x68, 0x98, 0x01, 0x69, 0x00, 0x00};
+        assertArrayEquals(toBytes(expectedIndexData), toBytes(MeshoptEncoder.encodeIndexBuffer(indices, indices.length)));
+
+        // unsigned short px, py, pz; unsigned char nu, nv; unsigned short tx, ty
+        int[][] vertices = {{0, 0, 0, 0, 0}, {300, 0, 0, 500, 0}, {0, 300, 0, 0, 500}, {300, 300, 0, 500, 500}};
+        ByteBuffer vertexBuffer = ByteBuffer.allocate(vertices.length * 12).order(ByteOrder.LITTLE_ENDIAN);
+        for (int[] vertex : vertices) {
+            vertexBuffer.putShort((short) vertex[0]).putShort((short) vertex[1]).putShort((short) vertex[2]);
+            vertexBuffer.put((byte) 0).put((byte) 0);
+            vertexBuffer.putShort((short) vertex[3]).putShort((short) vertex[4]);
+        }
+        vertexBuffer.flip();
+        int[] expectedVertexData = {
+                0xa0, 0x01, 0x3f, 0x00, 0x00, 0x00, 0x58, 0x57, 0x58, 0x01, 0x26, 0x00, 0x00, 0x00, 0x01, 0x0c,
+                0x00, 0x00, 0x00, 0x58, 0x01, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x3f, 0x00,
+                0x00, 0x00, 0x17, 0x18, 0x17, 0x01, 0x26, 0x00, 0x00, 0x00, 0x01, 0x0c, 0x00, 0x00, 0x00, 0x17,
+                0x01, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x00, 0x00, 0x00, 0x00, 0x00};
+        assertArrayEquals(toBytes(expectedVertexData), toBytes(MeshoptEncoder.encodeVertexBuffer(vertexBuffer, vertices.length, 12)));
+    }
+
+    @Test
+    void octahedralFilter() {
+        Configuration.initConsoleLogger();
+        float[][] normals = {{0, 0, 1}, {0, 0, -1}, {1, 0, 0}, {0, -1, 0}, {0.577f, -0.577f, -0.577f}};
+        ByteBuffer vectors = ByteBuffer.allocate(normals.length * 12).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] normal : normals) {
+            vectors.putFloat(normal[0]).putFloat(normal[1]).putFloat(normal[2]);
+        }
+        vectors.flip();
+
+        byte[] filtered = toBytes(MeshoptEncoder.encodeFilterOctahedral(vectors, normals.length, 12));
+        assertEquals(normals.length * 4, filtered.length);
+        for (int i = 0; i < normals.length; i++) {
+            float[] decoded = decodeOctahedral(filtered[i * 4], filtered[i * 4 + 1], filtered[i * 4 + 2]);
+            for (int k = 0; k < 3; k++) {
+                assertEquals(normals[i][k], decoded[k] / 127.0f, 0.02f);
+            }
+        }
+    }
+
+    @Test
+    void optimizeKeepsTriangles() {
+        Configuration.initConsoleLogger();
+        int size = 16;
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                GaiaVertex vertex = new GaiaVertex();
+                vertex.setPosition(new Vector3d(x, y, 0));
+                primitive.getVertices().add(vertex);
+            }
+        }
+        // the faces are added in a scattered order
+        int[] indices = createGridIndices(size);
+        GaiaSurface surface = new GaiaSurface();
+        int triangleCount = indices.length / 3;
+        for (int i = 0; i < triangleCount; i++) {
+            int triangle = (i * 37) % triangleCount;
+            GaiaFace face = new GaiaFace();
+            face.setIndices(new int[]{indices[triangle * 3], indices[triangle * 3 + 1], indices[triangle * 3 + 2]});
+            surface.getFaces().add(face);
+        }
+        primitive.getSurfaces().add(surface);
+        int scatteredSize = MeshoptEncoder.encodeIndexBuffer(primitive.getIndices(), indices.length).remaining();
+        double area = sumTriangleArea(primitive);
+
+        MeshOptimizer.optimize(primitive);
+        int[] optimizedIndices = primitive.getIndices();
+        assertEquals(indices.length, optimizedIndices.length);
+        assertEquals((size + 1) * (size + 1), primitive.getVertices().size());
+        assertEquals(area, sumTriangleArea(primitive), 1e-9);
+        // the vertices are numbered by their first use
+        int next = 0;
+        for (int index : optimizedIndices) {
+            assertTrue(index <= next);
+            next = Math.max(next, index + 1);
+        }
+        int optimizedSize = MeshoptEncoder.encodeIndexBuffer(optimizedIndices, optimizedIndices.length).remaining();
+        log.info("Encoded indices : scattered {} bytes, optimized {} bytes", scatteredSize, optimizedSize);
+        assertTrue(optimizedSize < scatteredSize);
+    }
+
+    /**
+     * The index codec keeps the order and the winding of the triangles, the first vertex of a triangle may be rotated.
+     */
+    private void assertSameTriangles(int[] expected, int[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i += 3) {
+            int rotation = 0;
+            while (rotation < 3 && actual[i + rotation] != expected[i]) {
+                rotation++;
+            }
+            assertTrue(rotation < 3, "triangle " + i / 3);
+            for (int k = 0; k < 3; k++) {
+                assertEquals(expected[i + k], actual[i + (rotation + k) % 3], "triangle " + i / 3);
+            }
+        }
+    }
+
+    private double sumTriangleArea(GaiaPrimitive primitive) {
+        int[] indices = primitive.getIndices();
+        double area = 0.0d;
+        for (int i = 0; i < indices.length; i += 3) {
+            Vector3d a = primitive.getVertices().get(indices[i]).getPosition();
+            Vector3d b = primitive.getVertices().get(indices[i + 1]).getPosition();
+            Vector3d c = primitive.getVertices().get(indices[i + 2]).getPosition();
+            area += new Vector3d(b).sub(a).cross(new Vector3d(c).sub(a)).z;
+        }
+        return area;
+    }
+
+    private int[] createGridIndices(int size) {
+        int[] indices = new int[size * size * 6];
+        int offset = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int index = y * (size + 1) + x;
+                indices[offset++] = index;
+                indices[offset++] = index + 1;
+                indices[offset++] = index + size + 2;
+                indices[offset++] = index;
+                indices[offset++] = index + size + 2;
+                indices[offset++] = index + size + 1;
+            }
+        }
+        return indices;
+    }
+
+    private byte[] toBytes(int[] values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reference decoder of the attribute codec, as the meshoptimizer decoder.
+     */
+    private byte[] decodeVertexBuffer(ByteBuffer encoded, int count, int stride) {
+        byte[] data = toBytes(encoded);
+        assertEquals(0xa0, data[0] & 0xFF);
+        int tailSize = Math.max(stride, 32);
+        byte[] lastVertex = new byte[stride];
+        System.arraycopy(data, data.length - stride, lastVertex, 0, stride);
+
+        int blockSize = Math.min((8192 / stride) & ~15, 256);
+        byte[] vertices = new byte[count * stride];
+        byte[] buffer = new byte[256];
+        int[] position = {1};
+        for (int blockStart = 0; blockStart < count; blockStart += blockSize) {
+            int blockCount = Math.min(blockSize, count - blockStart);
+            int alignedCount = (blockCount + 15) & ~15;
+            for (int k = 0; k < stride; k++) {
+                decodeBytes(data, position, buffer, alignedCount);
+                int previous = lastVertex[k];
+                for (int i = 0; i < blockCount; i++) {
+                    int value = buffer[i] & 0xFF;
+                    previous = (byte) (((value >> 1) ^ -(value & 1)) + previous);
+                    vertices[(blockStart + i) * stride + k] = (byte) previous;
+                }
+            }
+            System.arraycopy(vertices, (blockStart + blockCount - 1) * stride, lastVertex, 0, stride);
+        }
+        assertEquals(data.length - tailSize, position[0]);
+        return vertices;
+    }
+
+    private void decodeBytes(byte[] data, int[] position, byte[] buffer, int length) {
+        int groupCount = length / 16;
+        int headerOffset = position[0];
+        int offset = headerOffset + (groupCount + 3) / 4;
+        for (int group = 0; group < groupCount; group++) {
+            int bitsLog2 = ((data[headerOffset + group / 4] & 0xFF) >> ((group % 4) * 2)) & 3;
+            int start = group * 16;
+            if (bitsLog2 == 0) {
+                for (int i = 0; i < 16; i++) {
+                    buffer[start + i] = 0;
+                }
+            } else if (bitsLog2 == 3) {
+                System.arraycopy(data, offset, buffer, start, 16);
+                offset += 16;
+            } else {
+                int bits = bitsLog2 == 1 ? 2 : 4;
+                int sentinel = (1 << bits) - 1;
+                int valuesPerByte = 8 / bits;
+                int escapeOffset = offset + 16 / valuesPerByte;
+                for (int i = 0; i < 16; i++) {
+                    int packed = data[offset + i / valuesPerByte] & 0xFF;
+                    int value = (packed >> (8 - bits * (i % valuesPerByte + 1))) & sentinel;
+                    buffer[start + i] = (byte) (value == sentinel ? data[escapeOffset++] : value);
+                }
+                offset = escapeOffset;
+            }
+        }
+        position[0] = offset;
+    }
+
+    /**
+     * Reference decoder of the index codec, as the meshoptimizer decoder.
+     */
+    private int[] decodeIndexBuffer(ByteBuffer encoded, int count) {
+        byte[] buffer = toBytes(encoded);
+        assertEquals(0xe1, buffer[0] & 0xFF);
+        int[] indices = new int[count];
+        int[] edgeFifo = new int[32];
+        int[] vertexFifo = new int[16];
+        int edgeFifoOffset = 0;
+        int vertexFifoOffset = 0;
+        int next = 0;
+        int last = 0;
+        int code = 1;
+        int[] data = {1 + count / 3};
+        int codeAuxTable = buffer.length - 16;
+        for (int i = 0; i < count; i += 3) {
+            int codeTri = buffer[code++] & 0xFF;
+            int a;
+            int b;
+            int c;
+            if (codeTri < 0xf0) {
+                int fe = codeTri >> 4;
+                a = edgeFifo[((edgeFifoOffset - 1 - fe) & 15) * 2];
+                b = edgeFifo[((edgeFifoOffset - 1 - fe) & 15) * 2 + 1];
+                int fec = codeTri & 15;
+                if (fec < 13) {
+                    c = fec == 0 ? next++ : vertexFifo[(vertexFifoOffset - 1 - fec) & 15];
+                    if (fec == 0) {
+                        vertexFifo[vertexFifoOffset] = c;
+                        vertexFifoOffset = (vertexFifoOffset + 1) & 15;
+                    }
+                } else {
+                    c = fec == 13 ? last - 1 : fec == 14 ? last + 1 : decodeIndex(buffer, data, last);
+                    last = c;
+                    vertexFifo[vertexFifoOffset] = c;
+                    vertexFifoOffset = (vertexFifoOffset + 1) & 15;
+                }
+                edgeFifoOffset = pushEdge(edgeFifo, c, b, edgeFifoOffset);
+                edgeFifoOffset = pushEdge(edgeFifo, a, c, edgeFifoOffset);
+            } else {
+                int codeAux = codeTri < 0xfe ? buffer[codeAuxTable + (codeTri & 15)] & 0xFF : buffer[data[0]++] & 0xFF;
+                int fea = codeTri == 0xff ? 15 : 0;
+                int feb = codeAux >> 4;
+                int fec = codeAux & 15;
+                a = fea == 0 ? next++ : 0;
+                b = feb == 0 ? next++ : vertexFifo[(vertexFifoOffset - feb) & 15];
+                c = fec == 0 ? next++ : vertexFifo[(vertexFifoOffset - fec) & 15];
+                if (fea == 15) {
+                    last = a = decodeIndex(buffer, data, last);
+                }
+                if (feb == 15) {
+                    last = b = decodeIndex(buffer, data, last);
+                }
+                if (fec == 15) {
+                    last = c = decodeIndex(buffer, data, last);
+                }
+                vertexFifo[vertexFifoOffset] = a;
+                vertexFifoOffset = (vertexFifoOffset + 1) & 15;
+                if (feb == 0 || feb == 15) {
+                    vertexFifo[vertexFifoOffset] = b;
+                    vertexFifoOffset = (vertexFifoOffset + 1) & 15;
+                }
+                if (fec == 0 || fec == 15) {
+                    vertexFifo[vertexFifoOffset] = c;
+                    vertexFifoOffset = (vertexFifoOffset + 1) & 15;
+                }
+                edgeFifoOffset = pushEdge(edgeFifo, b, a, edgeFifoOffset);
+                edgeFifoOffset = pushEdge(edgeFifo, c, b, edgeFifoOffset);
+                edgeFifoOffset = pushEdge(edgeFifo, a, c, edgeFifoOffset);
+            }
+            indices[i] = a;
+            indices[i + 1] = b;
+            indices[i + 2] = c;
+        }
+        assertEquals(codeAuxTable, data[0]);
+        return indices;
+    }
+
+    private int pushEdge(int[] edgeFifo, int a, int b, int offset) {
+        edgeFifo[offset * 2] = a;
+        edgeFifo[offset * 2 + 1] = b;
+        return (offset + 1) & 15;
+    }
+
+    private int decodeIndex(byte[] buffer, int[] data, int last) {
+        int value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = buffer[data[0]++] & 0xFF;
+            value |= (current & 127) << shift;
+            shift += 7;
+        } while ((current & 128) != 0);
+        return last + ((value >>> 1) ^ -(value & 1));
+    }
+
+    private float[] decodeOctahedral(int x, int y, int z) {
+        float fx = x;
+        float fy = y;
+        float fz = z - Math.abs(fx) - Math.abs(fy);
+        float t = Math.min(fz, 0.0f);
+        fx += fx >= 0 ? t : -t;
+        fy += fy >= 0 ? t : -t;
+        float length = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        float scale = 127.0f / length;
+        return new float[]{fx * scale, fy * scale, fz * scale};
+    }
+}
@@ -0,0 +1,70 @@
+package com.gaia3d.process;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TaskSchedulerTest {
+
+    @Test
+    void collectAllResults() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        TaskScheduler scheduler = new TaskScheduler(4);
+        List<Callable<List<Integer>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            tasks.add(() -> Collections.singletonList(value));
+        }
+        List<Integer> results = scheduler.collect("Test", tasks);
+        assertEquals(1000, results.size());
+        Collections.sort(results);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, results.get(i));
+        }
+    }
+
+    @Test
+    void failureCancelsPhase() {
+        Configuration.initConsoleLogger();
+        TaskScheduler scheduler = new TaskScheduler(1);
+        AtomicInteger executedCount = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new IllegalStateException("failed task");
+        });
+        for (int i = 0; i < 100; i++) {
+            tasks.add(executedCount::incrementAndGet);
+        }
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> scheduler.run("Test", tasks));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertTrue(executedCount.get() < 100);
+    }
+
+    @Test
+    void invokeAllInPhaseTasks() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        // every thread of the pool waits for its nested tasks
+        TaskScheduler scheduler = new TaskScheduler(2);
+        AtomicInteger executedCount = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> scheduler.invokeAll(Collections.nCopies(4, executedCount::incrementAndGet)));
+        }
+        scheduler.run("Test", tasks);
+        assertEquals(32, executedCount.get());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> scheduler.invokeAll(List.of(() -> {
+            throw new IllegalStateException("failed task");
+        }, executedCount::incrementAndGet)));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,86 @@
+package com.gaia3d.process.postprocess.batch;
+
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TextureHashCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hashTextureFiles() throws IOException {
+        Configuration.initConsoleLogger();
+        writeImage("a.png", Color.RED);
+        writeImage("b.png", Color.RED);
+        writeImage("c.png", Color.BLUE);
+
+        TextureHashCache textureHashCache = new TextureHashCache();
+        GaiaTexture first = createTexture("a.png");
+        long hash = textureHashCache.getContentHash(first, 1.0f);
+        assertTrue(first.hasBufferedImage());
+        assertEquals(hash, first.getContentHash());
+
+        // the same file in another tile is not decoded again
+        GaiaTexture sameFile = createTexture("a.png");
+        assertEquals(hash, textureHashCache.getContentHash(sameFile, 1.0f));
+        assertFalse(sameFile.hasBufferedImage());
+
+        assertEquals(hash, textureHashCache.getContentHash(createTexture("b.png"), 1.0f));
+        assertNotEquals(hash, textureHashCache.getContentHash(createTexture("c.png"), 1.0f));
+        assertEquals(3, textureHashCache.size());
+
+        // a decoded image is hashed from its pixels
+        first.fillImage(Color.GREEN);
+        assertNotEquals(hash, textureHashCache.getContentHash(first, 1.0f));
+        assertEquals(3, textureHashCache.size());
+    }
+
+    @Test
+    void hashRasterTypes() {
+        Configuration.initConsoleLogger();
+        GaiaTexture byteTexture = new GaiaTexture();
+        byteTexture.setBufferedImage(createImage(BufferedImage.TYPE_4BYTE_ABGR, Color.RED));
+        GaiaTexture intTexture = new GaiaTexture();
+        intTexture.setBufferedImage(createImage(BufferedImage.TYPE_INT_ARGB, Color.RED));
+        GaiaTexture sameIntTexture = new GaiaTexture();
+        sameIntTexture.setBufferedImage(createImage(BufferedImage.TYPE_INT_ARGB, Color.RED));
+
+        assertEquals(intTexture.getContentHash(), sameIntTexture.getContentHash());
+        assertNotEquals(byteTexture.getContentHash(), intTexture.getContentHash());
+        assertTrue(intTexture.isEqualTexture(sameIntTexture));
+        assertEquals(0, new GaiaTexture().getContentHash());
+    }
+
+    private GaiaTexture createTexture(String name) {
+        GaiaTexture texture = new GaiaTexture();
+        texture.setParentPath(tempDir.toString());
+        texture.setPath(name);
+        return texture;
+    }
+
+    private void writeImage(String name, Color color) throws IOException {
+        ImageIO.write(createImage(BufferedImage.TYPE_INT_RGB, color), "png", tempDir.resolve(name).toFile());
+    }
+
+    private BufferedImage createImage(int imageType, Color color) {
+        BufferedImage image = new BufferedImage(32, 16, imageType);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 32, 16);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,124 @@
+package com.gaia3d.process.postprocess.batch.atlas;
+
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.process.postprocess.batch.GaiaBatchImage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class AtlasPackerTest {
+
+    @Test
+    void packWithoutOverlap() {
+        Configuration.initConsoleLogger();
+        for (String name : List.of(AtlasPacker.MAX_RECTS, AtlasPacker.SKYLINE, AtlasPacker.CORNER)) {
+            List<GaiaBatchImage> images = createImages(new Random(7), 200, 8, 512);
+            AtlasPacker.create(name).pack(images);
+            assertPacked(images);
+        }
+    }
+
+    @Test
+    void packEqualSquares() {
+        Configuration.initConsoleLogger();
+        for (String name : List.of(AtlasPacker.MAX_RECTS, AtlasPacker.SKYLINE)) {
+            List<GaiaBatchImage> images = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                images.add(createImage(i, 64, 64));
+            }
+            AtlasPacker.create(name).pack(images);
+            assertPacked(images);
+            assertEquals(256 * 256, getAtlasArea(images), name);
+        }
+    }
+
+    @Test
+    void packGrowingBin() {
+        Configuration.initConsoleLogger();
+        // a long strip and a square do not fit into the square of their area
+        List<GaiaBatchImage> images = new ArrayList<>();
+        images.add(createImage(0, 1024, 16));
+        images.add(createImage(1, 128, 128));
+        for (String name : List.of(AtlasPacker.MAX_RECTS, AtlasPacker.SKYLINE)) {
+            AtlasPacker.create(name).pack(images);
+            assertPacked(images);
+        }
+        assertThrows(IllegalArgumentException.class, () -> AtlasPacker.create("unknown"));
+    }
+
+    @Disabled
+    @Test
+    void compareAtlasPackers() {
+        Configuration.initConsoleLogger();
+        int[] counts = {100, 500, 1000, 5000};
+        for (int count : counts) {
+            for (String name : List.of(AtlasPacker.CORNER, AtlasPacker.MAX_RECTS, AtlasPacker.SKYLINE)) {
+                if (name.equals(AtlasPacker.CORNER) && count > 1000) {
+                    continue;
+                }
+                // facade like textures, mostly small with a few large ones
+                List<GaiaBatchImage> images = createImages(new Random(count), count, 16, 1024);
+                AtlasPacker atlasPacker = AtlasPacker.create(name);
+                long start = System.nanoTime();
+                atlasPacker.pack(images);
+                long elapsed = (System.nanoTime() - start) / 1000000;
+                assertPacked(images);
+                double usedArea = images.stream().mapToDouble(image -> image.getOriginBoundary().getArea()).sum();
+                double atlasArea = getAtlasArea(images);
+                log.info("{} textures, {} : {} ms, atlas {} px, fill {}%", count, name, elapsed, (long) atlasArea, String.format("%.1f", usedArea / atlasArea * 100));
+            }
+        }
+    }
+
+    private List<GaiaBatchImage> createImages(Random random, int count, int minSize, int maxSize) {
+        List<GaiaBatchImage> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double scale = Math.pow(random.nextDouble(), 3);
+            int width = minSize + (int) (scale * (maxSize - minSize));
+            int height = minSize + (int) (Math.pow(random.nextDouble(), 3) * (maxSize - minSize));
+            images.add(createImage(i, width, height));
+        }
+        // the coordinator sorts the images by area in descending order
+        images.sort(Comparator.comparingDouble((GaiaBatchImage image) -> image.getOriginBoundary().getArea()).reversed());
+        return images;
+    }
+
+    private GaiaBatchImage createImage(int materialId, int width, int height) {
+        GaiaBatchImage image = new GaiaBatchImage();
+        image.setMaterialId(materialId);
+        image.setOriginBoundary(new GaiaRectangle(0, 0, width, height));
+        return image;
+    }
+
+    private double getAtlasArea(List<GaiaBatchImage> images) {
+        double maxX = images.stream().mapToDouble(image -> image.getBatchedBoundary().getMaxX()).max().orElse(0);
+        double maxY = images.stream().mapToDouble(image -> image.getBatchedBoundary().getMaxY()).max().orElse(0);
+        return maxX * maxY;
+    }
+
+    private void assertPacked(List<GaiaBatchImage> images) {
+        for (int i = 0; i < images.size(); i++) {
+            GaiaRectangle origin = images.get(i).getOriginBoundary();
+            GaiaRectangle batched = images.get(i).getBatchedBoundary();
+            assertNotNull(batched);
+            assertTrue(batched.getMinX() >= 0 && batched.getMinY() >= 0);
+            assertEquals(origin.getWidth(), batched.getWidth());
+            assertEquals(origin.getHeight(), batched.getHeight());
+            for (int j = 0; j < i; j++) {
+                GaiaRectangle other = images.get(j).getBatchedBoundary();
+                boolean overlaps = batched.getMinX() < other.getMaxX() && other.getMinX() < batched.getMaxX()
+                        && batched.getMinY() < other.getMaxY() && other.getMinY() < batched.getMaxY();
+                assertFalse(overlaps, "images " + i + " and " + j + " overlap");
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.ImplicitTiling;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class ImplicitTilesetWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaceOctree() throws IOException {
+        Configuration.initConsoleLogger();
+        Node root = createNode(null, new double[]{0, 0, 1, 1, 0, 100}, 64, Node.RefineType.ADD, false);
+        // level 1 cell (1, 0, 0) and two of its level 2 children
+        Node parent = createNode(root, new double[]{0.5, 0, 1, 0.5, 0, 50}, 8, Node.RefineType.REPLACE, true);
+        Node first = createNode(parent, new double[]{0.5, 0, 0.75, 0.25, 0, 25}, 2, Node.RefineType.REPLACE, true);
+        Node second = createNode(parent, new double[]{0.76, 0.26, 0.99, 0.49, 26, 49}, 2, Node.RefineType.REPLACE, true);
+
+        ImplicitTilesetWriter writer = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.OCTREE, 4);
+        Node implicitRoot = writer.createImplicitRoot(root, tempDir.toFile());
+        assertNotNull(implicitRoot);
+
+        assertEquals("1/1/0/0", parent.getContent().getContentInfo().getContentName());
+        assertEquals("2/2/0/0", first.getContent().getContentInfo().getContentName());
+        assertEquals("2/3/1/1", second.getContent().getContentInfo().getContentName());
+        assertEquals("data/2/3/1/1.glb", second.getContent().getUri());
+        assertTrue(Files.isDirectory(tempDir.resolve("data/2/3/1")));
+
+        JsonNode json = toJson(implicitRoot);
+        assertEquals("REPLACE", json.get("refine").asText());
+        assertEquals(16.0, json.get("geometricError").asDouble());
+        assertEquals("data/{level}/{x}/{y}/{z}.glb", json.get("content").get("uri").asText());
+        assertNull(json.get("children"));
+        JsonNode implicitTiling = json.get("implicitTiling");
+        assertEquals("OCTREE", implicitTiling.get("subdivisionScheme").asText());
+        assertEquals(4, implicitTiling.get("subtreeLevels").asInt());
+        assertEquals(3, implicitTiling.get("availableLevels").asInt());
+        assertEquals("subtrees/{level}/{x}/{y}/{z}.subtree", implicitTiling.get("subtrees").get("uri").asText());
+
+        Subtree subtree = readSubtree(tempDir.resolve("subtrees/0/0/0/0.subtree"));
+        // root, (1, 0, 0) at 1 + 1, (2, 0, 0) at 9 + 8 and (3, 1, 1) at 9 + 15
+        assertEquals(Set.of(0, 2, 17, 24), subtree.availableBits("tileAvailability", 585));
+        assertEquals(Set.of(2, 17, 24), subtree.availableBits(subtree.json.get("contentAvailability").get(0), 585));
+        assertEquals(0, subtree.json.get("childSubtreeAvailability").get("constant").asInt());
+    }
+
+    @Test
+    void addQuadtreeLayers() throws IOException {
+        Configuration.initConsoleLogger();
+        Node root = createNode(null, new double[]{0, 0, 1, 1, 0, 10}, 64, Node.RefineType.ADD, false);
+        // two inputs sharing the root cell
+        Node first = createNode(root, new double[]{0, 0, 1, 1, 0, 10}, 16, Node.RefineType.ADD, true);
+        Node second = createNode(root, new double[]{0.1, 0.1, 0.9, 0.9, 0, 10}, 16, Node.RefineType.ADD, true);
+        Node leaf = createNode(first, new double[]{0.75, 0.5, 1, 0.75, 0, 10}, 1, Node.RefineType.ADD, true);
+
+        ImplicitTilesetWriter writer = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.QUADTREE, 1);
+        Node implicitRoot = writer.createImplicitRoot(root, tempDir.toFile());
+        assertNotNull(implicitRoot);
+
+        assertEquals("0/0/0", first.getContent().getContentInfo().getContentName());
+        assertEquals("0/0/0_1", second.getContent().getContentInfo().getContentName());
+        assertEquals("2/3/2", leaf.getContent().getContentInfo().getContentName());
+
+        JsonNode json = toJson(implicitRoot);
+        assertNull(json.get("content"));
+        assertEquals("data/{level}/{x}/{y}.glb", json.get("contents").get(0).get("uri").asText());
+        assertEquals("data/{level}/{x}/{y}_1.glb", json.get("contents").get(1).get("uri").asText());
+
+        // one level per subtree, the subtree roots are the available tiles
+        Subtree rootSubtree = readSubtree(tempDir.resolve("subtrees/0/0/0.subtree"));
+        assertEquals(1, rootSubtree.json.get("tileAvailability").get("constant").asInt());
+        assertEquals(1, rootSubtree.json.get("contentAvailability").get(1).get("constant").asInt());
+        assertEquals(Set.of(3), rootSubtree.availableBits("childSubtreeAvailability", 4));
+        Subtree middleSubtree = readSubtree(tempDir.resolve("subtrees/1/1/1.subtree"));
+        assertEquals(0, middleSubtree.json.get("contentAvailability").get(0).get("constant").asInt());
+        assertEquals(Set.of(1), middleSubtree.availableBits("childSubtreeAvailability", 4));
+        Subtree leafSubtree = readSubtree(tempDir.resolve("subtrees/2/3/2.subtree"));
+        assertEquals(1, leafSubtree.json.get("contentAvailability").get(0).get("constant").asInt());
+        assertEquals(0, leafSubtree.json.get("contentAvailability").get(1).get("constant").asInt());
+        assertEquals(0, leafSubtree.json.get("childSubtreeAvailability").get("constant").asInt());
+    }
+
+    @Test
+    void explicitFallback() throws IOException {
+        Configuration.initConsoleLogger();
+        Node root = createNode(null, new double[]{0, 0, 1, 1, 0, 10}, 64, Node.RefineType.ADD, false);
+        Node parent = createNode(root, new double[]{0, 0, 0.5, 0.5, 0, 10}, 8, Node.RefineType.REPLACE, true);
+        // the replacement lies in the same cell as the replaced content
+        Node child = createNode(parent, new double[]{0.1, 0.1, 0.4, 0.4, 0, 10}, 4, Node.RefineType.REPLACE, true);
+
+        ImplicitTilesetWriter writer = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.QUADTREE, 2);
+        assertNull(writer.createImplicitRoot(root, tempDir.toFile()));
+        assertEquals(child.getNodeCode(), child.getContent().getContentInfo().getContentName());
+        assertEquals("data/" + child.getNodeCode() + ".glb", child.getContent().getUri());
+        assertFalse(Files.exists(tempDir.resolve("subtrees")));
+
+        parent.getChildren().clear();
+        Node outside = createNode(root, new double[]{0.5, 0.5, 1.5, 1, 0, 10}, 8, Node.RefineType.REPLACE, true);
+        assertNull(writer.createImplicitRoot(root, tempDir.toFile()));
+        assertEquals(outside.getNodeCode(), outside.getContent().getContentInfo().getContentName());
+    }
+
+    @Test
+    void replaceSiblingsOfDifferentSizes() throws IOException {
+        Configuration.initConsoleLogger();
+        Node root = createNode(null, new double[]{0, 0, 1, 1, 0, 10}, 64, Node.RefineType.ADD, false);
+        Node parent = createNode(root, new double[]{0, 0, 1, 1, 0, 10}, 16, Node.RefineType.REPLACE, true);
+        // the large sibling takes a parent cell of the small one, which would be hidden until the large one refines
+        Node large = createNode(parent, new double[]{0, 0, 0.5, 0.5, 0, 10}, 4, Node.RefineType.REPLACE, true);
+        Node small = createNode(parent, new double[]{0.05, 0.05, 0.2, 0.2, 0, 10}, 4, Node.RefineType.REPLACE, true);
+
+        ImplicitTilesetWriter writer = new ImplicitTilesetWriter(ImplicitTiling.SubdivisionScheme.QUADTREE, 2);
+        assertNull(writer.createImplicitRoot(root, tempDir.toFile()));
+        assertEquals(large.getNodeCode(), large.getContent().getContentInfo().getContentName());
+        assertEquals(small.getNodeCode(), small.getContent().getContentInfo().getContentName());
+        assertFalse(Files.exists(tempDir.resolve("subtrees")));
+    }
+
+    private Node createNode(Node parent, double[] region, double geometricError, Node.RefineType refine, boolean withContent) {
+        Node node = new Node();
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.REGION);
+        boundingVolume.setRegion(region);
+        node.setBoundingVolume(boundingVolume);
+        node.setGeometricError(geometricError);
+        node.setRefine(refine);
+        node.setChildren(new ArrayList<>());
+        if (parent == null) {
+            node.setNodeCode("R");
+            node.setParent(node);
+        } else {
+            node.setNodeCode(parent.getNodeCode() + parent.getChildren().size());
+            node.setParent(parent);
+            parent.getChildren().add(node);
+        }
+        if (withContent) {
+            ContentInfo contentInfo = new ContentInfo();
+            contentInfo.setNodeCode(node.getNodeCode());
+            Content content = new Content();
+            content.setUri("data/" + node.getNodeCode() + ".glb");
+            content.setContentInfo(contentInfo);
+            node.setContent(content);
+        }
+        return node;
+    }
+
+    private JsonNode toJson(Node node) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return objectMapper.readTree(objectMapper.writeValueAsString(node));
+    }
+
+    private Subtree readSubtree(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x74627573, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        int jsonLength = (int) buffer.getLong();
+        int binaryLength = (int) buffer.getLong();
+        assertEquals(0, jsonLength % 8);
+        assertEquals(0, binaryLength % 8);
+        assertEquals(24 + jsonLength + binaryLength, buffer.capacity());
+
+        Subtree subtree = new Subtree();
+        subtree.json = new ObjectMapper().readTree(new String(buffer.array(), 24, jsonLength, StandardCharsets.UTF_8));
+        subtree.binary = ByteBuffer.wrap(buffer.array(), 24 + jsonLength, binaryLength).slice();
+        return subtree;
+    }
+
+    private static class Subtree {
+        private JsonNode json;
+        private ByteBuffer binary;
+
+        private Set<Integer> availableBits(String name, int bitCount) {
+            return availableBits(json.get(name), bitCount);
+        }
+
+        private Set<Integer> availableBits(JsonNode availability, int bitCount) {
+            Set<Integer> bits = new TreeSet<>();
+            if (availability.has("constant")) {
+                if (availability.get("constant").asInt() == 1) {
+                    for (int i = 0; i < bitCount; i++) {
+                        bits.add(i);
+                    }
+                }
+                return bits;
+            }
+            JsonNode bufferView = json.get("bufferViews").get(availability.get("bitstream").asInt());
+            int byteOffset = bufferView.get("byteOffset").asInt();
+            assertEquals(0, byteOffset % 8);
+            for (int i = 0; i < bitCount; i++) {
+                if ((binary.get(byteOffset + i / 8) >> (i % 8) & 1) == 1) {
+                    bits.add(i);
+                }
+            }
+            assertEquals(bits.size(), availability.get("availableCount").asInt());
+            return bits;
+        }
+    }
+}
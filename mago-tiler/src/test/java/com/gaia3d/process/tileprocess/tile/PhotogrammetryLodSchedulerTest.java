@@ -0,0 +1,201 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.command.Configuration;
+import com.gaia3d.process.TaskScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class PhotogrammetryLodSchedulerTest {
+
+    @Test
+    void lodsOfTileRunInOrder() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        int tileCount = 50;
+        int lodCount = 4;
+        Map<Integer, Integer> lastLods = new ConcurrentHashMap<>();
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(4));
+        for (int lod = 0; lod < lodCount; lod++) {
+            int stageLod = lod;
+            lodScheduler.addStage(lod, createTileInfos(tileCount, lod), (tileInfo) -> {
+                int tileIndex = getTileIndex(tileInfo);
+                Integer lastLod = lastLods.put(tileIndex, stageLod);
+                assertEquals(stageLod == 0 ? null : stageLod - 1, lastLod);
+                // the tiles with an odd index are cut in two
+                List<TileInfo> result = new ArrayList<>();
+                result.add(tileInfo);
+                if (tileIndex % 2 == 1) {
+                    result.add(tileInfo);
+                }
+                return result;
+            });
+        }
+
+        List<List<TileInfo>> lodTileInfos = lodScheduler.run();
+        assertEquals(lodCount, lodTileInfos.size());
+        for (int lod = 0; lod < lodCount; lod++) {
+            List<TileInfo> tileInfos = lodTileInfos.get(lod);
+            assertEquals(tileCount + tileCount / 2, tileInfos.size());
+            // the results are in the order of the tiles
+            int lastIndex = -1;
+            for (TileInfo tileInfo : tileInfos) {
+                assertTrue(tileInfo.getTempPath().toString().startsWith("lod" + lod));
+                int tileIndex = getTileIndex(tileInfo);
+                assertTrue(tileIndex >= lastIndex);
+                lastIndex = tileIndex;
+            }
+        }
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+            assertEquals(lodCount - 1, lastLods.get(tileIndex));
+        }
+    }
+
+    @Test
+    void nextLodStartsBeforeOtherTiles() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        // the lod 0 of the second tile waits for the lod 1 of the first tile
+        CountDownLatch firstTileLod1 = new CountDownLatch(1);
+        List<Boolean> waited = Collections.synchronizedList(new ArrayList<>());
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(2));
+        lodScheduler.addStage(0, createTileInfos(2, 0), (tileInfo) -> {
+            if (getTileIndex(tileInfo) == 1) {
+                try {
+                    waited.add(firstTileLod1.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return Collections.singletonList(tileInfo);
+        });
+        lodScheduler.addStage(1, createTileInfos(2, 1), (tileInfo) -> {
+            if (getTileIndex(tileInfo) == 0) {
+                firstTileLod1.countDown();
+            }
+            return Collections.singletonList(tileInfo);
+        });
+
+        List<List<TileInfo>> lodTileInfos = lodScheduler.run();
+        assertEquals(Collections.singletonList(true), waited);
+        assertEquals(2, lodTileInfos.get(1).size());
+    }
+
+    @Test
+    void callingThreadUnits() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        int tileCount = 20;
+        Thread callingThread = Thread.currentThread();
+        List<Boolean> poolThreads = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> callingThreads = Collections.synchronizedList(new ArrayList<>());
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(4));
+        lodScheduler.addStage(0, createTileInfos(tileCount, 0), (tileInfo) -> {
+            poolThreads.add(Thread.currentThread() != callingThread);
+            return Collections.singletonList(tileInfo);
+        });
+        for (int lod = 1; lod < 3; lod++) {
+            lodScheduler.addStage(lod, createTileInfos(tileCount, lod), false, true, (tileInfo) -> {
+                callingThreads.add(Thread.currentThread() == callingThread);
+                return Collections.singletonList(tileInfo);
+            });
+        }
+
+        List<List<TileInfo>> lodTileInfos = lodScheduler.run();
+        assertEquals(Collections.nCopies(tileCount, true), poolThreads);
+        assertEquals(Collections.nCopies(tileCount * 2, true), callingThreads);
+        assertEquals(tileCount, lodTileInfos.get(2).size());
+    }
+
+    @Test
+    void tileOrderUnits() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        int tileCount = 16;
+        List<Integer> orderedTiles = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger runningUnits = new AtomicInteger();
+        List<Integer> maxRunningUnits = Collections.synchronizedList(new ArrayList<>());
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(4));
+        // the last tiles finish their lod 0 first
+        lodScheduler.addStage(0, createTileInfos(tileCount, 0), (tileInfo) -> {
+            sleep(tileCount - getTileIndex(tileInfo));
+            return Collections.singletonList(tileInfo);
+        });
+        lodScheduler.addStage(1, createTileInfos(tileCount, 1), true, false, (tileInfo) -> {
+            maxRunningUnits.add(runningUnits.incrementAndGet());
+            orderedTiles.add(getTileIndex(tileInfo));
+            sleep(1);
+            runningUnits.decrementAndGet();
+            return Collections.singletonList(tileInfo);
+        });
+
+        lodScheduler.run();
+        List<Integer> expectedTiles = new ArrayList<>();
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+            expectedTiles.add(tileIndex);
+        }
+        assertEquals(expectedTiles, orderedTiles);
+        assertEquals(Collections.nCopies(tileCount, 1), maxRunningUnits);
+    }
+
+    @Test
+    void callingThreadFailure() {
+        Configuration.initConsoleLogger();
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(2));
+        lodScheduler.addStage(0, createTileInfos(2, 0), (tileInfo) -> Collections.singletonList(tileInfo));
+        lodScheduler.addStage(1, createTileInfos(2, 1), false, true, (tileInfo) -> {
+            throw new IOException("no OpenGL context");
+        });
+
+        RuntimeException exception = assertThrows(RuntimeException.class, lodScheduler::run);
+        assertTrue(exception.getCause().getCause() instanceof IOException);
+    }
+
+    @Test
+    void failureStopsTheLods() {
+        Configuration.initConsoleLogger();
+        Map<Integer, Integer> processedLods = new ConcurrentHashMap<>();
+        PhotogrammetryLodScheduler lodScheduler = new PhotogrammetryLodScheduler(new TaskScheduler(1));
+        lodScheduler.addStage(0, createTileInfos(1, 0), (tileInfo) -> {
+            throw new IOException("unreadable tile");
+        });
+        lodScheduler.addStage(1, createTileInfos(1, 1), (tileInfo) -> {
+            processedLods.put(getTileIndex(tileInfo), 1);
+            return Collections.singletonList(tileInfo);
+        });
+
+        RuntimeException exception = assertThrows(RuntimeException.class, lodScheduler::run);
+        assertTrue(exception.getCause().getCause() instanceof IOException);
+        assertTrue(processedLods.isEmpty());
+    }
+
+    private List<TileInfo> createTileInfos(int tileCount, int lod) {
+        List<TileInfo> tileInfos = new ArrayList<>();
+        for (int i = 0; i < tileCount; i++) {
+            tileInfos.add(TileInfo.builder().tempPath(Path.of("lod" + lod + "_" + i)).build());
+        }
+        return tileInfos;
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private int getTileIndex(TileInfo tileInfo) {
+        String name = tileInfo.getTempPath().toString();
+        return Integer.parseInt(name.substring(name.indexOf('_') + 1));
+    }
+}
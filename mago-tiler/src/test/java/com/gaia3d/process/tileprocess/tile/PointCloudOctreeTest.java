@@ -0,0 +1,135 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTemp;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTempReader;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class PointCloudOctreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void buildWithSmallBudget() throws IOException {
+        Configuration.initConsoleLogger();
+        int pointCount = 200000;
+        File sourceFile = createShuffledCell(tempDir.resolve("cell.bin").toFile(), pointCount);
+        File nodePath = tempDir.resolve("nodes").toFile();
+        assertTrue(nodePath.mkdirs());
+
+        // 64KB budget, the node buffers are flushed many times
+        PointCloudOctree octree = new PointCloudOctree(nodePath, 12, 20000, 64 * 1024);
+        PointCloudOctreeNode root = octree.build(sourceFile, "0", 1250);
+
+        long accepted = assertNode(root);
+        assertEquals(pointCount, accepted + octree.getDroppedCount());
+        assertEquals(1250, root.getPointCount());
+        assertEquals(0, root.getBoundingBox().getMinX(), 0.01);
+        assertEquals(100, root.getBoundingBox().getMaxX(), 0.01);
+    }
+
+    @Test
+    void residentPointsWithinBudget() throws IOException {
+        Configuration.initConsoleLogger();
+        int pointCount = 200000;
+        File sourceFile = createShuffledCell(tempDir.resolve("cell.bin").toFile(), pointCount);
+        File nodePath = tempDir.resolve("nodes").toFile();
+        assertTrue(nodePath.mkdirs());
+
+        // the budget holds less than the buffers of all the nodes, the flushed buffers are released
+        long memoryBudget = 256 * 1024;
+        PointCloudOctree octree = new PointCloudOctree(nodePath, 12, 20000, memoryBudget);
+        PointCloudOctreeNode root = octree.build(sourceFile, "0", 1250);
+
+        assertTrue(octree.getPeakResidentBytes() > 0);
+        assertTrue(octree.getPeakResidentBytes() <= memoryBudget, "peak " + octree.getPeakResidentBytes());
+        assertTrue(countNodes(root) * 4096L * 20 > memoryBudget);
+        assertEquals(pointCount, assertNode(root) + octree.getDroppedCount());
+        assertReleased(root);
+    }
+
+    private int countNodes(PointCloudOctreeNode node) {
+        int count = 1;
+        if (node.getChildren() != null) {
+            for (PointCloudOctreeNode child : node.getChildren()) {
+                if (child != null) {
+                    count += countNodes(child);
+                }
+            }
+        }
+        return count;
+    }
+
+    private void assertReleased(PointCloudOctreeNode node) {
+        assertEquals(0, node.getResidentBytes());
+        if (node.getChildren() != null) {
+            for (PointCloudOctreeNode child : node.getChildren()) {
+                if (child != null) {
+                    assertReleased(child);
+                }
+            }
+        }
+    }
+
+    private long assertNode(PointCloudOctreeNode node) throws IOException {
+        assertTrue(node.getPointCount() > 0);
+        assertTrue(node.getPointCount() <= node.getPointLimit());
+        GaiaBoundingBox boundingBox = node.getBoundingBox();
+        try (GaiaPointCloudTempReader reader = new GaiaPointCloudTempReader(node.getTempFile())) {
+            assertEquals(node.getPointCount(), reader.getPointCount());
+            for (long i = 0; i < reader.getPointCount(); i++) {
+                double x = reader.getX(i);
+                double y = reader.getY(i);
+                assertTrue(x >= node.getRegionMin()[0] && x <= node.getRegionMax()[0]);
+                assertTrue(y >= node.getRegionMin()[1] && y <= node.getRegionMax()[1]);
+                assertTrue(x >= boundingBox.getMinX() && x <= boundingBox.getMaxX());
+            }
+        }
+        long total = node.getPointCount();
+        if (node.getChildren() != null) {
+            for (PointCloudOctreeNode child : node.getChildren()) {
+                if (child != null) {
+                    assertEquals(node.getDepth() + 1, child.getDepth());
+                    total += assertNode(child);
+                }
+            }
+        }
+        return total;
+    }
+
+    private File createShuffledCell(File file, int pointCount) throws IOException {
+        GaiaPointCloudTemp temp = new GaiaPointCloudTemp(file);
+        temp.getQuantizedVolumeScale()[0] = 100;
+        temp.getQuantizedVolumeScale()[1] = 100;
+        temp.getQuantizedVolumeScale()[2] = 10;
+        temp.writeHeader();
+        Random random = new Random(42);
+        ByteBuffer buffer = ByteBuffer.allocate(20 * 4096);
+        for (int i = 0; i < pointCount; i++) {
+            if (!buffer.hasRemaining()) {
+                temp.writeBlock(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            double x = i == 0 ? 0 : (i == 1 ? 100 : random.nextDouble() * 100);
+            double y = random.nextDouble() * 100;
+            double z = random.nextDouble() * 10;
+            temp.putPoint(buffer, x, y, z, (byte) 1, (byte) 2, (byte) 3, (char) 0, (short) 0);
+        }
+        temp.writeBlock(buffer.array(), 0, buffer.position());
+        temp.getOutputStream().close();
+        return file;
+    }
+}
@@ -0,0 +1,181 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
+import com.gaia3d.process.tileprocess.tile.tileset.TilesetV2;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TilesetStreamWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeSingleTileset() throws IOException {
+        Configuration.initConsoleLogger();
+        ObjectMapper objectMapper = createObjectMapper();
+        Tileset tileset = createTileset(5, 3);
+
+        File tilesetFile = tempDir.resolve("tileset.json").toFile();
+        long size = new TilesetStreamWriter(objectMapper, 0).write(tileset, tilesetFile);
+
+        assertEquals(tilesetFile.length(), size);
+        assertFalse(Files.exists(tempDir.resolve("tilesets")));
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(tileset));
+        assertEquals(expected, objectMapper.readTree(tilesetFile));
+    }
+
+    @Test
+    void writeShardedTileset() throws IOException {
+        Configuration.initConsoleLogger();
+        ObjectMapper objectMapper = createObjectMapper();
+        Tileset tileset = createTileset(2, 5);
+
+        File tilesetFile = tempDir.resolve("tileset.json").toFile();
+        long size = new TilesetStreamWriter(objectMapper, 2).write(tileset, tilesetFile);
+
+        // 4 shards at depth 2 and 16 at depth 4
+        File[] shards = tempDir.resolve("tilesets").toFile().listFiles();
+        assertNotNull(shards);
+        assertEquals(20, shards.length);
+        long totalSize = tilesetFile.length();
+        for (File shard : shards) {
+            totalSize += shard.length();
+        }
+        assertEquals(totalSize, size);
+
+        JsonNode root = objectMapper.readTree(tilesetFile);
+        JsonNode reference = root.get("root").get("children").get(0).get("children").get(1);
+        assertEquals("tilesets/R01.json", reference.get("content").get("uri").asText());
+        assertNull(reference.get("children"));
+
+        JsonNode shard = objectMapper.readTree(tempDir.resolve("tilesets/R01.json").toFile());
+        assertEquals("1.1", shard.get("asset").get("version").asText());
+        assertEquals(reference.get("geometricError"), shard.get("geometricError"));
+        assertEquals("../data/R01.glb", shard.get("root").get("content").get("uri").asText());
+        assertEquals("R0110.json", shard.get("root").get("children").get(1).get("children").get(0).get("content").get("uri").asText());
+
+        // resolving the references gives back the single tileset
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(tileset));
+        ObjectNode resolved = (ObjectNode) root;
+        resolved.set("root", resolve(objectMapper, root.get("root"), tempDir.toFile()));
+        assertEquals(expected, resolved);
+    }
+
+    @Disabled
+    @Test
+    void compareLargeTileset() throws IOException {
+        Configuration.initConsoleLogger();
+        ObjectMapper objectMapper = createObjectMapper();
+        // 8^6 tiles
+        Tileset tileset = createTileset(8, 6);
+
+        long start = System.currentTimeMillis();
+        String result = objectMapper.writeValueAsString(tileset);
+        Files.writeString(tempDir.resolve("string.json"), result);
+        log.info("writeValueAsString : {} bytes, {} ms", result.length(), System.currentTimeMillis() - start);
+        result = null;
+
+        start = System.currentTimeMillis();
+        long size = new TilesetStreamWriter(objectMapper, 0).write(tileset, tempDir.resolve("tileset.json").toFile());
+        log.info("streamed : {} bytes, {} ms", size, System.currentTimeMillis() - start);
+
+        Files.createDirectories(tempDir.resolve("sharded"));
+        start = System.currentTimeMillis();
+        File shardedFile = tempDir.resolve("sharded/tileset.json").toFile();
+        size = new TilesetStreamWriter(objectMapper, 3).write(tileset, shardedFile);
+        log.info("sharded : {} bytes in total, {} bytes tileset.json, {} ms", size, shardedFile.length(), System.currentTimeMillis() - start);
+    }
+
+    private JsonNode resolve(ObjectMapper objectMapper, JsonNode tile, File directory) throws IOException {
+        JsonNode content = tile.get("content");
+        if (content != null && content.get("uri").asText().endsWith(".json")) {
+            File shardFile = new File(directory, content.get("uri").asText());
+            ObjectNode shardRoot = (ObjectNode) objectMapper.readTree(shardFile).get("root");
+            if (tile.has("transform")) {
+                shardRoot.set("transform", tile.get("transform"));
+            }
+            tile = shardRoot;
+            directory = shardFile.getParentFile();
+        }
+        ObjectNode result = ((ObjectNode) tile).deepCopy();
+        if (result.get("content") != null) {
+            String uri = result.get("content").get("uri").asText();
+            ((ObjectNode) result.get("content")).put("uri", uri.replace("../", ""));
+        }
+        if (result.get("children") != null) {
+            ArrayNode children = objectMapper.createArrayNode();
+            for (JsonNode child : result.get("children")) {
+                children.add(resolve(objectMapper, child, directory));
+            }
+            result.set("children", children);
+        }
+        return result;
+    }
+
+    private ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+        return objectMapper;
+    }
+
+    private Tileset createTileset(int childCount, int depth) {
+        Node root = new Node();
+        root.setNodeCode("R");
+        root.setParent(root);
+        root.setTransform(new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 100, 200, 300, 1});
+        createNode(root, new double[]{0, 0, 1, 1, 0, 10}, 256, childCount, depth);
+        Tileset tileset = new TilesetV2();
+        tileset.setGeometricError(512);
+        tileset.setRoot(root);
+        return tileset;
+    }
+
+    private void createNode(Node node, double[] region, double geometricError, int childCount, int depth) {
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.REGION);
+        boundingVolume.setRegion(region);
+        node.setBoundingVolume(boundingVolume);
+        node.setGeometricError(geometricError);
+        if (node.getParent() != node) {
+            Content content = new Content();
+            content.setUri("data/" + node.getNodeCode() + ".glb");
+            node.setContent(content);
+            node.setRefine(Node.RefineType.REPLACE);
+        }
+        if (depth == 0) {
+            return;
+        }
+        node.setChildren(new ArrayList<>());
+        double width = (region[2] - region[0]) / childCount;
+        for (int i = 0; i < childCount; i++) {
+            Node child = new Node();
+            child.setParent(node);
+            child.setNodeCode(node.getNodeCode() + i);
+            node.getChildren().add(child);
+            double[] childRegion = new double[]{region[0] + width * i, region[1], region[0] + width * (i + 1), region[3], region[4], region[5]};
+            createNode(child, childRegion, geometricError / 2, childCount, depth - 1);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.octree.HalfEdgeOctree;
+import com.gaia3d.basic.halfedge.*;
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.process.postprocess.batch.atlas.AtlasPacker;
+import com.gaia3d.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class SoftwareExtensionModuleTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void decimateAndCutByObliqueCamera() throws IOException {
+        Configuration.initConsoleLogger();
+        GaiaScene scene = createTexturedPlane(8, 4.0);
+        GaiaBoundingBox bbox = scene.updateBoundingBox();
+        HalfEdgeOctree octree = new HalfEdgeOctree(null);
+        octree.setSize(bbox.getMinX(), bbox.getMinY(), bbox.getMinZ() - 1.0, bbox.getMaxX(), bbox.getMaxY(), bbox.getMaxZ() + 1.0);
+        octree.setMaxDepth(0);
+        DecimateParameters decimateParameters = new DecimateParameters();
+        decimateParameters.setBasicValues(6.0, 0.4, 0.9, 32.0, 1000000, 1, 1.0);
+        decimateParameters.setLod(1);
+
+        List<GaiaScene> scenes = new ArrayList<>();
+        scenes.add(scene);
+        List<HalfEdgeScene> resultScenes = new ArrayList<>();
+        SoftwareExtensionModule module = new SoftwareExtensionModule(2, AtlasPacker.create(AtlasPacker.SKYLINE));
+        module.decimateAndCutByObliqueCamera(scenes, resultScenes, decimateParameters, octree, new ArrayList<>(), 16.0, false);
+        assertFalse(resultScenes.isEmpty());
+
+        // the atlas shows the source texture at the texture coordinates of every face
+        int checkedFaces = 0;
+        for (HalfEdgeScene resultScene : resultScenes) {
+            for (HalfEdgePrimitive primitive : resultScene.extractPrimitives(null)) {
+                GaiaMaterial material = resultScene.getMaterials().get(primitive.getMaterialIndex());
+                BufferedImage atlas = material.getTextures().get(TextureType.DIFFUSE).get(0).getBufferedImage();
+                assertNotNull(atlas);
+                for (HalfEdgeSurface surface : primitive.getSurfaces()) {
+                    for (HalfEdgeFace face : surface.getFaces()) {
+                        List<HalfEdgeVertex> vertices = face.getVertices(null);
+                        Vector3d centroid = new Vector3d();
+                        Vector2d texCoord = new Vector2d();
+                        for (HalfEdgeVertex vertex : vertices) {
+                            centroid.add(vertex.getPosition());
+                            texCoord.add(vertex.getTexcoords());
+                        }
+                        centroid.div(vertices.size());
+                        texCoord.div(vertices.size());
+                        // the faces on the color border and the degenerated faces have no defined color
+                        if (Math.abs(centroid.x - 2.0) < 0.3 || getAreaXY(vertices) < 1e-4) {
+                            continue;
+                        }
+                        int pixelX = Math.min(atlas.getWidth() - 1, (int) (texCoord.x * atlas.getWidth()));
+                        int pixelY = Math.min(atlas.getHeight() - 1, (int) (texCoord.y * atlas.getHeight()));
+                        int expected = centroid.x < 2.0 ? RED : BLUE;
+                        assertEquals(expected, atlas.getRGB(pixelX, pixelY) | 0xFF000000, "face at " + centroid);
+                        checkedFaces++;
+                    }
+                }
+            }
+        }
+        assertTrue(checkedFaces > 0);
+    }
+
+    @Test
+    void depthRender() {
+        Configuration.initConsoleLogger();
+        // a plane tilted along x, its depth grows linearly from the highest side
+        GaiaScene scene = SoftwareRasterizerTest.createScene(new double[][]{{0, 0, 1}, {4, 0, 0}, {4, 2, 0}, {0, 2, 1}}, new int[][]{{0, 1, 2, 3}}, RED);
+        GaiaBoundingBox bbox = scene.updateBoundingBox();
+        SoftwareExtensionModule module = new SoftwareExtensionModule(1, AtlasPacker.create(AtlasPacker.SKYLINE));
+        BufferedImage depthImage = module.getDepthRender(RasterMesh.fromScene(scene), bbox, 16);
+        module.deleteObjects();
+
+        assertEquals(16, depthImage.getWidth());
+        assertEquals(8, depthImage.getHeight());
+        float[][] depths = ImageUtils.bufferedImageToFloatMatrix(depthImage);
+        for (int x = 0; x < 16; x++) {
+            double worldX = (x + 0.5) * 0.25;
+            double height = 1.0 - worldX / 4.0;
+            for (int y = 0; y < 8; y++) {
+                assertEquals(1.0 - height, depths[x][y], 1.0 / 500.0);
+            }
+        }
+    }
+
+    private double getAreaXY(List<HalfEdgeVertex> vertices) {
+        Vector3d a = vertices.get(0).getPosition();
+        Vector3d b = vertices.get(1).getPosition();
+        Vector3d c = vertices.get(2).getPosition();
+        return Math.abs((b.x - a.x) * (c.y - a.y) - (c.x - a.x) * (b.y - a.y)) / 2.0;
+    }
+
+    private GaiaScene createTexturedPlane(int cells, double size) throws IOException {
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        for (int y = 0; y <= cells; y++) {
+            for (int x = 0; x <= cells; x++) {
+                GaiaVertex vertex = new GaiaVertex();
+                vertex.setPosition(new Vector3d(x * size / cells, y * size / cells, 0.0));
+                vertex.setTexcoords(new Vector2d((double) x / cells, 1.0 - (double) y / cells));
+                primitive.getVertices().add(vertex);
+            }
+        }
+        GaiaSurface surface = new GaiaSurface();
+        for (int y = 0; y < cells; y++) {
+            for (int x = 0; x < cells; x++) {
+                int index = y * (cells + 1) + x;
+                GaiaFace lowerFace = new GaiaFace();
+                lowerFace.setIndices(new int[]{index, index + 1, index + cells + 2});
+                surface.getFaces().add(lowerFace);
+                GaiaFace upperFace = new GaiaFace();
+                upperFace.setIndices(new int[]{index, index + cells + 2, index + cells + 1});
+                surface.getFaces().add(upperFace);
+            }
+        }
+        primitive.getSurfaces().add(surface);
+        primitive.setMaterialIndex(0);
+
+        GaiaMesh mesh = new GaiaMesh();
+        mesh.getPrimitives().add(primitive);
+        GaiaNode node = new GaiaNode();
+        node.getMeshes().add(mesh);
+        GaiaScene scene = new GaiaScene();
+        scene.getNodes().add(node);
+        scene.setOriginalPath(Path.of("plane.mgb"));
+        scene.setAttribute(new GaiaAttribute());
+
+        // left half red and right half blue, the cloned scenes load the texture from the file
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, x < 32 ? RED : BLUE);
+            }
+        }
+        ImageIO.write(image, "png", tempDir.resolve("plane.png").toFile());
+        GaiaTexture texture = new GaiaTexture();
+        texture.setParentPath(tempDir.toString());
+        texture.setPath("plane.png");
+        List<GaiaTexture> textures = new ArrayList<>();
+        textures.add(texture);
+        GaiaMaterial material = new GaiaMaterial();
+        material.getTextures().put(TextureType.DIFFUSE, textures);
+        scene.getMaterials().add(material);
+        return scene;
+    }
+}
@@ -0,0 +1,229 @@
+package com.gaia3d.process.tileprocess.tile.software;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.model.*;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.joml.Vector4d;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class SoftwareRasterizerTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int CLEAR = 0xFF808080;
+
+    @Test
+    void renderQuad() {
+        Configuration.initConsoleLogger();
+        // a quad from (1, 1) to (3, 3) at the height 0.5, seen from the top of a 4m box on 8x8 pixels
+        GaiaScene scene = createScene(new double[][]{{1, 1, 0.5}, {3, 1, 0.5}, {3, 3, 0.5}, {1, 3, 0.5}}, new int[][]{{0, 1, 2, 3}}, RED);
+        RasterFrame frame = render(scene, 8, 8, 1);
+
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int pixel = y * 8 + x;
+                boolean inside = x >= 2 && x < 6 && y >= 2 && y < 6;
+                assertEquals(inside ? RED : CLEAR, frame.getColors()[pixel], "pixel " + x + ", " + y);
+                assertEquals(inside ? 0.25f : 1.0f, frame.getDepths()[pixel], 1e-6);
+                assertEquals(inside ? 0 : RasterFrame.NO_ID, frame.getIds()[pixel]);
+            }
+        }
+    }
+
+    @Test
+    void renderPyramid() {
+        Configuration.initConsoleLogger();
+        // four faces sharing the apex, the pixel centers on the shared edges are drawn by only one face
+        double[][] positions = {{0, 0, 0}, {4, 0, 0}, {4, 4, 0}, {0, 4, 0}, {2, 2, 1}};
+        int[][] faces = {{0, 1, 4}, {1, 2, 4}, {2, 3, 4}, {3, 0, 4}};
+        RasterFrame frame = render(createScene(positions, faces, RED), 8, 8, 1);
+
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                double worldX = (x + 0.5) * 0.5;
+                double worldY = 4.0 - (y + 0.5) * 0.5;
+                double height = 1.0 - Math.max(Math.abs(worldX - 2.0), Math.abs(worldY - 2.0)) / 2.0;
+                int pixel = y * 8 + x;
+                assertEquals((1.0 - height) / 2.0, frame.getDepths()[pixel], 1e-6, "pixel " + x + ", " + y);
+                assertNotEquals(RasterFrame.NO_ID, frame.getIds()[pixel]);
+            }
+        }
+        int[] pixelCounts = new int[4];
+        frame.countIds(pixelCounts);
+        int totalPixels = 0;
+        for (int pixelCount : pixelCounts) {
+            assertTrue(pixelCount >= 12);
+            totalPixels += pixelCount;
+        }
+        assertEquals(64, totalPixels);
+    }
+
+    @Test
+    void cullAndClip() {
+        Configuration.initConsoleLogger();
+        // the clockwise quad faces down, the clip box keeps only its left half
+        GaiaScene scene = createScene(new double[][]{{1, 1, 0.5}, {1, 3, 0.5}, {3, 3, 0.5}, {3, 1, 0.5}}, new int[][]{{0, 1, 2, 3}}, RED);
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(1);
+        rasterizer.setCullBackFaces(true);
+        RasterFrame frame = render(rasterizer, scene, 8, 8);
+        assertEquals(64, countColor(frame, CLEAR));
+
+        rasterizer.setCullBackFaces(false);
+        GaiaBoundingBox clipBox = new GaiaBoundingBox();
+        clipBox.addPoint(0, 0, 0);
+        clipBox.addPoint(2, 4, 1);
+        rasterizer.setClipBox(clipBox);
+        frame = render(rasterizer, scene, 8, 8);
+        assertEquals(8, countColor(frame, RED));
+    }
+
+    @Test
+    void textureSampling() {
+        Configuration.initConsoleLogger();
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xFF000000);
+        image.setRGB(1, 0, 0xFFFF0000);
+        image.setRGB(0, 1, 0xFF00FF00);
+        image.setRGB(1, 1, 0xFF0000FF);
+        RasterMaterial material = new RasterMaterial(image);
+
+        assertEquals(0xFFFF0000, material.sample(0.75, 0.25));
+        assertEquals(0xFF00FF00, material.sample(0.25, 0.75));
+        // the texture repeats, and the texels are blended between their centers
+        assertEquals(0xFFFF0000, material.sample(1.75, -0.75));
+        assertEquals(0xFF800000, material.sample(0.5, 0.25));
+        assertEquals(RED, RasterMaterial.toArgb(new Vector4d(1, 0, 0, 1)));
+    }
+
+    @Test
+    void depthPacking() {
+        Configuration.initConsoleLogger();
+        float[] depths = {0.0f, 0.001f, 0.25f, 0.5f, 0.123456f, 0.999f};
+        RasterFrame frame = new RasterFrame(depths.length, 1, false, false);
+        System.arraycopy(depths, 0, frame.getDepths(), 0, depths.length);
+
+        // the 8-bit channels of the OpenGL depth image lose up to half a step of the first channel
+        float[][] unpacked = ImageUtils.bufferedImageToFloatMatrix(frame.getDepthImage());
+        for (int i = 0; i < depths.length; i++) {
+            assertEquals(depths[i], unpacked[i][0], 1.0 / 500.0);
+        }
+        assertEquals(0xFFFFFFFF, RasterFrame.packDepth(1.0f));
+    }
+
+    @Test
+    void fillBackground() {
+        Configuration.initConsoleLogger();
+        RasterFrame frame = new RasterFrame(5, 1, true, false);
+        frame.clear(0x00FF00FF);
+        frame.getColors()[0] = RED;
+        frame.fillBackground(0x00FF00FF, 3);
+
+        assertEquals(RED, frame.getColors()[3]);
+        assertEquals(0x00FF00FF, frame.getColors()[4]);
+    }
+
+    @Test
+    void multiThreadedFrameIsIdentical() {
+        Configuration.initConsoleLogger();
+        GaiaScene scene = createRandomScene(new Random(3), 2000);
+        RasterFrame expected = render(scene, 333, 257, 1);
+        RasterFrame actual = render(scene, 333, 257, 4);
+
+        assertArrayEquals(expected.getDepths(), actual.getDepths());
+        assertArrayEquals(expected.getColors(), actual.getColors());
+        assertArrayEquals(expected.getIds(), actual.getIds());
+    }
+
+    @Disabled
+    @Test
+    void renderBenchmark() {
+        Configuration.initConsoleLogger();
+        GaiaScene scene = createRandomScene(new Random(5), 200000);
+        for (int threadCount : new int[]{1, 2, 4, 8}) {
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                render(scene, 2048, 2048, threadCount);
+            }
+            log.info("[Benchmark] {} threads : {}ms", threadCount, (System.currentTimeMillis() - startTime) / 5);
+        }
+    }
+
+    private RasterFrame render(GaiaScene scene, int width, int height, int threadCount) {
+        return render(new SoftwareRasterizer(threadCount), scene, width, height);
+    }
+
+    private RasterFrame render(SoftwareRasterizer rasterizer, GaiaScene scene, int width, int height) {
+        // top view of the box from (0, 0, -1) to (4, 4, 1)
+        RasterView view = RasterView.lookAlong(new Vector3d(2, 2, 0), new Vector3d(0, 0, -1), new Vector3d(0, 1, 0));
+        view.setOrthographic(-2, 2, -2, 2, -1, 1);
+        RasterFrame frame = new RasterFrame(width, height, true, true);
+        frame.clear(CLEAR);
+        rasterizer.render(Collections.singletonList(RasterMesh.fromScene(scene)), view, frame);
+        return frame;
+    }
+
+    private int countColor(RasterFrame frame, int color) {
+        int count = 0;
+        for (int pixelColor : frame.getColors()) {
+            if (pixelColor == color) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private GaiaScene createRandomScene(Random random, int triangleCount) {
+        double[][] positions = new double[triangleCount * 3][];
+        int[][] faces = new int[triangleCount][];
+        for (int i = 0; i < triangleCount; i++) {
+            double x = random.nextDouble() * 4;
+            double y = random.nextDouble() * 4;
+            for (int j = 0; j < 3; j++) {
+                positions[i * 3 + j] = new double[]{x + random.nextDouble() - 0.5, y + random.nextDouble() - 0.5, random.nextDouble() * 2 - 1};
+            }
+            faces[i] = new int[]{i * 3, i * 3 + 1, i * 3 + 2};
+        }
+        return createScene(positions, faces, RED);
+    }
+
+    static GaiaScene createScene(double[][] positions, int[][] faces, int color) {
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        for (double[] position : positions) {
+            GaiaVertex vertex = new GaiaVertex();
+            vertex.setPosition(new Vector3d(position[0], position[1], position[2]));
+            primitive.getVertices().add(vertex);
+        }
+        GaiaSurface surface = new GaiaSurface();
+        for (int i = 0; i < faces.length; i++) {
+            GaiaFace face = new GaiaFace();
+            face.setIndices(faces[i]);
+            face.setId(i);
+            surface.getFaces().add(face);
+        }
+        primitive.getSurfaces().add(surface);
+        primitive.setMaterialIndex(0);
+
+        GaiaMesh mesh = new GaiaMesh();
+        mesh.getPrimitives().add(primitive);
+        GaiaNode node = new GaiaNode();
+        node.getMeshes().add(mesh);
+        GaiaScene scene = new GaiaScene();
+        scene.getNodes().add(node);
+
+        GaiaMaterial material = new GaiaMaterial();
+        material.setDiffuseColor(new Vector4d(((color >> 16) & 0xFF) / 255.0, ((color >> 8) & 0xFF) / 255.0, (color & 0xFF) / 255.0, 1.0));
+        scene.getMaterials().add(material);
+        return scene;
+    }
+}
@@ -0,0 +1,152 @@
+package com.gaia3d.util;
+
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.command.Configuration;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.preprocess.GaiaStrictTranslation;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.locationtech.proj4j.BasicCoordinateTransform;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.Proj4jException;
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+class CoordinateTransformEngineTest {
+    private final CoordinateReferenceSystem source = new CRSFactory().createFromName("EPSG:5186");
+    // the orthographic projection only covers the visible half of the globe, farther than the radius is out of its domain
+    private final CoordinateReferenceSystem orthographic = new CRSFactory().createFromParameters("ORTHOGRAPHIC", "+proj=ortho +lat_0=37 +lon_0=127 +ellps=WGS84 +units=m");
+
+    @Test
+    void transformArrayInPlace() {
+        Configuration.initConsoleLogger();
+        int count = 200000;
+        double[] coordinates = createCoordinates(count);
+        double[] expected = coordinates.clone();
+
+        CoordinateTransformEngine.transformParallel(source, GlobeUtils.wgs84, coordinates, 0, count);
+
+        BasicCoordinateTransform transform = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
+        for (int i = 0; i < count; i += 997) {
+            ProjCoordinate result = transform.transform(new ProjCoordinate(expected[i * 3], expected[i * 3 + 1], expected[i * 3 + 2]), new ProjCoordinate());
+            assertEquals(result.x, coordinates[i * 3], 1.0e-9);
+            assertEquals(result.y, coordinates[i * 3 + 1], 1.0e-9);
+            assertEquals(expected[i * 3 + 2], coordinates[i * 3 + 2]);
+        }
+        assertSame(CoordinateTransformEngine.getTransform(source, GlobeUtils.wgs84), CoordinateTransformEngine.getTransform(source, GlobeUtils.wgs84));
+    }
+
+    @Test
+    void transformToLocal() {
+        Configuration.initConsoleLogger();
+        int count = 100000;
+        double[] coordinates = createCoordinates(count);
+        double[] expected = coordinates.clone();
+
+        ProjCoordinate center = GlobeUtils.transform(source, new ProjCoordinate(200000, 550000, 0));
+        Vector3d centerWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(new Vector3d(center.x, center.y, 0));
+        Matrix4d worldToLocal = GlobeUtils.transformMatrixAtCartesianPointWgs84(centerWorldCoordinate).invert();
+
+        long startTime = System.nanoTime();
+        CoordinateTransformEngine.transformToLocalParallel(source, coordinates, 0, count, worldToLocal);
+        log.info("Transformed {} coordinates to local in {}ms", count, (System.nanoTime() - startTime) / 1000000);
+
+        for (int i = 0; i < count; i += 997) {
+            ProjCoordinate wgs84 = GlobeUtils.transform(source, new ProjCoordinate(expected[i * 3], expected[i * 3 + 1], expected[i * 3 + 2]));
+            Vector3d world = GlobeUtils.geographicToCartesianWgs84(new Vector3d(wgs84.x, wgs84.y, expected[i * 3 + 2]));
+            Vector3d local = world.mulPosition(worldToLocal, new Vector3d());
+            assertEquals(local.x, coordinates[i * 3], 1.0e-6);
+            assertEquals(local.y, coordinates[i * 3 + 1], 1.0e-6);
+            assertEquals(local.z, coordinates[i * 3 + 2], 1.0e-6);
+        }
+    }
+
+    @Test
+    void sameCrsOrMissingSource() {
+        Configuration.initConsoleLogger();
+        double[] coordinates = createCoordinates(10);
+        double[] expected = coordinates.clone();
+
+        // only an explicit pair of the same CRS is left as it is
+        CoordinateTransformEngine.transform(GlobeUtils.wgs84, GlobeUtils.wgs84, coordinates, 0, 10);
+        assertArrayEquals(expected, coordinates);
+
+        Matrix4d worldToLocal = new Matrix4d();
+        assertThrows(IllegalArgumentException.class, () -> CoordinateTransformEngine.transform(null, GlobeUtils.wgs84, coordinates, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> CoordinateTransformEngine.transformToLocal(null, coordinates, 0, 10, worldToLocal));
+        assertThrows(IllegalArgumentException.class, () -> CoordinateTransformEngine.transformToWgs84(null, new ProjCoordinate(200000, 550000, 0)));
+        assertArrayEquals(expected, coordinates);
+    }
+
+    @Test
+    void invalidCoordinatesToLocal() {
+        Configuration.initConsoleLogger();
+        double[] coordinates = {0, 0, 0, 7000000, 0, 0};
+        Matrix4d worldToLocal = new Matrix4d();
+        assertThrows(Proj4jException.class, () -> CoordinateTransformEngine.transformToLocal(orthographic, coordinates.clone(), 0, 2, worldToLocal));
+
+        // the point clouds place the invalid points at longitude 0 and latitude 0
+        double[] pointCoordinates = coordinates.clone();
+        CoordinateTransformEngine.transformToLocal(orthographic, pointCoordinates, 0, 2, worldToLocal, true);
+        Vector3d origin = GlobeUtils.geographicToCartesianWgs84(new Vector3d(0, 0, 0));
+        assertEquals(origin.x, pointCoordinates[3], 1.0e-6);
+        assertEquals(origin.y, pointCoordinates[4], 1.0e-6);
+        assertEquals(origin.z, pointCoordinates[5], 1.0e-6);
+    }
+
+    @Test
+    void strictTranslationFailsOutsideProjection() {
+        Configuration.initConsoleLogger();
+        GaiaPrimitive primitive = new GaiaPrimitive();
+        // the center of the scene is in the domain of the projection, the last vertex is not
+        for (double x : new double[]{0, 1000, 7000000}) {
+            GaiaVertex vertex = new GaiaVertex();
+            vertex.setPosition(new Vector3d(x, 0, 0));
+            primitive.getVertices().add(vertex);
+        }
+        GaiaMesh mesh = new GaiaMesh();
+        mesh.getPrimitives().add(primitive);
+        GaiaNode node = new GaiaNode();
+        node.getMeshes().add(mesh);
+        GaiaScene scene = new GaiaScene();
+        scene.getNodes().add(node);
+        TileInfo tileInfo = TileInfo.builder().scene(scene).build();
+
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        CoordinateReferenceSystem sourceCrs = globalOptions.getSourceCrs();
+        FormatType inputFormat = globalOptions.getInputFormat();
+        try {
+            globalOptions.setSourceCrs(orthographic);
+            globalOptions.setInputFormat(FormatType.OBJ);
+            GaiaStrictTranslation translation = new GaiaStrictTranslation(new ArrayList<>());
+            assertThrows(Proj4jException.class, () -> translation.run(tileInfo));
+        } finally {
+            globalOptions.setSourceCrs(sourceCrs);
+            globalOptions.setInputFormat(inputFormat);
+        }
+    }
+
+    private double[] createCoordinates(int count) {
+        Random random = new Random(42);
+        double[] coordinates = new double[count * 3];
+        for (int i = 0; i < count; i++) {
+            coordinates[i * 3] = 200000 + random.nextDouble() * 1000;
+            coordinates[i * 3 + 1] = 550000 + random.nextDouble() * 1000;
+            coordinates[i * 3 + 2] = random.nextDouble() * 100;
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,79 @@
+package com.gaia3d.util;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaBufferPoolTest {
+
+    @Test
+    void reuseByteBuffer() {
+        Configuration.initConsoleLogger();
+        GaiaBufferPool bufferPool = new GaiaBufferPool(1024 * 1024);
+
+        ByteBuffer buffer = bufferPool.acquireByteBuffer(3000);
+        assertEquals(3000, buffer.capacity());
+        assertEquals(0, buffer.position());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+        assertEquals(1, bufferPool.getMissCount());
+        buffer.putInt(0x01020304);
+        byte[] array = buffer.array();
+        bufferPool.release(buffer);
+        assertEquals(4096, bufferPool.getRetainedBytes());
+
+        // same size class, the array is reused and cleared
+        ByteBuffer reused = bufferPool.acquireByteBuffer(2500);
+        assertSame(array, reused.array());
+        assertEquals(2500, reused.capacity());
+        assertEquals(0, reused.getInt(0));
+        assertEquals(1, bufferPool.getHitCount());
+        assertEquals(0, bufferPool.getRetainedBytes());
+        bufferPool.release(reused);
+        bufferPool.logMetrics("Test");
+    }
+
+    @Test
+    void capRetainedBytes() {
+        Configuration.initConsoleLogger();
+        GaiaBufferPool bufferPool = new GaiaBufferPool(96 * 1024);
+
+        double[] first = bufferPool.acquireDoubles(4096);
+        double[] second = bufferPool.acquireDoubles(4096);
+        assertEquals(4096, first.length);
+        bufferPool.release(first);
+        bufferPool.release(second);
+        assertEquals(64 * 1024, bufferPool.getRetainedBytes());
+
+        // over the cap
+        bufferPool.release(new double[8192]);
+        assertEquals(1, bufferPool.getDropCount());
+        assertEquals(64 * 1024, bufferPool.getRetainedBytes());
+
+        // not a size class length
+        bufferPool.release(new byte[1000]);
+        assertEquals(64 * 1024, bufferPool.getRetainedBytes());
+
+        bufferPool.clearThreadCache();
+        assertEquals(0, bufferPool.getRetainedBytes());
+    }
+
+    @Test
+    void threadLocalArrays() throws InterruptedException {
+        Configuration.initConsoleLogger();
+        GaiaBufferPool bufferPool = new GaiaBufferPool(1024 * 1024);
+        bufferPool.release(bufferPool.acquireBytes(8192));
+
+        Thread thread = new Thread(() -> bufferPool.acquireBytes(8192));
+        thread.start();
+        thread.join();
+        assertEquals(0, bufferPool.getHitCount());
+        assertNotNull(bufferPool.acquireBytes(8192));
+        assertEquals(1, bufferPool.getHitCount());
+    }
+}
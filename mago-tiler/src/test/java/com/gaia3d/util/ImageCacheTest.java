@@ -0,0 +1,121 @@
+package com.gaia3d.util;
+
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class ImageCacheTest {
+    private static final long IMAGE_BYTES = 512 * 256 * 3;
+
+    @TempDir
+    Path tempDir;
+
+    private final ImageCache imageCache = ImageCache.getInstance();
+    private long maxBytes;
+
+    @BeforeEach
+    void setUp() {
+        maxBytes = imageCache.getMaxBytes();
+        imageCache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageCache.clear();
+        imageCache.setMaxBytes(maxBytes);
+    }
+
+    @Test
+    void shareDecodedImages() throws IOException {
+        Configuration.initConsoleLogger();
+        writeImage("a.jpg", Color.RED);
+
+        GaiaTexture first = createTexture("a.jpg");
+        GaiaTexture second = createTexture("a.jpg");
+        assertSame(first.getBufferedImage(), second.getBufferedImage());
+        assertEquals(1, imageCache.getMissCount());
+        assertEquals(1, imageCache.getHitCount());
+        assertEquals(IMAGE_BYTES, imageCache.getBytes());
+
+        // the lower level of detail is derived from the cached original image
+        GaiaTexture scaled = createTexture("a.jpg");
+        BufferedImage scaledImage = scaled.getBufferedImage(0.5f);
+        assertEquals(256, scaledImage.getWidth());
+        assertEquals(128, scaledImage.getHeight());
+        assertEquals(2, imageCache.getHitCount());
+        assertSame(scaledImage, createTexture("a.jpg").getBufferedImage(0.5f));
+        assertEquals(2, imageCache.size());
+
+        // the shared image is copied before being drawn on
+        int rgb = first.getBufferedImage().getRGB(0, 0);
+        first.fillImage(Color.BLUE);
+        assertNotSame(first.getBufferedImage(), second.getBufferedImage());
+        assertEquals(rgb, second.getBufferedImage().getRGB(0, 0));
+        assertNotEquals(rgb, first.getBufferedImage().getRGB(0, 0));
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws IOException {
+        Configuration.initConsoleLogger();
+        writeImage("a.jpg", Color.RED);
+        writeImage("b.jpg", Color.GREEN);
+        writeImage("c.jpg", Color.BLUE);
+        imageCache.setMaxBytes(IMAGE_BYTES * 2);
+
+        createTexture("a.jpg").getBufferedImage();
+        createTexture("b.jpg").getBufferedImage();
+        createTexture("a.jpg").getBufferedImage();
+        createTexture("c.jpg").getBufferedImage();
+        assertEquals(1, imageCache.getEvictionCount());
+        assertEquals(2, imageCache.size());
+        assertEquals(IMAGE_BYTES * 2, imageCache.getBytes());
+
+        // 'b' was the least recently used
+        createTexture("a.jpg").getBufferedImage();
+        assertEquals(2, imageCache.getHitCount());
+        createTexture("b.jpg").getBufferedImage();
+        assertEquals(4, imageCache.getMissCount());
+
+        // a rewritten file is decoded again
+        writeImage("a.jpg", Color.WHITE);
+        new File(tempDir.toFile(), "a.jpg").setLastModified(System.currentTimeMillis() + 10000);
+        BufferedImage rewritten = createTexture("a.jpg").getBufferedImage();
+        assertEquals(5, imageCache.getMissCount());
+        assertEquals(Color.WHITE.getRGB(), rewritten.getRGB(0, 0));
+
+        imageCache.setMaxBytes(0);
+        assertEquals(0, imageCache.size());
+        assertNotNull(createTexture("c.jpg").getBufferedImage());
+        assertEquals(0, imageCache.size());
+    }
+
+    private GaiaTexture createTexture(String name) {
+        GaiaTexture texture = new GaiaTexture();
+        texture.setParentPath(tempDir.toString());
+        texture.setPath(name);
+        return texture;
+    }
+
+    private void writeImage(String name, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(512, 256, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 512, 256);
+        graphics.dispose();
+        ImageIO.write(image, "jpg", tempDir.resolve(name).toFile());
+    }
+}
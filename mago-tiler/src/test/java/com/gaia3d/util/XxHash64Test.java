@@ -0,0 +1,41 @@
+package com.gaia3d.util;
+
+import com.gaia3d.command.Configuration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@Slf4j
+class XxHash64Test {
+
+    @Test
+    void hashReferenceValues() {
+        Configuration.initConsoleLogger();
+        assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(new byte[0], 0));
+        assertEquals(0xD24EC4F1A98C6E5BL, XxHash64.hash("a".getBytes(StandardCharsets.US_ASCII), 0));
+        assertEquals(0x44BC2CF5AD770999L, XxHash64.hash("abc".getBytes(StandardCharsets.US_ASCII), 0));
+    }
+
+    @Test
+    void hashIntsAsLittleEndianBytes() {
+        Configuration.initConsoleLogger();
+        Random random = new Random(3);
+        for (int count = 0; count < 40; count++) {
+            int[] ints = new int[count];
+            for (int i = 0; i < count; i++) {
+                ints[i] = random.nextInt();
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asIntBuffer().put(ints);
+            assertEquals(XxHash64.hash(bytes.array(), 7), XxHash64.hash(ints, 7));
+        }
+        assertNotEquals(XxHash64.hash(new int[]{1, 2, 3}, 0), XxHash64.hash(new int[]{1, 2, 3}, 1));
+    }
+}